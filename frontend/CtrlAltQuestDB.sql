@@ -45,17 +45,37 @@ CREATE TABLE IF NOT EXISTS public.app_name_mapping
     CONSTRAINT app_name_mapping_app_hash_key UNIQUE (app_hash)
 );
 
+-- Particionada por mes en start_time. UsageLogMaintenanceService crea las particiones
+-- futuras (app_usage_logs_pYYYY_MM), compacta los días cerrados y aplica la retención.
 CREATE TABLE IF NOT EXISTS public.app_usage_logs
 (
     id serial NOT NULL,
     session_id integer NOT NULL,
     app_id integer,
-    start_time timestamp without time zone,
+    start_time timestamp without time zone NOT NULL,
     end_time timestamp without time zone,
     duration interval,
     productive_time interval,
-    CONSTRAINT app_usage_logs_pkey PRIMARY KEY (id)
-);
+    CONSTRAINT app_usage_logs_pkey PRIMARY KEY (id, start_time)
+) PARTITION BY RANGE (start_time);
+
+-- Red de seguridad: filas fuera de cualquier partición mensual
+CREATE TABLE IF NOT EXISTS public.app_usage_logs_default
+    PARTITION OF public.app_usage_logs DEFAULT;
+
+-- Particiones del mes actual y del siguiente, para que las primeras filas no caigan en la DEFAULT
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    FOR i IN 0..1 LOOP
+        mes := (date_trunc('month', CURRENT_DATE) + make_interval(months => i))::date;
+        EXECUTE format('CREATE TABLE IF NOT EXISTS public.%I PARTITION OF public.app_usage_logs '
+                       'FOR VALUES FROM (%L) TO (%L)',
+                       'app_usage_logs_p' || to_char(mes, 'YYYY_MM'), mes, (mes + INTERVAL '1 month')::date);
+    END LOOP;
+END
+$$;
 
 CREATE TABLE IF NOT EXISTS public.apps
 (
@@ -604,6 +624,8 @@ ALTER TABLE IF EXISTS public.app_usage_logs
     ON DELETE CASCADE;
 CREATE INDEX IF NOT EXISTS idx_app_usage_session
     ON public.app_usage_logs(session_id);
+CREATE INDEX IF NOT EXISTS idx_app_usage_start
+    ON public.app_usage_logs(start_time);
 
 
 ALTER TABLE IF EXISTS public.boss_item_rewards
@@ -971,4 +993,79 @@ ALTER TABLE IF EXISTS public.xp_history
 CREATE INDEX IF NOT EXISTS idx_xp_history_user
     ON public.xp_history(user_id);
 
+-- Agregados diarios (RollupDAO): se mantienen desde el lote de actividad
+-- app_id NULL: tramos sin título (en app_usage_logs también van sin app), para que los
+-- totales del día cuadren con las sesiones sin inventar una fila en apps
+CREATE TABLE IF NOT EXISTS public.app_usage_daily
+(
+    user_id integer NOT NULL REFERENCES public.users (id) ON DELETE CASCADE,
+    app_id integer REFERENCES public.apps (id) ON DELETE CASCADE,
+    day date NOT NULL,
+    seconds bigint NOT NULL DEFAULT 0
+);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_app_usage_daily
+    ON public.app_usage_daily(user_id, day, COALESCE(app_id, 0));
+
+-- Un nombre de app por fila sin distinguir mayúsculas (buscarOCrearApp). En bases anteriores
+-- al índice puede haber duplicados ("Chrome"/"chrome"): las referencias pasan a la de menor
+-- id, los agregados diarios se suman en ella y el resto se borra antes de crear el índice.
+DO $$
+BEGIN
+    CREATE TEMP TABLE apps_duplicadas AS
+        SELECT id, keep_id
+        FROM (SELECT id, MIN(id) OVER (PARTITION BY LOWER(name)) AS keep_id FROM public.apps) a
+        WHERE id <> keep_id;
+
+    IF EXISTS (SELECT 1 FROM apps_duplicadas) THEN
+        INSERT INTO public.app_usage_daily (user_id, app_id, day, seconds)
+        SELECT d.user_id, m.keep_id, d.day, SUM(d.seconds)
+        FROM public.app_usage_daily d JOIN apps_duplicadas m ON m.id = d.app_id
+        GROUP BY d.user_id, m.keep_id, d.day
+        ON CONFLICT (user_id, day, (COALESCE(app_id, 0)))
+        DO UPDATE SET seconds = app_usage_daily.seconds + EXCLUDED.seconds;
+        DELETE FROM public.app_usage_daily d USING apps_duplicadas m WHERE d.app_id = m.id;
+
+        UPDATE public.app_usage_logs t SET app_id = m.keep_id FROM apps_duplicadas m WHERE t.app_id = m.id;
+        UPDATE public.app_name_mapping t SET app_id = m.keep_id FROM apps_duplicadas m WHERE t.app_id = m.id;
+        UPDATE public.browser_logs t SET app_id = m.keep_id FROM apps_duplicadas m WHERE t.app_id = m.id;
+        UPDATE public.build_logs t SET app_id = m.keep_id FROM apps_duplicadas m WHERE t.app_id = m.id;
+        UPDATE public.keyboard_logs t SET app_id = m.keep_id FROM apps_duplicadas m WHERE t.app_id = m.id;
+        UPDATE public.mouse_logs t SET app_id = m.keep_id FROM apps_duplicadas m WHERE t.app_id = m.id;
+        DELETE FROM public.apps a USING apps_duplicadas m WHERE a.id = m.id;
+    END IF;
+
+    DROP TABLE apps_duplicadas;
+END
+$$;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_apps_lower_name
+    ON public.apps(LOWER(name));
+
+CREATE TABLE IF NOT EXISTS public.xp_daily
+(
+    user_id integer NOT NULL REFERENCES public.users (id) ON DELETE CASCADE,
+    day date NOT NULL,
+    xp bigint NOT NULL DEFAULT 0,
+    CONSTRAINT xp_daily_pkey PRIMARY KEY (user_id, day)
+);
+
+CREATE TABLE IF NOT EXISTS public.rollup_state
+(
+    name character varying(50) NOT NULL PRIMARY KEY,
+    completed_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Lotes del diario local de actividad ya aplicados (reenvío idempotente)
+CREATE TABLE IF NOT EXISTS public.activity_journal_applied
+(
+    batch_id uuid NOT NULL PRIMARY KEY,
+    applied_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Bloqueos de login compartidos entre clientes (LoginAttemptService con sharedLockouts)
+CREATE TABLE IF NOT EXISTS public.login_lockouts
+(
+    identifier_hash character(64) NOT NULL PRIMARY KEY,
+    locked_until_ms bigint NOT NULL
+);
+
 END;
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.ctrlaltquest.bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * BaselineComparator - Compara un resultado JMH (-rf json) con una línea base guardada.
+ *
+ * Uso: BaselineComparator &lt;resultado.json&gt; &lt;baseline.json&gt; [tolerancia %]
+ *
+ *  - Si la línea base no existe, se crea copiando el resultado.
+ *  - Por cada benchmark (con sus parámetros) muestra el cambio de throughput y de
+ *    gc.alloc.rate.norm (bytes asignados por operación, del profiler -prof gc).
+ *  - Sale con código 1 si algo empeora más que la tolerancia (por defecto 10 %) y
+ *    -Dbench.failOnRegression=true; así el perfil "bench" puede cortar la build.
+ */
+public final class BaselineComparator {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private BaselineComparator() {}
+
+    /** Puntuaciones de un benchmark concreto. */
+    private static final class Score {
+        final double primary;
+        final Double allocPerOp;
+
+        Score(double primary, Double allocPerOp) {
+            this.primary = primary;
+            this.allocPerOp = allocPerOp;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: BaselineComparator <resultado.json> <baseline.json> [tolerancia %]");
+            System.exit(2);
+        }
+        Path result = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100.0 : 0.10;
+
+        if (!Files.exists(result)) {
+            System.err.println("❌ No existe el resultado JMH: " + result);
+            System.exit(2);
+        }
+        if (!Files.exists(baseline)) {
+            if (baseline.getParent() != null) Files.createDirectories(baseline.getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("📌 Línea base creada en " + baseline);
+            return;
+        }
+
+        Map<String, Score> current = load(result);
+        Map<String, Score> base = load(baseline);
+        int regressions = 0;
+
+        System.out.println(String.format("%-70s %14s %14s %8s %12s", "Benchmark", "Base", "Actual", "Δ", "Δ B/op"));
+        for (Map.Entry<String, Score> e : new TreeMap<>(current).entrySet()) {
+            Score now = e.getValue();
+            Score before = base.get(e.getKey());
+            if (before == null) {
+                System.out.println(String.format("%-70s %14s %14.3f %8s %12s", e.getKey(), "-", now.primary, "nuevo", "-"));
+                continue;
+            }
+
+            // Throughput: más es mejor. Bytes por operación: menos es mejor.
+            double delta = (now.primary - before.primary) / before.primary;
+            String alloc = "-";
+            boolean worse = delta < -tolerance;
+            if (now.allocPerOp != null && before.allocPerOp != null && before.allocPerOp > 0) {
+                double allocDelta = (now.allocPerOp - before.allocPerOp) / before.allocPerOp;
+                alloc = String.format("%+.1f%%", allocDelta * 100);
+                worse |= allocDelta > tolerance;
+            }
+            if (worse) regressions++;
+
+            System.out.println(String.format("%-70s %14.3f %14.3f %+7.1f%% %12s%s",
+                e.getKey(), before.primary, now.primary, delta * 100, alloc, worse ? "  ⚠️" : ""));
+        }
+
+        if (regressions == 0) {
+            System.out.println("✅ Sin regresiones por encima del " + Math.round(tolerance * 100) + " %");
+        } else {
+            System.out.println("⚠️ " + regressions + " benchmark(s) empeoran más del " + Math.round(tolerance * 100) + " %");
+            if (Boolean.getBoolean("bench.failOnRegression")) System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> load(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement el : runs) {
+                JsonObject run = el.getAsJsonObject();
+                JsonObject primary = run.getAsJsonObject("primaryMetric");
+                scores.put(key(run), new Score(primary.get("score").getAsDouble(), allocPerOp(run)));
+            }
+        }
+        return scores;
+    }
+
+    /** Nombre corto del benchmark + parámetros, p. ej. "ProgressionBenchmark.levelUps[xp=1000]". */
+    private static String key(JsonObject run) {
+        String name = run.get("benchmark").getAsString();
+        name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+        JsonObject params = run.getAsJsonObject("params");
+        if (params == null || params.size() == 0) return name;
+
+        StringBuilder sb = new StringBuilder(name).append('[');
+        for (String p : new TreeMap<>(params.asMap()).keySet()) {
+            if (sb.charAt(sb.length() - 1) != '[') sb.append(',');
+            sb.append(p).append('=').append(params.get(p).getAsString());
+        }
+        return sb.append(']').toString();
+    }
+
+    private static Double allocPerOp(JsonObject run) {
+        JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+        if (secondary == null) return null;
+        for (String name : secondary.keySet()) {
+            // Según la versión de JMH el nombre lleva o no el prefijo "·"
+            if (name.endsWith(ALLOC_NORM)) {
+                return secondary.getAsJsonObject(name).get("score").getAsDouble();
+            }
+        }
+        return null;
+    }
+}
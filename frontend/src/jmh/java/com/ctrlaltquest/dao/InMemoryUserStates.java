@@ -0,0 +1,17 @@
+package com.ctrlaltquest.dao;
+
+/**
+ * Sustituto en memoria de la carga de public.users para los benchmarks:
+ * todos los usuarios empiezan en nivel 1 con 0 XP y 100 monedas.
+ */
+public final class InMemoryUserStates {
+
+    private InMemoryUserStates() {}
+
+    /**
+     * Hace que UserStateCache deje de consultar la BD.
+     */
+    public static void install() {
+        UserStateCache.getInstance().setLoader(userId -> new UserStateCache.UserState(userId, 1, 0, 0, 100, 1, 0));
+    }
+}
@@ -0,0 +1,101 @@
+package com.ctrlaltquest.services;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ctrlaltquest.dao.InMemoryUserStates;
+
+import javafx.application.Platform;
+
+/**
+ * Tick de ActivityMonitorService.reportActivity que acredita foco (sin la lectura JNA del
+ * título), con la BD sustituida por fakes en memoria:
+ *  - UserStateCache carga estados sintéticos (InMemoryUserStates)
+ *  - AchievementEngine sin definiciones
+ *  - el write-behind no vuelca nunca (intervalo y umbral de flush desactivados en el fork)
+ *
+ * El título no cambia y el reloj es sintético: cada llamada avanza un segundo y, con el
+ * checkpoint a 1 s en el fork, cada tick entrega su segundo al write-behind (que lo funde
+ * con el tramo anterior, así que la memoria no crece) y a XPSyncService. Es el caso caro
+ * del monitor; en la aplicación real la mayoría de ticks solo comparan el título. La XP se
+ * aplica en las franjas de XPSyncService en paralelo, como en la aplicación real; si su cola
+ * supera MAX_PENDING_XP el benchmark espera a vaciarla, así que el resultado es el ritmo
+ * sostenido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Dctrlaltquest.activity.flushIntervalMs=86400000",
+    "-Dctrlaltquest.activity.flushTicks=2147483647",
+    "-Dctrlaltquest.activity.checkpointMs=1000"
+})
+public class ActivityTickBenchmark {
+
+    private static final String TITLE = "ActivityMonitorService.java - ctrl-alt-quest - IntelliJ IDEA";
+    private static final long TICK_MS = 1000;
+
+    private static final int MAX_PENDING_XP = 10_000;
+
+    private ActivityMonitorService monitor;
+    private XPSyncService xpSync;
+
+    // Reloj sintético del monitor (un solo hilo de benchmark, como el muestreador real)
+    private long clockMillis;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        startFxToolkit();
+        InMemoryUserStates.install();
+        AchievementEngine.getInstance().useDefinitions(Collections.emptyList());
+        monitor = ActivityMonitorService.getInstance();
+        xpSync = XPSyncService.getInstance();
+        clockMillis = System.currentTimeMillis();
+        // Abre el segmento: a partir de aquí cada tick acredita
+        monitor.reportActivity(1, TITLE, clockMillis);
+    }
+
+    /**
+     * XPSyncService entrega los cambios a la UI con Platform.runLater; sin toolkit la primera
+     * entrega falla y las siguientes no se programan, así que el tick mediría menos trabajo.
+     */
+    private static void startFxToolkit() {
+        try {
+            Platform.setImplicitExit(false);
+            Platform.startup(() -> {});
+        } catch (IllegalStateException alreadyStarted) {
+            // Ya arrancado
+        } catch (Exception | Error e) {
+            System.err.println("⚠️ [ActivityTickBenchmark] No se pudo iniciar JavaFX (" + e.getMessage() +
+                               "); en Linux sin pantalla ejecutar con xvfb-run.");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drainXP() {
+        // Que la cola de XP no crezca entre iteraciones
+        xpSync.drain(10_000);
+    }
+
+    @Benchmark
+    public void reportActivity() {
+        clockMillis += TICK_MS;
+        monitor.reportActivity(1, TITLE, clockMillis);
+        if (xpSync.getPendingEvents() > MAX_PENDING_XP) xpSync.drain(10_000);
+    }
+}
@@ -0,0 +1,41 @@
+package com.ctrlaltquest.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ctrlaltquest.models.EventType;
+
+/**
+ * Generación de eventos contextuales: selección por actividad y texto de la descripción.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventGeneratorBenchmark {
+
+    private static final EventType[] TYPES = EventType.values();
+    private int next;
+
+    @Benchmark
+    public String generateDescription() {
+        EventType type = TYPES[next++ % TYPES.length];
+        return EventGenerator.generateDescription(type, 25);
+    }
+
+    @Benchmark
+    public EventType generateForcedEvent() {
+        return EventGenerator.generateForcedEvent("Main.java - ctrl-alt-quest - Visual Studio Code");
+    }
+}
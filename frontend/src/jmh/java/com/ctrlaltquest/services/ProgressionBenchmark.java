@@ -0,0 +1,90 @@
+package com.ctrlaltquest.services;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Subidas de nivel con concesiones grandes de XP y parseo de condiciones de logros.
+ *
+ * levelUps pasa por XPSyncService.applyLevelUps con la curva activa; resolve mide
+ * ProgressionCurve directamente con cada tipo de curva (raíz cuadrada en la lineal,
+ * búsqueda binaria en el resto): el coste no debe crecer con la XP concedida.
+ *
+ * El parseo de condiciones con Gson sustituye al antiguo RewardsService.extractJsonIntValue;
+ * se mide igualmente porque se repite al recargar definiciones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgressionBenchmark {
+
+    @State(Scope.Thread)
+    public static class Grant {
+        @Param({"1", "1000", "1000000", "100000000"})
+        public int xp;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Curve {
+        @Param({"linear:1000", "polynomial:1000,1.5", "table:500,1000,2000,4000,8000"})
+        public String spec;
+
+        ProgressionCurve curve;
+
+        @Setup
+        public void setup() {
+            curve = ProgressionCurve.fromSpec(spec);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Condition {
+        private static final Map<String, String> SAMPLES = Map.of(
+            "level",    "{\"type\":\"level\",\"value\":10}",
+            "totalXp",  "{\"total_xp\":50000}",
+            "missions", "{\"type\":\"missions_completed\",\"value\":25,\"description\":\"Completa 25 misiones\"}",
+            "unknown",  "{\"clicks\":500}");
+
+        @Param({"level", "totalXp", "missions", "unknown"})
+        public String kind;
+
+        String json;
+
+        @Setup
+        public void setup() {
+            json = SAMPLES.get(kind);
+        }
+    }
+
+    @Benchmark
+    public int levelUps(Grant grant) {
+        XPSyncService.UserXPData data = new XPSyncService.UserXPData();
+        data.currentXP = grant.xp;
+        data.totalXP = grant.xp;
+        return XPSyncService.applyLevelUps(data);
+    }
+
+    @Benchmark
+    public int resolve(Curve curve, Grant grant) {
+        return curve.curve.resolve(1, 0, grant.xp).level;
+    }
+
+    @Benchmark
+    public Object parseCondition(Condition condition) {
+        return AchievementEngine.parse(1, "bench", condition.json, 100, 50);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ctrlaltquest.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Clasificación de títulos de ventana (la usan ActivityMonitorService, MissionProgressService
+ * y EventGenerator en cada tick).
+ *
+ *  - classifyCached: títulos repetidos, el caso normal (memo LRU)
+ *  - classifyUncached: títulos siempre distintos (autómata + regex + inserción en el memo)
+ *  - resolveCategoryId: EventGenerator resuelve ids de categoría además de títulos
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TitleClassifierBenchmark {
+
+    private static final String[] TITLES = {
+        "TitleClassifier.java - ctrl-alt-quest - IntelliJ IDEA",
+        "Pull requests · Noshedme/Ctrl-Alt-Quest - Google Chrome",
+        "Informe trimestral.xlsx - Excel",
+        "#general | Equipo - Slack",
+        "Spotify Premium",
+        "Escritorio / Explorador",
+        "java - How to use a TreeMap subMap? - Stack Overflow - Mozilla Firefox",
+        "Documento sin título - Google Docs - Brave"
+    };
+
+    private TitleClassifier classifier;
+    private int next;
+    private long unique;
+
+    @Setup
+    public void setup() {
+        classifier = TitleClassifier.getInstance();
+        for (String title : TITLES) classifier.classify(title);
+    }
+
+    @Benchmark
+    public TitleClassifier.Category classifyCached() {
+        return classifier.classify(TITLES[next++ & (TITLES.length - 1)]);
+    }
+
+    @Benchmark
+    public TitleClassifier.Category classifyUncached() {
+        String base = TITLES[next++ & (TITLES.length - 1)];
+        return classifier.classify(base + " (" + (unique++) + ")");
+    }
+
+    @Benchmark
+    public TitleClassifier.Category resolveCategoryId() {
+        return classifier.resolve("CODING");
+    }
+}
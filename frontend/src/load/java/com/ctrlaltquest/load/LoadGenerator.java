@@ -0,0 +1,438 @@
+package com.ctrlaltquest.load;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrlaltquest.dao.ActivityDAO;
+import com.ctrlaltquest.dao.MissionsDAO;
+import com.ctrlaltquest.db.ConnectionPool;
+import com.ctrlaltquest.db.DatabaseConnection;
+import com.ctrlaltquest.services.ActivityWriteBehindService;
+import com.ctrlaltquest.services.DailyUsageTracker;
+import com.ctrlaltquest.services.GameService;
+import com.ctrlaltquest.services.RewardsService;
+import com.ctrlaltquest.services.TitleClassifier;
+import com.ctrlaltquest.services.XPSyncService;
+
+import javafx.application.Platform;
+
+/**
+ * LoadGenerator - Simula N usuarios con el tracker activo contra un PostgreSQL local.
+ *
+ * Cada usuario hace un tick por segundo con el mismo trabajo que el monitor de actividad:
+ * clasificación del título, ActivityDAO (vía write-behind, o directo con directWrites),
+ * XP en XPSyncService, GameService.processActivityEvent (MissionsDAO.actualizarProgreso)
+ * y RewardsService.checkAndAwardAchievements.
+ *
+ * La carga sube por escalones (startUsers, +stepUsers cada stepSeconds) hasta que el p99
+ * de latencia del tick supera el SLO, la tasa de errores supera maxErrorRate o se llega a
+ * maxUsers. La latencia se mide desde el instante en que el tick DEBÍA empezar, así que
+ * los retrasos por hilos saturados cuentan (sin omisión coordinada).
+ *
+ * Los DAOs registran y absorben sus SQLException, así que además de las excepciones del
+ * tick se informan aparte los timeouts del pool y los flush fallidos del write-behind.
+ *
+ * Configuración con propiedades del sistema ctrlaltquest.load.* (ver Options) y la BD con
+ * ctrlaltquest.db.url/user/password. Si la BD está vacía se aplica el esquema de
+ * ctrlaltquest.load.schema. Los usuarios sintéticos (prefijo "load_user_") se reutilizan
+ * entre ejecuciones.
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CONFIGURACIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    static final class Options {
+        int     startUsers    = Integer.getInteger("ctrlaltquest.load.startUsers", 10);
+        int     stepUsers     = Integer.getInteger("ctrlaltquest.load.stepUsers", 10);
+        int     maxUsers      = Integer.getInteger("ctrlaltquest.load.maxUsers", 1000);
+        int     stepSeconds   = Integer.getInteger("ctrlaltquest.load.stepSeconds", 30);
+        int     warmupSeconds = Integer.getInteger("ctrlaltquest.load.warmupSeconds", 5);
+        double  sloP99Ms      = Double.parseDouble(System.getProperty("ctrlaltquest.load.sloP99Ms", "200"));
+        double  maxErrorRate  = Double.parseDouble(System.getProperty("ctrlaltquest.load.maxErrorRate", "0.01"));
+        int     threads       = Integer.getInteger("ctrlaltquest.load.threads",
+                                    Math.min(64, Runtime.getRuntime().availableProcessors() * 4));
+        boolean directWrites  = Boolean.getBoolean("ctrlaltquest.load.directWrites");
+        long    seed          = Long.getLong("ctrlaltquest.load.seed", 42L);
+        String  schema        = System.getProperty("ctrlaltquest.load.schema", "CtrlAltQuestDB.sql");
+
+        @Override
+        public String toString() {
+            return "usuarios " + startUsers + "→" + maxUsers + " (+" + stepUsers + " cada " + stepSeconds + " s, " +
+                   warmupSeconds + " s de calentamiento) | SLO p99 " + sloP99Ms + " ms | errores máx " +
+                   (maxErrorRate * 100) + " % | hilos " + threads + (directWrites ? " | escrituras directas" : "");
+        }
+    }
+
+    /**
+     * Títulos de ventana con su peso: la mayor parte del tiempo en el IDE y la
+     * documentación, algo de comunicación/navegación y un poco de ocio y escritorio.
+     */
+    private static final String[] TITLES = {
+        "ActivityMonitorService.java - ctrl-alt-quest - IntelliJ IDEA",
+        "main.py - analytics - Visual Studio Code",
+        "java - How to use ConcurrentHashMap - Stack Overflow - Google Chrome",
+        "Pull requests · Noshedme/Ctrl-Alt-Quest - Google Chrome",
+        "Informe trimestral.xlsx - Excel",
+        "Notas de la reunión - Notion",
+        "#general | Equipo - Slack",
+        "Bandeja de entrada - Outlook",
+        "YouTube - Mozilla Firefox",
+        "Spotify Premium",
+        "Escritorio / Explorador"
+    };
+    private static final int[] WEIGHTS = { 22, 14, 10, 8, 9, 6, 9, 6, 7, 4, 5 };
+
+    /** Probabilidad por tick de cambiar de ventana (~20 s de media en la misma). */
+    private static final double SWITCH_PROBABILITY = 0.05;
+
+    private static final String USER_PREFIX = "load_user_";
+
+    // ════════════════════════════════════════════════════════════════════════
+    // USUARIO SIMULADO
+    // ════════════════════════════════════════════════════════════════════════
+
+    private static final class SimulatedUser implements Runnable {
+        final int userId;
+        final boolean directWrites;
+        final Random random;
+        final AtomicLong errors;
+        String title;
+        long nextDueNanos;
+
+        // Latencias del escalón actual (solo escribe el propio tick; drain desde el hilo principal)
+        private long[] latencies = new long[64];
+        private int count;
+        private volatile boolean recording;
+
+        SimulatedUser(int userId, long seed, boolean directWrites, AtomicLong errors) {
+            this.userId = userId;
+            this.directWrites = directWrites;
+            this.random = new Random(seed);
+            this.errors = errors;
+            this.title = pickTitle(random);
+        }
+
+        @Override
+        public void run() {
+            long due = nextDueNanos;
+            nextDueNanos += TimeUnit.SECONDS.toNanos(1);
+            try {
+                tick();
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            if (recording) record(System.nanoTime() - due);
+        }
+
+        private void tick() {
+            if (random.nextDouble() < SWITCH_PROBABILITY) title = pickTitle(random);
+
+            TitleClassifier.Category category = TitleClassifier.getInstance().classify(title);
+            if (category.isUnknown()) return;
+
+            if (directWrites) {
+                ActivityDAO.registrarActividad(userId, title, category.metricKey);
+            } else {
+                ActivityWriteBehindService.getInstance().recordTick(userId, title, category);
+            }
+            DailyUsageTracker.getInstance().record(userId, title, category);
+
+            if (category.productive) {
+                XPSyncService.getInstance().awardXPFromActivity(userId, 1, category.metricKey);
+            }
+            GameService.getInstance().processActivityEvent(userId, category.metricKey, 1);
+            RewardsService.getInstance().checkAndAwardAchievements(userId);
+        }
+
+        private synchronized void record(long nanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+        }
+
+        synchronized long[] drain() {
+            long[] copy = Arrays.copyOf(latencies, count);
+            count = 0;
+            return copy;
+        }
+
+        void setRecording(boolean recording) {
+            this.recording = recording;
+        }
+    }
+
+    private static String pickTitle(Random random) {
+        int total = 0;
+        for (int w : WEIGHTS) total += w;
+        int r = random.nextInt(total);
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            r -= WEIGHTS[i];
+            if (r < 0) return TITLES[i];
+        }
+        return TITLES[0];
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // RESULTADO DE UN ESCALÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    private static final class StepResult {
+        final int users;
+        final int ticks;
+        final double p50Ms, p99Ms, p999Ms, maxMs;
+        final double statementsPerTick;
+        final long errors;
+        final long failedFlushes;
+        final long poolTimeouts;
+
+        StepResult(int users, long[] latencies, int ticks, long statements, long errors,
+                   long failedFlushes, long poolTimeouts) {
+            Arrays.sort(latencies, 0, ticks);
+            this.users = users;
+            this.ticks = ticks;
+            this.p50Ms = percentile(latencies, ticks, 0.50);
+            this.p99Ms = percentile(latencies, ticks, 0.99);
+            this.p999Ms = percentile(latencies, ticks, 0.999);
+            this.maxMs = ticks == 0 ? 0 : latencies[ticks - 1] / 1e6;
+            this.statementsPerTick = ticks == 0 ? 0 : (double) statements / ticks;
+            this.errors = errors;
+            this.failedFlushes = failedFlushes;
+            this.poolTimeouts = poolTimeouts;
+        }
+
+        private static double percentile(long[] sorted, int n, double q) {
+            if (n == 0) return 0;
+            int idx = (int) Math.ceil(q * n) - 1;
+            return sorted[Math.max(0, Math.min(idx, n - 1))] / 1e6;
+        }
+
+        double errorRate() {
+            return ticks == 0 ? 0 : (double) errors / ticks;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%8d %8d %9.2f %9.2f %9.2f %9.2f %10.2f %8d %8d %8d",
+                users, ticks, p50Ms, p99Ms, p999Ms, maxMs, statementsPerTick, errors, failedFlushes, poolTimeouts);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // EJECUCIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        System.out.println("🚦 [LoadGenerator] " + options);
+
+        startFxToolkit();
+        seedSchemaIfNeeded(Paths.get(options.schema));
+        List<Integer> userIds = ensureUsers(options.maxUsers);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(options.threads, r -> {
+            Thread t = new Thread(r, "load-user-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicLong errors = new AtomicLong();
+        List<SimulatedUser> active = new ArrayList<>();
+        List<StepResult> results = new ArrayList<>();
+        Random spread = new Random(options.seed);
+        Integer sustainable = null;
+        String stopReason = "se alcanzó maxUsers (" + options.maxUsers + ")";
+
+        System.out.println(String.format("%8s %8s %9s %9s %9s %9s %10s %8s %8s %8s",
+            "usuarios", "ticks", "p50 ms", "p99 ms", "p999 ms", "max ms", "sent/tick", "errores", "flushKO", "poolTO"));
+
+        try {
+            for (int target = options.startUsers; target <= options.maxUsers; target += Math.max(1, options.stepUsers)) {
+                // Arrancar los usuarios nuevos repartidos dentro del segundo
+                while (active.size() < target) {
+                    int userId = userIds.get(active.size());
+                    SimulatedUser user = new SimulatedUser(userId, options.seed + userId, options.directWrites, errors);
+                    prepareUser(userId);
+                    long delayMs = spread.nextInt(1000);
+                    user.nextDueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+                    scheduler.scheduleAtFixedRate(user, delayMs, 1000, TimeUnit.MILLISECONDS);
+                    active.add(user);
+                }
+
+                Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds));
+                for (SimulatedUser u : active) { u.drain(); u.setRecording(true); }
+
+                long errorsBefore = errors.get();
+                long flushesBefore = ActivityWriteBehindService.getInstance().getFailedFlushes();
+                ConnectionPool.PoolStats before = DatabaseConnection.getPoolStats();
+
+                Thread.sleep(TimeUnit.SECONDS.toMillis(options.stepSeconds));
+
+                ConnectionPool.PoolStats after = DatabaseConnection.getPoolStats();
+                for (SimulatedUser u : active) u.setRecording(false);
+                List<long[]> perUser = new ArrayList<>(active.size());
+                int ticks = 0;
+                for (SimulatedUser u : active) {
+                    long[] l = u.drain();
+                    perUser.add(l);
+                    ticks += l.length;
+                }
+                long[] latencies = new long[ticks];
+                int offset = 0;
+                for (long[] l : perUser) {
+                    System.arraycopy(l, 0, latencies, offset, l.length);
+                    offset += l.length;
+                }
+
+                StepResult step = new StepResult(target, latencies, ticks,
+                    after == null || before == null ? 0 : after.statements - before.statements,
+                    errors.get() - errorsBefore,
+                    ActivityWriteBehindService.getInstance().getFailedFlushes() - flushesBefore,
+                    after == null || before == null ? 0 : after.timeouts - before.timeouts);
+                results.add(step);
+                System.out.println(step);
+
+                if (step.p99Ms > options.sloP99Ms) {
+                    stopReason = "p99 " + String.format("%.2f", step.p99Ms) + " ms > SLO " + options.sloP99Ms + " ms";
+                    break;
+                }
+                if (step.errorRate() > options.maxErrorRate) {
+                    stopReason = "tasa de errores " + String.format("%.2f", step.errorRate() * 100) + " %";
+                    break;
+                }
+                sustainable = target;
+            }
+        } finally {
+            scheduler.shutdownNow();
+            ActivityWriteBehindService.getInstance().shutdown();
+            XPSyncService.getInstance().shutdown();
+        }
+
+        System.out.println("🏁 [LoadGenerator] Fin: " + stopReason);
+        System.out.println(sustainable != null
+            ? "✅ Máximo sostenible dentro del SLO: " + sustainable + " usuarios"
+            : "❌ Ni el primer escalón (" + options.startUsers + " usuarios) cumple el SLO");
+        System.out.println("📊 " + DatabaseConnection.getPoolStats());
+
+        DatabaseConnection.shutdown();
+        try { Platform.exit(); } catch (Exception ignored) {}
+        System.exit(0);
+    }
+
+    /**
+     * GameService y XPSyncService notifican a la UI con Platform.runLater; sin toolkit
+     * esas llamadas fallan y contarían como errores del tick.
+     */
+    private static void startFxToolkit() {
+        try {
+            Platform.setImplicitExit(false);
+            Platform.startup(() -> {});
+        } catch (IllegalStateException alreadyStarted) {
+            // Ya arrancado
+        } catch (Exception | Error e) {
+            System.err.println("⚠️ [LoadGenerator] No se pudo iniciar JavaFX (" + e.getMessage() +
+                               "); en Linux sin pantalla ejecutar con xvfb-run.");
+        }
+    }
+
+    /**
+     * Aplica el esquema si la BD no tiene todavía la tabla de usuarios.
+     * Se envía entero en una sola llamada: el driver lo parte en sentencias respetando el
+     * dollar quoting, así que los bloques DO $$ ... $$ (particiones, fusión de apps) llegan enteros.
+     */
+    private static void seedSchemaIfNeeded(Path schema) throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT to_regclass('public.users') IS NOT NULL")) {
+            rs.next();
+            if (rs.getBoolean(1)) return;
+
+            if (!Files.exists(schema)) {
+                throw new IllegalStateException("La BD está vacía y no existe el esquema " + schema.toAbsolutePath());
+            }
+            st.execute(new String(Files.readAllBytes(schema), StandardCharsets.UTF_8));
+            System.out.println("🗄️ [LoadGenerator] Esquema aplicado desde " + schema);
+        }
+    }
+
+    /**
+     * Crea (si faltan) los usuarios sintéticos con una misión por métrica de tiempo,
+     * y devuelve sus ids en orden.
+     */
+    private static List<Integer> ensureUsers(int count) throws SQLException {
+        String sqlUsers =
+            "INSERT INTO public.users (username, email, password_hash, coins, is_active) " +
+            "SELECT ? || g, ? || g || '@load.local', 'load-test', 100, true " +
+            "FROM generate_series(1, ?) g ON CONFLICT (username) DO NOTHING";
+        String sqlMissions =
+            "INSERT INTO public.missions (user_id, title, category, xp_reward, coin_reward, conditions) " +
+            "SELECT u.id, 'Carga: ' || m.metric, m.metric, 50, 10, jsonb_build_object('metric', m.metric, 'target', 3600) " +
+            "FROM public.users u " +
+            "CROSS JOIN (VALUES ('time_coding'), ('time_productivity'), ('app_usage_generic')) AS m(metric) " +
+            "WHERE u.username LIKE ? AND NOT EXISTS " +
+            "  (SELECT 1 FROM public.missions x WHERE x.user_id = u.id AND x.category = m.metric)";
+        String sqlProgress =
+            "INSERT INTO public.mission_progress (user_id, mission_id, metric_key, current_value, target_value, progress_percentage) " +
+            "SELECT m.user_id, m.id, m.category, 0, 3600, 0 FROM public.missions m " +
+            "JOIN public.users u ON u.id = m.user_id WHERE u.username LIKE ? " +
+            "ON CONFLICT (user_id, mission_id, metric_key) DO NOTHING";
+        String sqlIds = "SELECT id FROM public.users WHERE username LIKE ? ORDER BY id LIMIT ?";
+
+        List<Integer> ids = new ArrayList<>(count);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement users = conn.prepareStatement(sqlUsers);
+                 PreparedStatement missions = conn.prepareStatement(sqlMissions);
+                 PreparedStatement progress = conn.prepareStatement(sqlProgress);
+                 PreparedStatement select = conn.prepareStatement(sqlIds)) {
+                users.setString(1, USER_PREFIX);
+                users.setString(2, USER_PREFIX);
+                users.setInt(3, count);
+                int created = users.executeUpdate();
+                missions.setString(1, USER_PREFIX + "%");
+                missions.executeUpdate();
+                progress.setString(1, USER_PREFIX + "%");
+                progress.executeUpdate();
+                conn.commit();
+
+                select.setString(1, USER_PREFIX + "%");
+                select.setInt(2, count);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getInt(1));
+                }
+                System.out.println("👥 [LoadGenerator] " + ids.size() + " usuarios sintéticos (" + created + " nuevos)");
+            }
+        }
+        if (ids.size() < count) {
+            throw new IllegalStateException("Solo hay " + ids.size() + " usuarios sintéticos de " + count);
+        }
+        return ids;
+    }
+
+    /**
+     * Lo que haría el login real antes del primer tick.
+     */
+    private static void prepareUser(int userId) {
+        MissionsDAO.asegurarMisionesInicializadas(userId);
+        DailyUsageTracker.getInstance().hydrate(userId);
+    }
+}
@@ -1,14 +1,25 @@
 package com.ctrlaltquest.dao;
 
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import com.ctrlaltquest.db.DatabaseConnection;
 
 public class ActivityDAO {
 
+    private static final ActivityLookupCache lookupCache = ActivityLookupCache.getInstance();
+
     public static int iniciarSesion(int userId) {
         String sql = "INSERT INTO public.activity_sessions (user_id, session_start) VALUES (?, CURRENT_TIMESTAMP) RETURNING id";
         
@@ -20,19 +31,8 @@ public class ActivityDAO {
             
             if (rs.next()) {
                 int sessionId = rs.getInt(1);
-
-                String updateUserSql = "UPDATE public.users u SET " +
-                        "health_streak = CASE WHEN (u.last_sync::date = CURRENT_DATE) THEN u.health_streak " +
-                        "WHEN (u.last_sync::date = (CURRENT_DATE - INTERVAL '1 day')) THEN COALESCE(u.health_streak,0) + 1 " +
-                        "ELSE 1 END, last_sync = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE u.id = ?";
-
-                try (PreparedStatement upStmt = conn.prepareStatement(updateUserSql)) {
-                    upStmt.setInt(1, userId);
-                    upStmt.executeUpdate();
-                } catch (SQLException e) {
-                    System.err.println("Error actualizando racha al iniciar sesión: " + e.getMessage());
-                }
-
+                lookupCache.putSession(userId, sessionId);
+                actualizarRacha(conn, userId);
                 return sessionId;
             }
         } catch (SQLException e) {
@@ -42,8 +42,37 @@ public class ActivityDAO {
         return -1;
     }
 
+    /**
+     * Racha de salud al empezar a jugar, para sesiones abiertas por el registro del login
+     * (AuthDAO) en lugar de por iniciarSesion().
+     */
+    public static void actualizarRacha(int userId) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            actualizarRacha(conn, userId);
+        } catch (SQLException e) {
+            System.err.println("Error actualizando racha al iniciar sesión: " + e.getMessage());
+        }
+    }
+
+    private static void actualizarRacha(Connection conn, int userId) {
+        String updateUserSql = "UPDATE public.users u SET " +
+                "health_streak = CASE WHEN (u.last_sync::date = CURRENT_DATE) THEN u.health_streak " +
+                "WHEN (u.last_sync::date = (CURRENT_DATE - INTERVAL '1 day')) THEN COALESCE(u.health_streak,0) + 1 " +
+                "ELSE 1 END, last_sync = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE u.id = ?";
+
+        try (PreparedStatement upStmt = conn.prepareStatement(updateUserSql)) {
+            upStmt.setInt(1, userId);
+            upStmt.executeUpdate();
+            // health_streak forma parte del estado cacheado del usuario
+            UserStateCache.getInstance().invalidate(userId);
+        } catch (SQLException e) {
+            System.err.println("Error actualizando racha al iniciar sesión: " + e.getMessage());
+        }
+    }
+
     public static void cerrarSesion(int sessionId) {
         if (sessionId == -1) return;
+        lookupCache.removeSession(sessionId);
         
         // Calculamos el tiempo total restando el inicio del tiempo actual
         String sql = "UPDATE public.activity_sessions SET session_end = CURRENT_TIMESTAMP, " +
@@ -62,11 +91,14 @@ public class ActivityDAO {
                     "WHEN (u.last_sync::date = (CURRENT_DATE - INTERVAL '1 day')) THEN COALESCE(u.health_streak,0) + 1 " +
                     "ELSE 1 END, " +
                     "last_sync = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP " +
-                    "FROM public.activity_sessions a WHERE a.id = ? AND u.id = a.user_id";
+                    "FROM public.activity_sessions a WHERE a.id = ? AND u.id = a.user_id RETURNING u.id";
 
             try (PreparedStatement updateUserStmt = conn.prepareStatement(updateUserSql)) {
                 updateUserStmt.setInt(1, sessionId);
-                updateUserStmt.executeUpdate();
+                try (ResultSet rs = updateUserStmt.executeQuery()) {
+                    // health_streak forma parte del estado cacheado del usuario
+                    if (rs.next()) UserStateCache.getInstance().invalidate(rs.getInt(1));
+                }
             } catch (SQLException e) {
                 System.err.println("Error actualizando usuario al cerrar sesión: " + e.getMessage());
             }
@@ -77,49 +109,17 @@ public class ActivityDAO {
     }
 
     public static void registrarActividad(int userId, String appName, String metricKey) {
-        // Obtener session_id del usuario desde activity_sessions
-        String sessionSql = "SELECT id FROM public.activity_sessions WHERE user_id = ? ORDER BY session_start DESC LIMIT 1";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement sessionStmt = conn.prepareStatement(sessionSql)) {
-            
-            sessionStmt.setInt(1, userId);
-            ResultSet sessionRs = sessionStmt.executeQuery();
-            
-            if (sessionRs.next()) {
-                int sessionId = sessionRs.getInt("id");
-                
+        try (Connection conn = DatabaseConnection.getConnection()) {
+
+            int sessionId = obtenerSesionActual(conn, userId);
+            if (sessionId != -1) {
                 // ✅ CORREGIDO: Obtener app_id válido o NULL en lugar de usar hash
-                Integer appId = null;
-                
-                if (appName != null && !appName.isEmpty()) {
-                    // Buscar si existe una app con este nombre
-                    String findAppSql = "SELECT id FROM public.apps WHERE LOWER(name) = LOWER(?) LIMIT 1";
-                    try (PreparedStatement findStmt = conn.prepareStatement(findAppSql)) {
-                        findStmt.setString(1, appName);
-                        ResultSet appRs = findStmt.executeQuery();
-                        
-                        if (appRs.next()) {
-                            appId = appRs.getInt("id");
-                        } else {
-                            // Si no existe, crear una entrada genérica
-                            String createAppSql = "INSERT INTO public.apps (name, category, is_productive) " +
-                                                "VALUES (?, 'UNKNOWN', false) RETURNING id";
-                            try (PreparedStatement createStmt = conn.prepareStatement(createAppSql)) {
-                                createStmt.setString(1, appName);
-                                ResultSet createdRs = createStmt.executeQuery();
-                                if (createdRs.next()) {
-                                    appId = createdRs.getInt("id");
-                                }
-                            }
-                        }
-                    }
-                }
-                
+                Integer appId = resolverAppId(conn, appName);
+
                 // Insertar el log de actividad con app_id válido o NULL
                 String logSql = "INSERT INTO public.app_usage_logs (session_id, app_id, start_time, duration) " +
                                "VALUES (?, ?, CURRENT_TIMESTAMP, INTERVAL '1 second')";
-                
+
                 try (PreparedStatement logStmt = conn.prepareStatement(logSql)) {
                     logStmt.setInt(1, sessionId);
                     if (appId != null) {
@@ -141,10 +141,364 @@ public class ActivityDAO {
                     // No crítico; evitar spam en consola
                 }
             }
-            
+
         } catch (SQLException e) {
             // Log silencioso para no saturar console (ocurre cada segundo)
             System.err.println("⚠️  Error registrando actividad: " + e.getMessage());
         }
     }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ESCRITURA POR LOTES (write-behind de ActivityWriteBehindService)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Uso agregado de una app: N ticks de 1 s del mismo usuario, app y día fusionados en una fila.
+     */
+    public static class UsoAgregado {
+        public final int userId;
+        public final String appName;
+        public final LocalDateTime inicio;
+        public final LocalDateTime fin;
+        public final long segundos;
+
+        public UsoAgregado(int userId, String appName, LocalDateTime inicio, LocalDateTime fin, long segundos) {
+            this.userId = userId;
+            this.appName = appName;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.segundos = segundos;
+        }
+    }
+
+    /**
+     * Estado de XP pendiente de persistir: último snapshot del usuario + XP ganada desde el
+     * último flush por día en que se ganó y motivo (día → motivo de xp_history → cantidad).
+     */
+    public static class XPPendiente {
+        public final int userId;
+        public final int level;
+        public final int currentXP;
+        public final int totalXP;
+        public final Map<LocalDate, Map<String, Integer>> xpPorDiaYMotivo;
+
+        public XPPendiente(int userId, int level, int currentXP, int totalXP,
+                           Map<LocalDate, Map<String, Integer>> xpPorDiaYMotivo) {
+            this.userId = userId;
+            this.level = level;
+            this.currentXP = currentXP;
+            this.totalXP = totalXP;
+            this.xpPorDiaYMotivo = xpPorDiaYMotivo;
+        }
+    }
+
+    /**
+     * Resultado de un lote del write-behind.
+     * SIN_CONEXION: no se llegó a la BD o se perdió la conexión (SQLState 08*, 57P*); el lote
+     * puede ir al diario local. FALLIDO: la BD lo rechazó estando disponible.
+     */
+    public enum ResultadoLote { APLICADO, YA_APLICADO, SIN_CONEXION, FALLIDO }
+
+    /**
+     * Persiste en UNA transacción todos los cambios acumulados por el write-behind:
+     * filas de app_usage_logs, total_play_time por usuario, XP (snapshot + xp_history)
+     * y los agregados diarios de RollupDAO.
+     *
+     * @return true si el lote se confirmó; false si hubo rollback (el llamador debe reencolar)
+     */
+    public static boolean registrarLoteActividad(List<UsoAgregado> usos,
+                                                 Map<Integer, Long> segundosPorUsuario,
+                                                 List<XPPendiente> xpPendiente) {
+        return registrarLoteActividad(null, usos, segundosPorUsuario, xpPendiente) == ResultadoLote.APLICADO;
+    }
+
+    /**
+     * Igual que el anterior, pero idempotente si se indica loteId: el id se anota en
+     * activity_journal_applied dentro de la misma transacción y, si ya estaba, el lote
+     * no se vuelve a aplicar (reenvíos del diario local tras un corte de la BD).
+     */
+    public static ResultadoLote registrarLoteActividad(UUID loteId,
+                                                       List<UsoAgregado> usos,
+                                                       Map<Integer, Long> segundosPorUsuario,
+                                                       List<XPPendiente> xpPendiente) {
+        String loteSql = "INSERT INTO public.activity_journal_applied (batch_id) VALUES (?) ON CONFLICT DO NOTHING";
+        String logSql = "INSERT INTO public.app_usage_logs (session_id, app_id, start_time, end_time, duration) " +
+                        "VALUES (?, ?, ?, ?, ? * INTERVAL '1 second')";
+        String timeSql = "UPDATE public.users SET " +
+                         "total_play_time = COALESCE(total_play_time, INTERVAL '0') + ? * INTERVAL '1 second', " +
+                         "last_sync = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        String xpSql = "UPDATE public.users SET level = ?, current_xp = ?, total_xp = ? WHERE id = ?";
+        // created_at NULL = ahora; XP de un día anterior (lote que cruzó la medianoche o reenviado
+        // del diario) se fecha en ese día, igual que su fila de xp_daily
+        String xpHistSql = "INSERT INTO public.xp_history (user_id, amount, reason, created_at) " +
+                           "VALUES (?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))";
+
+        try {
+            RollupDAO.asegurarEsquema();
+        } catch (SQLException e) {
+            System.err.println("⚠️  Error preparando tablas de agregados: " + e.getMessage());
+            // Sin SQLState el fallo es del pool (no llegó a haber conexión)
+            return e.getSQLState() == null || esErrorDeConexion(e) ? ResultadoLote.SIN_CONEXION : ResultadoLote.FALLIDO;
+        }
+
+        Connection conexion;
+        try {
+            conexion = DatabaseConnection.getConnection();
+        } catch (SQLException e) {
+            // Aún no hay conexión: pool agotado o cerrado, driver ausente o BD caída
+            System.err.println("⚠️  BD no disponible para el lote de actividad: " + e.getMessage());
+            return ResultadoLote.SIN_CONEXION;
+        }
+
+        try (Connection conn = conexion) {
+            conn.setAutoCommit(false);
+            try {
+                // 0. Lote con id: si ya se aplicó en un reenvío anterior no se repite
+                if (loteId != null) {
+                    try (PreparedStatement loteStmt = conn.prepareStatement(loteSql)) {
+                        loteStmt.setObject(1, loteId);
+                        if (loteStmt.executeUpdate() == 0) {
+                            conn.rollback();
+                            return ResultadoLote.YA_APLICADO;
+                        }
+                    }
+                }
+
+                // 1. Sesión y app_id salen de ActivityLookupCache: casi nunca llegan a Postgres.
+                //    El agregado diario (app_usage_daily) se suma en la misma transacción.
+                try (PreparedStatement logStmt = conn.prepareStatement(logSql);
+                     PreparedStatement rollupStmt = conn.prepareStatement(RollupDAO.SQL_SUMAR_USO_DIARIO)) {
+                    for (UsoAgregado uso : usos) {
+                        int sessionId = obtenerSesionActual(conn, uso.userId);
+                        if (sessionId == -1) continue;
+
+                        Integer appId = resolverAppId(conn, uso.appName);
+
+                        logStmt.setInt(1, sessionId);
+                        if (appId != null) logStmt.setInt(2, appId); else logStmt.setNull(2, Types.INTEGER);
+                        logStmt.setTimestamp(3, Timestamp.valueOf(uso.inicio));
+                        logStmt.setTimestamp(4, Timestamp.valueOf(uso.fin));
+                        logStmt.setLong(5, uso.segundos);
+                        logStmt.addBatch();
+
+                        // Sin app, el agregado va a app_id NULL: los totales del día cuadran con las sesiones
+                        rollupStmt.setInt(1, uso.userId);
+                        if (appId != null) rollupStmt.setInt(2, appId); else rollupStmt.setNull(2, Types.INTEGER);
+                        rollupStmt.setDate(3, Date.valueOf(uso.inicio.toLocalDate()));
+                        rollupStmt.setLong(4, uso.segundos);
+                        rollupStmt.addBatch();
+                    }
+                    logStmt.executeBatch();
+                    rollupStmt.executeBatch();
+                }
+
+                // 2. Tiempo de juego acumulado: un UPDATE por usuario con todos los segundos del lote
+                try (PreparedStatement timeStmt = conn.prepareStatement(timeSql)) {
+                    for (Map.Entry<Integer, Long> e : segundosPorUsuario.entrySet()) {
+                        timeStmt.setLong(1, e.getValue());
+                        timeStmt.setInt(2, e.getKey());
+                        timeStmt.addBatch();
+                    }
+                    timeStmt.executeBatch();
+                }
+
+                // 3. XP: último snapshot + una fila de historial por día y motivo con la XP ganada
+                //    en el lote, y el total de cada día en xp_daily
+                LocalDate hoy = LocalDate.now();
+                try (PreparedStatement xpStmt = conn.prepareStatement(xpSql);
+                     PreparedStatement histStmt = conn.prepareStatement(xpHistSql);
+                     PreparedStatement rollupStmt = conn.prepareStatement(RollupDAO.SQL_SUMAR_XP_DIARIA)) {
+                    for (XPPendiente xp : xpPendiente) {
+                        xpStmt.setInt(1, xp.level);
+                        xpStmt.setInt(2, xp.currentXP);
+                        xpStmt.setInt(3, xp.totalXP);
+                        xpStmt.setInt(4, xp.userId);
+                        xpStmt.addBatch();
+
+                        for (Map.Entry<LocalDate, Map<String, Integer>> dia : xp.xpPorDiaYMotivo.entrySet()) {
+                            Timestamp creadoEn = dia.getKey().equals(hoy) ? null : Timestamp.valueOf(dia.getKey().atTime(23, 59, 59));
+                            long xpGanada = 0;
+                            for (Map.Entry<String, Integer> motivo : dia.getValue().entrySet()) {
+                                if (motivo.getValue() <= 0) continue;
+                                histStmt.setInt(1, xp.userId);
+                                histStmt.setInt(2, motivo.getValue());
+                                histStmt.setString(3, motivo.getKey());
+                                if (creadoEn != null) histStmt.setTimestamp(4, creadoEn); else histStmt.setNull(4, Types.TIMESTAMP);
+                                histStmt.addBatch();
+                                xpGanada += motivo.getValue();
+                            }
+                            if (xpGanada > 0) {
+                                rollupStmt.setInt(1, xp.userId);
+                                rollupStmt.setDate(2, Date.valueOf(dia.getKey()));
+                                rollupStmt.setLong(3, xpGanada);
+                                rollupStmt.addBatch();
+                            }
+                        }
+                    }
+                    xpStmt.executeBatch();
+                    histStmt.executeBatch();
+                    rollupStmt.executeBatch();
+                }
+
+                conn.commit();
+                return ResultadoLote.APLICADO;
+            } catch (SQLException e) {
+                conn.rollback();
+                // Un app_id o session_id cacheado pudo quedar obsoleto: se vuelven a resolver en el reintento
+                lookupCache.clearApps();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️  Error guardando lote de actividad [" + e.getSQLState() + "]: " + e.getMessage());
+            return esErrorDeConexion(e) ? ResultadoLote.SIN_CONEXION : ResultadoLote.FALLIDO;
+        }
+    }
+
+    /**
+     * true si el error (o alguno encadenado, p. ej. en un executeBatch) es de conexión:
+     * clase 08 (connection exception) o 57P (servidor apagándose o aún arrancando).
+     */
+    private static boolean esErrorDeConexion(SQLException e) {
+        for (SQLException x = e; x != null; x = x.getNextException()) {
+            String state = x.getSQLState();
+            if (state != null && (state.startsWith("08") || state.startsWith("57P"))) return true;
+        }
+        return false;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // USO DIARIO (DailyUsageTracker)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Nombres de las apps distintas que el usuario usó en el día local indicado.
+     * Filtra por rango de start_time (no por DATE(start_time)) para poder usar su índice.
+     * Devuelve null si la consulta falla.
+     */
+    public static List<String> obtenerAppsUsadasEnDia(int userId, LocalDate dia) {
+        String sql = "SELECT DISTINCT a.name FROM public.app_usage_logs aul " +
+                     "JOIN public.activity_sessions s ON aul.session_id = s.id " +
+                     "JOIN public.apps a ON aul.app_id = a.id " +
+                     "WHERE s.user_id = ? AND aul.start_time >= ? AND aul.start_time < ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setTimestamp(2, Timestamp.valueOf(dia.atStartOfDay()));
+            pstmt.setTimestamp(3, Timestamp.valueOf(dia.plusDays(1).atStartOfDay()));
+
+            List<String> apps = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) apps.add(rs.getString("name"));
+            }
+            return apps;
+        } catch (SQLException e) {
+            System.err.println("⚠️  Error cargando apps usadas hoy: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // UTILIDADES
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Última sesión de actividad del usuario, o -1 si no tiene ninguna.
+     * Se resuelve una vez por usuario y queda en ActivityLookupCache.
+     */
+    private static int obtenerSesionActual(Connection conn, int userId) throws SQLException {
+        Integer cached = lookupCache.getSessionId(userId);
+        if (cached != null) return cached;
+
+        String sessionSql = "SELECT id FROM public.activity_sessions WHERE user_id = ? ORDER BY session_start DESC LIMIT 1";
+        try (PreparedStatement sessionStmt = conn.prepareStatement(sessionSql)) {
+            sessionStmt.setInt(1, userId);
+            try (ResultSet rs = sessionStmt.executeQuery()) {
+                if (!rs.next()) return -1;
+                int sessionId = rs.getInt("id");
+                lookupCache.putSession(userId, sessionId);
+                return sessionId;
+            }
+        }
+    }
+
+    /**
+     * app_id del título (sin distinguir mayúsculas), servido desde ActivityLookupCache.
+     * Devuelve null para nombres vacíos.
+     */
+    private static Integer resolverAppId(Connection conn, String appName) throws SQLException {
+        return lookupCache.resolveAppId(appName, name -> buscarOCrearApp(conn, name));
+    }
+
+    /**
+     * Busca la app por nombre; si no existe, crea una entrada genérica.
+     * ON CONFLICT DO NOTHING + relectura evita duplicados si otro cliente la insertó a la vez
+     * (con el índice único uq_apps_lower_name).
+     */
+    private static Integer buscarOCrearApp(Connection conn, String appName) throws SQLException {
+        // Buscar si existe una app con este nombre
+        String findAppSql = "SELECT id FROM public.apps WHERE LOWER(name) = LOWER(?) ORDER BY id LIMIT 1";
+        try (PreparedStatement findStmt = conn.prepareStatement(findAppSql)) {
+            findStmt.setString(1, appName);
+            try (ResultSet appRs = findStmt.executeQuery()) {
+                if (appRs.next()) return appRs.getInt("id");
+            }
+        }
+
+        // Si no existe, crear una entrada genérica
+        String createAppSql = "INSERT INTO public.apps (name, category, is_productive) " +
+                              "VALUES (?, 'UNKNOWN', false) ON CONFLICT DO NOTHING RETURNING id";
+        try (PreparedStatement createStmt = conn.prepareStatement(createAppSql)) {
+            createStmt.setString(1, appName);
+            try (ResultSet createdRs = createStmt.executeQuery()) {
+                if (createdRs.next()) return createdRs.getInt("id");
+            }
+        }
+
+        // Otro cliente ganó la carrera: leer la fila que insertó
+        try (PreparedStatement findStmt = conn.prepareStatement(findAppSql)) {
+            findStmt.setString(1, appName);
+            try (ResultSet appRs = findStmt.executeQuery()) {
+                return appRs.next() ? appRs.getInt("id") : null;
+            }
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // REGLAS DE CLASIFICACIÓN (TitleClassifier)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * App catalogada en la tabla apps con una categoría conocida.
+     */
+    public static class ReglaApp {
+        public final String appName;
+        public final String category;
+        public final boolean productive;
+
+        public ReglaApp(String appName, String category, boolean productive) {
+            this.appName = appName;
+            this.category = category;
+            this.productive = productive;
+        }
+    }
+
+    /**
+     * Apps con categoría asignada (las creadas automáticamente como 'UNKNOWN' se ignoran).
+     */
+    public static List<ReglaApp> cargarReglasApps() {
+        List<ReglaApp> reglas = new ArrayList<>();
+        String sql = "SELECT name, category, is_productive FROM public.apps " +
+                     "WHERE category IS NOT NULL AND UPPER(category) <> 'UNKNOWN'";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                reglas.add(new ReglaApp(rs.getString("name"), rs.getString("category"), rs.getBoolean("is_productive")));
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error cargando reglas de apps: " + e.getMessage());
+        }
+        return reglas;
+    }
 }
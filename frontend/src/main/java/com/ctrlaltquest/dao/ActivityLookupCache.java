@@ -0,0 +1,167 @@
+package com.ctrlaltquest.dao;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ActivityLookupCache - Caché en memoria de las resoluciones que ActivityDAO hace en cada flush:
+ *  - nombre de app (título de ventana) → apps.id, LRU acotada a MAX_APPS entradas
+ *  - userId → id de la sesión de actividad actual
+ *
+ * La creación de apps inexistentes es single-flight por nombre: si varios hilos piden
+ * el mismo título a la vez, solo uno consulta/inserta en BD y el resto espera su resultado.
+ */
+public class ActivityLookupCache {
+
+    private static final int MAX_APPS = Integer.getInteger("ctrlaltquest.cache.apps.max", 2_000);
+
+    // apps.name es VARCHAR(100)
+    public static final int MAX_APP_NAME_LENGTH = 100;
+
+    private static final ActivityLookupCache instance = new ActivityLookupCache();
+    public static ActivityLookupCache getInstance() { return instance; }
+
+    /** Carga un app_id desde BD (buscar o crear). */
+    @FunctionalInterface
+    public interface AppIdLoader {
+        Integer load(String appName) throws SQLException;
+    }
+
+    // LRU en orden de acceso; protegida por su propio monitor
+    private final Map<String, Integer> appIds = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            if (size() > MAX_APPS) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, Object> inFlight = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> sessionIds = new ConcurrentHashMap<>();
+
+    // ── Estadísticas ─────────────────────────────────────────────────────────
+    private final AtomicLong appHits       = new AtomicLong();
+    private final AtomicLong appMisses     = new AtomicLong();
+    private final AtomicLong evictions     = new AtomicLong();
+    private final AtomicLong sessionHits   = new AtomicLong();
+    private final AtomicLong sessionMisses = new AtomicLong();
+
+    private ActivityLookupCache() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // APPS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Nombre tal y como se guarda en apps.name (truncado), o null si está vacío.
+     */
+    public static String storedName(String appName) {
+        if (appName == null || appName.isEmpty()) return null;
+        return appName.length() > MAX_APP_NAME_LENGTH ? appName.substring(0, MAX_APP_NAME_LENGTH) : appName;
+    }
+
+    /**
+     * Devuelve el app_id cacheado o lo carga con el loader (una sola carga concurrente por nombre).
+     */
+    public Integer resolveAppId(String appName, AppIdLoader loader) throws SQLException {
+        String name = storedName(appName);
+        if (name == null) return null;
+        String key = name.toLowerCase(Locale.ROOT);
+
+        Integer id = getCachedAppId(key);
+        if (id != null) {
+            appHits.incrementAndGet();
+            return id;
+        }
+
+        Object flightLock = inFlight.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (flightLock) {
+                // Otro hilo pudo resolverlo mientras esperábamos
+                id = getCachedAppId(key);
+                if (id != null) {
+                    appHits.incrementAndGet();
+                    return id;
+                }
+                appMisses.incrementAndGet();
+                id = loader.load(name);
+                if (id != null) {
+                    synchronized (appIds) { appIds.put(key, id); }
+                }
+                return id;
+            }
+        } finally {
+            inFlight.remove(key, flightLock);
+        }
+    }
+
+    private Integer getCachedAppId(String key) {
+        synchronized (appIds) { return appIds.get(key); }
+    }
+
+    /**
+     * Olvida todos los app_id (p. ej. si un lote falla por una FK a una app borrada).
+     */
+    public void clearApps() {
+        synchronized (appIds) { appIds.clear(); }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // SESIONES
+    // ════════════════════════════════════════════════════════════════════════
+
+    public Integer getSessionId(int userId) {
+        Integer id = sessionIds.get(userId);
+        if (id != null) sessionHits.incrementAndGet(); else sessionMisses.incrementAndGet();
+        return id;
+    }
+
+    public void putSession(int userId, int sessionId) {
+        if (sessionId > 0) sessionIds.put(userId, sessionId);
+    }
+
+    /**
+     * Como putSession, pero no sustituye una sesión ya cacheada del usuario.
+     */
+    public void putSessionIfAbsent(int userId, int sessionId) {
+        if (sessionId > 0) sessionIds.putIfAbsent(userId, sessionId);
+    }
+
+    public void removeSession(int sessionId) {
+        sessionIds.values().removeIf(id -> id == sessionId);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ESTADÍSTICAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    public long getAppHits()       { return appHits.get(); }
+    public long getAppMisses()     { return appMisses.get(); }
+    public long getEvictions()     { return evictions.get(); }
+    public long getSessionHits()   { return sessionHits.get(); }
+    public long getSessionMisses() { return sessionMisses.get(); }
+
+    public int getCachedAppCount() {
+        synchronized (appIds) { return appIds.size(); }
+    }
+
+    public double getAppHitRatio() {
+        long hits = appHits.get();
+        long total = hits + appMisses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "[AppCache apps=" + getCachedAppCount() + "/" + MAX_APPS +
+               " hits=" + getAppHits() + " misses=" + getAppMisses() +
+               " evictions=" + getEvictions() +
+               " | sesiones hits=" + getSessionHits() + " misses=" + getSessionMisses() + "]";
+    }
+}
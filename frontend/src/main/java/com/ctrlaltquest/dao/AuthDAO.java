@@ -1,15 +1,14 @@
 package com.ctrlaltquest.dao;
 
 import com.ctrlaltquest.db.DatabaseConnection;
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.EmailService;
 import com.ctrlaltquest.services.LoginAttemptService;
+import com.ctrlaltquest.services.MachineInfoService;
 import com.ctrlaltquest.services.SessionManager;
 import org.mindrot.jbcrypt.BCrypt;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.InetAddress;
-import java.net.URL;
 import java.sql.*;
 import java.util.UUID;
 import java.util.Random;
@@ -26,12 +25,8 @@ public class AuthDAO {
     }
 
     // ── Utilidades ────────────────────────────────────────────────────────────
-    private static class GeoData {
-        String publicIp = "0.0.0.0";
-        String city     = "Desconocida";
-        String country  = "Desconocido";
-        String isp      = "Desconocido";
-    }
+    private static final LatencyHistogram LOGIN_CRITICO  = MetricsRegistry.getInstance().histogram("login.critical");
+    private static final LatencyHistogram LOGIN_REGISTRO = MetricsRegistry.getInstance().histogram("login.record");
 
     private static String limit(String text, int max) {
         if (text == null) return "Unknown";
@@ -54,37 +49,13 @@ public class AuthDAO {
         return -1;
     }
 
-    private static GeoData fetchGeoData() {
-        GeoData data = new GeoData();
-        try {
-            URL url = new URL("http://ip-api.com/csv/?fields=query,city,country,isp");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(3000);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-                String line = reader.readLine();
-                if (line != null) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 4) {
-                        data.publicIp = parts[0];
-                        data.city     = parts[1];
-                        data.country  = parts[2];
-                        data.isp      = parts[3];
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("⚠️ GeoLog Error: " + e.getMessage());
-        }
-        return data;
-    }
-
     // ════════════════════════════════════════════════════════════════════════
     // LOGIN PRINCIPAL — devuelve LoginResult para que el controller
     // pueda mostrar mensajes específicos (bloqueado, inactivo, etc.)
     // ════════════════════════════════════════════════════════════════════════
 
     public static LoginResult loginCompleto(String identifier, String plainPassword) {
+        long inicio = System.nanoTime();
         LoginAttemptService attemptSvc = LoginAttemptService.getInstance();
 
         // 1. ¿Está bloqueado?
@@ -93,79 +64,25 @@ public class AuthDAO {
             return LoginResult.BLOCKED;
         }
 
+        // 2. Buscar al usuario (la conexión se suelta antes de BCrypt)
         String sql = "SELECT id, username, email, password_hash, is_active " +
                      "FROM users WHERE username = ? OR email = ?";
+        int userId = -1;
+        String dbUsername = null, userEmail = null, hash = null;
+        boolean isActive = false;
 
         try (Connection conn = DatabaseConnection.getConnection()) {
             if (conn == null) return LoginResult.ERROR;
-
             try (PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setString(1, limit(identifier, 100));
                 ps.setString(2, limit(identifier, 100));
-
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        int    userId     = rs.getInt("id");
-                        String dbUsername = rs.getString("username");
-                        String userEmail  = rs.getString("email");
-                        String hash       = rs.getString("password_hash");
-                        boolean isActive  = rs.getBoolean("is_active");
-
-                        if (BCrypt.checkpw(plainPassword, hash)) {
-                            // ── Contraseña correcta ──────────────────────────
-                            if (!isActive) {
-                                registrarLogLogin(conn, userId, 0, false, "Cuenta no activada", "0.0.0.0");
-                                return LoginResult.ACCOUNT_INACTIVE;
-                            }
-
-                            // Login exitoso → resetear intentos
-                            attemptSvc.resetAttempts(identifier);
-
-                            GeoData geo    = fetchGeoData();
-                            String pcName  = limit(InetAddress.getLocalHost().getHostName(), 50);
-                            String osInfo  = limit(System.getProperty("os.name") + " " +
-                                                   System.getProperty("os.version"), 50);
-
-                            int deviceId    = registrarDispositivo(conn, userId, pcName, osInfo);
-                            int networkIpId = registrarIPCompleta(conn, deviceId, geo);
-                            int sessionId   = abrirSesionActividad(conn, userId, deviceId, networkIpId);
-
-                            if (sessionId > 0) {
-                                SessionManager.getInstance().startSession(userId, deviceId, sessionId, dbUsername);
-                                registrarLogLogin(conn, userId, deviceId, true, null, geo.publicIp);
-                                registrarAuditLog(conn, userId, "LOGIN_SUCCESS",
-                                    "Acceso desde " + geo.city + ", " + geo.country,
-                                    geo.publicIp, pcName, osInfo);
-                                return LoginResult.SUCCESS;
-                            }
-                            return LoginResult.ERROR;
-
-                        } else {
-                            // ── Contraseña incorrecta ───────────────────────
-                            registrarLogLogin(conn, userId, 0, false, "Contraseña incorrecta", "0.0.0.0");
-
-                            boolean recienBloqueado = attemptSvc.registerFailedAttempt(identifier);
-
-                            if (recienBloqueado) {
-                                // Enviar email de alerta en hilo separado para no bloquear el login task
-                                final String emailDestino = userEmail;
-                                final String ipInfo = fetchGeoData().publicIp;
-                                new Thread(() -> {
-                                    try {
-                                        new EmailService().sendSecurityAlert(emailDestino, ipInfo);
-                                        System.out.println("📧 [AuthDAO] Email de alerta enviado a: " + emailDestino);
-                                    } catch (Exception ex) {
-                                        System.err.println("⚠️ No se pudo enviar email de alerta: " + ex.getMessage());
-                                    }
-                                }, "email-alert-thread").start();
-
-                                registrarAuditLog(conn, userId, "ACCOUNT_LOCKED",
-                                    "Cuenta bloqueada por 3 intentos fallidos", "0.0.0.0", "—", "—");
-                                return LoginResult.BLOCKED;
-                            }
-
-                            return LoginResult.INVALID_CREDENTIALS;
-                        }
+                        userId     = rs.getInt("id");
+                        dbUsername = rs.getString("username");
+                        userEmail  = rs.getString("email");
+                        hash       = rs.getString("password_hash");
+                        isActive   = rs.getBoolean("is_active");
                     }
                 }
             }
@@ -173,11 +90,166 @@ public class AuthDAO {
             System.err.println("❌ Error en loginCompleto: " + e.getMessage());
         }
 
-        // Usuario no encontrado — también cuenta como intento fallido
-        attemptSvc.registerFailedAttempt(identifier);
+        if (userId == -1) {
+            // Usuario no encontrado — también cuenta como intento fallido
+            attemptSvc.registerFailedAttempt(identifier);
+            return LoginResult.INVALID_CREDENTIALS;
+        }
+
+        // 3. Verificar la contraseña: lo único que el usuario tiene que esperar
+        boolean passwordOk;
+        try {
+            passwordOk = BCrypt.checkpw(plainPassword, hash);
+        } catch (Exception e) {
+            System.err.println("❌ Hash ilegible para el usuario " + userId + ": " + e.getMessage());
+            return LoginResult.ERROR;
+        }
+
+        if (passwordOk) {
+            if (!isActive) {
+                registrarIntentoEnSegundoPlano(userId, "Cuenta no activada", null, null);
+                return LoginResult.ACCOUNT_INACTIVE;
+            }
+
+            // Login exitoso → resetear intentos y entrar ya; dispositivo, IP, sesión y
+            // auditoría se registran después en una sola transacción
+            attemptSvc.resetAttempts(identifier);
+            SessionManager.getInstance().startSession(userId, dbUsername);
+            registrarLoginEnSegundoPlano(userId);
+            LOGIN_CRITICO.recordSince(inicio);
+            return LoginResult.SUCCESS;
+        }
+
+        // ── Contraseña incorrecta ───────────────────────
+        boolean recienBloqueado = attemptSvc.registerFailedAttempt(identifier);
+
+        if (recienBloqueado) {
+            // Enviar email de alerta en hilo separado para no bloquear el login task
+            final String emailDestino = userEmail;
+            final String ipInfo = MachineInfoService.getInstance().current().geo.publicIp;
+            AppExecutors.io().execute(() -> {
+                try {
+                    new EmailService().sendSecurityAlert(emailDestino, ipInfo);
+                    System.out.println("📧 [AuthDAO] Email de alerta enviado a: " + emailDestino);
+                } catch (Exception ex) {
+                    System.err.println("⚠️ No se pudo enviar email de alerta: " + ex.getMessage());
+                }
+            });
+            registrarIntentoEnSegundoPlano(userId, "Contraseña incorrecta",
+                "ACCOUNT_LOCKED", "Cuenta bloqueada por 3 intentos fallidos");
+            return LoginResult.BLOCKED;
+        }
+
+        registrarIntentoEnSegundoPlano(userId, "Contraseña incorrecta", null, null);
         return LoginResult.INVALID_CREDENTIALS;
     }
 
+    // ════════════════════════════════════════════════════════════════════════
+    // REGISTRO DEL LOGIN (fuera del camino crítico)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Dispositivo, IP, sesión de actividad, login_logs y auditoría de un login correcto,
+     * en una transacción en el pool de I/O. Los datos del equipo salen de la caché de
+     * MachineInfoService sin esperar a la red: la sesión queda lista enseguida para Home y,
+     * si la geolocalización estaba caducada, network_ips se corrige cuando llega la nueva.
+     */
+    private static void registrarLoginEnSegundoPlano(int userId) {
+        AppExecutors.io().execute(() -> {
+            long inicio = System.nanoTime();
+            MachineInfoService.MachineInfo info = MachineInfoService.getInstance().currentOrLocal();
+            String pcName = limit(info.hostName, 50);
+            String osInfo = limit(info.osInfo, 50);
+
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null) {
+                    SessionManager.getInstance().abandonPendingSession(userId);
+                    return;
+                }
+                conn.setAutoCommit(false);
+                try {
+                    int deviceId    = registrarDispositivo(conn, userId, pcName, osInfo);
+                    int networkIpId = registrarIPCompleta(conn, deviceId, info);
+                    int sessionId   = abrirSesionActividad(conn, userId, deviceId, networkIpId);
+                    registrarLogLogin(conn, userId, deviceId, true, null, info.geo.publicIp);
+                    registrarAuditLog(conn, userId, "LOGIN_SUCCESS",
+                        "Acceso desde " + info.geo.city + ", " + info.geo.country,
+                        info.geo.publicIp, pcName, osInfo);
+                    conn.commit();
+
+                    // HomeController reutiliza esta sesión; si entretanto se cerró o ya abrió
+                    // otra (timeout), esta queda huérfana y se cierra
+                    if (SessionManager.getInstance().attachSession(userId, deviceId, sessionId)) {
+                        ActivityLookupCache.getInstance().putSessionIfAbsent(userId, sessionId);
+                    } else {
+                        ActivityDAO.cerrarSesion(sessionId);
+                    }
+                    LOGIN_REGISTRO.recordSince(inicio);
+                    if (info.isStale()) actualizarGeoAlLlegar(networkIpId);
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (Exception e) {
+                SessionManager.getInstance().abandonPendingSession(userId);
+                System.err.println("⚠️ [AuthDAO] No se pudo registrar el login de " + userId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Cuando llega la geolocalización fresca, la vuelca en la fila de network_ips del login.
+     * No ocupa ningún hilo mientras espera: se encadena al refresco de MachineInfoService.
+     */
+    private static void actualizarGeoAlLlegar(int networkIpId) {
+        if (networkIpId <= 0) return;
+        MachineInfoService.getInstance().fresh().thenAcceptAsync(fresh -> {
+            MachineInfoService.Geo geo = fresh.geo;
+            if (geo == MachineInfoService.Geo.UNKNOWN) return;
+            String sql = "UPDATE network_ips SET public_ip = ?, isp = ?, country = ?, city = ?, last_detected = NOW() WHERE id = ?";
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, limit(geo.publicIp, 45));
+                ps.setString(2, limit(geo.isp, 100));
+                ps.setString(3, limit(geo.country, 50));
+                ps.setString(4, limit(geo.city, 50));
+                ps.setInt(5, networkIpId);
+                ps.executeUpdate();
+            } catch (Exception e) {
+                System.err.println("⚠️ [AuthDAO] No se pudo actualizar la geolocalización del login: " + e.getMessage());
+            }
+        }, AppExecutors.io());
+    }
+
+    /**
+     * login_logs (y, si auditAction no es null, la auditoría) de un intento no válido,
+     * en una transacción en el pool de I/O.
+     */
+    private static void registrarIntentoEnSegundoPlano(int userId, String reason, String auditAction, String auditDesc) {
+        AppExecutors.io().execute(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null) return;
+                conn.setAutoCommit(false);
+                try {
+                    registrarLogLogin(conn, userId, 0, false, reason, "0.0.0.0");
+                    if (auditAction != null) {
+                        registrarAuditLog(conn, userId, auditAction, auditDesc, "0.0.0.0", "—", "—");
+                    }
+                    conn.commit();
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ [AuthDAO] No se pudo registrar el intento de " + userId + ": " + e.getMessage());
+            }
+        });
+    }
+
     // ════════════════════════════════════════════════════════════════════════
     // MÉTODO LEGACY — mantiene compatibilidad con código existente que
     // llame a loginCompleto esperando boolean.
@@ -189,7 +261,7 @@ public class AuthDAO {
     }
 
     // ════════════════════════════════════════════════════════════════════════
-    // MÉTODOS PRIVADOS (sin cambios respecto al original)
+    // MÉTODOS PRIVADOS (se ejecutan dentro de la transacción del registro)
     // ════════════════════════════════════════════════════════════════════════
 
     private static int registrarDispositivo(Connection conn, int userId, String pcName, String osInfo) throws Exception {
@@ -209,8 +281,9 @@ public class AuthDAO {
         }
     }
 
-    private static int registrarIPCompleta(Connection conn, int deviceId, GeoData geo) throws Exception {
-        String localIp = limit(InetAddress.getLocalHost().getHostAddress(), 45);
+    private static int registrarIPCompleta(Connection conn, int deviceId, MachineInfoService.MachineInfo info) throws Exception {
+        MachineInfoService.Geo geo = info.geo;
+        String localIp = limit(info.localIp, 45);
         String sql = "INSERT INTO network_ips (device_id, local_ip, public_ip, isp, country, city, last_detected) " +
                      "VALUES (?, ?, ?, ?, ?, ?, NOW()) " +
                      "ON CONFLICT (device_id, local_ip) DO UPDATE SET " +
@@ -1,6 +1,7 @@
 package com.ctrlaltquest.dao;
 
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -52,13 +53,7 @@ public class DashboardDAO {
                 String title = rs.getString("title");
                 String difficulty = rs.getString("difficulty");
                 int xpReward = rs.getInt("xp_reward");
-                
-                // Lógica de negocio: Inferir dificultad si es nula
-                if (difficulty == null) {
-                    if (xpReward >= 500) difficulty = "DIFICIL";
-                    else if (xpReward >= 200) difficulty = "MEDIA";
-                    else difficulty = "FACIL";
-                }
+                difficulty = inferirDificultad(difficulty, xpReward);
 
                 // Obtener progreso, por defecto 0 si es nulo
                 int progressRaw = rs.getInt("progress_percentage");
@@ -76,60 +71,62 @@ public class DashboardDAO {
      * Obtiene la XP de los últimos 7 días.
      */
     public static XYChart.Series<String, Number> getRendimientoSemanal(int userId) {
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("XP");
-
         // 1. Pre-llenar los últimos 7 días con 0 (Estructura base)
         LocalDate today = LocalDate.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEE"); // Lun, Mar...
-        
-        String[] diasLabels = new String[7];
         int[] xpValues = new int[7];
 
-        for (int i = 0; i < 7; i++) {
-            // Orden: Hace 6 días -> Hoy
-            LocalDate d = today.minusDays(6 - i);
-            diasLabels[i] = d.format(formatter).toUpperCase();
-            xpValues[i] = 0;
-        }
-
-        // 2. Consultar datos reales
-        String sql = "SELECT created_at::DATE as fecha, SUM(amount) as total_xp " +
-                     "FROM public.xp_history " +
-                     "WHERE user_id = ? AND created_at >= CURRENT_DATE - INTERVAL '6 days' " +
-                     "GROUP BY fecha";
+        // 2. Consultar datos reales: como mucho 7 filas precalculadas de xp_daily (RollupDAO)
+        String sql = "SELECT day as fecha, xp as total_xp " +
+                     "FROM public.xp_daily " +
+                     "WHERE user_id = ? AND day >= ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(today.minusDays(6)));
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 LocalDate fechaDB = rs.getDate("fecha").toLocalDate();
                 int xp = rs.getInt("total_xp");
 
-                // Mapear fecha DB al índice del array
-                for (int i = 0; i < 7; i++) {
-                    LocalDate d = today.minusDays(6 - i);
-                    if (d.equals(fechaDB)) {
-                        xpValues[i] = xp;
-                        break;
-                    }
-                }
+                // Mapear fecha DB al índice del array (0 = hace 6 días, 6 = hoy)
+                int idx = 6 - (int) (today.toEpochDay() - fechaDB.toEpochDay());
+                if (idx >= 0 && idx < 7) xpValues[idx] = xp;
             }
         } catch (SQLException e) {
             System.err.println("❌ Error cargando gráfica XP: " + e.getMessage());
         }
 
         // 3. Convertir a datos de JavaFX
+        return construirSerieSemanal(today, xpValues);
+    }
+
+    /**
+     * Serie de XP de los 7 días que terminan en today (xpValues[6] = hoy).
+     * Siempre una instancia nueva: una Series solo puede estar en un gráfico.
+     */
+    public static XYChart.Series<String, Number> construirSerieSemanal(LocalDate today, int[] xpValues) {
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        series.setName("XP");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEE"); // Lun, Mar...
         for (int i = 0; i < 7; i++) {
-            series.getData().add(new XYChart.Data<>(diasLabels[i], xpValues[i]));
+            // Orden: Hace 6 días -> Hoy
+            String label = today.minusDays(6 - i).format(formatter).toUpperCase();
+            series.getData().add(new XYChart.Data<>(label, xpValues[i]));
         }
-
         return series;
     }
 
+    // Lógica de negocio: Inferir dificultad si es nula
+    private static String inferirDificultad(String difficulty, int xpReward) {
+        if (difficulty != null) return difficulty;
+        if (xpReward >= 500) return "DIFICIL";
+        if (xpReward >= 200) return "MEDIA";
+        return "FACIL";
+    }
+
     /**
      * DTO para resumen de uso de aplicaciones (segundos)
      */
@@ -149,18 +146,18 @@ public class DashboardDAO {
     public static List<AppUsage> getAppUsageSummary(int userId) {
         List<AppUsage> lista = new ArrayList<>();
 
-        String sql = "SELECT COALESCE(a.name, 'Desconocido') as app_name, " +
-                     "SUM(EXTRACT(EPOCH FROM duration))::BIGINT as total_seconds " +
-                     "FROM public.app_usage_logs al " +
-                     "LEFT JOIN public.apps a ON al.app_id = a.id " +
-                     "LEFT JOIN public.activity_sessions s ON al.session_id = s.id " +
-                     "WHERE s.user_id = ? AND al.start_time >= CURRENT_DATE " +
-                     "GROUP BY app_name ORDER BY total_seconds DESC LIMIT 8";
+        // Agregado diario de app_usage_daily (RollupDAO): una fila por app, sin recorrer los logs
+        String sql = "SELECT a.name as app_name, r.seconds as total_seconds " +
+                     "FROM public.app_usage_daily r " +
+                     "JOIN public.apps a ON r.app_id = a.id " +
+                     "WHERE r.user_id = ? AND r.day = ? " +
+                     "ORDER BY total_seconds DESC LIMIT 8";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(LocalDate.now()));
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
@@ -174,4 +171,122 @@ public class DashboardDAO {
 
         return lista;
     }
-}
\ No newline at end of file
+
+    // ════════════════════════════════════════════════════════════════════════
+    // SNAPSHOT (una sola ida y vuelta)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Todo lo que pinta el dashboard (y sus modales) para un usuario.
+     * Inmutable tras construirse: se comparte entre vistas desde DashboardSnapshot.
+     */
+    public static class Snapshot {
+        public final int userId;
+        public final LocalDate today;
+        public final int[] xpSemanal;               // [0] = hace 6 días ... [6] = hoy
+        public final List<MisionResumen> misiones;
+        public final List<AppUsage> usoApps;
+        public final String nombrePersonaje;        // null si el usuario no tiene personajes
+        public final int rachaSalud;
+
+        public Snapshot(int userId, LocalDate today, int[] xpSemanal, List<MisionResumen> misiones,
+                        List<AppUsage> usoApps, String nombrePersonaje, int rachaSalud) {
+            this.userId = userId;
+            this.today = today;
+            this.xpSemanal = xpSemanal;
+            this.misiones = java.util.Collections.unmodifiableList(misiones);
+            this.usoApps = java.util.Collections.unmodifiableList(usoApps);
+            this.nombrePersonaje = nombrePersonaje;
+            this.rachaSalud = rachaSalud;
+        }
+
+        public XYChart.Series<String, Number> serieXP() {
+            return construirSerieSemanal(today, xpSemanal);
+        }
+
+        public int xpSemanaTotal() {
+            int total = 0;
+            for (int xp : xpSemanal) total += xp;
+            return total;
+        }
+
+        public long segundosUsoHoy() {
+            long total = 0;
+            for (AppUsage u : usoApps) total += u.seconds;
+            return total;
+        }
+    }
+
+    /**
+     * Carga el snapshot del dashboard en una sola sentencia: los cuatro bloques (XP semanal,
+     * misiones activas, uso de hoy y primer personaje) van en CTE y se devuelven juntos con
+     * UNION ALL, etiquetados por 'tipo'. Sustituye a cuatro consultas y cuatro préstamos del pool.
+     *
+     * @return null si la consulta falla
+     */
+    public static Snapshot cargarSnapshot(int userId) {
+        String sql =
+            "WITH xp AS ( " +
+            "  SELECT day, xp FROM public.xp_daily WHERE user_id = ? AND day >= ? " +
+            "), mis AS ( " +
+            "  SELECT m.title, m.difficulty, m.xp_reward, COALESCE(mp.progress_percentage, 0) AS progreso, " +
+            "         ROW_NUMBER() OVER (ORDER BY COALESCE(mp.progress_percentage, 0) DESC) AS orden " +
+            "  FROM public.missions m " +
+            "  LEFT JOIN public.mission_progress mp ON m.id = mp.mission_id AND mp.user_id = ? " +
+            "  WHERE (mp.progress_percentage < 100 OR mp.progress_percentage IS NULL) AND m.is_daily = true " +
+            "), uso AS ( " +
+            "  SELECT a.name, r.seconds, ROW_NUMBER() OVER (ORDER BY r.seconds DESC) AS orden " +
+            "  FROM public.app_usage_daily r JOIN public.apps a ON r.app_id = a.id " +
+            "  WHERE r.user_id = ? AND r.day = ? " +
+            "), pj AS ( " +
+            "  SELECT name, health_streak FROM public.characters WHERE user_id = ? ORDER BY slot_index LIMIT 1 " +
+            ") " +
+            "SELECT 'xp' AS tipo, NULL::text AS texto, NULL::text AS texto2, xp::bigint AS n1, 0::bigint AS n2, day AS dia, 0::bigint AS orden FROM xp " +
+            "UNION ALL SELECT 'mision', title, difficulty, xp_reward, progreso, NULL, orden FROM mis WHERE orden <= 3 " +
+            "UNION ALL SELECT 'uso', name, NULL, seconds, 0, NULL, orden FROM uso WHERE orden <= 8 " +
+            "UNION ALL SELECT 'pj', name, NULL, health_streak, 0, NULL, 0 FROM pj " +
+            "ORDER BY tipo, orden";
+
+        LocalDate today = LocalDate.now();
+        int[] xpValues = new int[7];
+        List<MisionResumen> misiones = new ArrayList<>();
+        List<AppUsage> uso = new ArrayList<>();
+        String nombre = null;
+        int racha = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(today.minusDays(6)));
+            pstmt.setInt(3, userId);
+            pstmt.setInt(4, userId);
+            pstmt.setDate(5, Date.valueOf(today));
+            pstmt.setInt(6, userId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    switch (rs.getString("tipo")) {
+                        case "xp" -> {
+                            LocalDate dia = rs.getDate("dia").toLocalDate();
+                            int idx = 6 - (int) (today.toEpochDay() - dia.toEpochDay());
+                            if (idx >= 0 && idx < 7) xpValues[idx] = (int) rs.getLong("n1");
+                        }
+                        case "mision" -> misiones.add(new MisionResumen(rs.getString("texto"),
+                            rs.getLong("n2") / 100.0, inferirDificultad(rs.getString("texto2"), (int) rs.getLong("n1"))));
+                        case "uso" -> uso.add(new AppUsage(rs.getString("texto"), rs.getLong("n1")));
+                        case "pj" -> {
+                            nombre = rs.getString("texto");
+                            racha = (int) rs.getLong("n1");
+                        }
+                        default -> { }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error cargando snapshot del dashboard: " + e.getMessage());
+            return null;
+        }
+        return new Snapshot(userId, today, xpValues, misiones, uso, nombre, racha);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ctrlaltquest.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ctrlaltquest.db.DatabaseConnection;
+
+/**
+ * LoginLockoutDAO - Bloqueos de login compartidos entre clientes (public.login_lockouts).
+ *
+ * Solo se usa con -Dctrlaltquest.login.sharedLockouts=true: cada cliente publica aquí los
+ * bloqueos que aplica y el barrido de LoginAttemptService descarga los vigentes, de modo que
+ * varios equipos de la misma red ven el mismo bloqueo.
+ *
+ * El identificador se guarda como SHA-256 (nunca el email o usuario en claro) y el fin del
+ * bloqueo como epoch en ms, sin depender de la zona horaria de cada cliente.
+ */
+public class LoginLockoutDAO {
+
+    private static volatile boolean esquemaListo = false;
+
+    /**
+     * Crea la tabla si la BD es anterior a ella (mismo DDL que CtrlAltQuestDB.sql).
+     * Solo consulta la BD la primera vez.
+     */
+    public static synchronized void asegurarEsquema() throws SQLException {
+        if (esquemaListo) return;
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS public.login_lockouts (" +
+                         "identifier_hash character(64) NOT NULL PRIMARY KEY, " +
+                         "locked_until_ms bigint NOT NULL)");
+        }
+        esquemaListo = true;
+    }
+
+    /**
+     * Publica (o alarga) el bloqueo de un identificador.
+     */
+    public static void publicarBloqueo(String identifierHash, long lockedUntilMillis) {
+        String sql = "INSERT INTO public.login_lockouts (identifier_hash, locked_until_ms) VALUES (?, ?) " +
+                     "ON CONFLICT (identifier_hash) DO UPDATE " +
+                     "SET locked_until_ms = GREATEST(login_lockouts.locked_until_ms, EXCLUDED.locked_until_ms)";
+        try {
+            asegurarEsquema();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, identifierHash);
+                ps.setLong(2, lockedUntilMillis);
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ [LoginLockoutDAO] No se pudo publicar el bloqueo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bloqueos vigentes (hash → fin en ms), como mucho max, los que más duran primero.
+     * Borra de paso los que ya vencieron.
+     */
+    public static Map<String, Long> obtenerBloqueosActivos(long nowMillis, int max) {
+        Map<String, Long> bloqueos = new HashMap<>();
+        try {
+            asegurarEsquema();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                try (PreparedStatement del = conn.prepareStatement(
+                        "DELETE FROM public.login_lockouts WHERE locked_until_ms <= ?")) {
+                    del.setLong(1, nowMillis);
+                    del.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT identifier_hash, locked_until_ms FROM public.login_lockouts " +
+                        "WHERE locked_until_ms > ? ORDER BY locked_until_ms DESC LIMIT ?")) {
+                    ps.setLong(1, nowMillis);
+                    ps.setInt(2, max);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            bloqueos.put(rs.getString(1), rs.getLong(2));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ [LoginLockoutDAO] No se pudieron leer los bloqueos: " + e.getMessage());
+        }
+        return bloqueos;
+    }
+}
@@ -10,6 +10,8 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ctrlaltquest.db.DatabaseConnection;
 import com.ctrlaltquest.models.Mission;
@@ -63,48 +65,91 @@ public class MissionsDAO {
         return lista;
     }
 
-    public static List<Integer> actualizarProgreso(int userId, String metricKey, int amountToAdd) {
-        List<Integer> completedMissions = new ArrayList<>();
-        
-        inicializarMisionesGlobalesParaUsuario(userId);
+    // ── Progreso de misiones (set-based) ─────────────────────────────────────
+    // Un único UPDATE ... RETURNING por métrica: sin SELECT previo ni un UPDATE por fila.
+    // El filtro progress_percentage < 100 hace que cada misión se devuelva como completada
+    // una sola vez aunque dos hilos actualicen la misma métrica a la vez (bloqueo de fila).
 
-        String sqlSelect = "SELECT id, mission_id, current_value, target_value FROM public.mission_progress " +
-                           "WHERE user_id = ? AND metric_key = ? AND progress_percentage < 100";
+    private static final String SQL_SUMAR_POR_METRICA =
+        construirUpdateProgreso("LEAST(current_value + v.val, target_value)", "metric_key = ?");
+    private static final String SQL_SUMAR_POR_PREFIJO =
+        construirUpdateProgreso("LEAST(current_value + v.val, target_value)", "metric_key LIKE ?");
+    private static final String SQL_FIJAR_POR_METRICA =
+        construirUpdateProgreso("LEAST(v.val, target_value)", "metric_key = ?");
 
-        String sqlUpdate = "UPDATE public.mission_progress SET current_value = ?, progress_percentage = ? WHERE id = ?";
+    /**
+     * Parámetros: 1 = valor (se enlaza una sola vez en v), 2 = user_id, 3 = métrica.
+     */
+    private static String construirUpdateProgreso(String nuevoValor, String filtroMetrica) {
+        // En el SET, current_value sigue siendo el valor anterior; RETURNING ve ya el nuevo
+        return "UPDATE public.mission_progress SET " +
+               "current_value = " + nuevoValor + ", " +
+               "progress_percentage = CASE " +
+               "  WHEN target_value <= 0 THEN 0 " +
+               "  WHEN " + nuevoValor + " >= target_value THEN 100 " +
+               "  ELSE LEAST(99.99, " + nuevoValor + " * 100.0 / target_value) END, " +
+               "last_updated = CURRENT_TIMESTAMP " +
+               "FROM (SELECT ?::bigint AS val) v " +
+               "WHERE user_id = ? AND " + filtroMetrica + " AND progress_percentage < 100 " +
+               "RETURNING mission_id, (progress_percentage >= 100) AS completada";
+    }
+
+    /**
+     * Suma {@code amountToAdd} a todas las misiones abiertas del usuario con esa métrica.
+     *
+     * @return IDs de las misiones que se completaron con esta actualización
+     */
+    public static List<Integer> actualizarProgreso(int userId, String metricKey, int amountToAdd) {
+        if (amountToAdd == 0) return new ArrayList<>();
+        asegurarMisionesInicializadas(userId);
 
         try (Connection conn = DatabaseConnection.getConnection()) {
-            PreparedStatement pst = conn.prepareStatement(sqlSelect);
-            pst.setInt(1, userId);
-            pst.setString(2, metricKey);
-            ResultSet rs = pst.executeQuery();
+            return ejecutarUpdateProgreso(conn, SQL_SUMAR_POR_METRICA, userId, metricKey, amountToAdd);
+        } catch (SQLException e) {
+            System.err.println("❌ Error actualizando progreso: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
 
-            while (rs.next()) {
-                int rowId = rs.getInt("id");
-                int missionId = rs.getInt("mission_id");
-                long current = rs.getLong("current_value");
-                long target = rs.getLong("target_value");
-
-                long newValue = current + amountToAdd;
-                if (newValue > target) newValue = target;
-
-                double newPct = (target > 0) ? ((double) newValue / target * 100.0) : 0;
-                if (newPct > 100) newPct = 100;
-
-                try (PreparedStatement pstUpd = conn.prepareStatement(sqlUpdate)) {
-                    pstUpd.setLong(1, newValue);
-                    pstUpd.setDouble(2, newPct);
-                    pstUpd.setInt(3, rowId);
-                    pstUpd.executeUpdate();
-                }
+    /**
+     * Suma {@code amountToAdd} a las misiones abiertas cuya métrica empieza por {@code prefijo}
+     * (p. ej. "time_coding"), sobre una conexión ya abierta.
+     *
+     * @return IDs de las misiones que se completaron con esta actualización
+     */
+    public static List<Integer> actualizarProgresoPorPrefijo(Connection conn, int userId, String prefijo,
+                                                             long amountToAdd) throws SQLException {
+        if (amountToAdd == 0) return new ArrayList<>();
+        return ejecutarUpdateProgreso(conn, SQL_SUMAR_POR_PREFIJO, userId, prefijo + "%", amountToAdd);
+    }
 
-                if (newPct >= 100) {
-                    completedMissions.add(missionId);
+    /**
+     * Fija el valor absoluto de una métrica de contador (apps usadas, categorías usadas...).
+     *
+     * @return IDs de las misiones que se completaron con esta actualización
+     */
+    public static List<Integer> fijarProgreso(Connection conn, int userId, String metricKey,
+                                              long value) throws SQLException {
+        return ejecutarUpdateProgreso(conn, SQL_FIJAR_POR_METRICA, userId, metricKey, value);
+    }
+
+    private static List<Integer> ejecutarUpdateProgreso(Connection conn, String sql, int userId,
+                                                        String metrica, long valor) throws SQLException {
+        List<Integer> completedMissions = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, valor);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, metrica);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getBoolean("completada")) {
+                        completedMissions.add(rs.getInt("mission_id"));
+                    }
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("❌ Error actualizando progreso: " + e.getMessage());
-            e.printStackTrace();
         }
         return completedMissions;
     }
@@ -209,6 +254,30 @@ public class MissionsDAO {
         return mision; 
     }
 
+    // ── Inicialización (una vez por usuario y sesión) ────────────────────────
+
+    private static final Set<Integer> usuariosInicializados = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Inicializa las misiones globales del usuario solo si no se hizo ya en esta sesión.
+     */
+    public static void asegurarMisionesInicializadas(int userId) {
+        if (!usuariosInicializados.contains(userId)) {
+            inicializarMisionesGlobalesParaUsuario(userId);
+        }
+    }
+
+    /**
+     * Olvida la inicialización del usuario (logout): la próxima sesión recoge misiones nuevas.
+     */
+    public static void olvidarUsuario(int userId) {
+        usuariosInicializados.remove(userId);
+    }
+
+    /**
+     * Asigna al usuario las misiones globales que aún no tenga. Siempre ejecuta el INSERT;
+     * para las rutas calientes usar asegurarMisionesInicializadas.
+     */
     public static void inicializarMisionesGlobalesParaUsuario(int userId) {
         String sql = "INSERT INTO public.mission_progress (user_id, mission_id, metric_key, current_value, target_value, progress_percentage) " +
                      "SELECT ?, m.id, " +
@@ -227,6 +296,7 @@ public class MissionsDAO {
             pstmt.setInt(1, userId);
             pstmt.setInt(2, userId);
             int insertados = pstmt.executeUpdate();
+            usuariosInicializados.add(userId);
             
             if (insertados > 0) {
                 System.out.println("✅ Inicialización: Se asignaron " + insertados + " misiones globales al usuario " + userId);
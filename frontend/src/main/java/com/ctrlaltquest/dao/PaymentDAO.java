@@ -196,6 +196,7 @@ public class PaymentDAO {
             }
             
             conn.commit();
+            if (coinsAmount > 0) UserStateCache.getInstance().addCoins(userId, coinsAmount);
             System.out.println("✅ Compra procesada: Usuario " + userId + " recibió " + coinsAmount + " coins");
             return true;
             
@@ -0,0 +1,157 @@
+package com.ctrlaltquest.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.ctrlaltquest.db.DatabaseConnection;
+
+/**
+ * RollupDAO - Agregados diarios precalculados para el dashboard y los reportes.
+ *
+ *  - public.app_usage_daily: segundos por usuario, app y día (a partir de app_usage_logs)
+ *  - public.xp_daily:        XP ganada por usuario y día (a partir de xp_history)
+ *
+ * Se mantienen de forma incremental en la misma transacción que escribe los datos crudos
+ * (ActivityDAO.registrarLoteActividad). Las filas anteriores a su creación se rellenan con
+ * un backfill que se ejecuta una sola vez (UsageLogMaintenanceService) y queda marcado
+ * en public.rollup_state.
+ */
+public class RollupDAO {
+
+    private static final String BACKFILL_KEY = "daily_rollups";
+
+    // ── Mantenimiento incremental (dentro de la transacción del lote) ────────
+
+    static final String SQL_SUMAR_USO_DIARIO =
+        "INSERT INTO public.app_usage_daily (user_id, app_id, day, seconds) VALUES (?, ?, ?, ?) " +
+        "ON CONFLICT (user_id, day, (COALESCE(app_id, 0))) DO UPDATE SET seconds = app_usage_daily.seconds + EXCLUDED.seconds";
+
+    static final String SQL_SUMAR_XP_DIARIA =
+        "INSERT INTO public.xp_daily (user_id, day, xp) VALUES (?, ?, ?) " +
+        "ON CONFLICT (user_id, day) DO UPDATE SET xp = xp_daily.xp + EXCLUDED.xp";
+
+    private static volatile boolean esquemaListo = false;
+
+    /**
+     * Crea las tablas de agregados (y la de lotes del diario local) si la BD es anterior a ellas
+     * (mismo DDL que CtrlAltQuestDB.sql).
+     * Solo consulta la BD la primera vez.
+     */
+    public static synchronized void asegurarEsquema() throws SQLException {
+        if (esquemaListo) return;
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS public.app_usage_daily (" +
+                         "user_id integer NOT NULL REFERENCES public.users (id) ON DELETE CASCADE, " +
+                         "app_id integer REFERENCES public.apps (id) ON DELETE CASCADE, " +
+                         "day date NOT NULL, " +
+                         "seconds bigint NOT NULL DEFAULT 0)");
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS uq_app_usage_daily " +
+                         "ON public.app_usage_daily(user_id, day, COALESCE(app_id, 0))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS public.xp_daily (" +
+                         "user_id integer NOT NULL REFERENCES public.users (id) ON DELETE CASCADE, " +
+                         "day date NOT NULL, " +
+                         "xp bigint NOT NULL DEFAULT 0, " +
+                         "CONSTRAINT xp_daily_pkey PRIMARY KEY (user_id, day))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS public.rollup_state (" +
+                         "name character varying(50) NOT NULL PRIMARY KEY, " +
+                         "completed_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP)");
+            // Lotes del diario local ya aplicados (ActivityDAO.registrarLoteActividad con id)
+            stmt.execute("CREATE TABLE IF NOT EXISTS public.activity_journal_applied (" +
+                         "batch_id uuid NOT NULL PRIMARY KEY, " +
+                         "applied_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP)");
+        }
+        esquemaListo = true;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // BACKFILL
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Rellena los agregados desde los datos crudos si nunca se ha hecho en esta BD.
+     *
+     * @return true si los agregados están completos (ya lo estaban o se acaban de rellenar)
+     */
+    public static boolean backfillSiHaceFalta() {
+        try {
+            asegurarEsquema();
+            if (backfillCompletado()) return true;
+            reconstruir();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("⚠️  [Rollup] Backfill no completado: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Recalcula todos los agregados desde app_usage_logs y xp_history.
+     *
+     * Bloquea en modo SHARE las tablas crudas y las de agregados: espera a que terminen los lotes
+     * en curso (quedan incluidos en el recálculo) y retiene los nuevos hasta el commit (se suman
+     * después), así que ningún segundo ni punto de XP se cuenta dos veces ni se pierde.
+     */
+    public static void reconstruir() throws SQLException {
+        asegurarEsquema();
+        long inicio = System.currentTimeMillis();
+
+        // Los tramos sin app quedan con app_id NULL, como en el incremental
+        String usoSql = "INSERT INTO public.app_usage_daily (user_id, app_id, day, seconds) " +
+                        "SELECT s.user_id, al.app_id, al.start_time::DATE, " +
+                        "       SUM(EXTRACT(EPOCH FROM al.duration))::BIGINT " +
+                        "FROM public.app_usage_logs al " +
+                        "JOIN public.activity_sessions s ON al.session_id = s.id " +
+                        "WHERE al.start_time IS NOT NULL AND al.duration IS NOT NULL " +
+                        "GROUP BY 1, 2, 3 " +
+                        "ON CONFLICT (user_id, day, (COALESCE(app_id, 0))) DO UPDATE SET seconds = EXCLUDED.seconds";
+        String xpSql = "INSERT INTO public.xp_daily (user_id, day, xp) " +
+                       "SELECT user_id, created_at::DATE, SUM(amount) " +
+                       "FROM public.xp_history WHERE created_at IS NOT NULL " +
+                       "GROUP BY user_id, created_at::DATE " +
+                       "ON CONFLICT (user_id, day) DO UPDATE SET xp = EXCLUDED.xp";
+        String marcaSql = "INSERT INTO public.rollup_state (name) VALUES (?) " +
+                          "ON CONFLICT (name) DO UPDATE SET completed_at = CURRENT_TIMESTAMP";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LOCK TABLE public.app_usage_logs, public.xp_history, " +
+                             "public.app_usage_daily, public.xp_daily IN SHARE MODE");
+                // Se reescriben los días que siguen teniendo datos crudos; los anteriores
+                // (particiones ya retiradas por UsageLogMaintenanceService) se conservan
+                stmt.executeUpdate("DELETE FROM public.app_usage_daily " +
+                                   "WHERE day >= (SELECT MIN(start_time)::DATE FROM public.app_usage_logs)");
+                stmt.executeUpdate("DELETE FROM public.xp_daily " +
+                                   "WHERE day >= (SELECT MIN(created_at)::DATE FROM public.xp_history)");
+                int usos = stmt.executeUpdate(usoSql);
+                int dias = stmt.executeUpdate(xpSql);
+
+                try (PreparedStatement marca = conn.prepareStatement(marcaSql)) {
+                    marca.setString(1, BACKFILL_KEY);
+                    marca.executeUpdate();
+                }
+                conn.commit();
+                System.out.println("✅ [Rollup] Backfill completado: " + usos + " filas de uso, " + dias +
+                                   " días de XP (" + (System.currentTimeMillis() - inicio) + " ms)");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static boolean backfillCompletado() throws SQLException {
+        String sql = "SELECT 1 FROM public.rollup_state WHERE name = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, BACKFILL_KEY);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -137,6 +137,7 @@ public class StoreDAO {
             }
             
             conn.commit();
+            UserStateCache.getInstance().addCoins(userId, -priceCoins);
             System.out.println("✅ Compra exitosa: " + offerName + " por " + priceCoins + " coins");
             return true;
             
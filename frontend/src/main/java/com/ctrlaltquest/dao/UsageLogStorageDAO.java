@@ -0,0 +1,282 @@
+package com.ctrlaltquest.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ctrlaltquest.db.DatabaseConnection;
+
+/**
+ * UsageLogStorageDAO - Ciclo de vida del almacenamiento de public.app_usage_logs:
+ *  - particiones mensuales por start_time (app_usage_logs_pYYYY_MM)
+ *  - compactación de filas contiguas de la misma sesión y app en una sola fila
+ *  - retención: desvincular o borrar particiones antiguas
+ *
+ * En BDs anteriores al particionado (tabla normal) la compactación funciona igual,
+ * las particiones se omiten y la retención borra por rango de fechas.
+ */
+public class UsageLogStorageDAO {
+
+    private static final String PREFIJO_PARTICION = "app_usage_logs_p";
+    private static final String COLUMNAS =
+        "id, session_id, app_id, start_time, end_time, duration, productive_time";
+    private static final Pattern NOMBRE_PARTICION = Pattern.compile("app_usage_logs_p(\\d{4})_(\\d{2})");
+
+    /**
+     * Partición mensual de app_usage_logs.
+     */
+    public static class Particion {
+        public final String nombre;
+        public final YearMonth mes;
+
+        public Particion(String nombre, YearMonth mes) {
+            this.nombre = nombre;
+            this.mes = mes;
+        }
+    }
+
+    /**
+     * Resultado de compactar un día.
+     */
+    public static class ResultadoCompactacion {
+        /** Otro cliente estaba compactando el mismo día: esta pasada no lo tocó. */
+        public static final ResultadoCompactacion OMITIDO = new ResultadoCompactacion(0, 0, true);
+
+        public final int filasBorradas;
+        public final int filasCreadas;
+        public final boolean omitido;
+
+        public ResultadoCompactacion(int filasBorradas, int filasCreadas) {
+            this(filasBorradas, filasCreadas, false);
+        }
+
+        private ResultadoCompactacion(int filasBorradas, int filasCreadas, boolean omitido) {
+            this.filasBorradas = filasBorradas;
+            this.filasCreadas = filasCreadas;
+            this.omitido = omitido;
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // PARTICIONES
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * true si app_usage_logs es una tabla particionada (esquema actual de CtrlAltQuestDB.sql).
+     */
+    public static boolean esParticionada() throws SQLException {
+        String sql = "SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'public.app_usage_logs'::regclass";
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next();
+        }
+    }
+
+    public static String nombreParticion(YearMonth mes) {
+        return String.format("%s%04d_%02d", PREFIJO_PARTICION, mes.getYear(), mes.getMonthValue());
+    }
+
+    /**
+     * Crea la partición del mes si no existe. Si la partición DEFAULT ya tiene filas de ese
+     * mes (se escribieron antes de que existiera), se mueven a la nueva en la misma transacción:
+     * la tabla se crea suelta, recibe las filas y después se adjunta a app_usage_logs.
+     */
+    public static void crearParticionMensual(YearMonth mes) throws SQLException {
+        String nombre = nombreParticion(mes);
+        // DDL: los límites no admiten parámetros, pero salen de un YearMonth (sin entrada externa)
+        String rango = "FROM ('" + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')";
+        Timestamp desde = Timestamp.valueOf(mes.atDay(1).atStartOfDay());
+        Timestamp hasta = Timestamp.valueOf(mes.plusMonths(1).atDay(1).atStartOfDay());
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Varios clientes pueden arrancar a la vez: uno crea la partición, el resto espera y la ve
+                try (PreparedStatement lockStmt = conn.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))")) {
+                    lockStmt.setString(1, "partition:" + nombre);
+                    lockStmt.execute();
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('public." + nombre + "') IS NOT NULL")) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        conn.rollback();
+                        return;
+                    }
+                }
+
+                String particionDefault = null;
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT NULLIF(partdefid, 0)::regclass::text FROM pg_partitioned_table " +
+                        "WHERE partrelid = 'public.app_usage_logs'::regclass")) {
+                    if (rs.next()) particionDefault = rs.getString(1);
+                }
+
+                stmt.execute("CREATE TABLE public." + nombre +
+                             " (LIKE public.app_usage_logs INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int movidas = 0;
+                if (particionDefault != null) {
+                    // El nombre sale del catálogo (regclass::text ya viene citado si hace falta)
+                    try (PreparedStatement mover = conn.prepareStatement(
+                            "WITH movidas AS (DELETE FROM " + particionDefault +
+                            " WHERE start_time >= ? AND start_time < ? RETURNING " + COLUMNAS + ") " +
+                            "INSERT INTO public." + nombre + " (" + COLUMNAS + ") SELECT " + COLUMNAS + " FROM movidas")) {
+                        mover.setTimestamp(1, desde);
+                        mover.setTimestamp(2, hasta);
+                        movidas = mover.executeUpdate();
+                    }
+                }
+                stmt.execute("ALTER TABLE public.app_usage_logs ATTACH PARTITION public." + nombre +
+                             " FOR VALUES " + rango);
+                conn.commit();
+                if (movidas > 0) {
+                    System.out.println("🗂️ [UsageLogStorageDAO] " + movidas + " filas movidas de la partición DEFAULT a " + nombre);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Particiones mensuales adjuntas a app_usage_logs (la DEFAULT no se incluye).
+     */
+    public static List<Particion> listarParticiones() throws SQLException {
+        String sql = "SELECT c.relname FROM pg_inherits i " +
+                     "JOIN pg_class c ON c.oid = i.inhrelid " +
+                     "WHERE i.inhparent = 'public.app_usage_logs'::regclass ORDER BY c.relname";
+        List<Particion> particiones = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                Matcher m = NOMBRE_PARTICION.matcher(rs.getString("relname"));
+                if (m.matches()) {
+                    YearMonth mes = YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+                    particiones.add(new Particion(m.group(), mes));
+                }
+            }
+        }
+        return particiones;
+    }
+
+    /**
+     * Desvincula la partición de app_usage_logs y, si {@code borrar}, elimina la tabla.
+     */
+    public static void retirarParticion(Particion particion, boolean borrar) throws SQLException {
+        // El nombre viene de listarParticiones y ha pasado por NOMBRE_PARTICION
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE public.app_usage_logs DETACH PARTITION public." + particion.nombre);
+            if (borrar) stmt.execute("DROP TABLE public." + particion.nombre);
+        }
+    }
+
+    /**
+     * Retención sin particiones: borra las filas anteriores a {@code limite}.
+     *
+     * @return filas borradas
+     */
+    public static int borrarAnterioresA(LocalDate limite) throws SQLException {
+        String sql = "DELETE FROM public.app_usage_logs WHERE start_time < ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(limite.atStartOfDay()));
+            return pstmt.executeUpdate();
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // COMPACTACIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Funde las filas de un día cerrado que sean contiguas o se solapen dentro de la misma
+     * sesión y app ("islas") en una sola fila con el inicio mínimo, el fin máximo y la suma
+     * de duraciones. Se conservan los totales por sesión, app y día, y el conjunto de apps
+     * usadas, así que los agregados y contadores que salen de esta tabla no cambian.
+     *
+     * Es idempotente: un día ya compactado no tiene islas de más de una fila.
+     * Dos clientes compactando el mismo día a la vez leerían la misma instantánea y ambos
+     * insertarían las filas fundidas, así que la sentencia va en una transacción con
+     * pg_try_advisory_xact_lock('compact:' || día): si otro la tiene, el día se omite.
+     */
+    public static ResultadoCompactacion compactarDia(LocalDate dia) throws SQLException {
+        // En el DELETE e INSERT de los CTE ambos ven la misma instantánea:
+        // las filas insertadas no son candidatas a borrarse en la misma sentencia.
+        String sql =
+            "WITH marcadas AS ( " +
+            "  SELECT id, session_id, app_id, start_time, " +
+            "         COALESCE(end_time, start_time + duration) AS fin, duration, productive_time, " +
+            "         CASE WHEN start_time <= MAX(COALESCE(end_time, start_time + duration)) OVER ( " +
+            "                PARTITION BY session_id, app_id ORDER BY start_time, id " +
+            "                ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING) " +
+            "              THEN 0 ELSE 1 END AS nueva_isla " +
+            "  FROM public.app_usage_logs WHERE start_time >= ? AND start_time < ? " +
+            "), islas AS ( " +
+            "  SELECT *, SUM(nueva_isla) OVER (PARTITION BY session_id, app_id ORDER BY start_time, id) AS isla " +
+            "  FROM marcadas " +
+            "), grupos AS ( " +
+            "  SELECT session_id, app_id, isla, MIN(start_time) AS inicio, MAX(fin) AS fin, " +
+            "         SUM(duration) AS duracion, SUM(productive_time) AS productivo " +
+            "  FROM islas GROUP BY session_id, app_id, isla HAVING COUNT(*) > 1 " +
+            "), borradas AS ( " +
+            "  DELETE FROM public.app_usage_logs l USING islas i, grupos g " +
+            "  WHERE l.id = i.id AND l.start_time = i.start_time " +
+            "    AND l.start_time >= ? AND l.start_time < ? " +
+            "    AND i.session_id = g.session_id AND i.app_id IS NOT DISTINCT FROM g.app_id AND i.isla = g.isla " +
+            "  RETURNING l.id " +
+            "), creadas AS ( " +
+            "  INSERT INTO public.app_usage_logs (session_id, app_id, start_time, end_time, duration, productive_time) " +
+            "  SELECT session_id, app_id, inicio, fin, duracion, productivo FROM grupos " +
+            "  RETURNING id " +
+            ") " +
+            "SELECT (SELECT COUNT(*) FROM borradas) AS borradas, (SELECT COUNT(*) FROM creadas) AS creadas";
+
+        Timestamp desde = Timestamp.valueOf(dia.atStartOfDay());
+        Timestamp hasta = Timestamp.valueOf(dia.plusDays(1).atStartOfDay());
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // El bloqueo se libera solo con el commit o rollback
+                try (PreparedStatement lockStmt = conn.prepareStatement(
+                        "SELECT pg_try_advisory_xact_lock(hashtext(?))")) {
+                    lockStmt.setString(1, "compact:" + dia);
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        if (!rs.next() || !rs.getBoolean(1)) {
+                            conn.rollback();
+                            return ResultadoCompactacion.OMITIDO;
+                        }
+                    }
+                }
+
+                ResultadoCompactacion resultado;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setTimestamp(1, desde);
+                    pstmt.setTimestamp(2, hasta);
+                    pstmt.setTimestamp(3, desde);
+                    pstmt.setTimestamp(4, hasta);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                        resultado = new ResultadoCompactacion(rs.getInt("borradas"), rs.getInt("creadas"));
+                    }
+                }
+                conn.commit();
+                return resultado;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
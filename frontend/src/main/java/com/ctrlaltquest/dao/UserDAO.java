@@ -11,72 +11,45 @@ import com.ctrlaltquest.db.DatabaseConnection;
 
 public class UserDAO {
 
-    public static boolean otorgarRecompensas(int userId, int xp, int coins) {
-        boolean levelUp = false;
-        String sqlSelect = "SELECT level, current_xp, coins FROM public.users WHERE id = ?";
-        String sqlUpdate = "UPDATE public.users SET level = ?, current_xp = ?, total_xp = total_xp + ?, coins = ? WHERE id = ?";
-        String sqlLog = "INSERT INTO public.xp_history (user_id, amount, reason) VALUES (?, ?, 'Misión Completada')";
+    /**
+     * Suma monedas al usuario y registra la transacción en una sola operación.
+     * La XP ya no se escribe aquí: va siempre por XPSyncService (único escritor de nivel/XP).
+     */
+    public static boolean otorgarMonedas(int userId, int coins, String reason) {
+        if (coins <= 0) return false;
+        String sqlUpdate = "UPDATE public.users SET coins = coins + ? WHERE id = ? RETURNING coins";
+        String sqlLog = "INSERT INTO public.coin_transactions (user_id, amount, reason, ref_type, ref_id, created_at) " +
+                        "VALUES (?, ?, ?, 'system', NULL, CURRENT_TIMESTAMP)";
 
         try (Connection conn = DatabaseConnection.getConnection()) {
             conn.setAutoCommit(false); // Transacción para seguridad
 
-            // 1. Obtener estado actual
-            int currentLevel = 1;
-            int currentXp = 0;
-            int currentCoins = 0;
-            
-            try (PreparedStatement pstSelect = conn.prepareStatement(sqlSelect)) {
-                pstSelect.setInt(1, userId);
-                ResultSet rs = pstSelect.executeQuery();
-                if (rs.next()) {
-                    currentLevel = rs.getInt("level");
-                    currentXp = rs.getInt("current_xp");
-                    currentCoins = rs.getInt("coins");
-                }
-            }
-
-            // 2. Calcular nuevos valores
-            int newXp = currentXp + xp;
-            int newCoins = currentCoins + coins;
-            
-            // Fórmula de Nivel RPG: XP necesaria = Nivel * 1000
-            int xpRequired = currentLevel * 1000;
-            
-            while (newXp >= xpRequired) {
-                newXp -= xpRequired;
-                currentLevel++;
-                levelUp = true;
-                xpRequired = currentLevel * 1000; // Recalcular para el siguiente nivel
-                System.out.println("🎉 ¡SUBIDA DE NIVEL! Nuevo nivel: " + currentLevel);
-            }
-
-            // 3. Actualizar Usuario
+            int newBalance;
             try (PreparedStatement pstUpdate = conn.prepareStatement(sqlUpdate)) {
-                pstUpdate.setInt(1, currentLevel);
-                pstUpdate.setInt(2, newXp);
-                pstUpdate.setInt(3, xp); // Total XP histórico
-                pstUpdate.setInt(4, newCoins);
-                pstUpdate.setInt(5, userId);
-                pstUpdate.executeUpdate();
+                pstUpdate.setInt(1, coins);
+                pstUpdate.setInt(2, userId);
+                try (ResultSet rs = pstUpdate.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                    newBalance = rs.getInt("coins");
+                }
             }
 
-            // 4. Log Historial XP
             try (PreparedStatement pstLog = conn.prepareStatement(sqlLog)) {
                 pstLog.setInt(1, userId);
-                pstLog.setInt(2, xp);
+                pstLog.setInt(2, coins);
+                pstLog.setString(3, reason);
                 pstLog.executeUpdate();
             }
 
-            // 5. Log Historial Monedas
-            if (coins > 0) {
-                registrarTransaccionCoins(userId, coins, "Misión Completada");
-            }
-
-            conn.commit(); // Guardar cambios
-            return levelUp;
+            conn.commit();
+            UserStateCache.getInstance().setCoins(userId, newBalance);
+            return true;
 
         } catch (SQLException e) {
-            System.err.println("❌ Error otorgando recompensas: " + e.getMessage());
+            System.err.println("❌ Error otorgando monedas: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
@@ -126,6 +99,7 @@ public class UserDAO {
             pstmt.setInt(2, userId);
             
             int affected = pstmt.executeUpdate();
+            if (affected > 0) UserStateCache.getInstance().setCoins(userId, newBalance);
             return affected > 0;
             
         } catch (SQLException e) {
@@ -136,24 +110,9 @@ public class UserDAO {
     }
 
     public static int obtenerBalanceMonedas(int userId) {
-        String sql = "SELECT coins FROM public.users WHERE id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("coins");
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("❌ Error obteniendo balance: " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        return -1;
+        // Todas las escrituras de coins pasan por UserStateCache: la copia en memoria es fiable
+        UserStateCache.UserState state = UserStateCache.getInstance().get(userId);
+        return state != null ? state.coins : -1;
     }
 
     public static String getUserEmail(int userId) {
@@ -208,6 +167,7 @@ public class UserDAO {
             int rowsAffected = pstmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                UserStateCache.getInstance().invalidate(userId);
                 System.out.println("✅ Usuario eliminado: ID " + userId);
                 return true;
             }
@@ -0,0 +1,305 @@
+package com.ctrlaltquest.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrlaltquest.db.DatabaseConnection;
+
+/**
+ * UserStateCache - Caché central del estado de juego de cada usuario
+ * (nivel, XP actual, XP total, monedas y racha).
+ *
+ * Todas las rutas que modifican esas columnas de public.users pasan por aquí:
+ *  - XP/nivel: solo XPSyncService escribe (writeXP) y ActivityWriteBehindService confirma (markFlushed)
+ *  - Monedas: los DAOs que hacen coins = coins ± n llaman a addCoins tras el commit
+ *  - Cualquier otra escritura directa: invalidate()
+ *
+ * Acotada por tamaño (LRU) y por TTL. Cada entrada lleva una versión que sube en cada cambio.
+ * Las entradas con XP todavía no volcada a BD ("sucias") no caducan ni se desalojan:
+ * mientras tanto la copia en memoria es la autoritativa.
+ */
+public class UserStateCache {
+
+    private static final int MAX_USERS = Integer.getInteger("ctrlaltquest.cache.users.max", 1_000);
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+        Long.getLong("ctrlaltquest.cache.users.ttlMs", 60_000L));
+
+    private static final UserStateCache instance = new UserStateCache();
+    public static UserStateCache getInstance() { return instance; }
+
+    /** Carga el estado de un usuario desde su origen (BD por defecto). */
+    @FunctionalInterface
+    public interface StateLoader {
+        UserState load(int userId);
+    }
+
+    private volatile StateLoader loader = UserStateCache::loadFromDatabase;
+
+    /**
+     * Copia inmutable del estado de un usuario.
+     */
+    public static final class UserState {
+        public final int userId;
+        public final int level;
+        public final int currentXP;
+        public final int totalXP;
+        public final int coins;
+        public final int healthStreak;
+        public final long version;
+
+        UserState(int userId, int level, int currentXP, int totalXP, int coins, int healthStreak, long version) {
+            this.userId = userId;
+            this.level = level;
+            this.currentXP = currentXP;
+            this.totalXP = totalXP;
+            this.coins = coins;
+            this.healthStreak = healthStreak;
+            this.version = version;
+        }
+
+        UserState withXP(int newLevel, int newCurrentXP, int newTotalXP) {
+            return new UserState(userId, newLevel, newCurrentXP, newTotalXP, coins, healthStreak, version + 1);
+        }
+
+        UserState withCoins(int newCoins) {
+            return new UserState(userId, level, currentXP, totalXP, newCoins, healthStreak, version + 1);
+        }
+    }
+
+    /** Contenedor mutable de la LRU; solo se toca con el monitor de {@code entries}. */
+    private static final class Entry {
+        UserState state;          // null = pendiente de cargar o invalidada
+        long loadedAt;            // System.nanoTime() de la última carga desde BD
+        long generation;          // sube en cada cambio: descarta cargas desde BD que lo crucen
+        long dirtyVersion = -1;   // última versión de XP sin volcar, -1 = limpia
+    }
+
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() <= MAX_USERS) return false;
+            // El más antiguo puede estar sucio: buscar el primer desalojable
+            Iterator<Map.Entry<Integer, Entry>> it = entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().dirtyVersion < 0) {
+                    it.remove();
+                    evictions.incrementAndGet();
+                    return false;
+                }
+            }
+            return false;
+        }
+    };
+
+    // ── Estadísticas ─────────────────────────────────────────────────────────
+    private final AtomicLong hits          = new AtomicLong();
+    private final AtomicLong misses        = new AtomicLong();
+    private final AtomicLong evictions     = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private UserStateCache() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // LECTURA
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Estado actual del usuario; lo carga de BD si no está o ha caducado. Null si no existe.
+     */
+    public UserState get(int userId) {
+        Entry pending;
+        long generation;
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            if (e != null && e.state != null && (e.dirtyVersion >= 0 || !isExpired(e))) {
+                hits.incrementAndGet();
+                return e.state;
+            }
+            if (e == null) {
+                e = new Entry();
+                entries.put(userId, e);
+            }
+            pending = e;
+            generation = e.generation;
+        }
+
+        misses.incrementAndGet();
+        UserState loaded = loader.load(userId);
+        if (loaded == null) return null;
+
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            if (e != pending || e.generation != generation) {
+                // Modificado, invalidado o desalojado durante la carga: no publicar lo leído
+                return e != null && e.state != null ? e.state : loaded;
+            }
+            if (e.state != null && !isExpired(e)) {
+                // Otro hilo cargó mientras tanto
+                return e.state;
+            }
+            long version = e.state != null ? e.state.version + 1 : 0;
+            e.state = new UserState(userId, loaded.level, loaded.currentXP, loaded.totalXP,
+                                    loaded.coins, loaded.healthStreak, version);
+            e.generation++;
+            e.loadedAt = System.nanoTime();
+            return e.state;
+        }
+    }
+
+    /**
+     * Estado en caché sin ir a BD (null si no está).
+     */
+    public UserState peek(int userId) {
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            return e != null ? e.state : null;
+        }
+    }
+
+    /**
+     * Sustituye el origen de los datos (benchmarks y pruebas en memoria) y vacía la caché.
+     */
+    public void setLoader(StateLoader loader) {
+        this.loader = loader;
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static boolean isExpired(Entry e) {
+        return System.nanoTime() - e.loadedAt > TTL_NANOS;
+    }
+
+    private static UserState loadFromDatabase(int userId) {
+        String sql = "SELECT level, current_xp, total_xp, coins, health_streak FROM public.users WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new UserState(userId, rs.getInt("level"), rs.getInt("current_xp"),
+                        rs.getInt("total_xp"), rs.getInt("coins"), rs.getInt("health_streak"), 0);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error cargando estado de usuario " + userId + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ESCRITURA (write-through)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Publica un nuevo nivel/XP (solo XPSyncService). La entrada queda sucia hasta markFlushed.
+     *
+     * @param base estado leído con get(); se usa si la entrada se desalojó entretanto
+     * @return versión asignada, para pasarla al write-behind
+     */
+    public long writeXP(UserState base, int level, int currentXP, int totalXP) {
+        synchronized (entries) {
+            Entry e = entries.get(base.userId);
+            if (e == null) {
+                e = new Entry();
+                e.loadedAt = System.nanoTime();
+                entries.put(base.userId, e);
+            }
+            e.state = (e.state != null ? e.state : base).withXP(level, currentXP, totalXP);
+            e.generation++;
+            e.dirtyVersion = e.state.version;
+            return e.state.version;
+        }
+    }
+
+    /**
+     * El write-behind confirmó en BD la XP hasta {@code version}: la entrada vuelve a poder caducar.
+     */
+    public void markFlushed(int userId, long version) {
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            // Sin renovar loadedAt: si ya caducó, la próxima lectura recarga lo recién volcado
+            if (e != null && e.dirtyVersion >= 0 && e.dirtyVersion <= version) {
+                e.dirtyVersion = -1;
+            }
+        }
+    }
+
+    /**
+     * Refleja un coins = coins + delta ya confirmado en BD.
+     */
+    public void addCoins(int userId, int delta) {
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            if (e == null) return;
+            e.generation++;
+            if (e.state != null) e.state = e.state.withCoins(e.state.coins + delta);
+        }
+    }
+
+    /**
+     * Refleja un coins = balance ya confirmado en BD.
+     */
+    public void setCoins(int userId, int balance) {
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            if (e == null) return;
+            e.generation++;
+            if (e.state != null) e.state = e.state.withCoins(balance);
+        }
+    }
+
+    /**
+     * Descarta la copia de un usuario tras una escritura que no pasa por los hooks anteriores.
+     * La XP sin volcar no se descarta: se conserva la entrada y se recarga cuando quede limpia.
+     */
+    public void invalidate(int userId) {
+        synchronized (entries) {
+            Entry e = entries.get(userId);
+            if (e == null) return;
+            invalidations.incrementAndGet();
+            e.generation++;
+            if (e.dirtyVersion >= 0) {
+                e.loadedAt = System.nanoTime() - TTL_NANOS - 1;
+            } else {
+                entries.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * invalidate() para todos los usuarios en caché.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            for (Integer userId : entries.keySet().toArray(new Integer[0])) invalidate(userId);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ESTADÍSTICAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    public long getHits()          { return hits.get(); }
+    public long getMisses()        { return misses.get(); }
+    public long getEvictions()     { return evictions.get(); }
+    public long getInvalidations() { return invalidations.get(); }
+
+    public int size() {
+        synchronized (entries) { return entries.size(); }
+    }
+
+    @Override
+    public String toString() {
+        return "[UserStateCache usuarios=" + size() + "/" + MAX_USERS +
+               " hits=" + getHits() + " misses=" + getMisses() +
+               " evictions=" + getEvictions() + " invalidations=" + getInvalidations() + "]";
+    }
+}
@@ -0,0 +1,470 @@
+package com.ctrlaltquest.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * ConnectionPool - Pool JDBC acotado y autocontenido detrás de DatabaseConnection.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Tamaño mínimo/máximo configurable (un Semaphore limita las conexiones físicas)
+ * ✅ Validación al prestar (isValid) si la conexión estuvo inactiva más de validationIntervalMs
+ * ✅ Desalojo de conexiones inactivas por encima del mínimo
+ * ✅ Detección de fugas: avisa con el hilo que pidió la conexión y, con
+ *    -Dctrlaltquest.db.pool.leakStackTraces=true, con la traza del préstamo (cuesta un
+ *    Throwable por préstamo, así que por defecto no se captura)
+ * ✅ Métricas: activas, inactivas, hilos esperando, tiempo de espera, sentencias creadas
+ * ✅ Latencia por método DAO en MetricsRegistry ("dao.<Clase>.<método>"), sin tocar los DAOs:
+ *    el llamador se identifica al prestar la conexión y se mide hasta que la devuelve
+ *
+ * Las conexiones prestadas son proxies: close() devuelve la conexión física al pool,
+ * hace rollback de transacciones a medias, restaura autoCommit y cierra los
+ * Statements que el llamador haya olvidado cerrar.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // ── Métricas ─────────────────────────────────────────────────────────────
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads   = new AtomicInteger();
+    private final AtomicLong borrowCount   = new AtomicLong();
+    private final AtomicLong waitNanosSum  = new AtomicLong();
+    private final AtomicLong waitNanosMax  = new AtomicLong();
+    private final AtomicLong timeoutCount  = new AtomicLong();
+    private final AtomicLong createdCount  = new AtomicLong();
+    private final AtomicLong evictedCount  = new AtomicLong();
+    private final AtomicLong leakCount     = new AtomicLong();
+    private final AtomicLong statementCount = new AtomicLong();
+    private final LatencyHistogram waitHistogram = MetricsRegistry.getInstance().histogram("db.pool.wait");
+
+    // Se salta los marcos del propio paquete db para llegar al DAO que pidió la conexión
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final String DB_PACKAGE = ConnectionPool.class.getPackageName() + ".";
+    private static final int CALLER_MAX_DEPTH = 12;
+    private static final boolean DAO_TIMING =
+        Boolean.parseBoolean(System.getProperty("ctrlaltquest.metrics.daoTiming", "true"));
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+            config.housekeepingIntervalMs, config.housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // PRÉSTAMO / DEVOLUCIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Presta una conexión del pool. Bloquea hasta borrowTimeoutMs si el pool está lleno.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("El pool de conexiones está cerrado");
+
+        long start = System.nanoTime();
+        waitingThreads.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión del pool", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+
+        long waited = System.nanoTime() - start;
+        recordWait(waited);
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLException("Timeout (" + config.borrowTimeoutMs + " ms) esperando conexión. " + getStats());
+        }
+
+        try {
+            PhysicalConnection physical = takeValidIdle();
+            if (physical == null) physical = openPhysical();
+
+            Lease lease = new Lease(physical, config.leakDetectionThresholdMs > 0 && config.captureLeakStackTraces
+                ? new Throwable("Conexión prestada aquí") : null, DAO_TIMING ? callerTimer() : null);
+            leased.add(lease);
+            borrowCount.incrementAndGet();
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PhysicalConnection takeValidIdle() {
+        PhysicalConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (isUsable(pc, true)) return pc;
+            discard(pc);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PhysicalConnection pc, boolean validate) {
+        try {
+            if (pc.raw.isClosed()) return false;
+            if (validate && System.currentTimeMillis() - pc.lastUsedAt > config.validationIntervalMs) {
+                return pc.raw.isValid(config.validationTimeoutSeconds);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PhysicalConnection openPhysical() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PhysicalConnection(raw);
+    }
+
+    private void release(Lease lease) {
+        if (!leased.remove(lease)) return;
+        if (lease.timer != null) lease.timer.recordSince(lease.borrowedNanos);
+        PhysicalConnection pc = lease.physical;
+        boolean reusable = !closed && resetForReuse(lease);
+
+        if (reusable) {
+            pc.lastUsedAt = System.currentTimeMillis();
+            // LIFO: la conexión más caliente se reutiliza primero, las frías envejecen y se desalojan
+            idle.offerFirst(pc);
+        } else {
+            discard(pc);
+        }
+        permits.release();
+    }
+
+    /**
+     * Deja la conexión física como nueva: cierra Statements huérfanos,
+     * deshace transacciones abiertas y restaura autoCommit.
+     */
+    private boolean resetForReuse(Lease lease) {
+        Connection raw = lease.physical.raw;
+        try {
+            for (Statement st : lease.statements) {
+                try { if (!st.isClosed()) st.close(); } catch (SQLException ignored) {}
+            }
+            if (raw.isClosed()) return false;
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (raw.isReadOnly()) raw.setReadOnly(false);
+            raw.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PhysicalConnection pc) {
+        try { pc.raw.close(); } catch (SQLException ignored) {}
+        totalConnections.decrementAndGet();
+    }
+
+    private void recordWait(long nanos) {
+        waitNanosSum.addAndGet(nanos);
+        waitNanosMax.accumulateAndGet(nanos, Math::max);
+        waitHistogram.record(nanos);
+    }
+
+    /**
+     * Histograma del método que pide la conexión: "dao.ActivityDAO.registrarLoteActividad"
+     * si viene de un DAO, "db.<Clase>.<método>" si un servicio usa la conexión directamente.
+     */
+    private static LatencyHistogram callerTimer() {
+        String caller = WALKER.walk(frames -> frames
+            .limit(CALLER_MAX_DEPTH)
+            .filter(f -> !f.getClassName().startsWith(DB_PACKAGE))
+            .findFirst()
+            .map(f -> {
+                String cls = f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1);
+                return (cls.endsWith("DAO") ? "dao." : "db.") + cls + "." + f.getMethodName();
+            })
+            .orElse(null));
+        return caller != null ? MetricsRegistry.getInstance().histogram(caller) : null;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // MANTENIMIENTO (desalojo, mínimo de conexiones, fugas)
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            detectLeaks();
+        } catch (Exception e) {
+            System.err.println("⚠️ [ConnectionPool] Error en mantenimiento: " + e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        // Las más antiguas quedan al final de la deque
+        while (idle.size() > config.minIdle) {
+            PhysicalConnection oldest = idle.peekLast();
+            if (oldest == null || now - oldest.lastUsedAt < config.idleTimeoutMs) break;
+            if (idle.removeLastOccurrence(oldest)) {
+                discard(oldest);
+                evictedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && idle.size() < config.minIdle && permits.tryAcquire()) {
+            try {
+                PhysicalConnection pc = openPhysical();
+                pc.lastUsedAt = System.currentTimeMillis();
+                idle.offerLast(pc);
+            } catch (SQLException e) {
+                System.err.println("⚠️ [ConnectionPool] No se pudo precalentar conexión: " + e.getMessage());
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        if (config.leakDetectionThresholdMs <= 0) return;
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased) {
+            if (!lease.leakReported && now - lease.borrowedAt > config.leakDetectionThresholdMs) {
+                lease.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("⚠️ [ConnectionPool] Posible fuga: conexión prestada hace " +
+                                   (now - lease.borrowedAt) + " ms al hilo '" + lease.threadName + "'");
+                if (lease.borrowSite != null) lease.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones inactivas y rechaza nuevos préstamos.
+     * Las conexiones prestadas se cierran físicamente al devolverse.
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PhysicalConnection pc;
+        while ((pc = idle.pollFirst()) != null) discard(pc);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // MÉTRICAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    public PoolStats getStats() {
+        long borrows = borrowCount.get();
+        return new PoolStats(
+            leased.size(),
+            idle.size(),
+            totalConnections.get(),
+            waitingThreads.get(),
+            borrows,
+            borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanosSum.get() / borrows),
+            TimeUnit.NANOSECONDS.toMicros(waitNanosMax.get()),
+            timeoutCount.get(),
+            createdCount.get(),
+            evictedCount.get(),
+            leakCount.get(),
+            statementCount.get()
+        );
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CLASES INTERNAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Configuración del pool. Los valores por defecto se pueden sobrescribir con
+     * propiedades del sistema (-Dctrlaltquest.db.pool.maxSize=10, etc.).
+     */
+    public static class Config {
+        public int  minIdle                  = 2;
+        public int  maxSize                  = 10;
+        public long borrowTimeoutMs          = 5_000;
+        public long idleTimeoutMs            = 5 * 60_000;
+        public long validationIntervalMs     = 1_000;
+        public int  validationTimeoutSeconds = 2;
+        public long leakDetectionThresholdMs = 30_000;
+        public boolean captureLeakStackTraces = false;
+        public long housekeepingIntervalMs   = 10_000;
+
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.minIdle                  = Integer.getInteger("ctrlaltquest.db.pool.minIdle", c.minIdle);
+            c.maxSize                  = Integer.getInteger("ctrlaltquest.db.pool.maxSize", c.maxSize);
+            c.borrowTimeoutMs          = Long.getLong("ctrlaltquest.db.pool.borrowTimeoutMs", c.borrowTimeoutMs);
+            c.idleTimeoutMs            = Long.getLong("ctrlaltquest.db.pool.idleTimeoutMs", c.idleTimeoutMs);
+            c.validationIntervalMs     = Long.getLong("ctrlaltquest.db.pool.validationIntervalMs", c.validationIntervalMs);
+            c.leakDetectionThresholdMs = Long.getLong("ctrlaltquest.db.pool.leakDetectionMs", c.leakDetectionThresholdMs);
+            c.captureLeakStackTraces   = Boolean.getBoolean("ctrlaltquest.db.pool.leakStackTraces");
+            c.maxSize = Math.max(1, c.maxSize);
+            c.minIdle = Math.max(0, Math.min(c.minIdle, c.maxSize));
+            return c;
+        }
+    }
+
+    /**
+     * Instantánea de métricas del pool (tiempos en microsegundos).
+     */
+    public static class PoolStats {
+        public final int  active;
+        public final int  idle;
+        public final int  total;
+        public final int  waiting;
+        public final long borrows;
+        public final long avgWaitMicros;
+        public final long maxWaitMicros;
+        public final long timeouts;
+        public final long created;
+        public final long evicted;
+        public final long leaksDetected;
+        /** Statements creados (prepareStatement/createStatement/prepareCall) desde el arranque. */
+        public final long statements;
+
+        PoolStats(int active, int idle, int total, int waiting, long borrows,
+                  long avgWaitMicros, long maxWaitMicros, long timeouts,
+                  long created, long evicted, long leaksDetected, long statements) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.avgWaitMicros = avgWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.evicted = evicted;
+            this.leaksDetected = leaksDetected;
+            this.statements = statements;
+        }
+
+        @Override
+        public String toString() {
+            return "[Pool activas=" + active + " inactivas=" + idle + " total=" + total +
+                   " esperando=" + waiting + " préstamos=" + borrows +
+                   " esperaMedia=" + avgWaitMicros + "µs esperaMax=" + maxWaitMicros + "µs" +
+                   " timeouts=" + timeouts + " creadas=" + created +
+                   " desalojadas=" + evicted + " fugas=" + leaksDetected +
+                   " sentencias=" + statements + "]";
+        }
+    }
+
+    private static class PhysicalConnection {
+        final Connection raw;
+        volatile long lastUsedAt = System.currentTimeMillis();
+
+        PhysicalConnection(Connection raw) {
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * Un préstamo concreto de una conexión física. El proxy intercepta close()
+     * y registra los Statements creados para cerrarlos al devolver la conexión.
+     */
+    private class Lease implements InvocationHandler {
+        final PhysicalConnection physical;
+        final Throwable borrowSite;
+        final String threadName = Thread.currentThread().getName();
+        final long borrowedAt = System.currentTimeMillis();
+        final long borrowedNanos = System.nanoTime();
+        final LatencyHistogram timer;
+        final List<Statement> statements = new ArrayList<>();
+        final Connection proxy;
+        volatile boolean leakReported = false;
+        private volatile boolean returned = false;
+
+        Lease(PhysicalConnection physical, Throwable borrowSite, LatencyHistogram timer) {
+            this.physical = physical;
+            this.borrowSite = borrowSite;
+            this.timer = timer;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.raw.isClosed();
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxyObj));
+                default:
+                    break;
+            }
+
+            if (returned) throw new SQLException("La conexión ya fue devuelta al pool");
+
+            try {
+                Object result = method.invoke(physical.raw, args);
+                if (result instanceof Statement) {
+                    statementCount.incrementAndGet();
+                    synchronized (statements) { statements.add((Statement) result); }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,28 +1,78 @@
 package com.ctrlaltquest.db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.function.ToLongFunction;
+
+import com.ctrlaltquest.metrics.MetricsRegistry;
 
 public class DatabaseConnection {
-    
-    // Configuración de la base de datos
-    private static final String URL = "jdbc:postgresql://localhost:5432/CtrlAltQuestDB";
-    private static final String USER = "postgres"; 
-    private static final String PASSWORD = "crac10andy"; 
 
+    // Configuración de la base de datos (sobrescribible con -Dctrlaltquest.db.url/user/password)
+    private static final String URL = System.getProperty("ctrlaltquest.db.url", "jdbc:postgresql://localhost:5432/CtrlAltQuestDB");
+    private static final String USER = System.getProperty("ctrlaltquest.db.user", "postgres");
+    private static final String PASSWORD = System.getProperty("ctrlaltquest.db.password", "crac10andy");
+
+    // Pool compartido por todos los DAOs (se crea en el primer getConnection)
+    private static volatile ConnectionPool pool;
 
+    /**
+     * Devuelve una conexión prestada del pool.
+     * Los llamadores la siguen cerrando con try-with-resources: close() la devuelve al pool.
+     */
     public static Connection getConnection() throws SQLException {
-        try {
-            // Registrar el driver de PostgreSQL (necesario en algunas versiones de Java/JDBC)
-            Class.forName("org.postgresql.Driver");
-            
-            // Establecer y devolver una NUEVA conexión
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-            
-        } catch (ClassNotFoundException e) {
-            System.err.println("❌ Error crítico: No se encontró el Driver de PostgreSQL en el classpath.");
-            throw new SQLException("Driver PostgreSQL no encontrado", e);
+        return getPool().borrow();
+    }
+
+    public static ConnectionPool getPool() throws SQLException {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseConnection.class) {
+                p = pool;
+                if (p == null) {
+                    try {
+                        // Registrar el driver de PostgreSQL una sola vez (necesario en algunas versiones de Java/JDBC)
+                        Class.forName("org.postgresql.Driver");
+                    } catch (ClassNotFoundException e) {
+                        System.err.println("❌ Error crítico: No se encontró el Driver de PostgreSQL en el classpath.");
+                        throw new SQLException("Driver PostgreSQL no encontrado", e);
+                    }
+                    p = new ConnectionPool(URL, USER, PASSWORD, ConnectionPool.Config.fromSystemProperties());
+                    pool = p;
+                    registrarGauges();
+                }
+            }
+        }
+        return p;
+    }
+
+    private static void registrarGauges() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("db.pool.active",  () -> statOrZero(stats -> stats.active));
+        metrics.gauge("db.pool.idle",    () -> statOrZero(stats -> stats.idle));
+        metrics.gauge("db.pool.waiting", () -> statOrZero(stats -> stats.waiting));
+    }
+
+    private static long statOrZero(ToLongFunction<ConnectionPool.PoolStats> field) {
+        ConnectionPool.PoolStats stats = getPoolStats();
+        return stats != null ? field.applyAsLong(stats) : 0;
+    }
+
+    /**
+     * Métricas actuales del pool, o null si todavía no se ha abierto ninguna conexión.
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        ConnectionPool p = pool;
+        return p != null ? p.getStats() : null;
+    }
+
+    /**
+     * Cierra las conexiones inactivas del pool (llamar al salir de la aplicación).
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
     }
 }
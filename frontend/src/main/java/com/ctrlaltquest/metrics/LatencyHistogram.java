@@ -0,0 +1,149 @@
+package com.ctrlaltquest.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * LatencyHistogram - Histograma de latencias log-lineal (estilo HDR) con memoria fija.
+ *
+ * Cada potencia de dos se divide en 32 sub-cubos, así que el error relativo de un
+ * percentil es como mucho ~3 %. El rango va de 1 ns a 2^41 ns (~36 min); lo que
+ * supere el máximo cae en el último cubo. Ocupa ~9 KB por histograma, sin importar
+ * cuántos valores se registren.
+ *
+ * record() no bloquea (contadores atómicos), así que se puede llamar desde cualquier hilo
+ * en rutas calientes; snapshot() es una lectura aproximada sin detener a los escritores.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_MSB = 40;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MSB - SUB_BITS + 1) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << (MAX_MSB + 1)) - 1;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Registra una duración en nanosegundos.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, Math.min(nanos, MAX_VALUE));
+        buckets.incrementAndGet(indexOf(nanos));
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Registra el tiempo transcurrido desde startNanos (System.nanoTime()).
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        sum.reset();
+        max.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = buckets.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(name, total, sum.sum(), max.get(),
+            valueAt(copy, total, 0.50), valueAt(copy, total, 0.90),
+            valueAt(copy, total, 0.99), valueAt(copy, total, 0.999));
+    }
+
+    // ── Cubos ────────────────────────────────────────────────────────────────
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /** Punto medio del cubo: el valor representativo al calcular percentiles. */
+    static long midpointOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+
+    private static long valueAt(long[] counts, long total, double quantile) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return midpointOf(i);
+        }
+        return midpointOf(counts.length - 1);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // INSTANTÁNEA
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Lectura de un histograma (valores en nanosegundos).
+     */
+    public static class Snapshot {
+        public final String name;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        public final long p50Nanos;
+        public final long p90Nanos;
+        public final long p99Nanos;
+        public final long p999Nanos;
+
+        Snapshot(String name, long count, long totalNanos, long maxNanos,
+                 long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+        }
+
+        public long meanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public static double toMicros(long nanos) {
+            return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s n=%d media=%.1fµs p50=%.1fµs p99=%.1fµs p999=%.1fµs max=%.1fµs",
+                name, count, toMicros(meanNanos()), toMicros(p50Nanos), toMicros(p99Nanos),
+                toMicros(p999Nanos), toMicros(maxNanos));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.ctrlaltquest.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * MetricsRegistry - Registro en proceso de contadores, gauges e histogramas de latencia.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Métricas con nombre jerárquico ("dao.ActivityDAO.registrarLoteActividad", "activity.tick")
+ * ✅ counter()/histogram() devuelven siempre la misma instancia: guardarla en un campo
+ *    static final y usarla en la ruta caliente sin buscar en el mapa
+ * ✅ Cada métrica se publica como MBean en com.ctrlaltquest:type=...,name=...
+ *    (JConsole / VisualVM), desactivable con -Dctrlaltquest.metrics.jmx=false
+ * ✅ histogramSnapshots()/counterValues()/gaugeValues() para el overlay de rendimiento
+ */
+public class MetricsRegistry {
+
+    private static final String JMX_DOMAIN = "com.ctrlaltquest";
+    private static final boolean JMX_ENABLED =
+        Boolean.parseBoolean(System.getProperty("ctrlaltquest.metrics.jmx", "true"));
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+    public static MetricsRegistry getInstance() { return instance; }
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // REGISTRO
+    // ════════════════════════════════════════════════════════════════════════
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> {
+            Counter c = new Counter(n);
+            publish("Counter", n, new MetricMBean(n, "Contador")
+                .attribute("Count", c::get)
+                .operation("reset", c::reset));
+            return c;
+        });
+    }
+
+    /**
+     * Registra (o reemplaza) un gauge: un valor que se lee bajo demanda.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        boolean nuevo = gauges.put(name, supplier) == null;
+        if (nuevo) {
+            publish("Gauge", name, new MetricMBean(name, "Gauge")
+                .attribute("Value", () -> {
+                    LongSupplier s = gauges.get(name);
+                    return s != null ? s.getAsLong() : 0L;
+                }));
+        }
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram existing = histograms.get(name);
+        if (existing != null) return existing;
+        return histograms.computeIfAbsent(name, n -> {
+            LatencyHistogram h = new LatencyHistogram(n);
+            publish("Histogram", n, new MetricMBean(n, "Latencias en microsegundos")
+                .attribute("Count",    () -> h.snapshot().count)
+                .attribute("MeanMicros", () -> LatencyHistogram.Snapshot.toMicros(h.snapshot().meanNanos()))
+                .attribute("P50Micros",  () -> LatencyHistogram.Snapshot.toMicros(h.snapshot().p50Nanos))
+                .attribute("P90Micros",  () -> LatencyHistogram.Snapshot.toMicros(h.snapshot().p90Nanos))
+                .attribute("P99Micros",  () -> LatencyHistogram.Snapshot.toMicros(h.snapshot().p99Nanos))
+                .attribute("P999Micros", () -> LatencyHistogram.Snapshot.toMicros(h.snapshot().p999Nanos))
+                .attribute("MaxMicros",  () -> LatencyHistogram.Snapshot.toMicros(h.snapshot().maxNanos))
+                .operation("reset", h::reset));
+            return h;
+        });
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // LECTURA
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Histogramas ordenados por tiempo total acumulado (dónde se va el presupuesto).
+     */
+    public List<LatencyHistogram.Snapshot> histogramSnapshots() {
+        List<LatencyHistogram.Snapshot> list = new ArrayList<>(histograms.size());
+        for (LatencyHistogram h : histograms.values()) list.add(h.snapshot());
+        list.sort(Comparator.comparingLong((LatencyHistogram.Snapshot s) -> s.totalNanos).reversed());
+        return list;
+    }
+
+    public Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, c) -> values.put(name, c.get()));
+        return values;
+    }
+
+    public Map<String, Long> gaugeValues() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, g) -> {
+            try {
+                values.put(name, g.getAsLong());
+            } catch (RuntimeException e) {
+                values.put(name, -1L);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Pone a cero contadores e histogramas (los gauges son lecturas en vivo).
+     */
+    public void resetAll() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // JMX
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void publish(String type, String name, MetricMBean bean) {
+        if (!JMX_ENABLED) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + name.replaceAll("[^A-Za-z0-9._$-]", "_"));
+            if (!server.isRegistered(objectName)) server.registerMBean(bean, objectName);
+        } catch (Exception e) {
+            System.err.println("⚠️ [Metrics] No se pudo publicar " + name + " en JMX: " + e.getMessage());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CLASES INTERNAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Contador monótono (LongAdder: sin contención entre hilos).
+     */
+    public static class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+        public void increment()  { value.increment(); }
+        public void add(long n)  { value.add(n); }
+        public long get()        { return value.sum(); }
+        public void reset()      { value.reset(); }
+    }
+
+    /**
+     * MBean dinámico de solo lectura: atributos calculados al consultarlos y operaciones sin argumentos.
+     */
+    private static class MetricMBean implements DynamicMBean {
+        private final String name;
+        private final String description;
+        private final Map<String, Supplier<Object>> attributes = new TreeMap<>();
+        private final Map<String, Runnable> operations = new TreeMap<>();
+
+        MetricMBean(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        MetricMBean attribute(String attr, Supplier<Object> supplier) {
+            attributes.put(attr, supplier);
+            return this;
+        }
+
+        MetricMBean operation(String op, Runnable action) {
+            operations.put(op, action);
+            return this;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Supplier<Object> s = attributes.get(attribute);
+            if (s == null) throw new AttributeNotFoundException(attribute);
+            return s.get();
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            AttributeList list = new AttributeList();
+            for (String n : names) {
+                Supplier<Object> s = attributes.get(n);
+                if (s != null) list.add(new Attribute(n, s.get()));
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Atributo de solo lectura: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            Runnable action = operations.get(actionName);
+            if (action == null) {
+                throw new ReflectionException(new NoSuchMethodException(actionName), "Operación desconocida");
+            }
+            action.run();
+            return null;
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            for (Map.Entry<String, Supplier<Object>> e : attributes.entrySet()) {
+                Object sample = e.getValue().get();
+                String type = sample instanceof Double ? Double.class.getName() : Long.class.getName();
+                attrs.add(new MBeanAttributeInfo(e.getKey(), type, e.getKey(), true, false, false));
+            }
+            List<MBeanOperationInfo> ops = new ArrayList<>();
+            for (String op : operations.keySet()) {
+                ops.add(new MBeanOperationInfo(op, op, null, "void", MBeanOperationInfo.ACTION));
+            }
+            return new MBeanInfo(MetricMBean.class.getName(), name + " — " + description,
+                attrs.toArray(new MBeanAttributeInfo[0]), null,
+                ops.toArray(new MBeanOperationInfo[0]), null);
+        }
+    }
+}
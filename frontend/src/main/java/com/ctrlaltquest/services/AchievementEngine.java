@@ -0,0 +1,409 @@
+package com.ctrlaltquest.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ctrlaltquest.dao.UserStateCache;
+import com.ctrlaltquest.db.DatabaseConnection;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * AchievementEngine - Evaluación incremental de logros.
+ *
+ * Las condiciones (columna achievements.condition) se parsean UNA vez con Gson a predicados
+ * tipados "métrica >= umbral" y se indexan por métrica en un TreeMap ordenado por umbral.
+ * Cuando una métrica de un usuario cambia, solo se miran los umbrales entre el último valor
+ * evaluado y el nuevo (subMap), en lugar de recargar y re-parsear todos los logros en cada tick.
+ *
+ * Formatos de condición aceptados (los dos que había repartidos entre servicios):
+ *  {"type": "level", "value": 10}            {"level_reached": true, "level": 10}
+ *  {"type": "total_xp", "value": 50000}      {"total_xp": true, "amount": 50000}
+ *  {"type": "missions_completed", "count": 5}
+ *  {"type": "consecutive_days", "days": 3}
+ */
+public class AchievementEngine {
+
+    /** Métricas de las que puede depender un logro. */
+    public enum Metric {
+        LEVEL("level"),
+        TOTAL_XP("amount"),
+        MISSIONS_COMPLETED("count"),
+        CONSECUTIVE_DAYS("days");
+
+        final String thresholdKey;
+
+        Metric(String thresholdKey) {
+            this.thresholdKey = thresholdKey;
+        }
+
+        static Metric fromKey(String key) {
+            if (key == null) return null;
+            switch (key) {
+                case "level":
+                case "level_reached":      return LEVEL;
+                case "total_xp":           return TOTAL_XP;
+                case "missions_completed": return MISSIONS_COMPLETED;
+                case "consecutive_days":   return CONSECUTIVE_DAYS;
+                default:                   return null;
+            }
+        }
+    }
+
+    /** Logro con su condición ya parseada. */
+    static final class Definition {
+        final int id;
+        final String name;
+        final Metric metric;
+        final long threshold;
+        final int xpReward;
+        final int coinReward;
+
+        Definition(int id, String name, Metric metric, long threshold, int xpReward, int coinReward) {
+            this.id = id;
+            this.name = name;
+            this.metric = metric;
+            this.threshold = threshold;
+            this.xpReward = xpReward;
+            this.coinReward = coinReward;
+        }
+    }
+
+    /** Estado por usuario: logros ya desbloqueados y último valor evaluado por métrica. */
+    private static final class UserProgress {
+        final Set<Integer> unlocked;
+        final Map<Metric, Long> lastEvaluated = new EnumMap<>(Metric.class);
+        Integer missionsCompleted;
+
+        UserProgress(Set<Integer> unlocked) {
+            this.unlocked = unlocked;
+        }
+    }
+
+    private static AchievementEngine instance;
+
+    public static synchronized AchievementEngine getInstance() {
+        if (instance == null) instance = new AchievementEngine();
+        return instance;
+    }
+
+    // Reintento de la carga de definiciones si la BD falla (de 5 s a 5 min)
+    private static final long LOAD_RETRY_MIN_MS = 5_000;
+    private static final long LOAD_RETRY_MAX_MS = 300_000;
+
+    private volatile Map<Integer, Definition> definitions;
+    private volatile Map<Metric, NavigableMap<Long, List<Definition>>> index;
+    private long nextLoadAttemptMs = 0;            // protegidos por this
+    private long loadRetryMs = LOAD_RETRY_MIN_MS;
+    private final Map<Integer, UserProgress> users = new ConcurrentHashMap<>();
+
+    private AchievementEngine() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ENTRADAS: cambios de métricas
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Llamado por XPSyncService tras aplicar XP: solo lookups en memoria salvo que se cruce un umbral.
+     */
+    public void onXPChanged(int userId, int level, int totalXP) {
+        evaluate(userId, Metric.LEVEL, level);
+        evaluate(userId, Metric.TOTAL_XP, totalXP);
+    }
+
+    /**
+     * Llamado al completar una misión: recuenta misiones completadas (una consulta por misión, no por tick).
+     */
+    public void onMissionCompleted(int userId) {
+        UserProgress progress = progressFor(userId);
+        if (progress == null) return;
+        int count = countCompletedMissions(userId);
+        synchronized (progress) {
+            progress.missionsCompleted = count;
+        }
+        evaluate(userId, Metric.MISSIONS_COMPLETED, count);
+    }
+
+    /**
+     * Reevalúa todas las métricas con los valores en memoria (inicio de sesión, fin de evento...).
+     */
+    public void refresh(int userId) {
+        UserStateCache.UserState state = UserStateCache.getInstance().get(userId);
+        if (state != null) {
+            onXPChanged(userId, state.level, state.totalXP);
+            // Hoy hay actividad: al menos 1 día consecutivo
+            evaluate(userId, Metric.CONSECUTIVE_DAYS, Math.max(1, state.healthStreak));
+        }
+
+        UserProgress progress = progressFor(userId);
+        if (progress == null) return;
+        Integer missions;
+        synchronized (progress) {
+            missions = progress.missionsCompleted;
+        }
+        if (missions == null) {
+            onMissionCompleted(userId);
+        } else {
+            evaluate(userId, Metric.MISSIONS_COMPLETED, missions);
+        }
+    }
+
+    /**
+     * Olvida el estado en memoria de un usuario (logout).
+     */
+    public void forgetUser(int userId) {
+        users.remove(userId);
+    }
+
+    /**
+     * Vuelve a leer las definiciones de logros (p. ej. tras editarlas en BD).
+     */
+    public synchronized void reloadDefinitions() {
+        definitions = null;
+        index = null;
+        nextLoadAttemptMs = 0;
+        loadRetryMs = LOAD_RETRY_MIN_MS;
+        users.clear();
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // EVALUACIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void evaluate(int userId, Metric metric, long value) {
+        NavigableMap<Long, List<Definition>> byThreshold = index().get(metric);
+        if (byThreshold == null || byThreshold.isEmpty()) return;
+
+        UserProgress progress = progressFor(userId);
+        if (progress == null) return;
+
+        List<Definition> candidates = new ArrayList<>();
+        synchronized (progress) {
+            Long last = progress.lastEvaluated.get(metric);
+            if (last != null && value <= last) return;
+
+            NavigableMap<Long, List<Definition>> crossed = last == null
+                ? byThreshold.headMap(value, true)
+                : byThreshold.subMap(last, false, value, true);
+            for (List<Definition> defs : crossed.values()) {
+                for (Definition def : defs) {
+                    if (!progress.unlocked.contains(def.id)) candidates.add(def);
+                }
+            }
+            progress.lastEvaluated.put(metric, value);
+        }
+
+        for (Definition def : candidates) {
+            boolean ok = unlock(userId, def);
+            synchronized (progress) {
+                if (ok) {
+                    progress.unlocked.add(def.id);
+                } else {
+                    // Reintentar en la próxima evaluación
+                    progress.lastEvaluated.remove(metric);
+                }
+            }
+        }
+    }
+
+    /**
+     * Desbloquea un logro por id (usado por RewardsService.awardAchievement).
+     *
+     * @return true si el logro quedó desbloqueado ahora
+     */
+    public boolean unlock(int userId, int achievementId) {
+        Definition def = definitions().get(achievementId);
+        if (def == null) return false;
+        UserProgress progress = progressFor(userId);
+        if (progress != null) {
+            synchronized (progress) {
+                if (progress.unlocked.contains(achievementId)) return false;
+            }
+        }
+        boolean ok = unlock(userId, def);
+        if (ok && progress != null) {
+            synchronized (progress) {
+                progress.unlocked.add(achievementId);
+            }
+        }
+        return ok;
+    }
+
+    private boolean unlock(int userId, Definition def) {
+        return AchievementsService.getInstance().unlockAchievement(
+            userId, def.id, def.name, def.xpReward, def.coinReward);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CARGA (una vez por proceso / por usuario)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Índice por métrica. Mientras la carga falle devuelve un mapa vacío (ningún logro se
+     * evalúa) y no vuelve a consultar la BD hasta que pase el tiempo de reintento.
+     */
+    private Map<Metric, NavigableMap<Long, List<Definition>>> index() {
+        Map<Metric, NavigableMap<Long, List<Definition>>> idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                if (index == null && System.currentTimeMillis() >= nextLoadAttemptMs) loadDefinitions();
+                idx = index;
+            }
+        }
+        return idx != null ? idx : Collections.emptyMap();
+    }
+
+    private Map<Integer, Definition> definitions() {
+        index();
+        Map<Integer, Definition> defs = definitions;
+        return defs != null ? defs : Collections.emptyMap();
+    }
+
+    private void loadDefinitions() {
+        List<Definition> parsed = new ArrayList<>();
+        int skipped = 0;
+
+        String sql = "SELECT id, name, condition, xp_reward, coin_reward FROM public.achievements";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Definition def = parse(rs.getInt("id"), rs.getString("name"), rs.getString("condition"),
+                                       rs.getInt("xp_reward"), rs.getInt("coin_reward"));
+                if (def == null) {
+                    skipped++;
+                    continue;
+                }
+                parsed.add(def);
+            }
+        } catch (SQLException e) {
+            // index sigue a null: se reintenta tras el backoff, que se duplica en cada fallo
+            nextLoadAttemptMs = System.currentTimeMillis() + loadRetryMs;
+            System.err.println("❌ [AchievementEngine] Error cargando logros (reintento en "
+                               + loadRetryMs / 1000 + " s): " + e.getMessage());
+            loadRetryMs = Math.min(loadRetryMs * 2, LOAD_RETRY_MAX_MS);
+            return;
+        }
+
+        loadRetryMs = LOAD_RETRY_MIN_MS;
+        install(parsed);
+        System.out.println("✅ [AchievementEngine] " + parsed.size() + " logros indexados" +
+                           (skipped > 0 ? " (" + skipped + " con condición no evaluable)" : ""));
+    }
+
+    /**
+     * Sustituye las definiciones sin pasar por BD (benchmarks y herramientas en memoria).
+     */
+    synchronized void useDefinitions(Collection<Definition> defs) {
+        users.clear();
+        install(defs);
+    }
+
+    private void install(Collection<Definition> parsed) {
+        Map<Integer, Definition> defs = new HashMap<>();
+        Map<Metric, NavigableMap<Long, List<Definition>>> idx = new EnumMap<>(Metric.class);
+        for (Definition def : parsed) {
+            defs.put(def.id, def);
+            idx.computeIfAbsent(def.metric, m -> new TreeMap<>())
+               .computeIfAbsent(def.threshold, t -> new ArrayList<>())
+               .add(def);
+        }
+        definitions = Collections.unmodifiableMap(defs);
+        index = Collections.unmodifiableMap(idx);
+    }
+
+    /**
+     * Convierte la condición JSON en un predicado "métrica >= umbral", o null si no es evaluable.
+     */
+    static Definition parse(int id, String name, String conditionJson, int xpReward, int coinReward) {
+        if (conditionJson == null || conditionJson.isBlank()) return null;
+        try {
+            JsonElement root = JsonParser.parseString(conditionJson);
+            if (!root.isJsonObject()) return null;
+            JsonObject obj = root.getAsJsonObject();
+
+            Metric metric = null;
+            if (obj.has("type")) {
+                metric = Metric.fromKey(obj.get("type").getAsString());
+            } else {
+                for (String key : obj.keySet()) {
+                    metric = Metric.fromKey(key);
+                    if (metric != null) break;
+                }
+            }
+            if (metric == null) return null;
+
+            Long threshold = numberAt(obj, "value");
+            if (threshold == null) threshold = numberAt(obj, metric.thresholdKey);
+            if (threshold == null && metric == Metric.TOTAL_XP) threshold = numberAt(obj, "total_xp");
+            if (threshold == null) return null;
+
+            return new Definition(id, name, metric, threshold, xpReward, coinReward);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ [AchievementEngine] Condición inválida en logro " + id + ": " + conditionJson);
+            return null;
+        }
+    }
+
+    private static Long numberAt(JsonObject obj, String key) {
+        JsonElement el = obj.get(key);
+        if (el == null || !el.isJsonPrimitive() || !el.getAsJsonPrimitive().isNumber()) return null;
+        return el.getAsLong();
+    }
+
+    private UserProgress progressFor(int userId) {
+        UserProgress progress = users.get(userId);
+        if (progress != null) return progress;
+
+        Set<Integer> unlocked = loadUnlocked(userId);
+        if (unlocked == null) return null;
+        UserProgress loaded = new UserProgress(unlocked);
+        UserProgress previous = users.putIfAbsent(userId, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    private static Set<Integer> loadUnlocked(int userId) {
+        Set<Integer> unlocked = new HashSet<>();
+        String sql = "SELECT achievement_id FROM public.user_achievements WHERE user_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) unlocked.add(rs.getInt("achievement_id"));
+            }
+            return unlocked;
+        } catch (SQLException e) {
+            System.err.println("⚠️ [AchievementEngine] Error cargando logros del usuario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int countCompletedMissions(int userId) {
+        String sql = "SELECT COUNT(*) FROM public.mission_progress WHERE user_id = ? AND progress_percentage >= 100";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ [AchievementEngine] Error contando misiones: " + e.getMessage());
+            return 0;
+        }
+    }
+}
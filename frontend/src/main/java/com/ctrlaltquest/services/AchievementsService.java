@@ -7,13 +7,14 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.ctrlaltquest.dao.UserStateCache;
 import com.ctrlaltquest.db.DatabaseConnection;
 
 /**
  * AchievementsService - Gestión de logros/achievements desbloqueables
  * 
  * CARACTERÍSTICAS:
- * ✅ Verifica logros basados en condiciones (nivel, XP, misiones, etc)
+ * ✅ Verifica logros basados en condiciones (nivel, XP, misiones, etc) vía AchievementEngine
  * ✅ Desbloquea logros y otorga recompensas
  * ✅ Integrado con XPSyncService para otorgar XP
  * ✅ Guarda progreso en BD
@@ -32,43 +33,20 @@ public class AchievementsService {
     }
     
     /**
-     * Verifica si se deben desbloquear logros basados en condiciones del usuario
+     * Verifica si se deben desbloquear logros basados en condiciones del usuario.
+     * La evaluación es incremental: ver AchievementEngine.
      */
     public void checkAchievementConditions(int userId) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // Obtener todos los logros disponibles
-            String sqlAchievements = "SELECT id, name, description, condition, xp_reward, coin_reward " +
-                                    "FROM public.achievements WHERE id NOT IN " +
-                                    "(SELECT achievement_id FROM public.user_achievements WHERE user_id = ?)";
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlAchievements)) {
-                pstmt.setInt(1, userId);
-                ResultSet rs = pstmt.executeQuery();
-                
-                while (rs.next()) {
-                    int achievementId = rs.getInt("id");
-                    String name = rs.getString("name");
-                    String description = rs.getString("description");
-                    String condition = rs.getString("condition");
-                    int xpReward = rs.getInt("xp_reward");
-                    int coinReward = rs.getInt("coin_reward");
-                    
-                    // Verificar si se cumple la condición
-                    if (checkCondition(userId, condition)) {
-                        unlockAchievement(userId, achievementId, name, xpReward, coinReward);
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("❌ Error verificando logros: " + e.getMessage());
-        }
+        AchievementEngine.getInstance().refresh(userId);
     }
     
     /**
      * Desbloquea un logro para un usuario
+     * 
+     * @return true si el logro queda registrado (recién insertado o ya existente)
      */
-    private void unlockAchievement(int userId, int achievementId, String name, 
-                                  int xpReward, int coinReward) {
+    boolean unlockAchievement(int userId, int achievementId, String name, 
+                              int xpReward, int coinReward) {
         try (Connection conn = DatabaseConnection.getConnection()) {
             conn.setAutoCommit(false);
             
@@ -94,68 +72,14 @@ public class AchievementsService {
             }
             
             conn.commit();
+            return true;
             
         } catch (SQLException e) {
             System.err.println("⚠️ Error desbloqueando logro: " + e.getMessage());
+            return false;
         }
     }
     
-    /**
-     * Verifica una condición de logro
-     * Formato de condición: JSON con reglas
-     * Ej: {"type": "level", "value": 10} = Alcanzar nivel 10
-     * Ej: {"type": "total_xp", "value": 50000} = Ganar 50000 XP total
-     */
-    private boolean checkCondition(int userId, String condition) {
-        try {
-            // Obtener datos del usuario
-            XPSyncService.UserXPData data = XPSyncService.getInstance().getUserXPData(userId);
-            if (data == null) return false;
-            
-            // Parsear condición simple
-            if (condition.contains("\"type\":\"level\"")) {
-                // Extraer valor
-                int requiredLevel = Integer.parseInt(condition.replaceAll("[^0-9]", ""));
-                return data.level >= requiredLevel;
-            } else if (condition.contains("\"type\":\"total_xp\"")) {
-                int requiredXP = Integer.parseInt(condition.replaceAll("[^0-9]", ""));
-                return data.totalXP >= requiredXP;
-            } else if (condition.contains("\"type\":\"missions_completed\"")) {
-                // Contar misiones completadas
-                int required = Integer.parseInt(condition.replaceAll("[^0-9]", ""));
-                int completed = countCompletedMissions(userId);
-                return completed >= required;
-            }
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ Error verificando condición de logro: " + e.getMessage());
-        }
-        
-        return false;
-    }
-    
-    /**
-     * Cuenta misiones completadas por el usuario
-     */
-    private int countCompletedMissions(int userId) {
-        String sql = "SELECT COUNT(*) as count FROM public.missions WHERE user_id = ? AND completed = true";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("count");
-            }
-        } catch (SQLException e) {
-            System.err.println("⚠️ Error contando misiones: " + e.getMessage());
-        }
-        
-        return 0;
-    }
-    
     /**
      * Otorga monedas por logro
      */
@@ -176,6 +100,7 @@ public class AchievementsService {
             pstmt.setInt(7, userId);
             
             pstmt.executeUpdate();
+            UserStateCache.getInstance().addCoins(userId, coins);
             
         } catch (SQLException e) {
             System.err.println("⚠️ Error otorgando monedas: " + e.getMessage());
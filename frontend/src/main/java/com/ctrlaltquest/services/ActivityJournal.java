@@ -0,0 +1,410 @@
+package com.ctrlaltquest.services;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * ActivityJournal - Diario local de solo-añadir para cuando PostgreSQL no responde.
+ *
+ * El write-behind guarda aquí los lotes que no pudo escribir y, mientras quede algo por
+ * reenviar, también los siguientes (para que lleguen a BD en orden). Un hilo de reenvío
+ * los vuelca después en lotes (ActivityWriteBehindService.replayJournal).
+ *
+ * Formato: ficheros journal-NNNNNNNN.seg de tamaño fijo, mapeados en memoria. Cada registro es
+ *   [int longitud][int CRC32 del contenido][contenido]
+ * y una longitud 0 marca el final. Un registro con CRC incorrecto (escritura cortada por un
+ * cierre brusco) termina la lectura de ese fichero. Cada ejecución empieza a añadir en un
+ * fichero nuevo, así que un final dañado nunca queda delante de registros buenos.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ El contenido se codifica directamente sobre el fichero mapeado, sin buffers intermedios
+ * ✅ force() tras cada registro: lo que se añade sobrevive a un cierre de la aplicación
+ * ✅ Los ficheros ya reenviados se borran; si el SO aún no lo permite (Windows mantiene el
+ *    fichero mientras siga mapeado) se reintenta en la siguiente pasada. Reenviar dos veces
+ *    un lote es inocuo: la BD recuerda los lotes ya aplicados.
+ * ✅ Un registro que la BD rechaza MAX_REPLAY_ATTEMPTS veces seguidas (con conexión) pasa a
+ *    dead-letter.log, con el mismo formato, y el reenvío continúa con el siguiente
+ *
+ * Configuración: -Dctrlaltquest.journal.dir (~/.ctrlaltquest/journal),
+ * -Dctrlaltquest.journal.segmentBytes (4 MB), -Dctrlaltquest.journal.maxReplayAttempts (5).
+ * Solo lo usa el hilo del write-behind.
+ */
+public class ActivityJournal {
+
+    private static final int SEGMENT_BYTES = Integer.getInteger("ctrlaltquest.journal.segmentBytes", 4 * 1024 * 1024);
+    private static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+    private static final int MAX_REPLAY_ATTEMPTS =
+        Math.max(1, Integer.getInteger("ctrlaltquest.journal.maxReplayAttempts", 5));
+
+    /**
+     * Resultado de reenviar un registro.
+     * APPLIED: aplicado (o ya lo estaba). UNAVAILABLE: sin conexión, se reintenta sin contar.
+     * FAILED: la BD lo rechazó, cuenta como intento. REJECTED: nunca se podrá aplicar (ilegible).
+     */
+    public enum ReplayResult { APPLIED, UNAVAILABLE, FAILED, REJECTED }
+
+    private static final MetricsRegistry.Counter APPENDED = MetricsRegistry.getInstance().counter("journal.appended");
+    private static final MetricsRegistry.Counter CORRUPT = MetricsRegistry.getInstance().counter("journal.corrupt");
+    private static final MetricsRegistry.Counter DEAD_LETTERED = MetricsRegistry.getInstance().counter("journal.deadLettered");
+
+    private final Path dir;
+    private final CRC32 crc = new CRC32();
+
+    // Fichero en el que se añade
+    private long appendSeq = -1;
+    private MappedByteBuffer appendBuffer;
+
+    // Posición de reenvío: fichero y desplazamiento del siguiente registro por aplicar
+    private long replaySeq = -1;
+    private int replayOffset = 0;
+    private final Set<Long> consumed = new HashSet<>();   // reenviados pero aún sin borrar
+    private ByteBuffer readBuffer;                       // se reserva al leer por primera vez
+    private int headAttempts = 0;                        // rechazos seguidos del registro en replayOffset
+    private ByteBuffer deadLetterBuffer;                 // se reserva con el primer lote a dead-letter
+
+    private volatile long pendingRecords = 0;   // la lee el gauge desde otros hilos
+
+    public ActivityJournal() {
+        this(Paths.get(System.getProperty("ctrlaltquest.journal.dir",
+            Paths.get(System.getProperty("user.home"), ".ctrlaltquest", "journal").toString())));
+    }
+
+    ActivityJournal(Path dir) {
+        this.dir = dir;
+        pendingRecords = countPending();
+        MetricsRegistry.getInstance().gauge("journal.pending", this::getPendingRecords);
+        if (pendingRecords > 0) {
+            System.out.println("📒 [Journal] " + pendingRecords + " lotes pendientes de reenviar en " + dir);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ESCRITURA
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Añade un registro. encoder escribe el contenido en el buffer que recibe (desde su
+     * posición actual). Si no cabe en el fichero actual se pasa a uno nuevo.
+     *
+     * @return false si no se pudo escribir (disco, permisos o registro mayor que un fichero)
+     */
+    public boolean append(Consumer<ByteBuffer> encoder) {
+        try {
+            if (appendBuffer == null) openForAppend();
+            if (tryAppend(encoder)) return true;
+            // No cabía: fichero nuevo y un segundo intento
+            rollAppend();
+            if (tryAppend(encoder)) return true;
+            System.err.println("⚠️ [Journal] Registro mayor que un fichero de diario (" + SEGMENT_BYTES + " bytes)");
+        } catch (IOException e) {
+            System.err.println("⚠️ [Journal] No se pudo escribir en " + dir + ": " + e.getMessage());
+            appendBuffer = null;
+        }
+        return false;
+    }
+
+    private boolean tryAppend(Consumer<ByteBuffer> encoder) {
+        MappedByteBuffer buf = appendBuffer;
+        int start = buf.position();
+        // Hace falta sitio para la cabecera y para la longitud 0 que marca el final
+        if (start + HEADER_BYTES * 2 > buf.capacity()) return false;
+        buf.position(start + HEADER_BYTES);
+        try {
+            encoder.accept(buf);
+        } catch (BufferOverflowException e) {
+            buf.position(start);
+            return false;
+        }
+        int end = buf.position();
+        if (end + 4 > buf.capacity()) {
+            buf.position(start);
+            return false;
+        }
+        int length = end - start - HEADER_BYTES;
+
+        crc.reset();
+        crc.update(buf.duplicate().position(start + HEADER_BYTES).limit(end));
+        buf.putInt(end, 0);                         // nuevo final
+        buf.putInt(start + 4, (int) crc.getValue());
+        buf.putInt(start, length);                  // la longitud se publica la última
+        buf.force();
+
+        pendingRecords++;
+        APPENDED.increment();
+        return true;
+    }
+
+    private void openForAppend() throws IOException {
+        Files.createDirectories(dir);
+        List<Long> seqs = listSegments();
+        appendSeq = seqs.isEmpty() ? 1 : seqs.get(seqs.size() - 1) + 1;
+        appendBuffer = map(appendSeq);
+        appendBuffer.position(0);
+    }
+
+    private void rollAppend() throws IOException {
+        appendSeq++;
+        appendBuffer = map(appendSeq);
+        appendBuffer.position(0);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // REENVÍO
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Pasa al handler, en orden, hasta maxRecords registros pendientes (buffer de solo lectura
+     * posicionado al inicio del contenido). Con UNAVAILABLE la pasada se detiene y el registro
+     * se vuelve a ofrecer la próxima vez; con FAILED también, salvo que ya acumule
+     * MAX_REPLAY_ATTEMPTS rechazos: entonces, como con REJECTED, pasa a dead-letter y se sigue.
+     *
+     * @return registros aplicados en esta pasada
+     */
+    public int replay(Function<ByteBuffer, ReplayResult> handler, int maxRecords) {
+        int applied = 0;
+        int processed = 0;
+        long loaded = -1;
+        try {
+            if (replaySeq < 0) {
+                replaySeq = nextSegmentAfter(0);
+                replayOffset = 0;
+                if (replaySeq < 0) return 0;
+            }
+            while (processed < maxRecords) {
+                // Un fichero se lee una vez por pasada; en ella no se añade nada (mismo hilo)
+                if (loaded != replaySeq) {
+                    if (!load(replaySeq)) readBuffer.limit(0);
+                    loaded = replaySeq;
+                }
+                ByteBuffer record = recordAt(readBuffer, replayOffset);
+                if (record == null) {
+                    // Fin de este fichero: pasar al siguiente si existe
+                    long next = nextSegmentAfter(replaySeq);
+                    if (next < 0) break;
+                    consumed.add(replaySeq);
+                    deleteConsumed(replaySeq);
+                    replaySeq = next;
+                    replayOffset = 0;
+                    continue;
+                }
+                int length = record.remaining();
+                ReplayResult result = handler.apply(record.asReadOnlyBuffer());
+                if (result == ReplayResult.UNAVAILABLE) break;
+                if (result == ReplayResult.FAILED && ++headAttempts < MAX_REPLAY_ATTEMPTS) break;
+                if (result != ReplayResult.APPLIED) {
+                    // Sin copia en dead-letter el registro no se suelta: se reintenta en la próxima pasada
+                    if (!writeDeadLetter(record)) break;
+                    System.err.println("⚠️ [Journal] Registro rechazado " + (result == ReplayResult.FAILED
+                        ? headAttempts + " veces" : "(ilegible)") + ": movido a " + dir.resolve(DEAD_LETTER_FILE));
+                } else {
+                    applied++;
+                }
+                headAttempts = 0;
+                replayOffset += HEADER_BYTES + length;
+                pendingRecords = Math.max(0, pendingRecords - 1);
+                processed++;
+            }
+            if (pendingRecords == 0) compact();
+        } catch (IOException e) {
+            System.err.println("⚠️ [Journal] Error leyendo el diario: " + e.getMessage());
+        }
+        return applied;
+    }
+
+    /**
+     * Guarda directamente en dead-letter.log un lote que nunca pasó por el diario (la BD lo
+     * rechazó sin que faltara la conexión). encoder escribe el contenido como en append().
+     *
+     * @return false si no se pudo escribir
+     */
+    public boolean deadLetter(Consumer<ByteBuffer> encoder) {
+        if (deadLetterBuffer == null) deadLetterBuffer = ByteBuffer.allocate(SEGMENT_BYTES);
+        deadLetterBuffer.clear();
+        try {
+            encoder.accept(deadLetterBuffer);
+        } catch (BufferOverflowException e) {
+            System.err.println("⚠️ [Journal] Registro mayor que un fichero de diario (" + SEGMENT_BYTES + " bytes)");
+            return false;
+        }
+        deadLetterBuffer.flip();
+        return writeDeadLetter(deadLetterBuffer);
+    }
+
+    /**
+     * Añade content (desde su posición) a dead-letter.log con el formato de los segmentos.
+     */
+    private boolean writeDeadLetter(ByteBuffer content) {
+        ByteBuffer body = content.duplicate();
+        crc.reset();
+        crc.update(body.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(body.remaining()).putInt((int) crc.getValue()).flip();
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel ch = FileChannel.open(dir.resolve(DEAD_LETTER_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (header.hasRemaining()) ch.write(header);
+                while (body.hasRemaining()) ch.write(body);
+                ch.force(true);
+            }
+            DEAD_LETTERED.increment();
+            return true;
+        } catch (IOException e) {
+            System.err.println("⚠️ [Journal] No se pudo escribir en " + DEAD_LETTER_FILE + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean hasPending() {
+        return pendingRecords > 0;
+    }
+
+    public long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * Todo reenviado: el siguiente registro empezará en un fichero nuevo y los antiguos se borran.
+     */
+    private void compact() {
+        appendBuffer = null;   // se deja de usar; el SO lo libera cuando se recoja el mapeo
+        try {
+            for (long seq : listSegments()) {
+                consumed.add(seq);
+                deleteConsumed(seq);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ [Journal] No se pudo limpiar el diario: " + e.getMessage());
+        }
+        replaySeq = -1;
+        replayOffset = 0;
+        headAttempts = 0;
+    }
+
+    /**
+     * Lee el fichero entero en readBuffer. false si ya no existe.
+     */
+    private boolean load(long seq) throws IOException {
+        if (readBuffer == null) readBuffer = ByteBuffer.allocateDirect(SEGMENT_BYTES);
+        Path file = segmentPath(seq);
+        if (!Files.exists(file)) return false;
+        readBuffer.clear();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (readBuffer.hasRemaining() && ch.read(readBuffer, readBuffer.position()) > 0) {
+                // lectura completa del fichero
+            }
+        }
+        readBuffer.flip();
+        return true;
+    }
+
+    /**
+     * Contenido del registro en offset, o null si ahí termina el fichero (longitud 0,
+     * registro cortado o CRC incorrecto).
+     */
+    private ByteBuffer recordAt(ByteBuffer buf, int offset) {
+        if (offset + HEADER_BYTES > buf.limit()) return null;
+        int length = buf.getInt(offset);
+        if (length <= 0 || offset + HEADER_BYTES + length > buf.limit()) return null;
+        ByteBuffer content = buf.duplicate();
+        content.limit(offset + HEADER_BYTES + length).position(offset + HEADER_BYTES);
+        crc.reset();
+        crc.update(content.duplicate());
+        if ((int) crc.getValue() != buf.getInt(offset + 4)) {
+            CORRUPT.increment();
+            System.err.println("⚠️ [Journal] Registro dañado (offset " + offset + "): se descarta el resto del fichero");
+            return null;
+        }
+        return content;
+    }
+
+    private long countPending() {
+        long count = 0;
+        try {
+            for (long seq : listSegments()) {
+                if (!load(seq)) continue;
+                int offset = 0;
+                ByteBuffer record;
+                while ((record = recordAt(readBuffer, offset)) != null) {
+                    offset += HEADER_BYTES + record.remaining();
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ [Journal] No se pudo leer el diario: " + e.getMessage());
+        }
+        return count;
+    }
+
+    // ── Ficheros ─────────────────────────────────────────────────────────────
+
+    private MappedByteBuffer map(long seq) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentPath(seq),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+
+    private void deleteConsumed(long seq) {
+        if (seq == appendSeq && appendBuffer != null) return;
+        try {
+            Files.deleteIfExists(segmentPath(seq));
+            consumed.remove(seq);
+        } catch (IOException e) {
+            // Aún mapeado: se reintenta en la próxima limpieza
+        }
+    }
+
+    /**
+     * Primer fichero posterior a seq que no se haya reenviado ya; -1 si no hay.
+     */
+    private long nextSegmentAfter(long seq) throws IOException {
+        for (long s : listSegments()) {
+            if (s > seq && !consumed.contains(s)) return s;
+        }
+        return -1;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return seqs;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    seqs.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // fichero ajeno al diario
+                }
+            }
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("%s%08d%s", PREFIX, seq, SUFFIX));
+    }
+}
@@ -1,17 +1,25 @@
 package com.ctrlaltquest.services;
 
-import com.ctrlaltquest.dao.ActivityDAO;
-import com.sun.jna.Native;
-import com.sun.jna.platform.win32.User32;
-import com.sun.jna.platform.win32.WinDef.HWND;
-
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * ActivityMonitorService - Canal de recompensas de la actividad.
+ *
+ * Ya no lee la ventana por su cuenta: se suscribe al flujo de ForegroundWindowSampler y
+ * pasa cada FocusTick a un ActivitySegmentRecorder, que registra intervalos de foco
+ * (una fila por segmento, con checkpoints en los largos) y acredita XP y misiones
+ * con la duración de cada tramo.
+ */
 public class ActivityMonitorService {
 
-    private static final int MAX_TITLE_LENGTH = 1024;
+    // Presupuesto del tick desde que empezó la lectura del título (la lectura la mide el muestreador)
+    private static final LatencyHistogram TICK_TIMER  = MetricsRegistry.getInstance().histogram("activity.tick");
 
-    private boolean isRunning    = false;
-    private Thread  monitorThread;
-    private int     currentUserId = -1;
+    private boolean  isRunning    = false;
+    private Runnable unsubscribe;
+    private int      currentUserId = -1;
+    private volatile ActivitySegmentRecorder recorder;
 
     private static ActivityMonitorService instance;
     public static ActivityMonitorService getInstance() {
@@ -34,94 +42,61 @@ public class ActivityMonitorService {
         }
 
         this.isRunning = true;
-
-        monitorThread = new Thread(() -> {
-            System.out.println("⚡ ActivityMonitor: Iniciado para usuario " + currentUserId);
-            while (isRunning) {
+        final ActivitySegmentRecorder userRecorder = recorderFor(currentUserId);
+        unsubscribe = ForegroundWindowSampler.getInstance().subscribe(new ForegroundWindowSampler.FocusListener() {
+            @Override
+            public void onFocusTick(ForegroundWindowSampler.FocusTick tick) {
                 try {
-                    reportActivity();
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    System.err.println("Error en ActivityMonitor: " + e.getMessage());
+                    userRecorder.observe(tick.title, tick.category, System.currentTimeMillis(), tick.idleMillis);
+                } finally {
+                    TICK_TIMER.recordSince(tick.sampledAtNanos);
                 }
             }
         });
-
-        monitorThread.setDaemon(true);
-        monitorThread.start();
+        System.out.println("⚡ ActivityMonitor: Iniciado para usuario " + currentUserId);
     }
 
     public void stopMonitoring() {
         isRunning = false;
-        if (monitorThread != null) monitorThread.interrupt();
+        if (unsubscribe != null) {
+            unsubscribe.run();
+            unsubscribe = null;
+        }
+        // Cerrar el segmento abierto y volcar a BD lo pendiente del write-behind
+        ActivitySegmentRecorder open = recorder;
+        if (open != null) open.close();
+        recorder = null;
+        ActivityWriteBehindService.getInstance().flushAsync();
         System.out.println("🛑 ActivityMonitor: Detenido.");
     }
 
-
-    private void reportActivity() {
-        String currentApp = getActiveWindowTitle();
-        String metricKey  = categorizeActivity(currentApp);
-        boolean productive = isProductive(currentApp);
-
-        // Actualizar contexto para el generador de eventos
-        EventContextualService.getInstance().updateCurrentActivity(currentApp);
-
-        if (metricKey != null && !metricKey.equals("unknown")) {
-            ActivityDAO.registrarActividad(currentUserId, currentApp, metricKey);
-
-            if (productive) {
-                XPSyncService.getInstance().awardXPFromActivity(currentUserId, 1, metricKey);
-            }
-
-            GameService.getInstance().processActivityEvent(currentUserId, metricKey, 1);
-            MissionProgressService.getInstance().processActivityEvent(currentUserId, metricKey, productive);
-        }
+    /**
+     * Trabajo de un tick para un título ya leído (separado de JNA para poder medirlo).
+     * El reloj lo pone quien llama, para que el benchmark avance el tiempo a su ritmo.
+     */
+    void reportActivity(int userId, String currentApp, long nowMillis) {
+        recorderFor(userId).observe(currentApp, TitleClassifier.getInstance().classify(currentApp),
+            nowMillis, 0);
     }
 
-
-    private String categorizeActivity(String windowTitle) {
-        if (windowTitle == null || windowTitle.isEmpty() || windowTitle.equals("Desconocido"))
-            return "unknown";
-
-        String lower = windowTitle.toLowerCase();
-
-        if (lower.contains("intellij") || lower.contains("idea") || lower.contains("eclipse") ||
-            lower.contains("visual studio") || lower.contains("code") || lower.contains("netbeans") ||
-            lower.contains("stackoverflow") || lower.contains("github"))
-            return "time_coding";
-
-        if (lower.contains("word") || lower.contains("excel") || lower.contains("powerpoint") ||
-            lower.contains("notion") || lower.contains("obsidian") || lower.contains("docs"))
-            return "time_productivity";
-
-        if (lower.contains("chrome") || lower.contains("edge") ||
-            lower.contains("firefox") || lower.contains("opera") || lower.contains("brave"))
-            return "time_browsing";
-
-        return "app_usage_generic";
+    private ActivitySegmentRecorder recorderFor(int userId) {
+        ActivitySegmentRecorder current = recorder;
+        if (current == null || current.getUserId() != userId) {
+            if (current != null) current.close();
+            current = new ActivitySegmentRecorder(userId);
+            recorder = current;
+        }
+        return current;
     }
 
+    /**
+     * Título en primer plano (última muestra del muestreador compartido).
+     */
     public String getActiveWindowTitle() {
-        try {
-            char[] buffer = new char[MAX_TITLE_LENGTH];
-            HWND hwnd = User32.INSTANCE.GetForegroundWindow();
-            if (hwnd == null) return "Desconocido";
-            User32.INSTANCE.GetWindowText(hwnd, buffer, MAX_TITLE_LENGTH);
-            String title = Native.toString(buffer);
-            return (title == null || title.isEmpty()) ? "Escritorio / Explorador" : title;
-        } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
-            return "Monitor Inactivo (Falta JNA)";
-        } catch (Exception e) {
-            return "Error al obtener ventana";
-        }
+        return ForegroundWindowSampler.getInstance().currentTitle();
     }
 
     public boolean isProductive(String windowTitle) {
-        if (windowTitle == null) return false;
-        String cat = categorizeActivity(windowTitle);
-        return cat.equals("time_coding") || cat.equals("time_productivity");
+        return TitleClassifier.getInstance().classify(windowTitle).productive;
     }
 }
@@ -0,0 +1,155 @@
+package com.ctrlaltquest.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * ActivitySegmentRecorder - Registra intervalos de foco en lugar de segundos sueltos.
+ *
+ * Un segmento se abre cuando cambia el título en primer plano y se cierra con el siguiente
+ * cambio, al detectar inactividad o al terminar la sesión. Al cerrarse se entrega al
+ * write-behind como un único tramo con su inicio, fin y duración reales.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Una fila de app_usage_logs por segmento en lugar de una por ventana de flush
+ * ✅ Checkpoints en segmentos largos (-Dctrlaltquest.activity.checkpointMs, 60 s): se entrega
+ *    el tramo transcurrido para que XP y misiones sigan avanzando mientras se trabaja
+ * ✅ Inactividad (-Dctrlaltquest.activity.idleMs, 5 min sin teclado ni ratón): el segmento
+ *    se cierra en la última entrada del usuario y se reabre al volver
+ * ✅ Los tramos que cruzan la medianoche se parten para que cada día sume lo suyo
+ *
+ * Una instancia por usuario monitorizado. Se alimenta desde el hilo del muestreador
+ * (observe) y se cierra desde stopMonitoring (close), por eso sus métodos son synchronized.
+ */
+public class ActivitySegmentRecorder {
+
+    private static final long CHECKPOINT_MS = Long.getLong("ctrlaltquest.activity.checkpointMs", 60_000L);
+    private static final long IDLE_MS = Long.getLong("ctrlaltquest.activity.idleMs", 300_000L);
+
+    private static final MetricsRegistry.Counter OPENED = MetricsRegistry.getInstance().counter("activity.segments.opened");
+    private static final MetricsRegistry.Counter CHECKPOINTS = MetricsRegistry.getInstance().counter("activity.segments.checkpoints");
+    private static final MetricsRegistry.Counter IDLE_CLOSES = MetricsRegistry.getInstance().counter("activity.segments.idleClosed");
+
+    private final int userId;
+
+    // Segmento abierto (title == null si no hay ninguno)
+    private String title;
+    private TitleClassifier.Category category;
+    private long creditedUntilMillis;   // hasta dónde se ha entregado ya al write-behind
+    private boolean idle = false;
+
+    public ActivitySegmentRecorder(int userId) {
+        this.userId = userId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Una muestra del foco. Abre, cierra o hace checkpoint del segmento según corresponda.
+     *
+     * @param idleMillis tiempo sin entrada del usuario (0 si no se puede medir)
+     */
+    public synchronized void observe(String newTitle, TitleClassifier.Category newCategory,
+                                     long nowMillis, long idleMillis) {
+        if (idleMillis >= IDLE_MS) {
+            if (!idle && title != null) {
+                // Lo que pasó desde la última entrada no cuenta
+                closeSegment(Math.max(creditedUntilMillis, nowMillis - idleMillis));
+                IDLE_CLOSES.increment();
+                System.out.println("💤 [Segments] Usuario " + userId + " inactivo: segmento cerrado");
+            }
+            idle = true;
+            return;
+        }
+
+        if (idle || title == null || !title.equals(newTitle)) {
+            idle = false;
+            if (title != null) closeSegment(nowMillis);
+            openSegment(newTitle, newCategory, nowMillis);
+            return;
+        }
+
+        if (nowMillis - creditedUntilMillis >= CHECKPOINT_MS) {
+            creditUntil(nowMillis);
+            CHECKPOINTS.increment();
+        }
+    }
+
+    /**
+     * Cierra el segmento abierto (stopMonitoring, logout, salida).
+     */
+    public synchronized void close() {
+        if (title != null) closeSegment(System.currentTimeMillis());
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // INTERNOS
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void openSegment(String newTitle, TitleClassifier.Category newCategory, long nowMillis) {
+        title = newTitle;
+        category = newCategory;
+        creditedUntilMillis = nowMillis;
+        OPENED.increment();
+
+        // Contexto para el generador de eventos y apps/categorías del día: una vez por segmento
+        EventContextualService.getInstance().updateCurrentActivity(newTitle);
+        if (!newCategory.isUnknown()) {
+            DailyUsageTracker.getInstance().record(userId, newTitle, newCategory);
+        }
+    }
+
+    private void closeSegment(long endMillis) {
+        creditUntil(endMillis);
+        title = null;
+        category = null;
+    }
+
+    /**
+     * Entrega al write-behind el tramo [creditedUntilMillis, endMillis) en segundos enteros;
+     * el resto de milisegundos queda para el siguiente tramo del mismo segmento.
+     */
+    private void creditUntil(long endMillis) {
+        long seconds = (endMillis - creditedUntilMillis) / 1000;
+        if (seconds <= 0) return;
+
+        long from = creditedUntilMillis;
+        long to = from + seconds * 1000;
+        creditedUntilMillis = to;
+        if (category.isUnknown()) return;
+
+        // Un tramo que cruza la medianoche se reparte entre los dos días
+        LocalDateTime start = toLocal(from);
+        LocalDateTime end = toLocal(to);
+        LocalDateTime midnight = start.toLocalDate().plusDays(1).atStartOfDay();
+        if (end.isAfter(midnight)) {
+            long beforeMidnight = Duration.between(start, midnight).getSeconds();
+            emit(start, midnight, beforeMidnight);
+            emit(midnight, end, seconds - beforeMidnight);
+        } else {
+            emit(start, end, seconds);
+        }
+    }
+
+    private void emit(LocalDateTime start, LocalDateTime end, long seconds) {
+        if (seconds <= 0) return;
+        ActivityWriteBehindService.getInstance().recordSegment(userId, title, category, start, end, seconds);
+        if (category.productive) {
+            XPSyncService.getInstance().awardXPFromActivity(userId, (int) seconds, category.metricKey);
+        }
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
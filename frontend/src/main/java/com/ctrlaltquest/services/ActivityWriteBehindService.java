@@ -0,0 +1,635 @@
+package com.ctrlaltquest.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrlaltquest.dao.ActivityDAO;
+import com.ctrlaltquest.dao.UserStateCache;
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * ActivityWriteBehindService - Etapa write-behind para los segmentos de actividad.
+ *
+ * ActivitySegmentRecorder entrega tramos de foco (inicio, fin y segundos reales) y aquí se
+ * acumulan en memoria: cada tramo es una fila de app_usage_logs, y un tramo que continúa
+ * justo donde acabó el anterior del mismo usuario y app se funde con él.
+ * Cada FLUSH_INTERVAL_MS, o al alcanzar FLUSH_TICK_THRESHOLD segundos pendientes,
+ * se vuelcan en un único lote JDBC transaccional (ActivityDAO.registrarLoteActividad)
+ * y después se procesan misiones/logros una vez por métrica con los segundos acumulados.
+ *
+ * Si el lote falla por falta de conexión (PostgreSQL caído), se guarda en el diario local
+ * (ActivityJournal) y, mientras quede algo en él, los lotes siguientes también van al diario
+ * para no adelantarse. Cada flush intenta antes reenviar el diario: con un id por lote y la
+ * tabla activity_journal_applied, reenviar dos veces el mismo lote no duplica nada. Solo si
+ * el diario tampoco se puede escribir, el lote se reencola en memoria como último recurso.
+ * Si la BD responde pero rechaza el lote, se reencola hasta MAX_REJECTED_FLUSHES veces y
+ * después pasa al fichero dead-letter del diario, para no bloquear los siguientes.
+ * drain() y shutdown() vacían la cola de forma síncrona (stopMonitoring, logout, salida).
+ */
+public class ActivityWriteBehindService {
+
+    // ── Configuración (sobrescribible con -Dctrlaltquest.activity.*) ─────────
+    private static final long FLUSH_INTERVAL_MS =
+        Long.getLong("ctrlaltquest.activity.flushIntervalMs", 15_000);
+    private static final int FLUSH_TICK_THRESHOLD =
+        Integer.getInteger("ctrlaltquest.activity.flushTicks", 120);
+    private static final int REPLAY_PER_FLUSH =
+        Integer.getInteger("ctrlaltquest.journal.replayPerFlush", 500);
+    private static final int MAX_REJECTED_FLUSHES =
+        Math.max(1, Integer.getInteger("ctrlaltquest.activity.maxRejectedFlushes", 3));
+
+    // Identifica esta ejecución: las versiones de UserStateCache solo valen dentro de ella
+    private static final long RUN_ID = new SecureRandom().nextLong();
+
+    // ── Singleton ────────────────────────────────────────────────────────────
+    private static ActivityWriteBehindService instance;
+
+    public static synchronized ActivityWriteBehindService getInstance() {
+        if (instance == null) instance = new ActivityWriteBehindService();
+        return instance;
+    }
+
+    // ── Estado pendiente (protegido por lock) ────────────────────────────────
+    private final Object lock = new Object();
+    private List<Segment>                   pendingUsage   = new ArrayList<>();
+    private Map<Integer, Segment>           lastSegment    = new HashMap<>();   // cola de pendingUsage por usuario
+    private Map<Integer, Long>              pendingSeconds = new HashMap<>();
+    private Map<MetricKey, Integer>         pendingMetrics = new LinkedHashMap<>();
+    private Map<Integer, XPAccumulator>     pendingXP      = new HashMap<>();
+    private int pendingTicks = 0;   // segundos pendientes (umbral de flush)
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final ActivityJournal journal = new ActivityJournal();   // solo desde el hilo del write-behind
+    private int rejectedFlushes = 0;   // rechazos seguidos del lote en cola (hilo del write-behind)
+
+    // ── Métricas ─────────────────────────────────────────────────────────────
+    private final AtomicLong ticksRecorded = new AtomicLong();   // segundos registrados
+    private final AtomicLong segmentsRecorded = new AtomicLong();
+    private final AtomicLong flushCount    = new AtomicLong();
+    private final AtomicLong rowsWritten   = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong journaledBatches = new AtomicLong();
+    private final AtomicLong replayedBatches  = new AtomicLong();
+    private static final LatencyHistogram FLUSH_TIMER = MetricsRegistry.getInstance().histogram("activity.writeBehind.flush");
+    private static final LatencyHistogram REPLAY_TIMER = MetricsRegistry.getInstance().histogram("journal.replay");
+    private static final MetricsRegistry.Counter REPLAYED = MetricsRegistry.getInstance().counter("journal.replayed");
+
+    private ActivityWriteBehindService() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "activity-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely,
+            FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        MetricsRegistry.getInstance().gauge("activity.writeBehind.pendingTicks", this::getPendingTicks);
+        // Lo que quedó en el diario de una ejecución anterior se reenvía en el primer flush
+        if (journal.hasPending()) requestFlush();
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ENCOLADO
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Registra un tramo de foco [start, end) de {@code seconds} segundos. No toca la BD.
+     * Si continúa el último tramo pendiente del usuario con la misma app, se funde con él.
+     */
+    public void recordSegment(int userId, String appName, TitleClassifier.Category category,
+                              LocalDateTime start, LocalDateTime end, long seconds) {
+        if (seconds <= 0) return;
+        boolean thresholdReached;
+
+        synchronized (lock) {
+            Segment last = lastSegment.get(userId);
+            if (last != null && last.end.equals(start) && Objects.equals(last.appName, appName)
+                    && last.start.toLocalDate().equals(start.toLocalDate())) {
+                last.end = end;
+                last.seconds += seconds;
+            } else {
+                Segment segment = new Segment(userId, appName, start, end, seconds);
+                pendingUsage.add(segment);
+                lastSegment.put(userId, segment);
+                segmentsRecorded.incrementAndGet();
+            }
+
+            pendingSeconds.merge(userId, seconds, Long::sum);
+            pendingMetrics.merge(new MetricKey(userId, category), (int) seconds, Integer::sum);
+            pendingTicks += seconds;
+            thresholdReached = pendingTicks >= FLUSH_TICK_THRESHOLD;
+        }
+
+        ticksRecorded.addAndGet(seconds);
+        if (thresholdReached) requestFlush();
+    }
+
+    /**
+     * Registra un tick de 1 s (generador de carga): un tramo de un segundo que termina ahora.
+     * Los ticks seguidos de la misma app se funden en una sola fila.
+     */
+    public void recordTick(int userId, String appName, TitleClassifier.Category category) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        synchronized (lock) {
+            // El reloj puede no avanzar un segundo exacto entre ticks: se encadena al anterior
+            Segment last = lastSegment.get(userId);
+            if (last != null && Objects.equals(last.appName, appName) && !last.end.isBefore(now)) {
+                now = last.end;
+            }
+        }
+        recordSegment(userId, appName, category, now, now.plusSeconds(1), 1);
+    }
+
+    /**
+     * Registra XP ganada cuya persistencia se difiere al próximo flush.
+     * Se guarda el último snapshot (nivel/XP) y se suma la XP ganada por día y motivo para
+     * xp_history y xp_daily (el día es el de ahora, no el del flush).
+     *
+     * @param reason  motivo de xp_history ("Activity Sync", "Misión Completada"...)
+     * @param version versión de UserStateCache de este snapshot (se confirma tras el commit)
+     */
+    public void recordXP(int userId, int xpGained, String reason, int level, int currentXP, int totalXP, long version) {
+        synchronized (lock) {
+            XPAccumulator acc = pendingXP.computeIfAbsent(userId, k -> new XPAccumulator());
+            acc.add(LocalDate.now(), reason, xpGained);
+            acc.level = level;
+            acc.currentXP = currentXP;
+            acc.totalXP = totalXP;
+            acc.version = version;
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // FLUSH
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Programa un flush inmediato en el hilo del write-behind.
+     */
+    public Future<?> flushAsync() {
+        return flusher.submit(this::flushSafely);
+    }
+
+    /**
+     * Vacía la cola y espera a que el lote se escriba (stopMonitoring / logout).
+     * @return true si el flush terminó dentro del timeout
+     */
+    public boolean drain(long timeoutMs) {
+        try {
+            flushAsync().get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("⚠️ [WriteBehind] No se pudo vaciar la cola: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Vacía la cola y detiene el hilo del write-behind (salida de la aplicación).
+     */
+    public void shutdown() {
+        drain(5_000);
+        flusher.shutdown();
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushSafely);
+        }
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("⚠️ [WriteBehind] Error en flush: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Solo se ejecuta en el hilo del write-behind, así que los lotes se escriben en orden.
+     */
+    private void flush() {
+        if (journal.hasPending()) replayJournal();
+
+        List<Segment> usage;
+        Map<Integer, Long> seconds;
+        Map<MetricKey, Integer> metrics;
+        Map<Integer, XPAccumulator> xp;
+
+        synchronized (lock) {
+            if (pendingUsage.isEmpty() && pendingSeconds.isEmpty()
+                    && pendingMetrics.isEmpty() && pendingXP.isEmpty()) return;
+            usage   = pendingUsage;   pendingUsage   = new ArrayList<>();
+            lastSegment = new HashMap<>();
+            seconds = pendingSeconds; pendingSeconds = new HashMap<>();
+            metrics = pendingMetrics; pendingMetrics = new LinkedHashMap<>();
+            xp      = pendingXP;      pendingXP      = new HashMap<>();
+            pendingTicks = 0;
+        }
+
+        long start = System.nanoTime();
+        try {
+            write(usage, seconds, metrics, xp);
+        } finally {
+            FLUSH_TIMER.recordSince(start);
+        }
+    }
+
+    private void write(List<Segment> usage, Map<Integer, Long> seconds,
+                       Map<MetricKey, Integer> metrics, Map<Integer, XPAccumulator> xp) {
+        // Con lotes aún en el diario, este va detrás de ellos para que el snapshot de XP
+        // más reciente sea también el último en llegar a BD
+        if (journal.hasPending()) {
+            if (!journalBatch(usage, seconds, metrics, xp)) requeue(usage, seconds, metrics, xp);
+            return;
+        }
+
+        ActivityDAO.ResultadoLote result =
+            ActivityDAO.registrarLoteActividad(null, toUsos(usage), seconds, toXPList(xp));
+        if (result == ActivityDAO.ResultadoLote.SIN_CONEXION) {
+            failedFlushes.incrementAndGet();
+            if (!journalBatch(usage, seconds, metrics, xp)) requeue(usage, seconds, metrics, xp);
+            return;
+        }
+        if (result == ActivityDAO.ResultadoLote.FALLIDO) {
+            failedFlushes.incrementAndGet();
+            rejectBatch(usage, seconds, metrics, xp);
+            return;
+        }
+        rejectedFlushes = 0;
+        afterCommit(usage, seconds, metrics, xp, true);
+    }
+
+    /**
+     * La BD respondió pero rechazó el lote (dato inválido, restricción...). Reencolarlo sin
+     * límite lo repetiría en cada flush junto con todo lo nuevo, así que tras
+     * MAX_REJECTED_FLUSHES intentos seguidos se aparta al fichero dead-letter del diario.
+     */
+    private void rejectBatch(List<Segment> usage, Map<Integer, Long> seconds,
+                             Map<MetricKey, Integer> metrics, Map<Integer, XPAccumulator> xp) {
+        if (++rejectedFlushes < MAX_REJECTED_FLUSHES) {
+            System.err.println("⚠️ [WriteBehind] La BD rechazó el lote (intento " + rejectedFlushes
+                + "/" + MAX_REJECTED_FLUSHES + "): se reintenta en el próximo flush");
+            requeue(usage, seconds, metrics, xp);
+            return;
+        }
+        rejectedFlushes = 0;
+        UUID batchId = UUID.randomUUID();
+        if (journal.deadLetter(buf -> encode(buf, batchId, usage, seconds, metrics, xp))) {
+            System.err.println("⚠️ [WriteBehind] Lote rechazado " + MAX_REJECTED_FLUSHES
+                + " veces: apartado en el dead-letter del diario (" + usage.size() + " tramos)");
+        } else {
+            System.err.println("❌ [WriteBehind] Lote rechazado " + MAX_REJECTED_FLUSHES
+                + " veces y sin dead-letter disponible: se descartan " + usage.size() + " tramos");
+        }
+    }
+
+    /**
+     * Tras confirmar un lote: cachés, snapshot del dashboard y misiones.
+     *
+     * @param sameRun false si el lote viene del diario de otra ejecución (sus versiones de
+     *                UserStateCache no significan nada en esta)
+     */
+    private void afterCommit(List<Segment> usage, Map<Integer, Long> seconds,
+                             Map<MetricKey, Integer> metrics, Map<Integer, XPAccumulator> xp, boolean sameRun) {
+        flushCount.incrementAndGet();
+        rowsWritten.addAndGet(usage.size());
+
+        // La XP ya está en BD: las entradas de UserStateCache pueden volver a caducar
+        if (sameRun) {
+            for (Map.Entry<Integer, XPAccumulator> e : xp.entrySet()) {
+                UserStateCache.getInstance().markFlushed(e.getKey(), e.getValue().version);
+            }
+        }
+
+        // Uso, XP y misiones cambiaron en BD: el snapshot del dashboard de esos usuarios ya no vale
+        Set<Integer> usuarios = new HashSet<>(seconds.keySet());
+        usuarios.addAll(xp.keySet());
+        for (MetricKey k : metrics.keySet()) usuarios.add(k.userId);
+        for (int userId : usuarios) DashboardSnapshot.getInstance().invalidate(userId);
+
+        // Misiones y logros: una llamada por métrica con los segundos acumulados, no una por tick
+        for (Map.Entry<MetricKey, Integer> e : metrics.entrySet()) {
+            MetricKey k = e.getKey();
+            int amount = e.getValue();
+            try {
+                GameService.getInstance().processActivityEvent(k.userId, k.category.metricKey, amount);
+                MissionProgressService.getInstance().processActivityEvent(k.userId, k.category, amount);
+            } catch (Exception ex) {
+                System.err.println("⚠️ [WriteBehind] Error procesando misiones de " + k.category + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private static List<ActivityDAO.UsoAgregado> toUsos(List<Segment> usage) {
+        List<ActivityDAO.UsoAgregado> usos = new ArrayList<>(usage.size());
+        for (Segment seg : usage) {
+            usos.add(new ActivityDAO.UsoAgregado(seg.userId, seg.appName, seg.start, seg.end, seg.seconds));
+        }
+        return usos;
+    }
+
+    private static List<ActivityDAO.XPPendiente> toXPList(Map<Integer, XPAccumulator> xp) {
+        List<ActivityDAO.XPPendiente> xpList = new ArrayList<>(xp.size());
+        for (Map.Entry<Integer, XPAccumulator> e : xp.entrySet()) {
+            XPAccumulator a = e.getValue();
+            xpList.add(new ActivityDAO.XPPendiente(e.getKey(), a.level, a.currentXP, a.totalXP, a.gainedByDay));
+        }
+        return xpList;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // DIARIO LOCAL (BD caída)
+    // ════════════════════════════════════════════════════════════════════════
+
+    private boolean journalBatch(List<Segment> usage, Map<Integer, Long> seconds,
+                                 Map<MetricKey, Integer> metrics, Map<Integer, XPAccumulator> xp) {
+        UUID batchId = UUID.randomUUID();
+        boolean written = journal.append(buf -> encode(buf, batchId, usage, seconds, metrics, xp));
+        if (written) {
+            journaledBatches.incrementAndGet();
+            System.out.println("📒 [WriteBehind] BD no disponible: lote guardado en el diario local ("
+                + journal.getPendingRecords() + " pendientes)");
+        }
+        return written;
+    }
+
+    /**
+     * Reenvía a BD lotes del diario, en orden, hasta REPLAY_PER_FLUSH o hasta el primer fallo
+     * (los que la BD rechaza una y otra vez acaban en dead-letter; ver ActivityJournal.replay).
+     */
+    private void replayJournal() {
+        long start = System.nanoTime();
+        int replayed = journal.replay(this::replayRecord, REPLAY_PER_FLUSH);
+        if (replayed == 0) return;
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        replayedBatches.addAndGet(replayed);
+        REPLAYED.add(replayed);
+        System.out.println("📒 [WriteBehind] Reenviados " + replayed + " lotes del diario en " + elapsedMs + " ms ("
+            + (replayed * 1000L / elapsedMs) + " lotes/s, quedan " + journal.getPendingRecords() + ")");
+    }
+
+    private ActivityJournal.ReplayResult replayRecord(ByteBuffer record) {
+        long start = System.nanoTime();
+        JournalBatch b;
+        try {
+            b = decode(record);
+        } catch (RuntimeException e) {
+            // Contenido ilegible pese al CRC (formato de otra versión): se aparta
+            System.err.println("⚠️ [WriteBehind] Lote del diario ilegible: " + e.getMessage());
+            return ActivityJournal.ReplayResult.REJECTED;
+        }
+
+        ActivityDAO.ResultadoLote result =
+            ActivityDAO.registrarLoteActividad(b.id, toUsos(b.usage), b.seconds, toXPList(b.xp));
+        REPLAY_TIMER.recordSince(start);
+        if (result == ActivityDAO.ResultadoLote.SIN_CONEXION) return ActivityJournal.ReplayResult.UNAVAILABLE;
+        if (result == ActivityDAO.ResultadoLote.FALLIDO) return ActivityJournal.ReplayResult.FAILED;
+        if (result == ActivityDAO.ResultadoLote.APLICADO) {
+            afterCommit(b.usage, b.seconds, b.metrics, b.xp, b.runId == RUN_ID);
+        }
+        return ActivityJournal.ReplayResult.APPLIED;
+    }
+
+    // ── Codificación: enteros y longs en binario, textos como UTF-8 con longitud ──
+    // La XP va por día y motivo, así que un lote reenviado días después sigue en su día.
+
+    private static void encode(ByteBuffer buf, UUID batchId, List<Segment> usage, Map<Integer, Long> seconds,
+                               Map<MetricKey, Integer> metrics, Map<Integer, XPAccumulator> xp) {
+        buf.putLong(batchId.getMostSignificantBits()).putLong(batchId.getLeastSignificantBits());
+        buf.putLong(RUN_ID);
+
+        buf.putInt(usage.size());
+        for (Segment seg : usage) {
+            buf.putInt(seg.userId);
+            putString(buf, seg.appName);
+            buf.putLong(seg.start.toEpochSecond(ZoneOffset.UTC));
+            buf.putLong(seg.end.toEpochSecond(ZoneOffset.UTC));
+            buf.putLong(seg.seconds);
+        }
+
+        buf.putInt(seconds.size());
+        for (Map.Entry<Integer, Long> e : seconds.entrySet()) {
+            buf.putInt(e.getKey()).putLong(e.getValue());
+        }
+
+        buf.putInt(metrics.size());
+        for (Map.Entry<MetricKey, Integer> e : metrics.entrySet()) {
+            buf.putInt(e.getKey().userId);
+            putString(buf, e.getKey().category.id);
+            buf.putInt(e.getValue());
+        }
+
+        buf.putInt(xp.size());
+        for (Map.Entry<Integer, XPAccumulator> e : xp.entrySet()) {
+            XPAccumulator a = e.getValue();
+            buf.putInt(e.getKey()).putInt(a.level).putInt(a.currentXP).putInt(a.totalXP).putLong(a.version);
+            buf.putInt(a.gainedByDay.size());
+            for (Map.Entry<LocalDate, Map<String, Integer>> d : a.gainedByDay.entrySet()) {
+                buf.putLong(d.getKey().toEpochDay());
+                buf.putInt(d.getValue().size());
+                for (Map.Entry<String, Integer> r : d.getValue().entrySet()) {
+                    putString(buf, r.getKey());
+                    buf.putInt(r.getValue());
+                }
+            }
+        }
+    }
+
+    private static JournalBatch decode(ByteBuffer buf) {
+        JournalBatch b = new JournalBatch(new UUID(buf.getLong(), buf.getLong()), buf.getLong());
+
+        for (int i = buf.getInt(); i > 0; i--) {
+            int userId = buf.getInt();
+            String app = getString(buf);
+            LocalDateTime start = LocalDateTime.ofEpochSecond(buf.getLong(), 0, ZoneOffset.UTC);
+            LocalDateTime end = LocalDateTime.ofEpochSecond(buf.getLong(), 0, ZoneOffset.UTC);
+            b.usage.add(new Segment(userId, app, start, end, buf.getLong()));
+        }
+        for (int i = buf.getInt(); i > 0; i--) {
+            b.seconds.put(buf.getInt(), buf.getLong());
+        }
+        TitleClassifier classifier = TitleClassifier.getInstance();
+        for (int i = buf.getInt(); i > 0; i--) {
+            int userId = buf.getInt();
+            TitleClassifier.Category category = classifier.getCategory(getString(buf));
+            b.metrics.merge(new MetricKey(userId, category), buf.getInt(), Integer::sum);
+        }
+        for (int i = buf.getInt(); i > 0; i--) {
+            XPAccumulator a = new XPAccumulator();
+            int userId = buf.getInt();
+            a.level = buf.getInt();
+            a.currentXP = buf.getInt();
+            a.totalXP = buf.getInt();
+            a.version = buf.getLong();
+            for (int d = buf.getInt(); d > 0; d--) {
+                LocalDate day = LocalDate.ofEpochDay(buf.getLong());
+                for (int r = buf.getInt(); r > 0; r--) {
+                    a.add(day, getString(buf), buf.getInt());
+                }
+            }
+            b.xp.put(userId, a);
+        }
+        return b;
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        if (s == null) {
+            buf.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Devuelve un lote fallido a la cola, fusionándolo con lo que haya llegado mientras tanto.
+     */
+    private void requeue(List<Segment> usage, Map<Integer, Long> seconds,
+                         Map<MetricKey, Integer> metrics, Map<Integer, XPAccumulator> xp) {
+        synchronized (lock) {
+            // Los tramos fallidos van delante; la cola por usuario sigue siendo la de los nuevos
+            List<Segment> merged = new ArrayList<>(usage.size() + pendingUsage.size());
+            merged.addAll(usage);
+            merged.addAll(pendingUsage);
+            pendingUsage = merged;
+            seconds.forEach((k, v) -> pendingSeconds.merge(k, v, Long::sum));
+            metrics.forEach((k, v) -> pendingMetrics.merge(k, v, Integer::sum));
+            for (Map.Entry<Integer, XPAccumulator> e : xp.entrySet()) {
+                XPAccumulator current = pendingXP.get(e.getKey());
+                if (current == null) {
+                    pendingXP.put(e.getKey(), e.getValue());
+                } else {
+                    // El snapshot más reciente ya está en current; solo se suma la XP ganada
+                    e.getValue().gainedByDay.forEach((day, byReason) ->
+                        byReason.forEach((r, v) -> current.add(day, r, v)));
+                }
+            }
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // MÉTRICAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    public long getTicksRecorded() { return ticksRecorded.get(); }
+    public long getSegmentsRecorded() { return segmentsRecorded.get(); }
+    public long getFlushCount()    { return flushCount.get(); }
+    public long getRowsWritten()   { return rowsWritten.get(); }
+    public long getFailedFlushes() { return failedFlushes.get(); }
+    public long getJournaledBatches() { return journaledBatches.get(); }
+    public long getReplayedBatches()  { return replayedBatches.get(); }
+
+    public int getPendingTicks() {
+        synchronized (lock) { return pendingTicks; }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CLASES INTERNAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    private static final class Segment {
+        final int userId;
+        final String appName;
+        final LocalDateTime start;
+        LocalDateTime end;
+        long seconds;
+
+        Segment(int userId, String appName, LocalDateTime start, LocalDateTime end, long seconds) {
+            this.userId = userId;
+            this.appName = appName;
+            this.start = start;
+            this.end = end;
+            this.seconds = seconds;
+        }
+    }
+
+    private static final class MetricKey {
+        final int userId;
+        final TitleClassifier.Category category;
+
+        MetricKey(int userId, TitleClassifier.Category category) {
+            this.userId = userId;
+            this.category = category;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MetricKey)) return false;
+            MetricKey k = (MetricKey) o;
+            return userId == k.userId && Objects.equals(category.id, k.category.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, category.id);
+        }
+    }
+
+    /**
+     * Lote leído del diario local.
+     */
+    private static final class JournalBatch {
+        final UUID id;
+        final long runId;
+        final List<Segment> usage = new ArrayList<>();
+        final Map<Integer, Long> seconds = new HashMap<>();
+        final Map<MetricKey, Integer> metrics = new LinkedHashMap<>();
+        final Map<Integer, XPAccumulator> xp = new HashMap<>();
+
+        JournalBatch(UUID id, long runId) {
+            this.id = id;
+            this.runId = runId;
+        }
+    }
+
+    private static final class XPAccumulator {
+        final Map<LocalDate, Map<String, Integer>> gainedByDay = new TreeMap<>();   // día → motivo → XP
+        int level;
+        int currentXP;
+        int totalXP;
+        long version;
+
+        void add(LocalDate day, String reason, int xp) {
+            gainedByDay.computeIfAbsent(day, d -> new LinkedHashMap<>()).merge(reason, xp, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ctrlaltquest.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.ctrlaltquest.metrics.MetricsRegistry;
+import com.ctrlaltquest.ui.utils.FxQueue;
+
+/**
+ * AppExecutors - Capa de ejecución compartida para el trabajo en segundo plano.
+ *
+ * En lugar de crear un Thread por cada carga de vista, todo pasa por aquí:
+ *  - io():        BD y red. Pool acotado (por defecto 8 hilos, por debajo del máximo del
+ *                 pool JDBC) con cola; los hilos inactivos se liberan tras 60 s.
+ *  - scheduler(): tareas periódicas o diferidas (sondeos de la UI, reintentos).
+ *  - fx():        Executor que entrega en el hilo de JavaFX (vía FxQueue).
+ *
+ * Todos los hilos son daemon y tienen nombre, así que el número de hilos no crece por
+ * mucho que se navegue y un volcado de hilos dice de quién es cada uno.
+ * Tamaño: -Dctrlaltquest.exec.ioThreads.
+ */
+public final class AppExecutors {
+
+    private static final int IO_THREADS = Math.max(1, Integer.getInteger("ctrlaltquest.exec.ioThreads", 8));
+
+    private static final ThreadPoolExecutor IO = newPool("io", IO_THREADS);
+    private static final ScheduledThreadPoolExecutor SCHEDULER = newScheduler();
+    private static final Executor FX = FxQueue::runLater;
+
+    static {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("exec.io.active", IO::getActiveCount);
+        metrics.gauge("exec.io.queued", () -> IO.getQueue().size());
+    }
+
+    private AppExecutors() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // EJECUTORES
+    // ════════════════════════════════════════════════════════════════════════
+
+    public static ExecutorService io() { return IO; }
+
+    public static ScheduledExecutorService scheduler() { return SCHEDULER; }
+
+    public static Executor fx() { return FX; }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // AYUDANTES
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Ejecuta work en el pool de I/O y entrega el resultado a onFx en el hilo de JavaFX.
+     * Los errores se registran y no llegan a onFx.
+     */
+    public static <T> CompletableFuture<Void> ioThenFx(Supplier<T> work, Consumer<T> onFx) {
+        return CompletableFuture.supplyAsync(work, IO)
+            .thenAcceptAsync(onFx, FX)
+            .exceptionally(e -> {
+                System.err.println("❌ [AppExecutors] Error en tarea de fondo: " + e.getMessage());
+                return null;
+            });
+    }
+
+    /**
+     * Tarea periódica que puede bloquear (BD, JNA): el scheduler solo la despacha al pool
+     * de I/O, así que un sondeo lento no retrasa al resto de tareas programadas. La siguiente
+     * ejecución se programa al terminar la anterior (periodMs entre el fin de una y el inicio
+     * de la otra), así que dos ejecuciones nunca se solapan.
+     *
+     * @return acción que cancela las ejecuciones siguientes
+     */
+    public static Runnable scheduleIo(Runnable task, long initialDelayMs, long periodMs) {
+        PeriodicIoTask periodic = new PeriodicIoTask(task, periodMs);
+        periodic.scheduleNext(initialDelayMs);
+        return periodic::cancel;
+    }
+
+    /**
+     * Ejecuta runnable en el hilo de JavaFX pasados delayMs milisegundos.
+     */
+    public static void runOnFxAfter(long delayMs, Runnable runnable) {
+        SCHEDULER.schedule(() -> FxQueue.runLater(runnable), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deja de aceptar trabajo y espera brevemente a lo que esté en curso (al salir).
+     */
+    public static void shutdown() {
+        SCHEDULER.shutdownNow();
+        IO.shutdown();
+        try {
+            if (!IO.awaitTermination(2, TimeUnit.SECONDS)) IO.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ejecución periódica de scheduleIo: se ejecuta en el pool de I/O y, al acabar, se
+     * vuelve a programar en el scheduler.
+     */
+    private static final class PeriodicIoTask implements Runnable {
+        private final Runnable task;
+        private final long periodMs;
+        private volatile boolean cancelled = false;
+        private volatile ScheduledFuture<?> next;
+
+        PeriodicIoTask(Runnable task, long periodMs) {
+            this.task = task;
+            this.periodMs = periodMs;
+        }
+
+        void scheduleNext(long delayMs) {
+            if (cancelled) return;
+            try {
+                next = SCHEDULER.schedule(this::dispatch, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Aplicación cerrándose: no hay siguiente ejecución
+            }
+        }
+
+        private void dispatch() {
+            try {
+                IO.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Pool de I/O cerrado
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!cancelled) task.run();
+            } catch (RuntimeException e) {
+                System.err.println("❌ [AppExecutors] Error en tarea periódica: " + e.getMessage());
+            } finally {
+                scheduleNext(periodMs);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> f = next;
+            if (f != null) f.cancel(false);
+        }
+    }
+
+    // ── Construcción ─────────────────────────────────────────────────────────
+
+    private static ThreadPoolExecutor newPool(String name, int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), daemonFactory(name + "-worker"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonFactory("app-scheduler"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -3,19 +3,23 @@ package com.ctrlaltquest.services;
 import com.ctrlaltquest.dao.UserDAO;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Servicio para gestionar boosts de XP temporales.
  * Cuando el usuario consume un boost, gana 2x XP durante el período especificado.
+ *
+ * La expiración la programa la TimingWheel compartida (no un Timer por boost) y el plazo
+ * se guarda con TimingWheel.persist, así que un boost sigue vigente tras reiniciar la app.
  */
 public class BoostService {
 
     private static final BoostService instance = new BoostService();
     
+    private static final String PERSIST_PREFIX = "boost.";
+
     // Map de userId -> BoostInfo
-    private Map<Integer, BoostInfo> activeBoosts = new HashMap<>();
+    private final Map<Integer, BoostInfo> activeBoosts = new ConcurrentHashMap<>();
     
     // Multiplicador de XP cuando hay boost activo
     public static final int XP_MULTIPLIER = 2;
@@ -24,7 +28,9 @@ public class BoostService {
         return instance;
     }
     
-    private BoostService() {}
+    private BoostService() {
+        restaurarBoosts();
+    }
     
     /**
      * Activa un boost de XP para un usuario.
@@ -35,15 +41,9 @@ public class BoostService {
     public void activarBoost(int userId, int durationSeconds, String itemName) {
         System.out.println("⚡ BoostService: Activando boost de " + durationSeconds + "s para usuario " + userId);
         
-        // Cancelar boost anterior si existe
-        if (activeBoosts.containsKey(userId)) {
-            BoostInfo boostAnterior = activeBoosts.get(userId);
-            boostAnterior.cancelar();
-        }
-        
-        // Crear nuevo boost
-        BoostInfo boost = new BoostInfo(userId, itemName, durationSeconds);
-        activeBoosts.put(userId, boost);
+        long tiempoFin = System.currentTimeMillis() + (durationSeconds * 1000L);
+        programarBoost(userId, itemName, tiempoFin);
+        TimingWheel.getInstance().persist(PERSIST_PREFIX + userId, tiempoFin, itemName);
         
         System.out.println("✅ Boost activado: 2x XP durante " + (durationSeconds / 60) + " minutos");
     }
@@ -54,7 +54,8 @@ public class BoostService {
      * @return true si tiene boost activo
      */
     public boolean tieneBoostActivo(int userId) {
-        return activeBoosts.containsKey(userId) && !activeBoosts.get(userId).estaExpirado();
+        BoostInfo boost = activeBoosts.get(userId);
+        return boost != null && !boost.estaExpirado();
     }
     
     /**
@@ -75,11 +76,11 @@ public class BoostService {
      * @return Map con info del boost, o null si no hay
      */
     public Map<String, Object> obtenerInfoBoost(int userId) {
-        if (!tieneBoostActivo(userId)) {
+        BoostInfo boost = activeBoosts.get(userId);
+        if (boost == null || boost.estaExpirado()) {
             return null;
         }
         
-        BoostInfo boost = activeBoosts.get(userId);
         Map<String, Object> info = new HashMap<>();
         info.put("itemName", boost.itemName);
         info.put("tiempoRestante", boost.getTiempoRestante());
@@ -87,29 +88,58 @@ public class BoostService {
         return info;
     }
     
+    // ════════════════════════════════════════════════════════════════════════
+    // EXPIRACIÓN
+    // ════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Registra el boost y programa su expiración; el boost anterior del usuario (si lo hay)
+     * se reemplaza y su expiración se cancela.
+     */
+    private void programarBoost(int userId, String itemName, long tiempoFin) {
+        BoostInfo boost = new BoostInfo(itemName, tiempoFin);
+        BoostInfo boostAnterior = activeBoosts.put(userId, boost);
+        if (boostAnterior != null) {
+            boostAnterior.cancelar();
+        }
+        boost.expiracion = TimingWheel.getInstance().scheduleAt(() -> expirar(userId, boost), tiempoFin);
+    }
+    
+    private void expirar(int userId, BoostInfo boost) {
+        // Solo si sigue siendo el boost vigente (no lo reemplazó otro entretanto)
+        if (activeBoosts.remove(userId, boost)) {
+            TimingWheel.getInstance().forget(PERSIST_PREFIX + userId);
+            System.out.println("⏰ Boost expirado para usuario " + userId);
+        }
+    }
+    
+    /**
+     * Recupera los boosts que seguían vigentes al cerrar la aplicación.
+     */
+    private void restaurarBoosts() {
+        TimingWheel.getInstance().restore(PERSIST_PREFIX).forEach((key, persisted) -> {
+            try {
+                int userId = Integer.parseInt(key.substring(PERSIST_PREFIX.length()));
+                programarBoost(userId, persisted.payload, persisted.deadlineEpochMillis);
+                System.out.println("⚡ BoostService: Boost restaurado para usuario " + userId);
+            } catch (NumberFormatException e) {
+                TimingWheel.getInstance().forget(key);
+            }
+        });
+    }
+    
     /**
      * Clase interna para gestionar información de un boost.
      */
-    private class BoostInfo {
-        int userId;
-        String itemName;
-        long tiempoFin;
-        Timer timer;
+    private static class BoostInfo {
+        final String itemName;
+        final long tiempoFin;
+        // Si otro boost lo reemplaza antes de asignarse, expirar() ya no lo encuentra en el mapa
+        volatile TimingWheel.Timeout expiracion;
         
-        BoostInfo(int userId, String itemName, int durationSeconds) {
-            this.userId = userId;
+        BoostInfo(String itemName, long tiempoFin) {
             this.itemName = itemName;
-            this.tiempoFin = System.currentTimeMillis() + (durationSeconds * 1000L);
-            
-            // Programar expiración
-            timer = new Timer();
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    System.out.println("⏰ Boost expirado para usuario " + userId);
-                    activeBoosts.remove(userId);
-                }
-            }, durationSeconds * 1000L);
+            this.tiempoFin = tiempoFin;
         }
         
         boolean estaExpirado() {
@@ -135,8 +165,8 @@ public class BoostService {
         }
         
         void cancelar() {
-            if (timer != null) {
-                timer.cancel();
+            if (expiracion != null) {
+                expiracion.cancel();
             }
         }
     }
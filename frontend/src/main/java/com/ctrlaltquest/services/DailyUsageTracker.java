@@ -0,0 +1,213 @@
+package com.ctrlaltquest.services;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ctrlaltquest.dao.ActivityDAO;
+import com.ctrlaltquest.dao.ActivityLookupCache;
+
+/**
+ * DailyUsageTracker - Apps y categorías distintas usadas hoy por cada usuario, en memoria.
+ *
+ * Sustituye a los COUNT(DISTINCT ...) sobre app_usage_logs que se lanzaban en cada tick
+ * para las misiones "apps_used" y "categories_used":
+ *  - se hidrata una vez desde BD (login, o el primer flush si aún no se hizo)
+ *  - cada tick añade la app y su categoría a los conjuntos del día
+ *  - los contadores de misión solo se escriben cuando cambia la cardinalidad
+ *  - al cambiar el día local (medianoche) los conjuntos se vacían
+ *
+ * Las apps se identifican por apps.name sin distinguir mayúsculas (igual que su índice único)
+ * y la categoría es la de TitleClassifier.
+ */
+public class DailyUsageTracker {
+
+    private static final DailyUsageTracker instance = new DailyUsageTracker();
+    public static DailyUsageTracker getInstance() { return instance; }
+
+    /**
+     * Cardinalidades del día para un usuario.
+     */
+    public static final class Counts {
+        public final int apps;
+        public final int categories;
+
+        Counts(int apps, int categories) {
+            this.apps = apps;
+            this.categories = categories;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Counts)) return false;
+            Counts c = (Counts) o;
+            return apps == c.apps && categories == c.categories;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * apps + categories;
+        }
+
+        @Override
+        public String toString() {
+            return "apps=" + apps + " categorías=" + categories;
+        }
+    }
+
+    /** Estado de un usuario; se accede siempre con su propio monitor. */
+    private static final class DayState {
+        LocalDate day;
+        boolean hydrated;
+        final Set<String> apps = new HashSet<>();
+        final Set<String> categories = new HashSet<>();
+        Counts written;   // último valor escrito en mission_progress, null = ninguno hoy
+
+        DayState(LocalDate day) {
+            this.day = day;
+        }
+
+        /** Vacía los conjuntos si ha cambiado el día local. */
+        void rollover(LocalDate today) {
+            if (today.equals(day)) return;
+            day = today;
+            hydrated = false;
+            apps.clear();
+            categories.clear();
+            written = null;
+        }
+
+        Counts counts() {
+            return new Counts(apps.size(), categories.size());
+        }
+    }
+
+    private final Map<Integer, DayState> users = new ConcurrentHashMap<>();
+
+    private DailyUsageTracker() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // REGISTRO
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Anota un tick de la app con su categoría. No toca la BD.
+     */
+    public void record(int userId, String appName, TitleClassifier.Category category) {
+        String app = appKey(appName);
+        if (app == null) return;
+        DayState s = state(userId);
+        synchronized (s) {
+            s.rollover(LocalDate.now());
+            s.apps.add(app);
+            s.categories.add(categoryKey(category));
+        }
+    }
+
+    /**
+     * Carga las apps usadas hoy desde BD y las une a lo registrado en memoria.
+     * Se llama al iniciar sesión; si falla, se reintenta en el siguiente pollChanged.
+     */
+    public void hydrate(int userId) {
+        LocalDate today = LocalDate.now();
+        List<String> names = ActivityDAO.obtenerAppsUsadasEnDia(userId, today);
+        if (names == null) return;
+
+        // Clasificar fuera del monitor: puede haber cientos de títulos
+        Set<String> apps = new HashSet<>();
+        Set<String> categories = new HashSet<>();
+        TitleClassifier classifier = TitleClassifier.getInstance();
+        for (String name : names) {
+            String app = appKey(name);
+            if (app == null) continue;
+            apps.add(app);
+            categories.add(categoryKey(classifier.classify(name)));
+        }
+
+        DayState s = state(userId);
+        synchronized (s) {
+            s.rollover(today);
+            if (!s.day.equals(today)) return;   // cruzó la medianoche durante la carga
+            s.apps.addAll(apps);
+            s.categories.addAll(categories);
+            s.hydrated = true;
+        }
+        System.out.println("📊 [DailyUsage] Usuario " + userId + " hidratado: " + apps.size() + " apps hoy");
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CONTADORES DE MISIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Cardinalidades actuales si difieren de las últimas escritas; null si no hay nada que escribir.
+     * Tras escribirlas en BD hay que confirmar con markWritten.
+     */
+    public Counts pollChanged(int userId) {
+        DayState s = state(userId);
+        boolean needsHydration;
+        synchronized (s) {
+            s.rollover(LocalDate.now());
+            needsHydration = !s.hydrated;
+        }
+        if (needsHydration) hydrate(userId);
+
+        synchronized (s) {
+            s.rollover(LocalDate.now());
+            Counts current = s.counts();
+            return current.equals(s.written) ? null : current;
+        }
+    }
+
+    /**
+     * Confirma que {@code counts} ya está escrito en mission_progress.
+     */
+    public void markWritten(int userId, Counts counts) {
+        DayState s = users.get(userId);
+        if (s == null) return;
+        synchronized (s) {
+            s.written = counts;
+        }
+    }
+
+    /**
+     * Cardinalidades actuales sin comprobar cambios (null si el usuario no tiene estado).
+     */
+    public Counts peek(int userId) {
+        DayState s = users.get(userId);
+        if (s == null) return null;
+        synchronized (s) {
+            s.rollover(LocalDate.now());
+            return s.counts();
+        }
+    }
+
+    /**
+     * Descarta el estado del usuario (logout).
+     */
+    public void forgetUser(int userId) {
+        users.remove(userId);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // UTILIDADES
+    // ════════════════════════════════════════════════════════════════════════
+
+    private DayState state(int userId) {
+        return users.computeIfAbsent(userId, k -> new DayState(LocalDate.now()));
+    }
+
+    private static String appKey(String appName) {
+        String name = ActivityLookupCache.storedName(appName);
+        return name != null ? name.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String categoryKey(TitleClassifier.Category category) {
+        return category.id.toLowerCase(Locale.ROOT);
+    }
+}
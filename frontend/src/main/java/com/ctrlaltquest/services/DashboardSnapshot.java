@@ -0,0 +1,126 @@
+package com.ctrlaltquest.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrlaltquest.dao.DashboardDAO;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * DashboardSnapshot - Fuente única de los datos del dashboard y de sus modales.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Una sola consulta por carga (DashboardDAO.cargarSnapshot) en lugar de cuatro tareas
+ * ✅ Single-flight: peticiones simultáneas para el mismo usuario y versión comparten
+ *    el mismo CompletableFuture (dashboard + modal abiertos a la vez = una consulta)
+ * ✅ Caché con TTL corto (-Dctrlaltquest.dashboard.ttlMs, 30 s por defecto)
+ * ✅ invalidate(userId) sube la versión del usuario: lo que llega después ya no sirve
+ *    la copia anterior. La llama el write-behind tras escribir cada lote.
+ *
+ * Los futures se completan en el pool de I/O; la UI entrega el resultado con
+ * thenAcceptAsync(..., AppExecutors.fx()).
+ */
+public class DashboardSnapshot {
+
+    private static final long TTL_MS = Long.getLong("ctrlaltquest.dashboard.ttlMs", 30_000L);
+
+    private static final DashboardSnapshot instance = new DashboardSnapshot();
+    public static DashboardSnapshot getInstance() { return instance; }
+
+    private static final MetricsRegistry.Counter HITS = MetricsRegistry.getInstance().counter("dashboard.snapshot.hit");
+    private static final MetricsRegistry.Counter LOADS = MetricsRegistry.getInstance().counter("dashboard.snapshot.load");
+    private static final MetricsRegistry.Counter SHARED = MetricsRegistry.getInstance().counter("dashboard.snapshot.shared");
+
+    private final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<Integer, Cached> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<DashboardDAO.Snapshot>> inFlight = new ConcurrentHashMap<>();
+
+    private DashboardSnapshot() {}
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Snapshot del usuario: desde caché si es de la versión actual y no ha caducado;
+     * si no, la carga en curso para esa versión o una nueva.
+     * Se completa con null si la consulta falla.
+     */
+    public CompletableFuture<DashboardDAO.Snapshot> get(int userId) {
+        long version = versionOf(userId).get();
+
+        Cached cached = cache.get(userId);
+        if (cached != null && cached.version == version
+                && System.currentTimeMillis() - cached.loadedAtMillis < TTL_MS) {
+            HITS.increment();
+            return CompletableFuture.completedFuture(cached.snapshot);
+        }
+
+        String key = userId + ":" + version;
+        CompletableFuture<DashboardDAO.Snapshot> created = new CompletableFuture<>();
+        CompletableFuture<DashboardDAO.Snapshot> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            SHARED.increment();
+            return existing;
+        }
+
+        LOADS.increment();
+        CompletableFuture.supplyAsync(() -> DashboardDAO.cargarSnapshot(userId), AppExecutors.io())
+            .whenComplete((snapshot, e) -> {
+                // Solo se guarda si nadie invalidó mientras se consultaba
+                if (snapshot != null && versionOf(userId).get() == version) {
+                    cache.put(userId, new Cached(snapshot, version, System.currentTimeMillis()));
+                }
+                inFlight.remove(key, created);
+                if (e != null) created.completeExceptionally(e);
+                else created.complete(snapshot);
+            });
+        return created;
+    }
+
+    /**
+     * Fuerza una lectura nueva (botón de refrescar).
+     */
+    public CompletableFuture<DashboardDAO.Snapshot> refresh(int userId) {
+        invalidate(userId);
+        return get(userId);
+    }
+
+    /**
+     * Los datos del usuario cambiaron en BD: descarta la copia en caché.
+     * Una carga que ya estuviera en curso termina, pero no se guarda.
+     */
+    public void invalidate(int userId) {
+        versionOf(userId).incrementAndGet();
+        cache.remove(userId);
+    }
+
+    /**
+     * Al cerrar sesión. La versión se conserva (y sube) para que una carga en curso no se guarde.
+     */
+    public void forgetUser(int userId) {
+        invalidate(userId);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // INTERNOS
+    // ════════════════════════════════════════════════════════════════════════
+
+    private AtomicLong versionOf(int userId) {
+        return versions.computeIfAbsent(userId, k -> new AtomicLong());
+    }
+
+    private static class Cached {
+        final DashboardDAO.Snapshot snapshot;
+        final long version;
+        final long loadedAtMillis;
+
+        Cached(DashboardDAO.Snapshot snapshot, long version, long loadedAtMillis) {
+            this.snapshot = snapshot;
+            this.version = version;
+            this.loadedAtMillis = loadedAtMillis;
+        }
+    }
+}
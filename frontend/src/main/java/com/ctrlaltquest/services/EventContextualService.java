@@ -47,6 +47,12 @@ public class EventContextualService {
      */
     private static final long EVENT_INTERVAL_SECONDS = 30;
 
+    /**
+     * Tiempo máximo que un evento puede quedar sin resolver (modal cerrado sin responder,
+     * ventana perdida...). Pasado ese plazo se da por abandonado: TIMEOUT y se libera el guardia.
+     */
+    private static final long EVENT_TTL_MS = Long.getLong("ctrlaltquest.events.ttlMs", 15 * 60_000L);
+
     // ════════════════════════════════════════════════════════════════════════
     // ESTADO INTERNO
     // ════════════════════════════════════════════════════════════════════════
@@ -60,7 +66,7 @@ public class EventContextualService {
     // eventId → evento vivo en memoria RAM
     private final Map<String, ContextualEvent> activeEventsMap = new ConcurrentHashMap<>();
 
-    // Actividad actual del usuario (actualizada por ActivityMonitorService cada 2 s)
+    // Actividad actual del usuario (actualizada por ActivityMonitorService en cada FocusTick)
     private volatile String currentActivity = "UNKNOWN";
 
     // Guardia: solo un evento activo por usuario a la vez
@@ -191,6 +197,7 @@ public class EventContextualService {
         }
 
         activeEventsMap.put(eventId, event);
+        event.expiry = TimingWheel.getInstance().schedule(() -> abandonEvent(userId, event), EVENT_TTL_MS);
         System.out.println("🎯 [EventContextualService] Evento generado: " + type.displayName +
                            " | Target: " + target + " | ID: " + eventId);
         return event;
@@ -206,6 +213,7 @@ public class EventContextualService {
     public void completeEvent(int userId, String eventId, boolean success) {
         ContextualEvent event = activeEventsMap.remove(eventId);
         eventInProgress.put(userId, false);
+        if (event != null && event.expiry != null) event.expiry.cancel();
 
         int xpToGive    = 0;
         int coinsToGive = 0;
@@ -228,11 +236,21 @@ public class EventContextualService {
         notifyEventCompleted(userId, event, status, xpToGive, coinsToGive);
     }
 
+    /**
+     * Llamado por la TimingWheel cuando un evento supera EVENT_TTL_MS sin resolverse.
+     */
+    private void abandonEvent(int userId, ContextualEvent event) {
+        if (!activeEventsMap.remove(event.id, event)) return;
+        eventInProgress.put(userId, false);
+        System.out.println("⏰ [EventContextualService] Evento abandonado: " + event.title + " | ID: " + event.id);
+        notifyEventCompleted(userId, event, EventContextualListener.CompletionStatus.TIMEOUT, 0, 0);
+    }
+
     // ════════════════════════════════════════════════════════════════════════
     // CONTEXTO DE ACTIVIDAD
     // ════════════════════════════════════════════════════════════════════════
 
-    /** Actualizado cada 2 s por ActivityMonitorService para que el generador sea contextual. */
+    /** Actualizado al abrirse cada segmento de foco (ActivitySegmentRecorder) para que el generador sea contextual. */
     public void updateCurrentActivity(String activityName) {
         this.currentActivity = activityName;
     }
@@ -271,6 +289,9 @@ public class EventContextualService {
         public int bossHealth      = 100;
         public int bossMaxHealth   = 100;
 
+        // Expiración por abandono (TimingWheel); se cancela en completeEvent()
+        volatile TimingWheel.Timeout expiry;
+
         public ContextualEvent(String id, int userId, EventType type,
                                String title, String description, String imagePath,
                                int baseXp, int baseCoin, long generatedAt) {
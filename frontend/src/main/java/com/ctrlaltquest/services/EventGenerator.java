@@ -66,39 +66,9 @@ public class EventGenerator {
     }
 
     private static EventType selectEventByActivity(String activity) {
-        if (activity == null) return getRandomEventType();
-        String lower = activity.toLowerCase();
-        int choice = random.nextInt(100);
-
-        // Programación
-        if (lower.contains("code") || lower.contains("vscode") || lower.contains("intellij") ||
-            lower.contains("eclipse") || lower.contains("studio") || lower.contains("ide")) {
-            if (choice < 35) return EventType.BUG_STORM;
-            if (choice < 58) return EventType.TYPING_CHALLENGE;
-            if (choice < 78) return EventType.STRETCH_ROUTINE;
-            if (choice < 90) return EventType.TRIVIA_QUIZ;
-            return EventType.BOSS_ENCOUNTER;
-        }
-
-        // Navegación web
-        if (lower.contains("chrome") || lower.contains("firefox") ||
-            lower.contains("edge") || lower.contains("brave")) {
-            if (choice < 35) return EventType.CLICK_RUSH;
-            if (choice < 65) return EventType.TRIVIA_QUIZ;
-            if (choice < 85) return EventType.BREAK_TIME;
-            return EventType.BOSS_ENCOUNTER;
-        }
-
-        // Ofimática
-        if (lower.contains("word") || lower.contains("excel") ||
-            lower.contains("powerpoint") || lower.contains("notion")) {
-            if (choice < 40) return EventType.TYPING_CHALLENGE;
-            if (choice < 68) return EventType.TRIVIA_QUIZ;
-            if (choice < 88) return EventType.STRETCH_ROUTINE;
-            return EventType.BOSS_ENCOUNTER;
-        }
-
-        return getRandomEventType();
+        // Afinidad por categoría definida en title_rules.json (misma clasificación que el monitor)
+        EventType type = TitleClassifier.getInstance().resolve(activity).pickEvent(random);
+        return type != null ? type : getRandomEventType();
     }
 
     private static EventType getRandomEventType() {
@@ -0,0 +1,256 @@
+package com.ctrlaltquest.services;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinUser.LASTINPUTINFO;
+
+/**
+ * ForegroundWindowSampler - Único lector de la ventana en primer plano.
+ *
+ * Antes había tres bucles leyendo el título por su cuenta (ActivityMonitorService cada 1 s,
+ * HomeController cada 2 s y ActivityViewController cada 1 s con su propia instancia).
+ * Ahora se lee una vez por segundo aquí y se publica a quien esté suscrito:
+ *  - FocusChanged: el título cambió (con la categoría ya calculada).
+ *  - FocusTick:    una muestra por segundo, haya cambio o no.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Un solo hilo ("focus-sampler") y un solo buffer reutilizado para GetWindowText
+ * ✅ Si el título no cambió no se crea String ni se vuelve a clasificar
+ * ✅ Solo muestrea mientras haya suscriptores
+ * ✅ Cada FocusTick lleva los ms sin teclado ni ratón (GetLastInputInfo) para detectar inactividad
+ * ✅ Los listeners se llaman en el hilo del muestreador: deben ser rápidos y, si tocan
+ *    la UI, saltar al hilo de JavaFX (FxQueue)
+ */
+public class ForegroundWindowSampler {
+
+    private static final int MAX_TITLE_LENGTH = 1024;
+    private static final long PERIOD_MS = 1000;
+
+    static final String TITLE_UNKNOWN  = "Desconocido";
+    static final String TITLE_DESKTOP  = "Escritorio / Explorador";
+    static final String TITLE_NO_JNA   = "Monitor Inactivo (Falta JNA)";
+    static final String TITLE_ERROR    = "Error al obtener ventana";
+
+    private static final LatencyHistogram TITLE_TIMER = MetricsRegistry.getInstance().histogram("activity.tick.titleRead");
+    private static final MetricsRegistry.Counter CHANGES = MetricsRegistry.getInstance().counter("focus.changes");
+
+    private static final ForegroundWindowSampler instance = new ForegroundWindowSampler();
+    public static ForegroundWindowSampler getInstance() { return instance; }
+
+    /**
+     * Suscriptor del flujo de foco. Ambos métodos son opcionales.
+     */
+    public interface FocusListener {
+        default void onFocusChanged(FocusChanged event) {}
+        default void onFocusTick(FocusTick event) {}
+    }
+
+    private final List<FocusListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> samplingTask;
+
+    // Solo los toca el hilo del muestreador
+    private final char[] buffer = new char[MAX_TITLE_LENGTH];
+    private final LASTINPUTINFO lastInput = newLastInputInfo();
+    private volatile FocusTick last;
+    private long changedAtMillis;
+
+    private ForegroundWindowSampler() {
+        ScheduledThreadPoolExecutor ex = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "focus-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        ex.setRemoveOnCancelPolicy(true);
+        executor = ex;
+        MetricsRegistry.getInstance().gauge("focus.subscribers", listeners::size);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // PUB/SUB
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Suscribe un listener. Si ya hay una muestra, recibe enseguida un FocusChanged con el
+     * título actual para no esperar al próximo cambio. Devuelve la acción para darse de baja.
+     */
+    public synchronized Runnable subscribe(FocusListener listener) {
+        listeners.add(listener);
+        FocusTick current = last;
+        if (current != null) {
+            executor.execute(() -> safely(() -> listener.onFocusChanged(
+                new FocusChanged(null, current.title, current.category, System.currentTimeMillis()))));
+        }
+        if (samplingTask == null) {
+            samplingTask = executor.scheduleAtFixedRate(this::sampleSafely, 0, PERIOD_MS, TimeUnit.MILLISECONDS);
+            System.out.println("👁️ [FocusSampler] Muestreo iniciado");
+        }
+        return () -> unsubscribe(listener);
+    }
+
+    public synchronized void unsubscribe(FocusListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty() && samplingTask != null) {
+            samplingTask.cancel(false);
+            samplingTask = null;
+            last = null;
+            System.out.println("👁️ [FocusSampler] Muestreo detenido (sin suscriptores)");
+        }
+    }
+
+    /**
+     * Título actual: la última muestra si el muestreador está activo; si no, una lectura directa.
+     */
+    public String currentTitle() {
+        FocusTick current = last;
+        return current != null ? current.title : readTitle(new char[MAX_TITLE_LENGTH], null);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // MUESTREO
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (Exception e) {
+            // Una excepción no debe cancelar la tarea periódica
+            System.err.println("⚠️ [FocusSampler] Error en la muestra: " + e.getMessage());
+        }
+    }
+
+    private void sample() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        FocusTick previous = last;
+        String title = readTitle(buffer, previous != null ? previous.title : null);
+        long idleMillis = readIdleMillis(lastInput);
+        TITLE_TIMER.recordSince(start);
+
+        FocusTick tick;
+        if (previous != null && title == previous.title) {
+            tick = new FocusTick(title, previous.category, start, now - changedAtMillis, idleMillis);
+        } else {
+            TitleClassifier.Category category = TitleClassifier.getInstance().classify(title);
+            changedAtMillis = now;
+            tick = new FocusTick(title, category, start, 0, idleMillis);
+            CHANGES.increment();
+            FocusChanged changed = new FocusChanged(previous != null ? previous.title : null, title, category, now);
+            for (FocusListener l : listeners) safely(() -> l.onFocusChanged(changed));
+        }
+        last = tick;
+        for (FocusListener l : listeners) safely(() -> l.onFocusTick(tick));
+    }
+
+    /**
+     * Lee el título en buffer. Si coincide con previous devuelve esa misma instancia
+     * (sin crear String), de modo que el llamador puede comparar con ==.
+     */
+    static String readTitle(char[] buffer, String previous) {
+        try {
+            HWND hwnd = User32.INSTANCE.GetForegroundWindow();
+            if (hwnd == null) return TITLE_UNKNOWN;
+            int len = User32.INSTANCE.GetWindowText(hwnd, buffer, buffer.length);
+            if (len <= 0) return TITLE_DESKTOP;
+            if (previous != null && sameChars(buffer, len, previous)) return previous;
+            return new String(buffer, 0, len);
+        } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
+            return TITLE_NO_JNA;
+        } catch (Exception e) {
+            return TITLE_ERROR;
+        }
+    }
+
+    /**
+     * Milisegundos desde la última entrada de teclado o ratón; 0 si no se puede saber
+     * (sin JNA o fuera de Windows), de modo que nunca se da a nadie por inactivo sin motivo.
+     */
+    static long readIdleMillis(LASTINPUTINFO info) {
+        if (info == null) return 0;
+        try {
+            if (!User32.INSTANCE.GetLastInputInfo(info)) return 0;
+            // Ambos contadores son de 32 bits y dan la vuelta cada ~49 días
+            return Integer.toUnsignedLong(Kernel32.INSTANCE.GetTickCount() - info.dwTime);
+        } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
+            return 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static LASTINPUTINFO newLastInputInfo() {
+        try {
+            return new LASTINPUTINFO();
+        } catch (NoClassDefFoundError | UnsatisfiedLinkError e) {
+            return null;
+        }
+    }
+
+    private static boolean sameChars(char[] buffer, int len, String s) {
+        if (s.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (buffer[i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static void safely(Runnable r) {
+        try {
+            r.run();
+        } catch (Exception e) {
+            System.err.println("⚠️ [FocusSampler] Error en un suscriptor: " + e.getMessage());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // EVENTOS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * El título en primer plano cambió. previousTitle es null en el primer evento.
+     */
+    public static class FocusChanged {
+        public final String previousTitle;
+        public final String title;
+        public final TitleClassifier.Category category;
+        public final long atMillis;
+
+        FocusChanged(String previousTitle, String title, TitleClassifier.Category category, long atMillis) {
+            this.previousTitle = previousTitle;
+            this.title = title;
+            this.category = category;
+            this.atMillis = atMillis;
+        }
+    }
+
+    /**
+     * Una muestra (una por segundo). sampledAtNanos es System.nanoTime() del inicio de la lectura;
+     * idleMillis, el tiempo sin entrada del usuario (0 si no se puede medir).
+     */
+    public static class FocusTick {
+        public final String title;
+        public final TitleClassifier.Category category;
+        public final long sampledAtNanos;
+        public final long millisSinceChange;
+        public final long idleMillis;
+
+        FocusTick(String title, TitleClassifier.Category category, long sampledAtNanos,
+                  long millisSinceChange, long idleMillis) {
+            this.title = title;
+            this.category = category;
+            this.sampledAtNanos = sampledAtNanos;
+            this.millisSinceChange = millisSinceChange;
+            this.idleMillis = idleMillis;
+        }
+    }
+}
@@ -1,17 +1,15 @@
 package com.ctrlaltquest.services;
 
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.ctrlaltquest.dao.MissionsDAO;
-import com.ctrlaltquest.dao.UserDAO;
 import com.ctrlaltquest.models.Mission;
+import com.ctrlaltquest.ui.utils.FxQueue;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
 
-import javafx.application.Platform;
-
 public class GameService {
 
     private static final GameService instance = new GameService();
@@ -22,9 +20,10 @@ public class GameService {
      * Cooldown por misión completada (ms).
      * Evita que la misma misión dispare múltiples toasts si el DAO
      * la devuelve en ticks consecutivos antes de marcarse completa.
+     * La TimingWheel saca la misión del conjunto al acabar el cooldown.
      */
     private static final long MISSION_TOAST_COOLDOWN = 10_000; // 10 segundos
-    private final Map<Integer, Long> missionToastTimestamps = new ConcurrentHashMap<>();
+    private final Set<Integer> missionToastCooldown = ConcurrentHashMap.newKeySet();
 
     // ════════════════════════════════════════════════════════════════════════
     // PROCESAMIENTO DE ACTIVIDAD
@@ -39,11 +38,9 @@ public class GameService {
 
         for (int missionId : completedMissions) {
             // Evitar toasts duplicados para la misma misión en un período corto
-            long now = System.currentTimeMillis();
-            Long lastToast = missionToastTimestamps.get(missionId);
-            if (lastToast != null && now - lastToast < MISSION_TOAST_COOLDOWN) continue;
+            if (!missionToastCooldown.add(missionId)) continue;
+            TimingWheel.getInstance().schedule(() -> missionToastCooldown.remove(missionId), MISSION_TOAST_COOLDOWN);
 
-            missionToastTimestamps.put(missionId, now);
             completarYRecompensar(userId, missionId);
         }
     }
@@ -61,22 +58,20 @@ public class GameService {
         }
 
         MissionsDAO.reclamarMision(userId, missionId);
-        boolean levelUp = UserDAO.otorgarRecompensas(userId, mission.getXpReward(), mission.getCoinReward());
+        // XP por el escritor único (la subida de nivel la notifica XPSyncService.onLevelUp)
+        XPSyncService.getInstance().awardXPForMission(userId, missionId, mission.getXpReward());
+        RewardsService.getInstance().awardCoinsForMission(userId, missionId, mission.getCoinReward());
+        AchievementEngine.getInstance().onMissionCompleted(userId);
 
         System.out.println("✅ Misión completada: " + mission.getTitle() +
                            " | +" + mission.getXpReward() + " XP | +" + mission.getCoinReward() + " monedas");
 
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             try { SoundManager.playSuccessSound(); } catch (Exception ignored) {}
 
             Toast.gold("¡Misión Completada!",
                 mission.getTitle() + " · +" + mission.getXpReward() +
                 " XP  |  +" + mission.getCoinReward() + " 💰");
-
-            if (levelUp) {
-                try { SoundManager.playLevelUpSound(); } catch (Exception ignored) {}
-                Toast.success("🎉 ¡LEVEL UP!", "¡Has subido de nivel! ¡Sigue adelante!");
-            }
         });
     }
 }
\ No newline at end of file
@@ -1,14 +1,34 @@
 package com.ctrlaltquest.services;
 
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ctrlaltquest.dao.LoginLockoutDAO;
+import com.ctrlaltquest.metrics.MetricsRegistry;
 
 /**
  * LoginAttemptService — Controla intentos fallidos de login y bloqueos temporales.
  *
- * Funciona completamente en memoria (sin BD) para máxima velocidad.
- * El bloqueo se libera automáticamente al pasar LOCKOUT_DURATION_MS.
+ * Funciona en memoria (sin BD) para máxima velocidad y con memoria acotada:
+ *  - Los fallos se cuentan en una ventana deslizante (-Dctrlaltquest.login.windowMs, 15 min):
+ *    contador de la ventana actual + el de la anterior ponderado por lo que aún solapa.
+ *  - Los identificadores se reparten en 16 tablas (stripes) con cerrojo propio y tamaño
+ *    máximo; entre todas siguen como mucho -Dctrlaltquest.login.maxTracked (4096) exactos.
+ *  - Con las tablas llenas, los identificadores nuevos se cuentan de forma aproximada en un
+ *    count-min sketch de tamaño fijo (contadores atómicos): puede sobrestimar, nunca subestimar.
+ *  - Un barrido periódico (-Dctrlaltquest.login.sweepMs, 30 s) retira las entradas sin fallos
+ *    en la ventana y rota el sketch.
+ *  - El bloqueo se libera al pasar LOCKOUT_DURATION_MS: el desbloqueo de las entradas exactas
+ *    lo programa la TimingWheel compartida, que además retira la entrada.
+ *  - Opcional (-Dctrlaltquest.login.sharedLockouts=true): los bloqueos se publican en
+ *    public.login_lockouts y el barrido descarga los de otros clientes de la misma red.
  *
  * Uso desde AuthDAO:
  *   LoginAttemptService svc = LoginAttemptService.getInstance();
@@ -23,21 +43,35 @@ public class LoginAttemptService {
     public static final int  MAX_ATTEMPTS         = 3;
     public static final long LOCKOUT_DURATION_MS  = 60_000; // 1 minuto (de prueba)
 
+    private static final long    WINDOW_MS   = Math.max(1000, Long.getLong("ctrlaltquest.login.windowMs", 15 * 60_000L));
+    private static final int     MAX_TRACKED = Math.max(16, Integer.getInteger("ctrlaltquest.login.maxTracked", 4096));
+    private static final long    SWEEP_MS    = Math.max(1000, Long.getLong("ctrlaltquest.login.sweepMs", 30_000L));
+    private static final boolean SHARED      = Boolean.getBoolean("ctrlaltquest.login.sharedLockouts");
+
+    private static final int STRIPES = 16; // potencia de dos
+    private static final int PER_STRIPE = MAX_TRACKED / STRIPES;
+
+    private static final MetricsRegistry.Counter LOCKOUTS = MetricsRegistry.getInstance().counter("login.lockouts");
+    private static final MetricsRegistry.Counter APPROXIMATE = MetricsRegistry.getInstance().counter("login.attempts.approximate");
+    private static final MetricsRegistry.Counter SWEPT = MetricsRegistry.getInstance().counter("login.attempts.swept");
+
     // ── Singleton ────────────────────────────────────────────────────────────
     private static LoginAttemptService instance;
     public static synchronized LoginAttemptService getInstance() {
         if (instance == null) instance = new LoginAttemptService();
         return instance;
     }
-    private LoginAttemptService() {}
-
-    // ── Estado interno ────────────────────────────────────────────────────────
-    private static class AttemptData {
-        int  count     = 0;
-        long lockedAt  = 0; // 0 = no bloqueado
+    private LoginAttemptService() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+        MetricsRegistry.getInstance().gauge("login.attempts.tracked", this::trackedCount);
+        AppExecutors.scheduleIo(this::sweep, SWEEP_MS, SWEEP_MS);
     }
 
-    private final Map<String, AttemptData> attempts = new ConcurrentHashMap<>();
+    // ── Estado interno ────────────────────────────────────────────────────────
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Sketch overflow = new Sketch();
+    // hash del identificador → fin del bloqueo (ms), publicado por otros clientes
+    private final Map<String, Long> sharedLocks = new ConcurrentHashMap<>();
 
     // ════════════════════════════════════════════════════════════════════════
     // API PÚBLICA
@@ -45,29 +79,37 @@ public class LoginAttemptService {
 
     /**
      * Retorna true si el identificador está bloqueado en este momento.
-     * Libera el bloqueo automáticamente si ya expiró.
      */
     public boolean isBlocked(String identifier) {
-        AttemptData data = attempts.get(key(identifier));
-        if (data == null || data.lockedAt == 0) return false;
-
-        if (Instant.now().toEpochMilli() - data.lockedAt >= LOCKOUT_DURATION_MS) {
-            // Bloqueo expirado → limpiar
-            attempts.remove(key(identifier));
-            return false;
-        }
-        return true;
+        return getRemainingLockMs(identifier) > 0;
     }
 
     /**
      * Milisegundos que quedan de bloqueo. 0 si no está bloqueado.
      */
     public long getRemainingLockMs(String identifier) {
-        AttemptData data = attempts.get(key(identifier));
-        if (data == null || data.lockedAt == 0) return 0;
-        long elapsed = Instant.now().toEpochMilli() - data.lockedAt;
-        long remaining = LOCKOUT_DURATION_MS - elapsed;
-        return Math.max(0, remaining);
+        String k = key(identifier);
+        long now = System.currentTimeMillis();
+        long remaining;
+
+        Stripe stripe = stripeFor(k);
+        Window w;
+        synchronized (stripe) {
+            w = stripe.entries.get(k);
+        }
+        if (w != null) {
+            TimingWheel.Timeout unlock = w.unlock;
+            remaining = unlock == null ? 0 : unlock.getRemainingMillis();
+        } else {
+            // Solo si no se lleva en exacto: si no, una colisión del sketch bloquearía sin motivo
+            remaining = Math.max(0, overflow.lockedUntil(k) - now);
+        }
+
+        if (SHARED && !sharedLocks.isEmpty()) {
+            Long until = sharedLocks.get(hash(k));
+            if (until != null) remaining = Math.max(remaining, until - now);
+        }
+        return remaining;
     }
 
     /**
@@ -75,36 +117,294 @@ public class LoginAttemptService {
      * @return true si con este intento se alcanzó el límite y se bloqueó la cuenta.
      */
     public boolean registerFailedAttempt(String identifier) {
-        AttemptData data = attempts.computeIfAbsent(key(identifier), k -> new AttemptData());
-        data.count++;
-        System.out.println("🔐 [LoginAttemptService] Intento fallido " + data.count +
-                           "/" + MAX_ATTEMPTS + " para: " + identifier);
+        String k = key(identifier);
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripeFor(k);
+
+        int count;
+        boolean recienBloqueado = false;
+        synchronized (stripe) {
+            Window w = stripe.entries.get(k);
+            if (w == null && stripe.entries.size() < PER_STRIPE) {
+                w = new Window();
+                stripe.entries.put(k, w);
+            }
+            if (w != null) {
+                if (w.unlock != null) return false; // ya bloqueado
+                w.add(now);
+                count = w.count(now);
+                if (count >= MAX_ATTEMPTS) {
+                    // Al vencer el bloqueo se olvida la entrada entera (contador incluido)
+                    Window locked = w;
+                    w.unlock = TimingWheel.getInstance().schedule(() -> unlock(stripe, k, locked), LOCKOUT_DURATION_MS);
+                    recienBloqueado = true;
+                }
+            } else {
+                count = -1;
+            }
+        }
 
-        if (data.count >= MAX_ATTEMPTS) {
-            data.lockedAt = Instant.now().toEpochMilli();
+        if (count < 0) {
+            // Tablas llenas: conteo aproximado
+            APPROXIMATE.increment();
+            count = overflow.increment(k, now);
+            if (count >= MAX_ATTEMPTS && overflow.lockedUntil(k) <= now) {
+                overflow.lock(k, now + LOCKOUT_DURATION_MS);
+                recienBloqueado = true;
+            }
+        }
+
+        System.out.println("🔐 [LoginAttemptService] Intento fallido " + count +
+                           "/" + MAX_ATTEMPTS + " para: " + identifier);
+        if (recienBloqueado) {
+            LOCKOUTS.increment();
             System.out.println("🔒 [LoginAttemptService] Cuenta bloqueada: " + identifier);
-            return true; // recién bloqueado → disparar email
+            if (SHARED) {
+                String h = hash(k);
+                long until = now + LOCKOUT_DURATION_MS;
+                AppExecutors.io().execute(() -> LoginLockoutDAO.publicarBloqueo(h, until));
+            }
         }
-        return false;
+        return recienBloqueado; // recién bloqueado → disparar email
     }
 
     /**
-     * Cuántos intentos fallidos lleva el identificador (sin bloqueo aún).
+     * Cuántos intentos fallidos lleva el identificador dentro de la ventana (sin bloqueo aún).
      */
     public int getAttemptCount(String identifier) {
-        AttemptData data = attempts.get(key(identifier));
-        return data == null ? 0 : data.count;
+        String k = key(identifier);
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripeFor(k);
+        synchronized (stripe) {
+            Window w = stripe.entries.get(k);
+            if (w != null) return w.count(now);
+        }
+        return overflow.estimate(k, now);
     }
 
     /**
      * Resetea el contador tras un login exitoso.
+     * (Un identificador contado en el sketch no se puede restar: caduca con su ventana.)
      */
     public void resetAttempts(String identifier) {
-        attempts.remove(key(identifier));
+        String k = key(identifier);
+        Stripe stripe = stripeFor(k);
+        Window w;
+        synchronized (stripe) {
+            w = stripe.entries.remove(k);
+        }
+        TimingWheel.Timeout unlock = w == null ? null : w.unlock;
+        if (unlock != null) unlock.cancel();
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // BARRIDO
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void unlock(Stripe stripe, String k, Window w) {
+        synchronized (stripe) {
+            stripe.entries.remove(k, w);
+        }
+    }
+
+    /**
+     * Retira las entradas sin fallos en la ventana, rota el sketch y, si los bloqueos son
+     * compartidos, refresca los de otros clientes. Corre en el pool de I/O.
+     */
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            int removed = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    Iterator<Window> it = stripe.entries.values().iterator();
+                    while (it.hasNext()) {
+                        Window w = it.next();
+                        if (w.unlock == null && w.count(now) == 0) {
+                            it.remove();
+                            removed++;
+                        }
+                    }
+                }
+            }
+            if (removed > 0) SWEPT.add(removed);
+            overflow.rotate(now);
+
+            if (SHARED) {
+                Map<String, Long> activos = LoginLockoutDAO.obtenerBloqueosActivos(now, MAX_TRACKED);
+                sharedLocks.keySet().retainAll(activos.keySet());
+                sharedLocks.putAll(activos);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ [LoginAttemptService] Error en el barrido: " + e.getMessage());
+        }
+    }
+
+    private long trackedCount() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.entries.size();
+            }
+        }
+        return total;
     }
 
     // ── Utilidad ──────────────────────────────────────────────────────────────
     private String key(String identifier) {
         return identifier == null ? "" : identifier.toLowerCase().trim();
     }
-}
\ No newline at end of file
+
+    private Stripe stripeFor(String k) {
+        return stripes[spread(k.hashCode()) & (STRIPES - 1)];
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static String hash(String k) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(k.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static long windowIndex(long now) {
+        return now / WINDOW_MS;
+    }
+
+    /**
+     * Cuenta de la ventana deslizante: la ventana actual entera más la parte de la anterior
+     * que todavía cae dentro de los últimos WINDOW_MS.
+     */
+    private static int slidingCount(int current, int previous, long now) {
+        double overlap = 1.0 - (double) (now % WINDOW_MS) / WINDOW_MS;
+        return (int) Math.ceil(current + previous * overlap - 1e-9);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // ESTRUCTURAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Una tabla de identificadores exactos; su cerrojo es el propio objeto.
+     */
+    private static class Stripe {
+        final Map<String, Window> entries = new HashMap<>(PER_STRIPE * 4 / 3 + 1);
+    }
+
+    /**
+     * Fallos de un identificador en la ventana actual y la anterior. Se accede con el cerrojo
+     * de su Stripe; unlock es volatile porque getRemainingLockMs lo lee fuera de él.
+     */
+    private static class Window {
+        long index;
+        int  current;
+        int  previous;
+        volatile TimingWheel.Timeout unlock; // null = no bloqueado
+
+        void add(long now) {
+            roll(now);
+            current++;
+        }
+
+        int count(long now) {
+            roll(now);
+            return slidingCount(current, previous, now);
+        }
+
+        private void roll(long now) {
+            long idx = windowIndex(now);
+            if (idx == index) return;
+            previous = idx == index + 1 ? current : 0;
+            current = 0;
+            index = idx;
+        }
+    }
+
+    /**
+     * Count-min sketch para los identificadores que no caben en las tablas exactas:
+     * DEPTH filas de WIDTH contadores atómicos (64 KB por generación), una generación por
+     * ventana (actual y anterior).
+     * lockedUntil guarda, con la misma dispersión, el fin de bloqueo máximo de cada celda.
+     */
+    private static class Sketch {
+        private static final int DEPTH = 4;
+        private static final int WIDTH = 4096; // potencia de dos
+
+        private volatile AtomicIntegerArray current = new AtomicIntegerArray(DEPTH * WIDTH);
+        private volatile AtomicIntegerArray previous = new AtomicIntegerArray(DEPTH * WIDTH);
+        private volatile long index = windowIndex(System.currentTimeMillis());
+        private final AtomicLongArray lockedUntil = new AtomicLongArray(DEPTH * WIDTH);
+
+        int increment(String k, long now) {
+            rotate(now);
+            AtomicIntegerArray cur = current;
+            int h = k.hashCode();
+            // Actualización conservadora: solo se suben las celdas que están por debajo de la
+            // nueva estimación, lo que reduce la sobrestimación por colisiones
+            int target = minOf(cur, h) + 1;
+            for (int row = 0; row < DEPTH; row++) {
+                cur.accumulateAndGet(cell(h, row), target, Math::max);
+            }
+            return slidingCount(target, minOf(previous, h), now);
+        }
+
+        int estimate(String k, long now) {
+            rotate(now);
+            int h = k.hashCode();
+            return slidingCount(minOf(current, h), minOf(previous, h), now);
+        }
+
+        void lock(String k, long until) {
+            int h = k.hashCode();
+            for (int row = 0; row < DEPTH; row++) {
+                lockedUntil.accumulateAndGet(cell(h, row), until, Math::max);
+            }
+        }
+
+        long lockedUntil(String k) {
+            int h = k.hashCode();
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, lockedUntil.get(cell(h, row)));
+            }
+            return min;
+        }
+
+        /**
+         * Pasa a la ventana de now si cambió (la actual pasa a anterior, o ambas se vacían).
+         */
+        void rotate(long now) {
+            if (windowIndex(now) != index) rotateSlow(now);
+        }
+
+        private synchronized void rotateSlow(long now) {
+            long idx = windowIndex(now);
+            if (idx == index) return;
+            previous = idx == index + 1 ? current : new AtomicIntegerArray(DEPTH * WIDTH);
+            current = new AtomicIntegerArray(DEPTH * WIDTH);
+            index = idx;
+        }
+
+        private static int minOf(AtomicIntegerArray counts, int h) {
+            int min = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counts.get(cell(h, row)));
+            }
+            return min;
+        }
+
+        private static int cell(int h, int row) {
+            // Dispersión distinta por fila a partir del mismo hash
+            int x = h * (0x9E3779B9 + 2 * row + 1);
+            x ^= x >>> 15;
+            return row * WIDTH + (x & (WIDTH - 1));
+        }
+    }
+}
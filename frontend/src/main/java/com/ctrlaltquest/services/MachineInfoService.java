@@ -0,0 +1,328 @@
+package com.ctrlaltquest.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * MachineInfoService - Datos del equipo y geolocalización para el registro de logins.
+ *
+ * Antes AuthDAO hacía en cada login una llamada HTTP a ip-api.com (sin timeout de lectura)
+ * y una resolución DNS inversa con InetAddress.getLocalHost(), todo dentro del camino crítico
+ * (y la llamada HTTP dos veces si fallaba la contraseña). Ahora se resuelve una vez por equipo
+ * en segundo plano y se reutiliza hasta que caduca.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ current() nunca bloquea: devuelve lo cacheado (o valores por defecto) y, si está caducado,
+ *    lanza el refresco en el pool de I/O
+ * ✅ Caché con TTL (-Dctrlaltquest.geo.ttlMs, 6 h) guardada en ~/.ctrlaltquest/machine.properties
+ *    (-Dctrlaltquest.geo.file), así que tras reiniciar ya hay datos sin esperar a la red
+ * ✅ Un solo refresco en vuelo aunque lo pidan varios a la vez
+ * ✅ Proveedor intercambiable (-Dctrlaltquest.geo.provider):
+ *      ipapi → ip-api.com con timeouts de conexión y lectura (por defecto)
+ *      local → sin red: solo datos del propio equipo (desarrollo, equipos sin salida a Internet)
+ */
+public class MachineInfoService {
+
+    private static final long TTL_MS = Long.getLong("ctrlaltquest.geo.ttlMs", TimeUnit.HOURS.toMillis(6));
+    private static final int TIMEOUT_MS = Integer.getInteger("ctrlaltquest.geo.timeoutMs", 3000);
+    // Tras un fallo del proveedor se reintenta antes de que venza el TTL
+    private static final long RETRY_MS = Long.getLong("ctrlaltquest.geo.retryMs", 60_000L);
+    private static final Path CACHE_FILE = Paths.get(System.getProperty("ctrlaltquest.geo.file",
+        Paths.get(System.getProperty("user.home"), ".ctrlaltquest", "machine.properties").toString()));
+
+    private static final LatencyHistogram LOOKUP = MetricsRegistry.getInstance().histogram("geo.lookup");
+    private static final MetricsRegistry.Counter FAILURES = MetricsRegistry.getInstance().counter("geo.failures");
+
+    private static final MachineInfoService instance = new MachineInfoService();
+    public static MachineInfoService getInstance() { return instance; }
+
+    /**
+     * Origen de la geolocalización pública (IP, ciudad, país, ISP).
+     */
+    public interface GeoProvider {
+        String name();
+
+        /** Consulta bloqueante; se llama siempre desde el pool de I/O. */
+        Geo lookup() throws Exception;
+    }
+
+    private volatile GeoProvider provider;
+    private volatile MachineInfo cached;
+    private final AtomicReference<CompletableFuture<MachineInfo>> inFlight = new AtomicReference<>();
+
+    private MachineInfoService() {
+        provider = "local".equalsIgnoreCase(System.getProperty("ctrlaltquest.geo.provider", "ipapi"))
+            ? new LocalProvider() : new IpApiProvider();
+        cached = loadFromDisk();
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Datos actuales sin bloquear. Si no hay o están caducados, pide un refresco.
+     */
+    public MachineInfo current() {
+        MachineInfo info = cached;
+        if (info == null || info.isStale()) refresh();
+        return info != null ? info : MachineInfo.UNKNOWN;
+    }
+
+    /**
+     * Como current(), pero si todavía no hay nada cacheado resuelve al menos el equipo local
+     * (nombre, IP local y SO, sin red) para no registrar un dispositivo "Unknown".
+     * Solo para hilos de fondo (el registro del login), nunca el de JavaFX.
+     */
+    public MachineInfo currentOrLocal() {
+        MachineInfo info = current();
+        return info != MachineInfo.UNKNOWN ? info : localOnly(Geo.UNKNOWN, 0);
+    }
+
+    /**
+     * Datos frescos sin bloquear: ya completado si la caché está al día, si no el refresco
+     * (el que haya en vuelo o uno nuevo).
+     */
+    public CompletableFuture<MachineInfo> fresh() {
+        MachineInfo info = cached;
+        if (info != null && !info.isStale()) return CompletableFuture.completedFuture(info);
+        return refresh();
+    }
+
+    /**
+     * Lanza el refresco si hace falta (al arrancar, para tenerlo listo antes del login).
+     */
+    public void prefetch() {
+        current();
+    }
+
+    /**
+     * Cambia el proveedor y descarta la caché.
+     */
+    public void setProvider(GeoProvider newProvider) {
+        if (newProvider == null) throw new IllegalArgumentException("proveedor nulo");
+        provider = newProvider;
+        cached = null;
+        System.out.println("🌍 [MachineInfo] Proveedor de geolocalización: " + newProvider.name());
+    }
+
+    /**
+     * Resuelve de nuevo en el pool de I/O. Si ya hay un refresco en vuelo, devuelve ese.
+     */
+    public CompletableFuture<MachineInfo> refresh() {
+        CompletableFuture<MachineInfo> created = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, created)) {
+            CompletableFuture<MachineInfo> existing = inFlight.get();
+            if (existing != null) return existing;
+            return refresh();
+        }
+        CompletableFuture.supplyAsync(this::resolve, AppExecutors.io())
+            .whenComplete((info, e) -> {
+                inFlight.compareAndSet(created, null);
+                if (e != null) created.completeExceptionally(e);
+                else created.complete(info);
+            });
+        return created;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // RESOLUCIÓN
+    // ════════════════════════════════════════════════════════════════════════
+
+    private MachineInfo resolve() {
+        long start = System.nanoTime();
+        GeoProvider p = provider;
+        MachineInfo previous = cached;
+
+        Geo geo;
+        boolean failed = false;
+        try {
+            geo = p.lookup();
+        } catch (Exception e) {
+            failed = true;
+            FAILURES.increment();
+            System.err.println("⚠️ [MachineInfo] Geolocalización no disponible (" + p.name() + "): " + e.getMessage());
+            // Mejor la última conocida que "Desconocida"
+            geo = previous != null ? previous.geo : Geo.UNKNOWN;
+        }
+
+        long now = System.currentTimeMillis();
+        MachineInfo info = localOnly(geo, failed ? now - TTL_MS + RETRY_MS : now);
+        cached = info;
+        LOOKUP.recordSince(start);
+        if (!failed) saveToDisk(info);
+        System.out.println("🌍 [MachineInfo] " + info.hostName + " | " + geo.city + ", " + geo.country + " (" + p.name() + ")");
+        return info;
+    }
+
+    /** Nombre, IP local y SO del propio equipo (sin red) junto a la geolocalización dada. */
+    private static MachineInfo localOnly(Geo geo, long fetchedAtMillis) {
+        String hostName = "Unknown";
+        String localIp = "0.0.0.0";
+        try {
+            InetAddress local = InetAddress.getLocalHost();
+            hostName = local.getHostName();
+            localIp = local.getHostAddress();
+        } catch (Exception e) {
+            System.err.println("⚠️ [MachineInfo] No se pudo resolver el equipo local: " + e.getMessage());
+        }
+        String osInfo = System.getProperty("os.name") + " " + System.getProperty("os.version");
+        return new MachineInfo(geo, hostName, localIp, osInfo, fetchedAtMillis);
+    }
+
+    private static MachineInfo loadFromDisk() {
+        if (!Files.exists(CACHE_FILE)) return null;
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(CACHE_FILE, StandardCharsets.UTF_8)) {
+            props.load(in);
+            Geo geo = new Geo(props.getProperty("publicIp", Geo.UNKNOWN.publicIp),
+                              props.getProperty("city", Geo.UNKNOWN.city),
+                              props.getProperty("country", Geo.UNKNOWN.country),
+                              props.getProperty("isp", Geo.UNKNOWN.isp));
+            return new MachineInfo(geo,
+                props.getProperty("hostName", "Unknown"),
+                props.getProperty("localIp", "0.0.0.0"),
+                props.getProperty("osInfo", ""),
+                Long.parseLong(props.getProperty("fetchedAt", "0")));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("⚠️ [MachineInfo] Caché local ilegible: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void saveToDisk(MachineInfo info) {
+        Properties props = new Properties();
+        props.setProperty("publicIp", info.geo.publicIp);
+        props.setProperty("city", info.geo.city);
+        props.setProperty("country", info.geo.country);
+        props.setProperty("isp", info.geo.isp);
+        props.setProperty("hostName", info.hostName);
+        props.setProperty("localIp", info.localIp);
+        props.setProperty("osInfo", info.osInfo);
+        props.setProperty("fetchedAt", Long.toString(info.fetchedAtMillis));
+        try {
+            Files.createDirectories(CACHE_FILE.toAbsolutePath().getParent());
+            Path tmp = CACHE_FILE.resolveSibling(CACHE_FILE.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                props.store(out, "CtrlAltQuest - datos del equipo");
+            }
+            Files.move(tmp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠️ [MachineInfo] No se pudo guardar la caché local: " + e.getMessage());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // PROVEEDORES
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * ip-api.com (CSV): IP pública, ciudad, país e ISP.
+     */
+    public static class IpApiProvider implements GeoProvider {
+        @Override
+        public String name() {
+            return "ipapi";
+        }
+
+        @Override
+        public Geo lookup() throws IOException {
+            URL url = new URL("http://ip-api.com/csv/?fields=query,city,country,isp");
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(TIMEOUT_MS);
+            conn.setReadTimeout(TIMEOUT_MS);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                String[] parts = line == null ? new String[0] : line.split(",");
+                if (parts.length < 4) throw new IOException("respuesta inesperada: " + line);
+                return new Geo(parts[0], parts[1], parts[2], parts[3]);
+            } finally {
+                conn.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Sin red: la geolocalización queda como desconocida y solo se registran los datos del equipo.
+     */
+    public static class LocalProvider implements GeoProvider {
+        @Override
+        public String name() {
+            return "local";
+        }
+
+        @Override
+        public Geo lookup() {
+            return Geo.UNKNOWN;
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // DATOS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Geolocalización pública.
+     */
+    public static class Geo {
+        public static final Geo UNKNOWN = new Geo("0.0.0.0", "Desconocida", "Desconocido", "Desconocido");
+
+        public final String publicIp;
+        public final String city;
+        public final String country;
+        public final String isp;
+
+        public Geo(String publicIp, String city, String country, String isp) {
+            this.publicIp = publicIp;
+            this.city = city;
+            this.country = country;
+            this.isp = isp;
+        }
+    }
+
+    /**
+     * Foto del equipo: geolocalización, nombre, IP local y sistema operativo.
+     */
+    public static class MachineInfo {
+        static final MachineInfo UNKNOWN = new MachineInfo(Geo.UNKNOWN, "Unknown", "0.0.0.0",
+            System.getProperty("os.name") + " " + System.getProperty("os.version"), 0);
+
+        public final Geo geo;
+        public final String hostName;
+        public final String localIp;
+        public final String osInfo;
+        public final long fetchedAtMillis;
+
+        MachineInfo(Geo geo, String hostName, String localIp, String osInfo, long fetchedAtMillis) {
+            this.geo = geo;
+            this.hostName = hostName;
+            this.localIp = localIp;
+            this.osInfo = osInfo;
+            this.fetchedAtMillis = fetchedAtMillis;
+        }
+
+        public boolean isStale() {
+            return System.currentTimeMillis() - fetchedAtMillis >= TTL_MS;
+        }
+    }
+}
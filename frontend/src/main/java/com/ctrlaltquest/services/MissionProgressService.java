@@ -4,7 +4,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
+import com.ctrlaltquest.dao.MissionsDAO;
 import com.ctrlaltquest.db.DatabaseConnection;
 
 /**
@@ -36,24 +38,38 @@ public class MissionProgressService {
     }
 
     public void processActivityEvent(int userId, String appName, boolean isProductive) {
+        processActivity(userId, TitleClassifier.getInstance().classify(appName), isProductive, 1);
+    }
+
+    /**
+     * Procesa varios segundos de actividad de golpe (flush de ActivityWriteBehindService).
+     *
+     * @param category categoría ya resuelta por TitleClassifier
+     * @param seconds  segundos acumulados de esta categoría desde el último flush
+     */
+    public void processActivityEvent(int userId, TitleClassifier.Category category, int seconds) {
+        processActivity(userId, category, category.productive, seconds);
+    }
+
+    private void processActivity(int userId, TitleClassifier.Category appCategory, boolean isProductive, int seconds) {
+        if (seconds <= 0) return;
         try (Connection conn = DatabaseConnection.getConnection()) {
             
-            // 1. Determinar la categoría de la app
-            String category = categorizeApp(appName, isProductive);
+            // 1. Categoría de la app (misma clasificación que ActivityMonitorService)
+            String category = appCategory.id;
             
             // 2. Actualizar misiones de tiempo (segundos en aplicación)
-            updateTimeBasedMissions(userId, category, conn);
+            updateTimeBasedMissions(userId, category, seconds, conn);
             
             // 3. Actualizar misiones de contadores (apps usadas, etc.)
-            updateCounterBasedMissions(userId, appName, category, conn);
+            updateCounterBasedMissions(userId, conn);
             
             // 4. OTORGAR XP POR ACTIVIDAD PRODUCTIVA USANDO XPSYNCSERVICE
             if (isProductive) {
-                XPSyncService.getInstance().awardXPFromActivity(userId, 1, "time_" + category.toLowerCase());
+                XPSyncService.getInstance().awardXPFromActivity(userId, seconds, "time_" + category.toLowerCase());
             }
             
-            // 5. Verificar y completar logros
-            RewardsService.getInstance().checkAndAwardAchievements(userId);
+            // 5. Los logros de XP/nivel los evalúa AchievementEngine al aplicarse la XP
             
             // 6. Verificar y generar eventos contextuales
             eventsService.checkAndGenerateEvent(userId, category);
@@ -63,156 +79,34 @@ public class MissionProgressService {
         }
     }
 
-    private String categorizeApp(String appName, boolean isProductive) {
-        if (appName == null) return "UNKNOWN";
-        
-        String lower = appName.toLowerCase();
-        
-        if (lower.contains("vscode") || lower.contains("visual studio") || 
-            lower.contains("intellij") || lower.contains("eclipse") || 
-            lower.contains("netbeans") || lower.contains("sublime")) {
-            return "CODING";
+    private void updateTimeBasedMissions(int userId, String category, int seconds, Connection conn) throws SQLException {
+        // Un solo UPDATE ... RETURNING para todas las misiones de tiempo de la categoría
+        List<Integer> completed = MissionsDAO.actualizarProgresoPorPrefijo(
+            conn, userId, "time_" + category.toLowerCase(), seconds);
+        for (int missionId : completed) {
+            completeMission(userId, missionId, conn);
         }
-        if (lower.contains("chrome") || lower.contains("firefox") || 
-            lower.contains("edge") || lower.contains("safari")) {
-            return "BROWSING";
-        }
-        if (lower.contains("word") || lower.contains("excel") || 
-            lower.contains("powerpoint") || lower.contains("docs") ||
-            lower.contains("sheets")) {
-            return "OFFICE";
-        }
-        if (lower.contains("slack") || lower.contains("teams") || 
-            lower.contains("discord") || lower.contains("telegram")) {
-            return "COMMUNICATION";
-        }
-        
-        return isProductive ? "PRODUCTIVITY" : "ENTERTAINMENT";
     }
 
-    private void updateTimeBasedMissions(int userId, String category, Connection conn) throws SQLException {
-        // CORRECCIÓN: No existe m.completed. Buscamos donde progress_percentage < 100
-        String sql = "SELECT mp.id, mp.mission_id, mp.current_value, mp.target_value, mp.progress_percentage " +
-                     "FROM public.mission_progress mp " +
-                     "WHERE mp.user_id = ? " +
-                     "  AND mp.progress_percentage < 100 " +
-                     "  AND mp.metric_key LIKE ?";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, "time_" + category.toLowerCase() + "%");
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                int progressId = rs.getInt("id");
-                int missionId = rs.getInt("mission_id");
-                long currentValue = rs.getLong("current_value");
-                long targetValue = rs.getLong("target_value");
-                
-                long newValue = Math.min(currentValue + 1, targetValue);
-                double newProgress = (double) newValue / targetValue * 100;
-                
-                String updateSql = "UPDATE public.mission_progress " +
-                                  "SET current_value = ?, progress_percentage = ? " +
-                                  "WHERE id = ?";
-                
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setLong(1, newValue);
-                    updateStmt.setDouble(2, newProgress);
-                    updateStmt.setInt(3, progressId);
-                    updateStmt.executeUpdate();
-                }
-                
-                // Si se completó la misión ahora mismo
-                if (newValue >= targetValue && currentValue < targetValue) {
-                    completeMission(userId, missionId, conn);
-                }
-            }
-        }
-    }
+    private void updateCounterBasedMissions(int userId, Connection conn) throws SQLException {
+        // Apps y categorías únicas de hoy: en memoria, solo se escriben cuando cambian
+        DailyUsageTracker tracker = DailyUsageTracker.getInstance();
+        DailyUsageTracker.Counts counts = tracker.pollChanged(userId);
+        if (counts == null) return;
 
-    private void updateCounterBasedMissions(int userId, String appName, String category, Connection conn) throws SQLException {
-        // 1. Contar apps únicas usadas en esta sesión
-        String countAppsSql = "SELECT COUNT(DISTINCT app_id) as count " +
-                             "FROM public.app_usage_logs aul " +
-                             "JOIN public.activity_sessions a ON aul.session_id = a.id " +
-                             "WHERE a.user_id = ? AND DATE(aul.start_time) = CURRENT_DATE";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(countAppsSql)) {
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                int uniqueApps = rs.getInt("count");
-                updateMissionCounter(userId, "apps_used", uniqueApps, conn);
-            }
-        }
-        
-        // 2. Contar categorías únicas usadas
-        String countCatSql = "SELECT COUNT(DISTINCT LOWER(a.category)) as count " +
-                            "FROM public.app_usage_logs aul " +
-                            "JOIN public.apps a ON aul.app_id = a.id " +
-                            "JOIN public.activity_sessions act ON aul.session_id = act.id " +
-                            "WHERE act.user_id = ? AND DATE(aul.start_time) = CURRENT_DATE";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(countCatSql)) {
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                int uniqueCategories = rs.getInt("count");
-                updateMissionCounter(userId, "categories_used", uniqueCategories, conn);
-            }
-        }
+        updateMissionCounter(userId, "apps_used", counts.apps, conn);
+        updateMissionCounter(userId, "categories_used", counts.categories, conn);
+        tracker.markWritten(userId, counts);
     }
 
     private void updateMissionCounter(int userId, String metricKey, int value, Connection conn) throws SQLException {
-        // CORRECCIÓN: Filtrar por progress_percentage < 100
-        String sql = "SELECT mp.id, mp.mission_id, mp.target_value " +
-                     "FROM public.mission_progress mp " +
-                     "WHERE mp.user_id = ? " +
-                     "  AND mp.progress_percentage < 100 " +
-                     "  AND mp.metric_key = ?";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, metricKey);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                int progressId = rs.getInt("id");
-                int missionId = rs.getInt("mission_id");
-                long targetValue = rs.getLong("target_value");
-                
-                double newProgress = Math.min(((double) value / targetValue) * 100, 100.0);
-                
-                String updateSql = "UPDATE public.mission_progress " +
-                                  "SET current_value = ?, progress_percentage = ? " +
-                                  "WHERE id = ?";
-                
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setLong(1, value);
-                    updateStmt.setDouble(2, newProgress);
-                    updateStmt.setInt(3, progressId);
-                    updateStmt.executeUpdate();
-                }
-                
-                if (value >= targetValue) {
-                    completeMission(userId, missionId, conn);
-                }
-            }
+        for (int missionId : MissionsDAO.fijarProgreso(conn, userId, metricKey, value)) {
+            completeMission(userId, missionId, conn);
         }
     }
 
     private void completeMission(int userId, int missionId, Connection conn) throws SQLException {
-        // Asegurarse de que en mission_progress esté al 100%
-        String completeSql = "UPDATE public.mission_progress " +
-                            "SET progress_percentage = 100, current_value = target_value " +
-                            "WHERE mission_id = ? AND user_id = ?";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(completeSql)) {
-            pstmt.setInt(1, missionId);
-            pstmt.setInt(2, userId);
-            pstmt.executeUpdate();
-        }
+        // mission_progress ya quedó al 100% en el UPDATE ... RETURNING que la devolvió
         
         // Obtener recompensas
         String rewardSql = "SELECT xp_reward, coin_reward, title FROM public.missions WHERE id = ?";
@@ -226,13 +120,7 @@ public class MissionProgressService {
                 String title = rs.getString("title");
                 
                 if (xpReward > 0) {
-                    String xpSql = "UPDATE public.users SET current_xp = current_xp + ?, total_xp = total_xp + ? WHERE id = ?";
-                    try (PreparedStatement xpStmt = conn.prepareStatement(xpSql)) {
-                        xpStmt.setInt(1, xpReward);
-                        xpStmt.setInt(2, xpReward);
-                        xpStmt.setInt(3, userId);
-                        xpStmt.executeUpdate();
-                    }
+                    XPSyncService.getInstance().awardXPForMission(userId, missionId, xpReward);
                 }
                 
                 if (coinReward > 0) {
@@ -244,6 +132,6 @@ public class MissionProgressService {
             }
         }
         
-        RewardsService.getInstance().checkAndAwardAchievements(userId);
+        AchievementEngine.getInstance().onMissionCompleted(userId);
     }
 }
\ No newline at end of file
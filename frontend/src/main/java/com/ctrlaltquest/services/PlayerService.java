@@ -81,10 +81,9 @@ public class PlayerService {
     }
     
     /**
-     * Verifica si el usuario sube de nivel tras ganar XP.
+     * Verifica si el usuario sube de nivel tras ganar XP (curva de ProgressionCurve).
      */
     public boolean checkLevelUp(int currentXP, int currentLevel) {
-        int nextLevelXP = currentLevel * 1000; // Ejemplo: Nivel 1 necesita 1000, Nivel 2 necesita 2000...
-        return currentXP >= nextLevelXP;
+        return currentXP >= ProgressionCurve.getInstance().xpToAdvance(currentLevel);
     }
 }
\ No newline at end of file
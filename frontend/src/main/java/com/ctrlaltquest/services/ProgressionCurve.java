@@ -0,0 +1,262 @@
+package com.ctrlaltquest.services;
+
+import java.util.Locale;
+
+/**
+ * ProgressionCurve - Única fuente de la matemática de niveles.
+ *
+ * Una curva dice cuánta XP hace falta para pasar de un nivel al siguiente; al crearla se
+ * precalcula la XP acumulada de cada nivel, así que resolver un nivel es una búsqueda binaria
+ * (O(log n)) o, en la curva lineal, una raíz cuadrada con un ajuste (O(1)). Una concesión
+ * enorme (evento épico, cadena de logros) se resuelve de una vez, sin bucle por nivel.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Curvas intercambiables: lineal, polinómica y por tabla
+ * ✅ Se elige con -Dctrlaltquest.progression.curve:
+ *      linear:1000              → nivel N pide N × 1000 XP (la fórmula de siempre, por defecto)
+ *      polynomial:1000,1.5      → nivel N pide 1000 × N^1.5 XP
+ *      table:500,1000,2000,4000 → nivel N pide el valor N de la lista (el último se repite)
+ * ✅ Nivel máximo -Dctrlaltquest.progression.maxLevel (10000): al llegar, la XP se sigue acumulando
+ * ✅ Aritmética saturada: una curva muy empinada no desborda, simplemente se vuelve inalcanzable
+ *
+ * Inmutable y segura entre hilos. XPSyncService, PlayerService y la UI la consultan vía getInstance().
+ */
+public final class ProgressionCurve {
+
+    /**
+     * XP necesaria para pasar del nivel {@code level} al siguiente (level ≥ 1).
+     */
+    public interface Step {
+        long xpToAdvance(int level);
+    }
+
+    public static final int MAX_LEVEL = Math.max(2, Integer.getInteger("ctrlaltquest.progression.maxLevel", 10_000));
+    private static final String DEFAULT_SPEC = "linear:1000";
+
+    private static volatile ProgressionCurve instance;
+
+    public static ProgressionCurve getInstance() {
+        ProgressionCurve curve = instance;
+        if (curve == null) {
+            synchronized (ProgressionCurve.class) {
+                curve = instance;
+                if (curve == null) {
+                    curve = fromSpec(System.getProperty("ctrlaltquest.progression.curve", DEFAULT_SPEC));
+                    instance = curve;
+                }
+            }
+        }
+        return curve;
+    }
+
+    /**
+     * Sustituye la curva activa (p. ej. una curva de temporada cargada desde BD).
+     */
+    public static void install(ProgressionCurve curve) {
+        if (curve == null) throw new IllegalArgumentException("curva nula");
+        instance = curve;
+        System.out.println("📈 [Progression] Curva activa: " + curve.name);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // FÁBRICAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    public static ProgressionCurve linear(long xpPerLevel) {
+        if (xpPerLevel <= 0) throw new IllegalArgumentException("xpPerLevel debe ser > 0");
+        return new ProgressionCurve("linear:" + xpPerLevel, level -> saturatedMultiply(xpPerLevel, level), xpPerLevel);
+    }
+
+    public static ProgressionCurve polynomial(long base, double exponent) {
+        if (base <= 0 || exponent <= 0) throw new IllegalArgumentException("base y exponente deben ser > 0");
+        return new ProgressionCurve("polynomial:" + base + "," + exponent, level -> {
+            double xp = Math.rint(base * Math.pow(level, exponent));
+            return xp >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1L, (long) xp);
+        }, 0);
+    }
+
+    public static ProgressionCurve table(long... xpPerLevel) {
+        if (xpPerLevel.length == 0) throw new IllegalArgumentException("tabla vacía");
+        long[] steps = xpPerLevel.clone();
+        StringBuilder name = new StringBuilder("table:");
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i] <= 0) throw new IllegalArgumentException("la tabla solo admite valores > 0");
+            if (i > 0) name.append(',');
+            name.append(steps[i]);
+        }
+        return new ProgressionCurve(name.toString(), level -> steps[Math.min(level, steps.length) - 1], 0);
+    }
+
+    /**
+     * Crea una curva a partir de su especificación ("linear:1000", "polynomial:1000,1.5",
+     * "table:500,1000,2000"). Si no se entiende, avisa y usa la lineal por defecto.
+     */
+    public static ProgressionCurve fromSpec(String spec) {
+        try {
+            String s = spec.trim().toLowerCase(Locale.ROOT);
+            int colon = s.indexOf(':');
+            String kind = colon < 0 ? s : s.substring(0, colon);
+            String[] args = colon < 0 ? new String[0] : s.substring(colon + 1).split(",");
+            switch (kind) {
+                case "linear":
+                    return linear(Long.parseLong(args[0].trim()));
+                case "polynomial":
+                    return polynomial(Long.parseLong(args[0].trim()), Double.parseDouble(args[1].trim()));
+                case "table": {
+                    long[] steps = new long[args.length];
+                    for (int i = 0; i < args.length; i++) steps[i] = Long.parseLong(args[i].trim());
+                    return table(steps);
+                }
+                default:
+                    throw new IllegalArgumentException("tipo desconocido '" + kind + "'");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ [Progression] Curva '" + spec + "' no válida (" + e.getMessage()
+                + "), se usa " + DEFAULT_SPEC);
+            return linear(1000);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CURVA
+    // ════════════════════════════════════════════════════════════════════════
+
+    private final String name;
+    private final Step step;
+    // cumulative[i] = XP total para llegar al nivel i + 1 desde el nivel 1 (cumulative[0] = 0)
+    private final long[] cumulative;
+    // > 0 solo en la curva lineal: permite invertir con una raíz cuadrada
+    private final long linearStep;
+
+    private ProgressionCurve(String name, Step step, long linearStep) {
+        this.name = name;
+        this.step = step;
+        this.linearStep = linearStep;
+        this.cumulative = new long[MAX_LEVEL];
+        for (int level = 1; level < MAX_LEVEL; level++) {
+            cumulative[level] = saturatedAdd(cumulative[level - 1], step.xpToAdvance(level));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * XP necesaria para pasar de level al siguiente.
+     */
+    public long xpToAdvance(int level) {
+        return step.xpToAdvance(clampLevel(level));
+    }
+
+    /**
+     * XP necesaria para pasar de level al siguiente, acotada a int (para las barras de la UI).
+     */
+    public int xpRequired(int level) {
+        return (int) Math.min(Integer.MAX_VALUE, xpToAdvance(level));
+    }
+
+    /**
+     * XP total acumulada al empezar el nivel level.
+     */
+    public long cumulativeXP(int level) {
+        return cumulative[clampLevel(level) - 1];
+    }
+
+    /**
+     * Nivel que corresponde a una XP total acumulada sobre esta curva.
+     */
+    public int levelFor(long totalXP) {
+        if (totalXP <= 0) return 1;
+        if (linearStep > 0) return linearLevelFor(totalXP);
+
+        // Último nivel cuyo acumulado no supera totalXP
+        int lo = 0;
+        int hi = MAX_LEVEL - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (cumulative[mid] <= totalXP) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo + 1;
+    }
+
+    /**
+     * Aplica xpGained a un usuario en (level, currentXP) y devuelve el resultado de una vez,
+     * con tantos niveles ganados como correspondan.
+     */
+    public Resolution resolve(int level, long currentXP, long xpGained) {
+        if (level >= MAX_LEVEL) {
+            // Nivel máximo (o datos por encima de él): solo se acumula XP
+            long xp = saturatedAdd(Math.max(0, currentXP), xpGained);
+            return new Resolution(level, level, (int) Math.min(Integer.MAX_VALUE, xp), xpRequired(level));
+        }
+        int fromLevel = clampLevel(level);
+        long position = saturatedAdd(saturatedAdd(cumulative[fromLevel - 1], Math.max(0, currentXP)), xpGained);
+        int newLevel = Math.max(fromLevel, levelFor(position));
+        long remaining = position - cumulative[newLevel - 1];
+        return new Resolution(fromLevel, newLevel, (int) Math.min(Integer.MAX_VALUE, remaining), xpRequired(newLevel));
+    }
+
+    /**
+     * Curva lineal: el acumulado del nivel L es step × L(L-1)/2, así que
+     * L = ⌊(1 + √(1 + 8x/step)) / 2⌋; el ajuste final corrige el redondeo del double.
+     */
+    private int linearLevelFor(long totalXP) {
+        double units = (double) totalXP / linearStep;
+        int level = (int) Math.min(MAX_LEVEL, Math.floor((1 + Math.sqrt(1 + 8 * units)) / 2));
+        level = Math.max(1, level);
+        while (level > 1 && cumulative[level - 1] > totalXP) level--;
+        while (level < MAX_LEVEL && cumulative[level] <= totalXP) level++;
+        return level;
+    }
+
+    private static int clampLevel(int level) {
+        return Math.max(1, Math.min(MAX_LEVEL, level));
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long r = a + b;
+        // Desbordamiento si ambos tienen el mismo signo y el resultado otro
+        if (((a ^ r) & (b ^ r)) < 0) return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        return r;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) return lo;
+        return (a ^ b) < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // RESULTADO
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Resultado de aplicar XP: nivel de partida y de llegada, XP dentro del nuevo nivel
+     * y XP necesaria para el siguiente.
+     */
+    public static final class Resolution {
+        public final int fromLevel;
+        public final int level;
+        public final int currentXP;
+        public final int xpRequired;
+
+        Resolution(int fromLevel, int level, int currentXP, int xpRequired) {
+            this.fromLevel = fromLevel;
+            this.level = level;
+            this.currentXP = currentXP;
+            this.xpRequired = xpRequired;
+        }
+
+        public int levelsGained() {
+            return level - fromLevel;
+        }
+    }
+}
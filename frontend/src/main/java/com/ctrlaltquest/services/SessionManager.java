@@ -12,8 +12,10 @@ public class SessionManager {
 
     // Datos de identidad de la sesión actual
     private int userId = -1;
-    private int deviceId = -1;
-    private int currentSessionId = -1;
+    // Los completa el registro del login en segundo plano (AuthDAO), de ahí el volatile
+    private volatile int deviceId = -1;
+    private volatile int currentSessionId = -1;
+    private volatile boolean sessionPending = false;
     private String username;
     
     // Metadatos de la sesión
@@ -36,11 +38,62 @@ public class SessionManager {
         this.userId = userId;
         this.deviceId = deviceId;
         this.currentSessionId = sessionId;
+        this.sessionPending = false;
         this.username = username;
         this.sessionStartTime = LocalDateTime.now();
         System.out.println("✅ Sesión Global Iniciada: [User: " + username + " | SessionID: " + sessionId + "]");
     }
 
+    /**
+     * Inicia la sesión en cuanto se verifica la contraseña; el dispositivo y la sesión de
+     * actividad en BD llegan después con attachSession().
+     */
+    public void startSession(int userId, String username) {
+        startSession(userId, -1, -1, username);
+        this.sessionPending = true;
+    }
+
+    /**
+     * Completa la sesión con lo que devolvió el registro en BD. Se ignora si entretanto
+     * se cerró la sesión, entró otro usuario o ya se adjuntó otra sesión.
+     *
+     * @return true si los ids se aceptaron
+     */
+    public synchronized boolean attachSession(int userId, int deviceId, int sessionId) {
+        if (this.userId != userId || !sessionPending) return false;
+        this.deviceId = deviceId;
+        this.currentSessionId = sessionId;
+        this.sessionPending = false;
+        notifyAll();
+        System.out.println("🔗 Sesión registrada en BD: [User: " + username + " | SessionID: " + sessionId + "]");
+        return true;
+    }
+
+    /**
+     * El registro del login en segundo plano falló: quien espere en awaitSessionId() deja
+     * de esperar y abre la sesión de actividad por su cuenta.
+     */
+    public synchronized void abandonPendingSession(int userId) {
+        if (this.userId != userId || !sessionPending) return;
+        this.sessionPending = false;
+        notifyAll();
+    }
+
+    /**
+     * Espera, como mucho timeoutMs, a que el registro del login adjunte la sesión de actividad.
+     *
+     * @return id de la sesión, o -1 si no llegó (fallo, timeout o sesión cerrada)
+     */
+    public synchronized int awaitSessionId(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (sessionPending && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return currentSessionId;
+    }
+
     /**
      * Alias para cerrar sesión, compatible con la llamada desde HomeController.
      */
@@ -51,12 +104,14 @@ public class SessionManager {
     /**
      * Limpia los datos al cerrar sesión o salir de la app.
      */
-    public void closeSession() {
+    public synchronized void closeSession() {
         this.userId = -1;
         this.deviceId = -1;
         this.currentSessionId = -1;
+        this.sessionPending = false;
         this.username = null;
         this.sessionStartTime = null;
+        notifyAll();
         System.out.println("🔒 Sesión Global Cerrada.");
     }
 
@@ -65,7 +120,7 @@ public class SessionManager {
      * Requerido por HomeController para validar el acceso al Dashboard.
      */
     public boolean isUserLoggedIn() {
-        return userId != -1 && currentSessionId != -1;
+        return userId != -1 && (currentSessionId != -1 || sessionPending);
     }
 
     // --- GETTERS Y SETTERS ---
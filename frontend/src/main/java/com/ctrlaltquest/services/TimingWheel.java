@@ -0,0 +1,372 @@
+package com.ctrlaltquest.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+/**
+ * TimingWheel - Planificador único de los efectos con caducidad del juego.
+ *
+ * Rueda de tiempo con hash: un array de cubetas recorrido por un solo hilo ("game-timers")
+ * que avanza una cubeta por tick. Programar deja el timeout en una cola sin bloqueo y
+ * cancelar solo lo marca; el hilo de la rueda los coloca o desengancha en su siguiente tick.
+ * Los plazos más largos que una vuelta esperan en su cubeta contando vueltas restantes.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ schedule() y cancel() en O(1), sin un hilo (ni un java.util.Timer) por efecto
+ * ✅ Resolución -Dctrlaltquest.timers.tickMs (100 ms) × 512 cubetas por vuelta
+ * ✅ Plazos persistentes opcionales (persist/forget/restore) en
+ *    -Dctrlaltquest.timers.file (~/.ctrlaltquest/timers.properties), para que un boost
+ *    siga vigente tras reiniciar la aplicación
+ * ✅ Métricas: timers.pending, timers.fired, timers.cancelled
+ *
+ * Las tareas se ejecutan en el hilo de la rueda: deben ser rápidas (quitar una entrada de
+ * un mapa, avisar a un listener). Lo que toque BD va a AppExecutors.io(); lo que toque la
+ * UI, a FxQueue.
+ */
+public final class TimingWheel {
+
+    private static final long TICK_MS = Math.max(1, Long.getLong("ctrlaltquest.timers.tickMs", 100L));
+    private static final int WHEEL_SIZE = 512; // potencia de dos: el índice es tick & MASK
+    private static final int MASK = WHEEL_SIZE - 1;
+    // Tope de timeouts nuevos que se colocan por tick, para no retrasar el propio tick
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+    private static final Path STORE = Paths.get(System.getProperty("ctrlaltquest.timers.file",
+        Paths.get(System.getProperty("user.home"), ".ctrlaltquest", "timers.properties").toString()));
+
+    private static final MetricsRegistry.Counter FIRED = MetricsRegistry.getInstance().counter("timers.fired");
+    private static final MetricsRegistry.Counter CANCELLED = MetricsRegistry.getInstance().counter("timers.cancelled");
+
+    private static final TimingWheel instance = new TimingWheel();
+    public static TimingWheel getInstance() { return instance; }
+
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final Queue<Timeout> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+    private final long startNanos = System.nanoTime();
+    private final Thread driver;
+
+    // Solo los toca el hilo de la rueda
+    private long tick = 0;
+
+    private TimingWheel() {
+        for (int i = 0; i < WHEEL_SIZE; i++) wheel[i] = new Bucket();
+        driver = new Thread(this::run, "game-timers");
+        driver.setDaemon(true);
+        driver.start();
+        MetricsRegistry.getInstance().gauge("timers.pending", pending::get);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Ejecuta task dentro de delayMs (redondeado al siguiente tick). Devuelve el handle para cancelarlo.
+     */
+    public Timeout schedule(Runnable task, long delayMs) {
+        if (task == null) throw new IllegalArgumentException("tarea nula");
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs));
+        Timeout timeout = new Timeout(task, deadline);
+        pending.incrementAndGet();
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Ejecuta task en el instante de reloj epochMillis (o en el siguiente tick si ya pasó).
+     */
+    public Timeout scheduleAt(Runnable task, long epochMillis) {
+        return schedule(task, epochMillis - System.currentTimeMillis());
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // HILO DE LA RUEDA
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void run() {
+        while (true) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            waitUntil(tickDeadline);
+            processCancels();
+            transferAdds();
+            expire(wheel[(int) (tick & MASK)], tickDeadline);
+            tick++;
+        }
+    }
+
+    private void waitUntil(long deadline) {
+        long sleep;
+        while ((sleep = deadline - (System.nanoTime() - startNanos)) > 0) {
+            LockSupport.parkNanos(sleep);
+        }
+    }
+
+    private void processCancels() {
+        Timeout t;
+        while ((t = pendingCancels.poll()) != null) {
+            if (t.bucket != null) t.bucket.remove(t);
+        }
+    }
+
+    private void transferAdds() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout t = pendingAdds.poll();
+            if (t == null) return;
+            if (t.state.get() != Timeout.ST_INIT) continue;
+
+            long calculated = t.deadlineNanos / tickNanos;
+            t.remainingRounds = (calculated - tick) / WHEEL_SIZE;
+            // Un plazo ya vencido se pone en la cubeta actual para que salte en este tick
+            long target = Math.max(calculated, tick);
+            wheel[(int) (target & MASK)].add(t);
+        }
+    }
+
+    private void expire(Bucket bucket, long tickDeadline) {
+        Timeout t = bucket.head;
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.remainingRounds <= 0 && t.deadlineNanos <= tickDeadline) {
+                bucket.remove(t);
+                t.fire();
+            } else {
+                t.remainingRounds--;
+            }
+            t = next;
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // PLAZOS PERSISTENTES
+    // ════════════════════════════════════════════════════════════════════════
+
+    // clave → "epochMillis|payload"; se carga en el primer uso
+    private Properties persisted;
+    private final AtomicBoolean saveQueued = new AtomicBoolean(false);
+
+    /**
+     * Guarda el plazo de un efecto para poder recuperarlo tras un reinicio (restore).
+     * La escritura al disco se hace en segundo plano y agrupa los cambios seguidos.
+     */
+    public void persist(String key, long deadlineEpochMillis, String payload) {
+        synchronized (this) {
+            store().setProperty(key, deadlineEpochMillis + "|" + (payload == null ? "" : payload));
+        }
+        queueSave();
+    }
+
+    /**
+     * Olvida un plazo guardado (el efecto expiró o se reemplazó).
+     */
+    public void forget(String key) {
+        synchronized (this) {
+            if (store().remove(key) == null) return;
+        }
+        queueSave();
+    }
+
+    /**
+     * Plazos guardados cuyas claves empiezan por prefix. Los ya vencidos se descartan del archivo.
+     */
+    public Map<String, Persisted> restore(String prefix) {
+        Map<String, Persisted> result = new HashMap<>();
+        boolean purged = false;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (String key : store().stringPropertyNames()) {
+                if (!key.startsWith(prefix)) continue;
+                Persisted p = Persisted.parse(store().getProperty(key));
+                if (p == null || p.deadlineEpochMillis <= now) {
+                    store().remove(key);
+                    purged = true;
+                } else {
+                    result.put(key, p);
+                }
+            }
+        }
+        if (purged) queueSave();
+        return result;
+    }
+
+    private Properties store() {
+        if (persisted == null) {
+            persisted = new Properties();
+            if (Files.exists(STORE)) {
+                try (Reader in = Files.newBufferedReader(STORE, StandardCharsets.UTF_8)) {
+                    persisted.load(in);
+                } catch (IOException e) {
+                    System.err.println("⚠️ [TimingWheel] No se pudieron leer los plazos guardados: " + e.getMessage());
+                }
+            }
+        }
+        return persisted;
+    }
+
+    private void queueSave() {
+        if (saveQueued.compareAndSet(false, true)) {
+            AppExecutors.io().execute(this::save);
+        }
+    }
+
+    private void save() {
+        saveQueued.set(false);
+        Properties snapshot;
+        synchronized (this) {
+            snapshot = new Properties();
+            snapshot.putAll(store());
+        }
+        try {
+            Files.createDirectories(STORE.toAbsolutePath().getParent());
+            Path tmp = STORE.resolveSibling(STORE.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                snapshot.store(out, "CtrlAltQuest - plazos de efectos temporales");
+            }
+            Files.move(tmp, STORE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠️ [TimingWheel] No se pudieron guardar los plazos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Un plazo guardado: instante de expiración (reloj de pared) y dato libre del dueño.
+     */
+    public static class Persisted {
+        public final long deadlineEpochMillis;
+        public final String payload;
+
+        Persisted(long deadlineEpochMillis, String payload) {
+            this.deadlineEpochMillis = deadlineEpochMillis;
+            this.payload = payload;
+        }
+
+        static Persisted parse(String value) {
+            if (value == null) return null;
+            int sep = value.indexOf('|');
+            try {
+                long deadline = Long.parseLong(sep < 0 ? value : value.substring(0, sep));
+                return new Persisted(deadline, sep < 0 ? "" : value.substring(sep + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // TIMEOUT Y CUBETAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Handle de una tarea programada.
+     */
+    public final class Timeout {
+        static final int ST_INIT = 0;
+        static final int ST_CANCELLED = 1;
+        static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;   // relativo a startNanos
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // Solo los toca el hilo de la rueda
+        long remainingRounds;
+        Bucket bucket;
+        Timeout next;
+        Timeout prev;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancela la tarea si aún no se ejecutó. Devuelve false si ya había expirado o estaba cancelada.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) return false;
+            pending.decrementAndGet();
+            CANCELLED.increment();
+            pendingCancels.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        /**
+         * Milisegundos que faltan para que se ejecute (0 si ya venció).
+         */
+        public long getRemainingMillis() {
+            long remaining = deadlineNanos - (System.nanoTime() - startNanos);
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(remaining));
+        }
+
+        private void fire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) return;
+            pending.decrementAndGet();
+            FIRED.increment();
+            try {
+                task.run();
+            } catch (Exception e) {
+                // Una tarea que falla no debe parar la rueda
+                System.err.println("⚠️ [TimingWheel] Error en una tarea: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lista doblemente enlazada: quitar un timeout cancelado es O(1).
+     */
+    private static final class Bucket {
+        Timeout head;
+        Timeout tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            if (head == null) {
+                head = tail = t;
+            } else {
+                tail.next = t;
+                t.prev = tail;
+                tail = t;
+            }
+        }
+
+        void remove(Timeout t) {
+            if (t.bucket != this) return;
+            if (t.prev != null) t.prev.next = t.next;
+            else head = t.next;
+            if (t.next != null) t.next.prev = t.prev;
+            else tail = t.prev;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.ctrlaltquest.services;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ctrlaltquest.dao.ActivityDAO;
+import com.ctrlaltquest.models.EventType;
+import com.google.gson.Gson;
+
+/**
+ * TitleClassifier - Motor único de clasificación de títulos de ventana.
+ *
+ * Sustituye las tres cadenas de contains() que había en ActivityMonitorService,
+ * MissionProgressService y EventGenerator (y que no coincidían entre sí).
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Reglas en /config/title_rules.json (palabras clave, palabras completas y regex)
+ * ✅ Todas las palabras clave compiladas en un autómata Aho-Corasick: una sola pasada por título
+ * ✅ Devuelve categoría, métrica, productividad y afinidad de eventos a la vez
+ * ✅ Resultado memoizado por título en una LRU acotada
+ * ✅ Reglas extra desde la tabla apps (reloadFromDatabase) sin recompilar
+ */
+public class TitleClassifier {
+
+    private static final String RULES_RESOURCE = "/config/title_rules.json";
+    private static final int CACHE_SIZE = 4_096;
+
+    private static TitleClassifier instance;
+
+    public static synchronized TitleClassifier getInstance() {
+        if (instance == null) instance = new TitleClassifier();
+        return instance;
+    }
+
+    private final RulesFile baseRules;
+    private volatile Engine engine;
+
+    private final Map<String, Category> cache = new LinkedHashMap<>(512, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Category> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final AtomicLong cacheHits   = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private TitleClassifier() {
+        this.baseRules = loadResourceRules();
+        this.engine = new Engine(baseRules, Collections.emptyList());
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API PÚBLICA
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Clasifica un título de ventana. Nunca devuelve null:
+     * títulos vacíos o "Desconocido" devuelven la categoría UNKNOWN.
+     */
+    public Category classify(String title) {
+        if (title == null || title.isEmpty()) return engine.unknown;
+
+        Category cached;
+        synchronized (cache) { cached = cache.get(title); }
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+
+        cacheMisses.incrementAndGet();
+        Category result = engine.classify(title);
+        synchronized (cache) { cache.put(title, result); }
+        return result;
+    }
+
+    /**
+     * Categoría por id (CODING, PRODUCTIVITY...), o la categoría por defecto si no existe.
+     */
+    public Category getCategory(String id) {
+        Category c = id == null ? null : engine.byId.get(id.toUpperCase(Locale.ROOT));
+        return c != null ? c : engine.fallback;
+    }
+
+    /**
+     * Acepta tanto un título de ventana como un id de categoría ya resuelto
+     * (MissionProgressService pasa "CODING", "BROWSING"... a EventsService).
+     */
+    public Category resolve(String titleOrCategoryId) {
+        if (titleOrCategoryId != null) {
+            Category byId = engine.byId.get(titleOrCategoryId);
+            if (byId != null) return byId;
+        }
+        return classify(titleOrCategoryId);
+    }
+
+    /**
+     * Añade como palabras clave las apps de la tabla apps que tienen una categoría conocida.
+     * Seguro de llamar en cualquier momento: el motor se reconstruye y se cambia de forma atómica.
+     */
+    public void reloadFromDatabase() {
+        List<ActivityDAO.ReglaApp> reglas = ActivityDAO.cargarReglasApps();
+        rebuild(reglas);
+        System.out.println("✅ [TitleClassifier] Reglas recargadas (" + reglas.size() + " apps desde BD)");
+    }
+
+    private void rebuild(List<ActivityDAO.ReglaApp> extra) {
+        this.engine = new Engine(baseRules, extra);
+        synchronized (cache) { cache.clear(); }
+    }
+
+    public long getCacheHits()   { return cacheHits.get(); }
+    public long getCacheMisses() { return cacheMisses.get(); }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CARGA DE REGLAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    private static RulesFile loadResourceRules() {
+        try (InputStream is = TitleClassifier.class.getResourceAsStream(RULES_RESOURCE)) {
+            if (is == null) {
+                System.err.println("⚠️ [TitleClassifier] No se encontró " + RULES_RESOURCE + ", todo será GENERIC");
+                return new RulesFile();
+            }
+            RulesFile rules = new Gson().fromJson(new InputStreamReader(is, StandardCharsets.UTF_8), RulesFile.class);
+            return rules != null ? rules : new RulesFile();
+        } catch (Exception e) {
+            System.err.println("❌ [TitleClassifier] Error leyendo reglas: " + e.getMessage());
+            return new RulesFile();
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // RESULTADO: Category
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Categoría inmutable: métrica de misiones, productividad y pesos de eventos.
+     */
+    public static final class Category {
+        public final String id;
+        public final String metricKey;
+        public final boolean productive;
+        public final int priority;
+        private final EventType[] events;
+        private final int[] cumulativeWeights;
+
+        Category(String id, String metricKey, boolean productive, int priority, Map<String, Integer> eventWeights) {
+            this.id = id;
+            this.metricKey = metricKey;
+            this.productive = productive;
+            this.priority = priority;
+
+            List<EventType> types = new ArrayList<>();
+            List<Integer> weights = new ArrayList<>();
+            if (eventWeights != null) {
+                for (Map.Entry<String, Integer> e : eventWeights.entrySet()) {
+                    EventType type = EventType.fromCode(e.getKey());
+                    if (type != null && e.getValue() != null && e.getValue() > 0) {
+                        types.add(type);
+                        weights.add(e.getValue());
+                    }
+                }
+            }
+            this.events = types.toArray(new EventType[0]);
+            this.cumulativeWeights = new int[weights.size()];
+            int sum = 0;
+            for (int i = 0; i < weights.size(); i++) {
+                sum += weights.get(i);
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        /** true para títulos vacíos / desconocidos: no se registra actividad. */
+        public boolean isUnknown() {
+            return "unknown".equals(metricKey);
+        }
+
+        /**
+         * Elige un evento según los pesos de afinidad, o null si la categoría no tiene afinidad.
+         */
+        public EventType pickEvent(Random random) {
+            if (events.length == 0) return null;
+            int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < events.length; i++) {
+                if (roll < cumulativeWeights[i]) return events[i];
+            }
+            return events[events.length - 1];
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // MOTOR COMPILADO
+    // ════════════════════════════════════════════════════════════════════════
+
+    private static final class Engine {
+        final Map<String, Category> byId = new HashMap<>();
+        final Set<String> unknownTitles = new HashSet<>();
+        final Category unknown = new Category("UNKNOWN", "unknown", false, Integer.MIN_VALUE, null);
+        final Category fallback;
+        final int maxPriority;
+        final KeywordAutomaton automaton;
+        final Pattern combinedPattern;
+        final List<Category> patternGroups = new ArrayList<>();
+
+        Engine(RulesFile rules, List<ActivityDAO.ReglaApp> extra) {
+            if (rules.unknownTitles != null) unknownTitles.addAll(rules.unknownTitles);
+
+            KeywordAutomaton.Builder builder = new KeywordAutomaton.Builder();
+            StringBuilder regex = new StringBuilder();
+            int max = Integer.MIN_VALUE;
+
+            if (rules.categories != null) {
+                for (CategoryRule rule : rules.categories) {
+                    if (rule.id == null) continue;
+                    Category cat = new Category(rule.id.toUpperCase(Locale.ROOT),
+                        rule.metricKey != null ? rule.metricKey : "app_usage_generic",
+                        rule.productive, rule.priority, rule.events);
+                    byId.put(cat.id, cat);
+                    max = Math.max(max, cat.priority);
+
+                    if (rule.keywords != null) for (String k : rule.keywords) builder.add(k, false, cat);
+                    if (rule.words != null)    for (String w : rule.words)    builder.add(w, true, cat);
+                    if (rule.patterns != null) {
+                        for (String p : rule.patterns) {
+                            if (p == null || p.isEmpty()) continue;
+                            if (regex.length() > 0) regex.append('|');
+                            regex.append("(?<g").append(patternGroups.size()).append('>').append(p).append(')');
+                            patternGroups.add(cat);
+                        }
+                    }
+                }
+            }
+
+            for (ActivityDAO.ReglaApp regla : extra) {
+                Category cat = regla.category == null ? null : byId.get(regla.category.toUpperCase(Locale.ROOT));
+                if (cat != null) builder.add(regla.appName, false, cat);
+            }
+
+            Category def = rules.defaultCategory == null ? null
+                : byId.get(rules.defaultCategory.toUpperCase(Locale.ROOT));
+            this.fallback = def != null ? def : new Category("GENERIC", "app_usage_generic", false, 0, null);
+            this.maxPriority = max;
+            this.automaton = builder.build();
+            this.combinedPattern = regex.length() == 0 ? null
+                : Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+
+        Category classify(String title) {
+            if (unknownTitles.contains(title)) return unknown;
+
+            String lower = title.toLowerCase(Locale.ROOT);
+            Category best = automaton.bestMatch(lower, maxPriority);
+
+            if (combinedPattern != null && (best == null || best.priority < maxPriority)) {
+                Matcher m = combinedPattern.matcher(title);
+                while (m.find()) {
+                    for (int g = 0; g < patternGroups.size(); g++) {
+                        if (m.group("g" + g) != null) {
+                            Category cat = patternGroups.get(g);
+                            if (best == null || cat.priority > best.priority) best = cat;
+                            break;
+                        }
+                    }
+                }
+            }
+            return best != null ? best : fallback;
+        }
+    }
+
+    /**
+     * Autómata Aho-Corasick sobre texto en minúsculas. Cada palabra clave lleva su categoría
+     * y si exige límites de palabra (para "ide", "word", "edge"... que si no coinciden dentro
+     * de "video", "password" o "knowledge").
+     */
+    static final class KeywordAutomaton {
+        private final char[][] edgeChars;
+        private final int[][] edgeTargets;
+        private final int[] fail;
+        private final int[] dictLink;       // siguiente nodo terminal en la cadena de fallos
+        private final int[][] outputs;      // índices de palabras clave que terminan en el nodo
+        private final int[] keywordLength;
+        private final boolean[] keywordWholeWord;
+        private final Category[] keywordCategory;
+
+        private KeywordAutomaton(Builder b) {
+            int n = b.children.size();
+            this.edgeChars = new char[n][];
+            this.edgeTargets = new int[n][];
+            this.fail = new int[n];
+            this.dictLink = new int[n];
+            this.outputs = new int[n][];
+
+            for (int i = 0; i < n; i++) {
+                Map<Character, Integer> ch = b.children.get(i);
+                char[] keys = new char[ch.size()];
+                int k = 0;
+                for (Character c : ch.keySet()) keys[k++] = c;
+                java.util.Arrays.sort(keys);
+                int[] targets = new int[keys.length];
+                for (int j = 0; j < keys.length; j++) targets[j] = ch.get(keys[j]);
+                edgeChars[i] = keys;
+                edgeTargets[i] = targets;
+                List<Integer> out = b.outputs.get(i);
+                outputs[i] = out.stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            this.keywordLength = b.lengths.stream().mapToInt(Integer::intValue).toArray();
+            this.keywordWholeWord = new boolean[b.wholeWord.size()];
+            for (int i = 0; i < keywordWholeWord.length; i++) keywordWholeWord[i] = b.wholeWord.get(i);
+            this.keywordCategory = b.categories.toArray(new Category[0]);
+
+            buildFailureLinks();
+        }
+
+        private int child(int node, char c) {
+            int idx = java.util.Arrays.binarySearch(edgeChars[node], c);
+            return idx >= 0 ? edgeTargets[node][idx] : -1;
+        }
+
+        private void buildFailureLinks() {
+            int[] queue = new int[fail.length];
+            int head = 0, tail = 0;
+            dictLink[0] = -1;
+            for (int target : edgeTargets[0]) {
+                fail[target] = 0;
+                dictLink[target] = -1;
+                queue[tail++] = target;
+            }
+            while (head < tail) {
+                int node = queue[head++];
+                for (int j = 0; j < edgeChars[node].length; j++) {
+                    char c = edgeChars[node][j];
+                    int target = edgeTargets[node][j];
+                    int f = fail[node];
+                    while (f != 0 && child(f, c) < 0) f = fail[f];
+                    int next = child(f, c);
+                    fail[target] = (next >= 0 && next != target) ? next : 0;
+                    int fl = fail[target];
+                    dictLink[target] = outputs[fl].length > 0 ? fl : dictLink[fl];
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        /**
+         * Recorre el texto una sola vez y devuelve la categoría de mayor prioridad encontrada.
+         * Corta en cuanto encuentra una de prioridad máxima.
+         */
+        Category bestMatch(String text, int maxPriority) {
+            Category best = null;
+            int node = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                int next;
+                while ((next = child(node, c)) < 0 && node != 0) node = fail[node];
+                node = next >= 0 ? next : 0;
+
+                for (int n = outputs[node].length > 0 ? node : dictLink[node]; n > 0; n = dictLink[n]) {
+                    for (int kw : outputs[n]) {
+                        Category cat = keywordCategory[kw];
+                        if (best != null && cat.priority <= best.priority) continue;
+                        if (keywordWholeWord[kw] && !isWordBoundary(text, i - keywordLength[kw] + 1, i + 1)) continue;
+                        best = cat;
+                        if (best.priority >= maxPriority) return best;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private static boolean isWordBoundary(String text, int start, int end) {
+            boolean before = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+            boolean after = end >= text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            return before && after;
+        }
+
+        static final class Builder {
+            final List<Map<Character, Integer>> children = new ArrayList<>();
+            final List<List<Integer>> outputs = new ArrayList<>();
+            final List<Integer> lengths = new ArrayList<>();
+            final List<Boolean> wholeWord = new ArrayList<>();
+            final List<Category> categories = new ArrayList<>();
+
+            Builder() {
+                newNode();
+            }
+
+            private int newNode() {
+                children.add(new HashMap<>());
+                outputs.add(new ArrayList<>());
+                return children.size() - 1;
+            }
+
+            void add(String keyword, boolean whole, Category category) {
+                if (keyword == null || keyword.isEmpty()) return;
+                String k = keyword.toLowerCase(Locale.ROOT);
+                int node = 0;
+                for (int i = 0; i < k.length(); i++) {
+                    char c = k.charAt(i);
+                    Integer next = children.get(node).get(c);
+                    if (next == null) {
+                        next = newNode();
+                        children.get(node).put(c, next);
+                    }
+                    node = next;
+                }
+                outputs.get(node).add(lengths.size());
+                lengths.add(k.length());
+                wholeWord.add(whole);
+                categories.add(category);
+            }
+
+            KeywordAutomaton build() {
+                return new KeywordAutomaton(this);
+            }
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // DTOs DE GSON (title_rules.json)
+    // ════════════════════════════════════════════════════════════════════════
+
+    private static class RulesFile {
+        List<String> unknownTitles;
+        String defaultCategory;
+        List<CategoryRule> categories;
+    }
+
+    private static class CategoryRule {
+        String id;
+        String metricKey;
+        boolean productive;
+        int priority;
+        List<String> keywords;
+        List<String> words;
+        List<String> patterns;
+        LinkedHashMap<String, Integer> events;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ctrlaltquest.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ctrlaltquest.dao.RollupDAO;
+import com.ctrlaltquest.dao.UsageLogStorageDAO;
+
+/**
+ * UsageLogMaintenanceService - Mantenimiento en segundo plano de public.app_usage_logs.
+ *
+ * En cada pasada (al arrancar y después cada MAINTENANCE_INTERVAL_MS):
+ *  1. Backfill de los agregados diarios si nunca se hizo (antes de retirar datos crudos)
+ *  2. Crea las particiones mensuales del mes actual y de los PARTITIONS_AHEAD siguientes
+ *  3. Compacta los días cerrados de los últimos COMPACT_DAYS días
+ *  4. Aplica la retención: retira los meses anteriores a RETENTION_MONTHS
+ *
+ * Los agregados de RollupDAO conservan el histórico, así que el dashboard no pierde datos
+ * aunque se retiren particiones crudas.
+ *
+ * La fase 2 también se ejecuta de forma síncrona al arrancar (ensurePartitionsNow), antes
+ * de que el write-behind escriba nada: así las filas del mes no caen en la partición DEFAULT.
+ */
+public class UsageLogMaintenanceService {
+
+    // ── Configuración (sobrescribible con -Dctrlaltquest.storage.*) ──────────
+    private static final long MAINTENANCE_INTERVAL_MS =
+        Long.getLong("ctrlaltquest.storage.intervalMs", TimeUnit.HOURS.toMillis(6));
+    private static final long INITIAL_DELAY_MS =
+        Long.getLong("ctrlaltquest.storage.initialDelayMs", 30_000);
+    private static final int PARTITIONS_AHEAD =
+        Integer.getInteger("ctrlaltquest.storage.partitionsAhead", 2);
+    private static final int COMPACT_DAYS =
+        Integer.getInteger("ctrlaltquest.storage.compactDays", 7);
+    // Margen tras la medianoche para que los flush rezagados del día anterior lleguen a BD
+    private static final long COMPACT_GRACE_MINUTES =
+        Long.getLong("ctrlaltquest.storage.compactGraceMinutes", 60);
+    // 0 = conservar todo
+    private static final int RETENTION_MONTHS =
+        Integer.getInteger("ctrlaltquest.storage.retentionMonths", 12);
+    // "detach" deja la tabla fuera de app_usage_logs; "drop" la elimina
+    private static final boolean RETENTION_DROP =
+        "drop".equalsIgnoreCase(System.getProperty("ctrlaltquest.storage.retentionMode", "detach"));
+
+    // ── Singleton ────────────────────────────────────────────────────────────
+    private static UsageLogMaintenanceService instance;
+
+    public static synchronized UsageLogMaintenanceService getInstance() {
+        if (instance == null) instance = new UsageLogMaintenanceService();
+        return instance;
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    // ── Métricas ─────────────────────────────────────────────────────────────
+    private final AtomicLong runs              = new AtomicLong();
+    private final AtomicLong rowsCompacted     = new AtomicLong();
+    private final AtomicLong partitionsRetired = new AtomicLong();
+
+    private UsageLogMaintenanceService() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "usage-log-maintenance");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Programa el mantenimiento periódico. Llamadas repetidas no hacen nada.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        scheduler.scheduleWithFixedDelay(this::runSafely,
+            INITIAL_DELAY_MS, MAINTENANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Crea en el hilo que llama las particiones del mes actual y de los PARTITIONS_AHEAD
+     * siguientes (arranque de la aplicación). Un fallo solo se registra: la pasada periódica
+     * lo reintenta y mueve a su partición las filas que hayan caído en la DEFAULT.
+     */
+    public void ensurePartitionsNow() {
+        try {
+            if (UsageLogStorageDAO.esParticionada()) ensurePartitions();
+        } catch (Exception e) {
+            System.err.println("⚠️ [Storage] Error creando particiones al arrancar: " + e.getMessage());
+        }
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            System.err.println("⚠️ [Storage] Error en mantenimiento: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Una pasada completa. Cada fase es independiente: un fallo no impide las siguientes,
+     * salvo la retención, que no se aplica si el backfill de agregados no ha terminado.
+     */
+    void runOnce() {
+        runs.incrementAndGet();
+        boolean rollupsReady = RollupDAO.backfillSiHaceFalta();
+
+        boolean partitioned = false;
+        try {
+            partitioned = UsageLogStorageDAO.esParticionada();
+            if (partitioned) ensurePartitions();
+        } catch (Exception e) {
+            System.err.println("⚠️ [Storage] Error creando particiones: " + e.getMessage());
+        }
+
+        compactClosedDays();
+
+        if (rollupsReady) {
+            applyRetention(partitioned);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // FASES
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void ensurePartitions() throws Exception {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= PARTITIONS_AHEAD; i++) {
+            UsageLogStorageDAO.crearParticionMensual(current.plusMonths(i));
+        }
+    }
+
+    private void compactClosedDays() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        boolean yesterdayClosed = now.isAfter(today.atStartOfDay().plusMinutes(COMPACT_GRACE_MINUTES));
+
+        for (int i = COMPACT_DAYS; i >= 1; i--) {
+            LocalDate day = today.minusDays(i);
+            if (i == 1 && !yesterdayClosed) continue;
+            try {
+                UsageLogStorageDAO.ResultadoCompactacion r = UsageLogStorageDAO.compactarDia(day);
+                if (r.omitido) {
+                    System.out.println("🗜️ [Storage] " + day + ": otro cliente lo está compactando, se omite");
+                } else if (r.filasBorradas > 0) {
+                    rowsCompacted.addAndGet(r.filasBorradas - r.filasCreadas);
+                    System.out.println("🗜️ [Storage] " + day + ": " + r.filasBorradas + " filas → " + r.filasCreadas);
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ [Storage] Error compactando " + day + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void applyRetention(boolean partitioned) {
+        if (RETENTION_MONTHS <= 0) return;
+        YearMonth firstKept = YearMonth.now().minusMonths(RETENTION_MONTHS);
+
+        try {
+            if (partitioned) {
+                for (UsageLogStorageDAO.Particion p : UsageLogStorageDAO.listarParticiones()) {
+                    if (!p.mes.isBefore(firstKept)) continue;
+                    UsageLogStorageDAO.retirarParticion(p, RETENTION_DROP);
+                    partitionsRetired.incrementAndGet();
+                    System.out.println("🧹 [Storage] Partición " + p.nombre +
+                                       (RETENTION_DROP ? " eliminada" : " desvinculada"));
+                }
+            } else if (RETENTION_DROP) {
+                int deleted = UsageLogStorageDAO.borrarAnterioresA(firstKept.atDay(1));
+                if (deleted > 0) System.out.println("🧹 [Storage] " + deleted + " filas anteriores a " + firstKept + " eliminadas");
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ [Storage] Error aplicando retención: " + e.getMessage());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // MÉTRICAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    public long getRuns()              { return runs.get(); }
+    public long getRowsCompacted()     { return rowsCompacted.get(); }
+    public long getPartitionsRetired() { return partitionsRetired.get(); }
+}
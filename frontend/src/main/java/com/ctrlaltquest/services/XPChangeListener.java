@@ -23,4 +23,16 @@ public interface XPChangeListener {
      * @param newLevel Nuevo nivel alcanzado
      */
     void onLevelUp(int userId, int newLevel);
+    
+    /**
+     * Se llama una sola vez por concesión de XP, aunque cruce varios niveles.
+     * Por defecto equivale a onLevelUp con el nivel final.
+     * 
+     * @param userId ID del usuario
+     * @param oldLevel Nivel antes de la concesión
+     * @param newLevel Nivel alcanzado
+     */
+    default void onLevelsGained(int userId, int oldLevel, int newLevel) {
+        onLevelUp(userId, newLevel);
+    }
 }
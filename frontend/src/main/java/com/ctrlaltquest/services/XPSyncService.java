@@ -1,20 +1,22 @@
 package com.ctrlaltquest.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import com.ctrlaltquest.db.DatabaseConnection;
-
-import javafx.application.Platform;
+import com.ctrlaltquest.dao.UserStateCache;
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+import com.ctrlaltquest.ui.utils.FxQueue;
 
 /**
  * XPSyncService - Servicio centralizado para sincronizar XP en tiempo real
@@ -22,24 +24,56 @@ import javafx.application.Platform;
  * CARACTERÍSTICAS:
  * ✅ Otorga XP mediante captura de actividad (1 XP cada segundo productivo)
  * ✅ Actualiza barras de XP independientes por usuario
- * ✅ Sube de nivel automáticamente (fórmula: XP_req = Nivel * 1000)
+ * ✅ Sube de nivel automáticamente según ProgressionCurve (por defecto XP_req = Nivel * 1000),
+ *    todos los niveles de una concesión de una vez y con un solo aviso
  * ✅ Notifica a observers de cambios (UI, misiones, logros)
- * ✅ Guarda TODO en BD con transacciones
- * ✅ Sincronización thread-safe
+ * ✅ Persistencia por lotes vía ActivityWriteBehindService
+ * ✅ Estado en UserStateCache: XPSyncService es el único que escribe nivel/XP
+ * ✅ Asíncrono: award*() encola un XPEvent y vuelve al instante
+ * 
+ * MODELO DE HILOS:
+ * Cada usuario se asigna a una "franja" (userId % STRIPES) con un único hilo escritor.
+ * Todos los XPEvent de un usuario se aplican en orden en su franja, así que su estado
+ * no necesita un lock global; usuarios en franjas distintas avanzan en paralelo.
+ * Los avisos a la UI se fusionan: como mucho una actualización por usuario y frame.
  */
 public class XPSyncService {
     
+    private static final int STRIPES = Integer.getInteger("ctrlaltquest.xp.stripes",
+        Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    
     private static XPSyncService instance;
     private final List<XPChangeListener> listeners = new CopyOnWriteArrayList<>();
     
-    // Cache local para optimizar queries
-    private final Map<Integer, UserXPData> userXPCache = Collections.synchronizedMap(new HashMap<>());
-    
-    // Cola de eventos para procesamiento ordenado
-    private final Queue<XPEvent> eventQueue = new LinkedList<>();
-    private boolean processingQueue = false;
-    
-    private XPSyncService() {}
+    // Estado de nivel/XP/monedas compartido con el resto de servicios (acotado y con TTL)
+    private final UserStateCache userStateCache = UserStateCache.getInstance();
+    
+    // Un ejecutor de un solo hilo por franja de usuarios
+    private final ExecutorService[] stripes = new ExecutorService[STRIPES];
+    
+    // Cambios pendientes de pintar, fusionados por usuario hasta el próximo frame
+    private final Map<Integer, XPChangeEvent> pendingUIEvents = new LinkedHashMap<>();
+    private final AtomicBoolean uiFlushScheduled = new AtomicBoolean(false);
+    
+    // ── Métricas ─────────────────────────────────────────────────────────────
+    private final AtomicLong eventsQueued    = new AtomicLong();
+    private final AtomicLong eventsProcessed = new AtomicLong();
+    private final AtomicLong uiUpdates       = new AtomicLong();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private static final LatencyHistogram AWARD_TIMER = MetricsRegistry.getInstance().histogram("xp.award");
+    private static final LatencyHistogram AWARD_QUEUE_TIMER = MetricsRegistry.getInstance().histogram("xp.award.queueWait");
+    
+    private XPSyncService() {
+        for (int i = 0; i < STRIPES; i++) {
+            final int stripe = i;
+            stripes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "xp-writer-" + stripe);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        MetricsRegistry.getInstance().gauge("xp.pending", pendingEvents::get);
+    }
     
     public static synchronized XPSyncService getInstance() {
         if (instance == null) {
@@ -67,16 +101,42 @@ public class XPSyncService {
     }
     
     /**
-     * Notifica a todos los listeners sobre cambio de XP
+     * Notifica a todos los listeners sobre cambio de XP.
+     * Los cambios de UI se acumulan y se entregan en un único Platform.runLater por frame.
      */
     private void notifyXPChange(int userId, XPChangeEvent event) {
-        for (XPChangeListener listener : listeners) {
-            // Ejecutar en thread de JavaFX si es necesario
-            if (event.isUIUpdate) {
-                Platform.runLater(() -> listener.onXPChanged(userId, event));
-            } else {
+        if (!event.isUIUpdate) {
+            for (XPChangeListener listener : listeners) {
                 listener.onXPChanged(userId, event);
             }
+            return;
+        }
+        
+        synchronized (pendingUIEvents) {
+            XPChangeEvent previous = pendingUIEvents.get(userId);
+            pendingUIEvents.put(userId, previous == null ? event : previous.mergedWith(event));
+        }
+        if (uiFlushScheduled.compareAndSet(false, true)) {
+            FxQueue.runLater(this::flushUIEvents);
+        }
+    }
+    
+    /**
+     * Entrega en el hilo de JavaFX los cambios fusionados desde el último frame.
+     */
+    private void flushUIEvents() {
+        uiFlushScheduled.set(false);
+        Map<Integer, XPChangeEvent> batch;
+        synchronized (pendingUIEvents) {
+            if (pendingUIEvents.isEmpty()) return;
+            batch = new LinkedHashMap<>(pendingUIEvents);
+            pendingUIEvents.clear();
+        }
+        for (Map.Entry<Integer, XPChangeEvent> e : batch.entrySet()) {
+            uiUpdates.incrementAndGet();
+            for (XPChangeListener listener : listeners) {
+                listener.onXPChanged(e.getKey(), e.getValue());
+            }
         }
     }
     
@@ -89,186 +149,194 @@ public class XPSyncService {
      * @param userId ID del usuario
      * @param xpAmount Cantidad de XP (ej: 1 XP por segundo productivo)
      * @param activityType Tipo de actividad para misiones (ej: "time_coding")
-     * @return true si hubo cambio (subida de nivel, nueva barra, etc)
+     * @return true si el evento se encoló (se aplica de forma asíncrona)
      */
-    public synchronized boolean awardXPFromActivity(int userId, int xpAmount, String activityType) {
-        if (xpAmount <= 0) return false;
-        
+    public boolean awardXPFromActivity(int userId, int xpAmount, String activityType) {
+        return enqueue(new XPEvent(userId, xpAmount, activityType));
+    }
+    
+    /**
+     * Otorga XP por misión completada
+     */
+    public boolean awardXPForMission(int userId, int missionId, int xpAmount) {
+        return enqueue(new XPEvent(userId, xpAmount, "mission_" + missionId));
+    }
+    
+    /**
+     * Otorga XP por logro desbloqueado
+     */
+    public boolean awardXPForAchievement(int userId, int achievementId, int xpAmount) {
+        return enqueue(new XPEvent(userId, xpAmount, "achievement_" + achievementId));
+    }
+    
+    private boolean enqueue(XPEvent xpEvent) {
+        if (xpEvent.xpAmount <= 0) return false;
+        ExecutorService stripe = stripeFor(xpEvent.userId);
         try {
-            // Obtener datos actuales
-            UserXPData data = getOrLoadUserXPData(userId);
-            if (data == null) return false;
+            pendingEvents.incrementAndGet();
+            long queuedAt = System.nanoTime();
+            stripe.execute(() -> {
+                long start = System.nanoTime();
+                AWARD_QUEUE_TIMER.record(start - queuedAt);
+                try {
+                    applyEvent(xpEvent);
+                } finally {
+                    AWARD_TIMER.recordSince(start);
+                    pendingEvents.decrementAndGet();
+                }
+            });
+            eventsQueued.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingEvents.decrementAndGet();
+            System.err.println("⚠️ [XPSync] Servicio detenido, XP descartada: " + xpEvent.source);
+            return false;
+        }
+    }
+    
+    private ExecutorService stripeFor(int userId) {
+        return stripes[Math.floorMod(userId, STRIPES)];
+    }
+    
+    /**
+     * Aplica un XPEvent. Solo se ejecuta en el hilo de la franja del usuario.
+     */
+    private void applyEvent(XPEvent xpEvent) {
+        try {
+            UserStateCache.UserState state = userStateCache.get(xpEvent.userId);
+            if (state == null) return;
             
+            UserXPData data = toXPData(state);
             int oldLevel = data.level;
             int oldCurrentXP = data.currentXP;
             
             // Sumar XP
-            data.currentXP += xpAmount;
-            data.totalXP += xpAmount;
+            data.currentXP += xpEvent.xpAmount;
+            data.totalXP += xpEvent.xpAmount;
             
             // Verificar subida de nivel
-            boolean leveledUp = checkAndProcessLevelUp(userId, data);
+            boolean leveledUp = checkAndProcessLevelUp(xpEvent.userId, data);
+            
+            int level = data.level;
+            int currentXP = data.currentXP;
+            int totalXP = data.totalXP;
+            int xpRequired = data.xpRequired;
             
-            // Guardar en BD
-            saveUserXPData(userId, data);
+            // Publicar en la caché central (única escritura de XP) y guardar en BD de forma diferida
+            long version = userStateCache.writeXP(state, level, currentXP, totalXP);
+            ActivityWriteBehindService.getInstance().recordXP(
+                xpEvent.userId, xpEvent.xpAmount, historyReason(xpEvent.source), level, currentXP, totalXP, version);
             
-            // Crear evento de cambio
             XPChangeEvent event = new XPChangeEvent(
-                xpAmount,
+                xpEvent.xpAmount,
                 oldLevel,
-                data.level,
+                level,
                 oldCurrentXP,
-                data.currentXP,
-                data.xpRequired,
+                currentXP,
+                xpRequired,
                 leveledUp,
-                activityType
+                xpEvent.source
             );
             
-            // Notificar listeners
-            notifyXPChange(userId, event);
+            notifyXPChange(xpEvent.userId, event);
             
-            // Si subió de nivel, procesar logros/misiones
+            // Logros de nivel/XP: lookup incremental por umbral (solo toca BD si se cruza uno)
+            AchievementEngine.getInstance().onXPChanged(xpEvent.userId, level, totalXP);
             if (leveledUp) {
-                processMissionProgressAfterLevelUp(userId, data.level);
-                processAchievementsAfterLevelUp(userId, data.level);
+                processMissionProgressAfterLevelUp(xpEvent.userId, level);
             }
             
-            return true;
+            eventsProcessed.incrementAndGet();
             
         } catch (Exception e) {
-            System.err.println("❌ Error otorgando XP: " + e.getMessage());
+            System.err.println("❌ Error otorgando XP (" + xpEvent.source + "): " + e.getMessage());
             e.printStackTrace();
-            return false;
         }
     }
     
+    // ========== CICLO DE VIDA ==========
+    
     /**
-     * Otorga XP por misión completada
+     * Espera a que todas las franjas apliquen los eventos encolados hasta ahora.
+     * Llamar antes de ActivityWriteBehindService.drain() para que su flush incluya esa XP.
      */
-    public synchronized boolean awardXPForMission(int userId, int missionId, int xpAmount) {
-        if (xpAmount <= 0) return false;
-        
-        try {
-            UserXPData data = getOrLoadUserXPData(userId);
-            if (data == null) return false;
-            
-            int oldLevel = data.level;
-            int oldCurrentXP = data.currentXP;
-            
-            data.currentXP += xpAmount;
-            data.totalXP += xpAmount;
-            
-            boolean leveledUp = checkAndProcessLevelUp(userId, data);
-            
-            saveUserXPData(userId, data);
-            
-            XPChangeEvent event = new XPChangeEvent(
-                xpAmount,
-                oldLevel,
-                data.level,
-                oldCurrentXP,
-                data.currentXP,
-                data.xpRequired,
-                leveledUp,
-                "mission_" + missionId
-            );
-            
-            notifyXPChange(userId, event);
-            
-            if (leveledUp) {
-                processMissionProgressAfterLevelUp(userId, data.level);
-                processAchievementsAfterLevelUp(userId, data.level);
+    public boolean drain(long timeoutMs) {
+        CountDownLatch latch = new CountDownLatch(STRIPES);
+        for (ExecutorService stripe : stripes) {
+            try {
+                stripe.execute(latch::countDown);
+            } catch (RejectedExecutionException e) {
+                latch.countDown();
             }
-            
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error otorgando XP de misión: " + e.getMessage());
+        }
+        try {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
     
     /**
-     * Otorga XP por logro desbloqueado
+     * Aplica lo pendiente y detiene los hilos escritores (al cerrar la aplicación).
      */
-    public synchronized boolean awardXPForAchievement(int userId, int achievementId, int xpAmount) {
-        if (xpAmount <= 0) return false;
-        
-        try {
-            UserXPData data = getOrLoadUserXPData(userId);
-            if (data == null) return false;
-            
-            int oldLevel = data.level;
-            int oldCurrentXP = data.currentXP;
-            
-            data.currentXP += xpAmount;
-            data.totalXP += xpAmount;
-            
-            boolean leveledUp = checkAndProcessLevelUp(userId, data);
-            
-            saveUserXPData(userId, data);
-            
-            XPChangeEvent event = new XPChangeEvent(
-                xpAmount,
-                oldLevel,
-                data.level,
-                oldCurrentXP,
-                data.currentXP,
-                data.xpRequired,
-                leveledUp,
-                "achievement_" + achievementId
-            );
-            
-            notifyXPChange(userId, event);
-            
-            if (leveledUp) {
-                processMissionProgressAfterLevelUp(userId, data.level);
-                processAchievementsAfterLevelUp(userId, data.level);
+    public void shutdown() {
+        for (ExecutorService stripe : stripes) stripe.shutdown();
+        for (ExecutorService stripe : stripes) {
+            try {
+                if (!stripe.awaitTermination(5, TimeUnit.SECONDS)) {
+                    System.err.println("⚠️ [XPSync] Eventos de XP sin aplicar al cerrar: " + pendingEvents.get());
+                    stripe.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stripe.shutdownNow();
             }
-            
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error otorgando XP de logro: " + e.getMessage());
-            return false;
         }
     }
     
+    public long getEventsQueued()    { return eventsQueued.get(); }
+    public long getEventsProcessed() { return eventsProcessed.get(); }
+    public long getUIUpdates()       { return uiUpdates.get(); }
+    public int getPendingEvents()    { return pendingEvents.get(); }
+    
     // ========== LÓGICA DE NIVELES ==========
     
     /**
-     * Verifica si el usuario sube de nivel y procesa los cambios
-     * Fórmula: XP_requerido = Nivel_actual * 1000
+     * Verifica si el usuario sube de nivel y procesa los cambios (un solo aviso aunque
+     * la concesión cruce varios niveles).
      */
     private boolean checkAndProcessLevelUp(int userId, UserXPData data) {
-        boolean leveledUp = false;
+        int oldLevel = data.level;
+        if (applyLevelUps(data) == 0) return false;
         
-        while (data.currentXP >= data.xpRequired) {
-            // Restar XP usado para subir de nivel
-            data.currentXP -= data.xpRequired;
-            
-            // Incrementar nivel
-            data.level++;
-            leveledUp = true;
-            
-            // Recalcular XP requerido para siguiente nivel
-            data.xpRequired = data.level * 1000;
-            
-            System.out.println("🎉 ¡SUBIDA DE NIVEL! Usuario " + userId + " ahora es NIVEL " + data.level);
-            
-            // Notificar subida de nivel específica
-            notifyLevelUp(userId, data.level);
-        }
-        
-        return leveledUp;
+        System.out.println("🎉 ¡SUBIDA DE NIVEL! Usuario " + userId + " ahora es NIVEL " + data.level
+            + (data.level - oldLevel > 1 ? " (+" + (data.level - oldLevel) + " niveles)" : ""));
+        notifyLevelUp(userId, oldLevel, data.level);
+        return true;
+    }
+    
+    /**
+     * Consume la XP actual en subidas de nivel (sin efectos secundarios).
+     * ProgressionCurve resuelve el nivel final de una vez, sin iterar nivel a nivel.
+     *
+     * @return niveles ganados
+     */
+    static int applyLevelUps(UserXPData data) {
+        if (data.currentXP < data.xpRequired) return 0;
+        ProgressionCurve.Resolution r = ProgressionCurve.getInstance().resolve(data.level, data.currentXP, 0);
+        data.level = r.level;
+        data.currentXP = r.currentXP;
+        data.xpRequired = r.xpRequired;
+        return r.levelsGained();
     }
     
     /**
-     * Notifica subida de nivel a todos los listeners
+     * Notifica a todos los listeners una subida de uno o varios niveles
      */
-    private void notifyLevelUp(int userId, int newLevel) {
+    private void notifyLevelUp(int userId, int oldLevel, int newLevel) {
         for (XPChangeListener listener : listeners) {
-            Platform.runLater(() -> listener.onLevelUp(userId, newLevel));
+            FxQueue.runLater(() -> listener.onLevelsGained(userId, oldLevel, newLevel));
         }
     }
     
@@ -286,121 +354,47 @@ public class XPSyncService {
         }
     }
     
-    /**
-     * Procesa logros después de subida de nivel
-     */
-    private void processAchievementsAfterLevelUp(int userId, int newLevel) {
-        try {
-            // Verificar logros con condición de nivel
-            AchievementsService.getInstance().checkAchievementConditions(userId);
-        } catch (Exception e) {
-            System.err.println("⚠️ Error procesando logros: " + e.getMessage());
-        }
-    }
-    
     // ========== CACHE Y PERSISTENCIA ==========
     
     /**
-     * Obtiene o carga datos de XP del usuario (puede ser del cache o BD)
+     * Motivo con el que se registra en xp_history según el origen del XPEvent
      */
-    private synchronized UserXPData getOrLoadUserXPData(int userId) {
-        // Intentar obtener del cache
-        if (userXPCache.containsKey(userId)) {
-            return userXPCache.get(userId);
-        }
-        
-        // Cargar de BD
-        return loadUserXPFromDatabase(userId);
+    private static String historyReason(String source) {
+        if (source == null) return "Activity Sync";
+        if (source.startsWith("mission_")) return "Misión Completada";
+        if (source.startsWith("achievement_")) return "Logro Desbloqueado";
+        return "Activity Sync";
     }
     
-    /**
-     * Carga datos de XP de la base de datos
-     */
-    private UserXPData loadUserXPFromDatabase(int userId) {
-        String sql = "SELECT id, level, current_xp, total_xp FROM public.users WHERE id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                UserXPData data = new UserXPData();
-                data.userId = rs.getInt("id");
-                data.level = rs.getInt("level");
-                data.currentXP = rs.getInt("current_xp");
-                data.totalXP = rs.getInt("total_xp");
-                data.xpRequired = data.level * 1000;
-                
-                userXPCache.put(userId, data);
-                return data;
-            }
-        } catch (SQLException e) {
-            System.err.println("❌ Error cargando datos XP: " + e.getMessage());
-        }
-        
-        return null;
-    }
+    // ========== GETTERS ==========
     
     /**
-     * Guarda datos de XP a la base de datos
+     * Obtiene una copia de los datos de XP del usuario (desde UserStateCache)
      */
-    private void saveUserXPData(int userId, UserXPData data) {
-        String sql = "UPDATE public.users SET level = ?, current_xp = ?, total_xp = ? WHERE id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, data.level);
-            pstmt.setInt(2, data.currentXP);
-            pstmt.setInt(3, data.totalXP);
-            pstmt.setInt(4, userId);
-            
-            pstmt.executeUpdate();
-            
-            // Guardar en historial
-            logXPHistory(userId, data);
-            
-        } catch (SQLException e) {
-            System.err.println("❌ Error guardando datos XP: " + e.getMessage());
-        }
+    public UserXPData getUserXPData(int userId) {
+        return snapshot(userId);
     }
     
-    /**
-     * Registra cambios de XP en el historial
-     */
-    private void logXPHistory(int userId, UserXPData data) {
-        String sql = "INSERT INTO public.xp_history (user_id, amount, reason) VALUES (?, ?, ?)";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, data.totalXP);
-            pstmt.setString(3, "Activity Sync");
-            
-            pstmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            // No fallar por historial
-        }
+    private UserXPData snapshot(int userId) {
+        UserStateCache.UserState state = userStateCache.get(userId);
+        return state != null ? toXPData(state) : null;
     }
     
-    // ========== GETTERS ==========
-    
-    /**
-     * Obtiene datos actuales de XP del usuario
-     */
-    public UserXPData getUserXPData(int userId) {
-        return getOrLoadUserXPData(userId);
+    private static UserXPData toXPData(UserStateCache.UserState state) {
+        UserXPData data = new UserXPData();
+        data.userId = state.userId;
+        data.level = state.level;
+        data.currentXP = state.currentXP;
+        data.totalXP = state.totalXP;
+        data.xpRequired = ProgressionCurve.getInstance().xpRequired(state.level);
+        return data;
     }
     
     /**
      * Obtiene nivel actual
      */
     public int getUserLevel(int userId) {
-        UserXPData data = getOrLoadUserXPData(userId);
+        UserXPData data = snapshot(userId);
         return data != null ? data.level : 1;
     }
     
@@ -408,7 +402,7 @@ public class XPSyncService {
      * Obtiene XP actual
      */
     public int getUserCurrentXP(int userId) {
-        UserXPData data = getOrLoadUserXPData(userId);
+        UserXPData data = snapshot(userId);
         return data != null ? data.currentXP : 0;
     }
     
@@ -416,15 +410,15 @@ public class XPSyncService {
      * Obtiene XP requerido para siguiente nivel
      */
     public int getUserXPRequired(int userId) {
-        UserXPData data = getOrLoadUserXPData(userId);
-        return data != null ? data.xpRequired : 1000;
+        UserXPData data = snapshot(userId);
+        return data != null ? data.xpRequired : ProgressionCurve.getInstance().xpRequired(1);
     }
     
     /**
      * Obtiene XP total acumulado
      */
     public int getUserTotalXP(int userId) {
-        UserXPData data = getOrLoadUserXPData(userId);
+        UserXPData data = snapshot(userId);
         return data != null ? data.totalXP : 0;
     }
     
@@ -432,7 +426,7 @@ public class XPSyncService {
      * Obtiene porcentaje de progreso de barra de XP (0.0 - 1.0)
      */
     public double getUserXPProgress(int userId) {
-        UserXPData data = getOrLoadUserXPData(userId);
+        UserXPData data = snapshot(userId);
         if (data == null || data.xpRequired == 0) return 0.0;
         
         double progress = (double) data.currentXP / data.xpRequired;
@@ -443,14 +437,14 @@ public class XPSyncService {
      * Limpia el cache de un usuario (útil para logout)
      */
     public void clearUserCache(int userId) {
-        userXPCache.remove(userId);
+        userStateCache.invalidate(userId);
     }
     
     /**
      * Limpia todo el cache
      */
     public void clearAllCache() {
-        userXPCache.clear();
+        userStateCache.invalidateAll();
     }
     
     // ========== CLASES INTERNAS ==========
@@ -463,7 +457,7 @@ public class XPSyncService {
         public int level = 1;
         public int currentXP = 0;
         public int totalXP = 0;
-        public int xpRequired = 1000; // Nivel 1 requiere 1000 XP
+        public int xpRequired = ProgressionCurve.getInstance().xpRequired(1);
     }
     
     /**
@@ -492,10 +486,26 @@ public class XPSyncService {
             this.leveledUp = leveledUp;
             this.source = source;
         }
+        
+        /**
+         * Fusiona este cambio con uno posterior del mismo usuario (coalescencia por frame).
+         */
+        XPChangeEvent mergedWith(XPChangeEvent later) {
+            return new XPChangeEvent(
+                xpGained + later.xpGained,
+                oldLevel,
+                later.newLevel,
+                oldCurrentXP,
+                later.newCurrentXP,
+                later.xpRequired,
+                leveledUp || later.leveledUp,
+                later.source
+            );
+        }
     }
     
     /**
-     * Evento simple de actividad (sin actualización UI)
+     * XP pendiente de aplicar: lo que encolan los award*() para la franja del usuario
      */
     public static class XPEvent {
         public int userId;
@@ -4,6 +4,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 
+import com.ctrlaltquest.db.DatabaseConnection;
+import com.ctrlaltquest.services.ActivityMonitorService;
+import com.ctrlaltquest.services.ActivityWriteBehindService;
+import com.ctrlaltquest.services.AppExecutors;
+import com.ctrlaltquest.services.MachineInfoService;
+import com.ctrlaltquest.services.UsageLogMaintenanceService;
+import com.ctrlaltquest.services.XPSyncService;
 import com.ctrlaltquest.ui.utils.KeyBindingManager;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.WindowManager;
@@ -17,13 +24,25 @@ import javafx.stage.Stage;
 
 public class AppLauncher extends Application {
 
+    @Override
+    public void init() {
+        // Hilo del launcher, antes de start(): particiones del mes listas antes del primer flush de actividad
+        UsageLogMaintenanceService.getInstance().ensurePartitionsNow();
+    }
+
     @Override
     public void start(Stage stage) throws Exception {
         // 1. Cargar fuentes al inicio
         loadCustomFont("/assets/fonts/pixelcastle/Pixelcastle-Regular.otf");
         loadCustomFont("/assets/fonts/runewood/Runewood.ttf");
 
-        // 2. Cargar el FXML inicial (Splash o Login)
+        // 2. Mantenimiento de app_usage_logs en segundo plano (agregados, particiones, compactación, retención)
+        UsageLogMaintenanceService.getInstance().start();
+
+        // 2b. Datos del equipo y geolocalización en segundo plano: listos antes del primer login
+        MachineInfoService.getInstance().prefetch();
+
+        // 3. Cargar el FXML inicial (Splash o Login)
         URL fxmlUrl = getClass().getResource("/fxml/splash.fxml");
         if (fxmlUrl == null) {
             System.err.println("ERROR CRÍTICO: No se encontró /fxml/splash.fxml");
@@ -56,7 +75,7 @@ public class AppLauncher extends Application {
             WindowManager windowManager = WindowManager.getInstance();
             windowManager.initialize(stage);
             
-            // 3. MOSTRAR Y MAXIMIZAR
+            // 4. MOSTRAR Y MAXIMIZAR
             // Importante: show() debe ir ANTES de setMaximized(true) para asegurar
             // que el sistema operativo calcule bien los bordes de la pantalla.
             stage.show();
@@ -68,6 +87,18 @@ public class AppLauncher extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        // Cerrar el segmento de foco abierto, volcar la actividad pendiente y liberar
+        // las conexiones del pool al cerrar la aplicación
+        ActivityMonitorService.getInstance().stopMonitoring();
+        UsageLogMaintenanceService.getInstance().shutdown();
+        AppExecutors.shutdown();
+        XPSyncService.getInstance().shutdown();
+        ActivityWriteBehindService.getInstance().shutdown();
+        DatabaseConnection.shutdown();
+    }
+
     private void loadCustomFont(String path) {
         try (InputStream is = getClass().getResourceAsStream(path)) {
             if (is != null) {
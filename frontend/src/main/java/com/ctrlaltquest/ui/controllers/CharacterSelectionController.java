@@ -7,13 +7,13 @@ import java.util.Map;
 
 import com.ctrlaltquest.dao.CharacterDAO;
 import com.ctrlaltquest.models.Character;
+import com.ctrlaltquest.ui.utils.FxQueue;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
 import com.ctrlaltquest.ui.utils.WindowManager;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
-import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -255,7 +255,7 @@ public class CharacterSelectionController {
     }
 
     private void showConfirmDialog(String title, String content, Runnable onConfirm) {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             Stage dialogStage = new Stage();
             dialogStage.initModality(Modality.APPLICATION_MODAL);
             dialogStage.initOwner(slot1.getScene().getWindow());
@@ -3,11 +3,13 @@ package com.ctrlaltquest.ui.controllers.views;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
 
-import com.ctrlaltquest.dao.CharacterDAO;
 import com.ctrlaltquest.dao.DashboardDAO;
 import com.ctrlaltquest.models.Character;
+import com.ctrlaltquest.services.AppExecutors;
+import com.ctrlaltquest.services.DashboardSnapshot;
+import com.ctrlaltquest.ui.utils.FxQueue;
+import com.ctrlaltquest.ui.utils.ImageCache;
 import com.ctrlaltquest.ui.utils.Toast;
 
 import javafx.animation.FadeTransition;
@@ -16,10 +18,8 @@ import javafx.animation.KeyFrame;
 import javafx.animation.ScaleTransition;
 import javafx.animation.Timeline;
 import javafx.animation.TranslateTransition;
-import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -31,7 +31,6 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.Glow;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
@@ -74,52 +73,23 @@ public class DashboardViewController {
 
     public void setUserId(int userId) {
         this.userId = userId;
-        cargarNombrePersonaje();
         cargarDatosDashboard();
     }
 
     @FXML
     public void refreshStreakData() {
         if (userId == -1) return;
-
-        Task<Void> t = new Task<>() {
-            @Override
-            protected Void call() {
-                try {
-                    XYChart.Series<String, Number> serie = DashboardDAO.getRendimientoSemanal(userId);
-                    Platform.runLater(() -> {
-                        try {
-                            if (streakChart != null) {
-                                streakChart.getData().clear();
-                                streakChart.getData().add(serie);
-                                streakChart.setLegendVisible(false);
-                                aplicarEstilosStreakChart(serie);
-                            }
-
-                            Map<Integer, Character> chars = CharacterDAO.getCharactersByUser(userId);
-                            if (!chars.isEmpty()) {
-                                Character c = chars.values().iterator().next();
-                                if (lblStreakNumber != null) {
-                                    lblStreakNumber.setText(String.valueOf(c.getHealthStreak()));
-                                    animarNumeroRacha(lblStreakNumber);
-                                }
-                            }
-                            Toast.info("Actualizado", "Datos de racha actualizados.");
-                        } catch (Exception ex) {}
-                    });
-                } catch (Exception ex) {}
-                return null;
-            }
-        };
-        Thread th = new Thread(t);
-        th.setDaemon(true);
-        th.start();
+        DashboardSnapshot.getInstance().refresh(userId).thenAcceptAsync(snapshot -> {
+            if (snapshot == null) return;
+            pintarRacha(snapshot);
+            Toast.info("Actualizado", "Datos de racha actualizados.");
+        }, AppExecutors.fx());
     }
 
     public void setPlayerData(Character character) {
         this.currentCharacter = character;
         if (character != null && lblName != null) {
-            Platform.runLater(() -> {
+            FxQueue.runLater(() -> {
                 typewriterEffect(lblName, character.getName().toUpperCase(), 30);
                 lblClass.setText("CLASE: " + (character.getClassId() > 0 ? "CLASE_" + character.getClassId() : "--"));
                 cargarAvatarPreview(character);
@@ -181,219 +151,205 @@ public class DashboardViewController {
 
     // --- LÓGICA DE DATOS ---
 
-    private void cargarNombrePersonaje() {
-        Task<String> taskName = new Task<>() {
-            @Override
-            protected String call() {
-                Map<Integer, Character> chars = CharacterDAO.getCharactersByUser(userId);
-                if (!chars.isEmpty()) {
-                    return chars.values().iterator().next().getName().toUpperCase();
-                }
-                return "HÉROE";
-            }
-        };
-
-        taskName.setOnSucceeded(e -> {
-            if (lblName != null) typewriterEffect(lblName, "HOLA DE NUEVO, " + taskName.getValue(), 50);
-            animarEntradaDashboard();
-        });
-
-        Thread th = new Thread(taskName);
-        th.setDaemon(true);
-        th.start();
-    }
-
+    /**
+     * Todo el dashboard sale de un único snapshot (una consulta, compartida con las modales).
+     */
     private void cargarDatosDashboard() {
         if (userId == -1) return;
+        DashboardSnapshot.getInstance().get(userId).thenAcceptAsync(snapshot -> {
+            if (snapshot == null) return;
+            pintarNombre(snapshot);
+            pintarMisiones(snapshot.misiones);
+            pintarUsoApps(snapshot.usoApps);
+            pintarRacha(snapshot);
+        }, AppExecutors.fx());
+    }
 
-        Task<List<DashboardDAO.MisionResumen>> taskMisiones = new Task<>() {
-            @Override
-            protected List<DashboardDAO.MisionResumen> call() {
-                return DashboardDAO.getMisionesActivas(userId);
-            }
-        };
-
-        taskMisiones.setOnSucceeded(e -> {
-            if (activeMissionsContainer != null) {
-                activeMissionsContainer.getChildren().clear();
-                List<DashboardDAO.MisionResumen> lista = taskMisiones.getValue();
-                if (lista.isEmpty()) {
-                    mostrarMensajeVacio();
-                } else {
-                    int delay = 0;
-                    for (DashboardDAO.MisionResumen m : lista) {
-                        crearFilaMision(m, delay);
-                        delay += 150;
-                    }
-                }
-            }
-        });
+    private void pintarNombre(DashboardDAO.Snapshot snapshot) {
+        String nombre = snapshot.nombrePersonaje != null ? snapshot.nombrePersonaje.toUpperCase() : "HÉROE";
+        if (lblName != null) typewriterEffect(lblName, "HOLA DE NUEVO, " + nombre, 50);
+        animarEntradaDashboard();
+    }
 
-        Task<List<DashboardDAO.AppUsage>> taskUsage = new Task<>() {
-            @Override
-            protected List<DashboardDAO.AppUsage> call() {
-                return DashboardDAO.getAppUsageSummary(userId);
-            }
-        };
+    private void pintarRacha(DashboardDAO.Snapshot snapshot) {
+        if (streakChart != null) {
+            XYChart.Series<String, Number> serie = snapshot.serieXP();
+            streakChart.getData().clear();
+            streakChart.getData().add(serie);
+            streakChart.setLegendVisible(false);
+            aplicarEstilosStreakChart(serie);
+        }
+        if (snapshot.nombrePersonaje != null && lblStreakNumber != null) {
+            lblStreakNumber.setText(String.valueOf(snapshot.rachaSalud));
+            animarNumeroRacha(lblStreakNumber);
+        }
+    }
 
-        taskUsage.setOnSucceeded(e -> {
-            List<DashboardDAO.AppUsage> usage = taskUsage.getValue();
-            currentUsageData = usage;
-            Platform.runLater(() -> {
-                if (usagePie != null) usagePie.getData().clear();
-                if (usageDetails != null) usageDetails.getChildren().clear();
-
-                long total = usage.stream().mapToLong(u -> u.seconds).sum();
-                if (total == 0) {
-                    Label empty = new Label("Sin uso capturado hoy.");
-                    empty.setStyle("-fx-text-fill: #888; -fx-font-size: 12px;");
-                    if (usageDetails != null) usageDetails.getChildren().add(empty);
-                    return;
+    private void pintarMisiones(List<DashboardDAO.MisionResumen> lista) {
+        if (activeMissionsContainer != null) {
+            activeMissionsContainer.getChildren().clear();
+            if (lista.isEmpty()) {
+                mostrarMensajeVacio();
+            } else {
+                int delay = 0;
+                for (DashboardDAO.MisionResumen m : lista) {
+                    crearFilaMision(m, delay);
+                    delay += 150;
                 }
+            }
+        }
+    }
 
-                String[] colors = {
-                    "#FF3D3D", "#00C9B1", "#FFB800", "#C840FF", "#FF6000",
-                    "#00E676", "#FF0066", "#00B0FF", "#AAFF00", "#FF80AB"
-                };
-
-                ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-                int colorIdx = 0;
-
-                for (DashboardDAO.AppUsage u : usage) {
-                    double percent = (double) u.seconds / (double) total * 100.0;
-                    String label = u.appName + "\n(" + (int) percent + "%)";
-                    PieChart.Data d = new PieChart.Data(label, u.seconds);
-                    pieData.add(d);
-
-                    HBox detailRow = new HBox(12);
-                    detailRow.setAlignment(Pos.CENTER_LEFT);
-                    detailRow.setStyle("-fx-padding: 12 10; -fx-background-radius: 10; -fx-background-color: rgba(0,0,0,0.15);");
+    private void pintarUsoApps(List<DashboardDAO.AppUsage> usage) {
+        currentUsageData = usage;
+        if (usagePie != null) usagePie.getData().clear();
+        if (usageDetails != null) usageDetails.getChildren().clear();
 
-                    Region colorDot = new Region();
-                    String color = colors[colorIdx % colors.length];
-                    colorDot.setStyle("-fx-background-color: " + color + "; -fx-background-radius: 6;");
-                    colorDot.setPrefWidth(12);
-                    colorDot.setPrefHeight(12);
+        long total = usage.stream().mapToLong(u -> u.seconds).sum();
+        if (total == 0) {
+            Label empty = new Label("Sin uso capturado hoy.");
+            empty.setStyle("-fx-text-fill: #888; -fx-font-size: 12px;");
+            if (usageDetails != null) usageDetails.getChildren().add(empty);
+            return;
+        }
 
-                    Label appName = new Label(u.appName);
-                    appName.setStyle("-fx-text-fill: #fff; -fx-font-size: 12px; -fx-font-weight: bold;");
-                    appName.setMaxWidth(110);
-                    appName.setWrapText(false);
-                    appName.setTextOverrun(javafx.scene.control.OverrunStyle.ELLIPSIS);
+        String[] colors = {
+            "#FF3D3D", "#00C9B1", "#FFB800", "#C840FF", "#FF6000",
+            "#00E676", "#FF0066", "#00B0FF", "#AAFF00", "#FF80AB"
+        };
 
-                    Label timeLabel = new Label(formatSeconds(u.seconds));
-                    timeLabel.setStyle("-fx-text-fill: " + color + "; -fx-font-size: 11px; -fx-font-weight: bold;");
+        ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
+        int colorIdx = 0;
+
+        for (DashboardDAO.AppUsage u : usage) {
+            double percent = (double) u.seconds / (double) total * 100.0;
+            String label = u.appName + "\n(" + (int) percent + "%)";
+            PieChart.Data d = new PieChart.Data(label, u.seconds);
+            pieData.add(d);
+
+            HBox detailRow = new HBox(12);
+            detailRow.setAlignment(Pos.CENTER_LEFT);
+            detailRow.setStyle("-fx-padding: 12 10; -fx-background-radius: 10; -fx-background-color: rgba(0,0,0,0.15);");
+
+            Region colorDot = new Region();
+            String color = colors[colorIdx % colors.length];
+            colorDot.setStyle("-fx-background-color: " + color + "; -fx-background-radius: 6;");
+            colorDot.setPrefWidth(12);
+            colorDot.setPrefHeight(12);
+
+            Label appName = new Label(u.appName);
+            appName.setStyle("-fx-text-fill: #fff; -fx-font-size: 12px; -fx-font-weight: bold;");
+            appName.setMaxWidth(110);
+            appName.setWrapText(false);
+            appName.setTextOverrun(javafx.scene.control.OverrunStyle.ELLIPSIS);
+
+            Label timeLabel = new Label(formatSeconds(u.seconds));
+            timeLabel.setStyle("-fx-text-fill: " + color + "; -fx-font-size: 11px; -fx-font-weight: bold;");
+
+            ProgressBar progressBar = new ProgressBar((double) u.seconds / total);
+            progressBar.setStyle("-fx-accent: " + color + "; -fx-control-inner-background: rgba(0,0,0,0.3);");
+            progressBar.setPrefHeight(4);
+            progressBar.setMaxWidth(100);
+            HBox.setHgrow(progressBar, Priority.SOMETIMES);
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+
+            detailRow.getChildren().addAll(colorDot, appName, spacer, progressBar, timeLabel);
+
+            final String finalColor = color;
+            detailRow.setOnMouseEntered(ev -> {
+                ScaleTransition scaleHover = new ScaleTransition(Duration.millis(150), detailRow);
+                scaleHover.setToX(1.02);
+                scaleHover.setToY(1.02);
+                scaleHover.play();
+                detailRow.setStyle("-fx-padding: 12 10; -fx-background-radius: 10; -fx-background-color: rgba(" + extraerRGB(finalColor) + ", 0.25); -fx-border-color: " + finalColor + "; -fx-border-radius: 10; -fx-border-width: 1.5;");
+                detailRow.setEffect(new DropShadow(15, Color.web(finalColor, 0.5)));
+            });
 
-                    ProgressBar progressBar = new ProgressBar((double) u.seconds / total);
-                    progressBar.setStyle("-fx-accent: " + color + "; -fx-control-inner-background: rgba(0,0,0,0.3);");
-                    progressBar.setPrefHeight(4);
-                    progressBar.setMaxWidth(100);
-                    HBox.setHgrow(progressBar, Priority.SOMETIMES);
+            detailRow.setOnMouseExited(ev -> {
+                ScaleTransition scaleNormal = new ScaleTransition(Duration.millis(150), detailRow);
+                scaleNormal.setToX(1.0);
+                scaleNormal.setToY(1.0);
+                scaleNormal.play();
+                detailRow.setStyle("-fx-padding: 12 10; -fx-background-radius: 10; -fx-background-color: rgba(0,0,0,0.15);");
+                detailRow.setEffect(null);
+            });
 
-                    Region spacer = new Region();
-                    HBox.setHgrow(spacer, Priority.ALWAYS);
+            usageDetails.getChildren().add(detailRow);
+            colorIdx++;
+        }
 
-                    detailRow.getChildren().addAll(colorDot, appName, spacer, progressBar, timeLabel);
+        if (usagePie != null) {
+            usagePie.setData(pieData);
+            usagePie.setStyle("-fx-font-size: 10px; -fx-font-weight: bold;");
+
+            colorIdx = 0;
+            for (PieChart.Data d : pieData) {
+                String color = colors[colorIdx % colors.length];
+                Node sliceNode = d.getNode();
+                if (sliceNode != null) {
+                    sliceNode.setStyle("-fx-pie-color: " + color + ";");
+
+                    ScaleTransition entradaScale = new ScaleTransition(Duration.millis(700 + colorIdx * 100), sliceNode);
+                    entradaScale.setFromX(0.5);
+                    entradaScale.setFromY(0.5);
+                    entradaScale.setToX(1.0);
+                    entradaScale.setToY(1.0);
+                    entradaScale.setInterpolator(Interpolator.EASE_OUT);
+                    entradaScale.play();
 
                     final String finalColor = color;
-                    detailRow.setOnMouseEntered(ev -> {
-                        ScaleTransition scaleHover = new ScaleTransition(Duration.millis(150), detailRow);
-                        scaleHover.setToX(1.02);
-                        scaleHover.setToY(1.02);
-                        scaleHover.play();
-                        detailRow.setStyle("-fx-padding: 12 10; -fx-background-radius: 10; -fx-background-color: rgba(" + extraerRGB(finalColor) + ", 0.25); -fx-border-color: " + finalColor + "; -fx-border-radius: 10; -fx-border-width: 1.5;");
-                        detailRow.setEffect(new DropShadow(15, Color.web(finalColor, 0.5)));
+                    sliceNode.setOnMouseEntered(ev -> {
+                        ScaleTransition hoverScale = new ScaleTransition(Duration.millis(250), sliceNode);
+                        hoverScale.setToX(1.15);
+                        hoverScale.setToY(1.15);
+                        hoverScale.setInterpolator(Interpolator.EASE_OUT);
+                        hoverScale.play();
+                        DropShadow brillanteShadow = new DropShadow(40, Color.web(finalColor, 1.0));
+                        brillanteShadow.setRadius(25);
+                        sliceNode.setEffect(brillanteShadow);
+                        sliceNode.setCursor(javafx.scene.Cursor.HAND);
+                        mostrarTooltipSegmento(d, finalColor);
                     });
 
-                    detailRow.setOnMouseExited(ev -> {
-                        ScaleTransition scaleNormal = new ScaleTransition(Duration.millis(150), detailRow);
-                        scaleNormal.setToX(1.0);
-                        scaleNormal.setToY(1.0);
-                        scaleNormal.play();
-                        detailRow.setStyle("-fx-padding: 12 10; -fx-background-radius: 10; -fx-background-color: rgba(0,0,0,0.15);");
-                        detailRow.setEffect(null);
+                    sliceNode.setOnMouseExited(ev -> {
+                        ScaleTransition normalScale = new ScaleTransition(Duration.millis(200), sliceNode);
+                        normalScale.setToX(1.0);
+                        normalScale.setToY(1.0);
+                        normalScale.setInterpolator(Interpolator.EASE_OUT);
+                        normalScale.play();
+                        sliceNode.setEffect(null);
+                        sliceNode.setCursor(javafx.scene.Cursor.DEFAULT);
                     });
 
-                    usageDetails.getChildren().add(detailRow);
-                    colorIdx++;
-                }
-
-                if (usagePie != null) {
-                    usagePie.setData(pieData);
-                    usagePie.setStyle("-fx-font-size: 10px; -fx-font-weight: bold;");
-
-                    colorIdx = 0;
-                    for (PieChart.Data d : pieData) {
-                        String color = colors[colorIdx % colors.length];
-                        Node sliceNode = d.getNode();
-                        if (sliceNode != null) {
-                            sliceNode.setStyle("-fx-pie-color: " + color + ";");
-
-                            ScaleTransition entradaScale = new ScaleTransition(Duration.millis(700 + colorIdx * 100), sliceNode);
-                            entradaScale.setFromX(0.5);
-                            entradaScale.setFromY(0.5);
-                            entradaScale.setToX(1.0);
-                            entradaScale.setToY(1.0);
-                            entradaScale.setInterpolator(Interpolator.EASE_OUT);
-                            entradaScale.play();
-
-                            final String finalColor = color;
-                            sliceNode.setOnMouseEntered(ev -> {
-                                ScaleTransition hoverScale = new ScaleTransition(Duration.millis(250), sliceNode);
-                                hoverScale.setToX(1.15);
-                                hoverScale.setToY(1.15);
-                                hoverScale.setInterpolator(Interpolator.EASE_OUT);
-                                hoverScale.play();
-                                DropShadow brillanteShadow = new DropShadow(40, Color.web(finalColor, 1.0));
-                                brillanteShadow.setRadius(25);
-                                sliceNode.setEffect(brillanteShadow);
-                                sliceNode.setCursor(javafx.scene.Cursor.HAND);
-                                mostrarTooltipSegmento(d, finalColor);
-                            });
-
-                            sliceNode.setOnMouseExited(ev -> {
-                                ScaleTransition normalScale = new ScaleTransition(Duration.millis(200), sliceNode);
-                                normalScale.setToX(1.0);
-                                normalScale.setToY(1.0);
-                                normalScale.setInterpolator(Interpolator.EASE_OUT);
-                                normalScale.play();
-                                sliceNode.setEffect(null);
-                                sliceNode.setCursor(javafx.scene.Cursor.DEFAULT);
-                            });
-
-                            sliceNode.setOnMouseClicked(ev -> {
-                                mostrarTooltipSegmento(d, finalColor);
-                                ScaleTransition pulse1 = new ScaleTransition(Duration.millis(150), sliceNode);
-                                pulse1.setToX(1.20);
-                                pulse1.setToY(1.20);
-                                pulse1.setOnFinished(finishEvent -> {
-                                    ScaleTransition pulse2 = new ScaleTransition(Duration.millis(150), sliceNode);
-                                    pulse2.setToX(1.15);
-                                    pulse2.setToY(1.15);
-                                    pulse2.play();
-                                });
-                                pulse1.play();
-                            });
-                        }
-                        colorIdx++;
-                    }
-
-                    // Estilos oscuros para leyenda y etiquetas del PieChart
-                    Platform.runLater(() -> {
-                        usagePie.lookupAll(".chart-pie-label").forEach(n ->
-                            n.setStyle("-fx-fill: #e0e0e0; -fx-font-size: 10px; -fx-font-weight: bold;")
-                        );
-                        usagePie.lookupAll(".chart-legend").forEach(n ->
-                            n.setStyle("-fx-background-color: transparent;")
-                        );
+                    sliceNode.setOnMouseClicked(ev -> {
+                        mostrarTooltipSegmento(d, finalColor);
+                        ScaleTransition pulse1 = new ScaleTransition(Duration.millis(150), sliceNode);
+                        pulse1.setToX(1.20);
+                        pulse1.setToY(1.20);
+                        pulse1.setOnFinished(finishEvent -> {
+                            ScaleTransition pulse2 = new ScaleTransition(Duration.millis(150), sliceNode);
+                            pulse2.setToX(1.15);
+                            pulse2.setToY(1.15);
+                            pulse2.play();
+                        });
+                        pulse1.play();
                     });
                 }
-            });
-        });
+                colorIdx++;
+            }
 
-        Thread t1 = new Thread(taskMisiones); t1.setDaemon(true); t1.start();
-        Thread t3 = new Thread(taskUsage); t3.setDaemon(true); t3.start();
-        refreshStreakData();
+            // Estilos oscuros para leyenda y etiquetas del PieChart
+            FxQueue.runLater(() -> {
+                usagePie.lookupAll(".chart-pie-label").forEach(n ->
+                    n.setStyle("-fx-fill: #e0e0e0; -fx-font-size: 10px; -fx-font-weight: bold;")
+                );
+                usagePie.lookupAll(".chart-legend").forEach(n ->
+                    n.setStyle("-fx-background-color: transparent;")
+                );
+            });
+        }
     }
 
     // --- GENERACIÓN DE UI DINÁMICA ---
@@ -507,15 +463,11 @@ public class DashboardViewController {
 
     private void cargarAvatarPreview(Character c) {
         try {
-            String path = "/assets/images/sprites/class_" + c.getClassId() + "_idle.png";
-            java.net.URL url = getClass().getResource(path);
-            if (url == null) {
-                path = "/assets/images/sprites/class_" + c.getClassId() + ".png";
-                url = getClass().getResource(path);
-            }
-            if (url == null) url = getClass().getResource("/assets/images/sprites/class_1_idle.png");
-            if (url != null && ivProfile != null) {
-                ivProfile.setImage(new Image(url.toExternalForm()));
+            if (ivProfile != null) {
+                ImageCache.getInstance().loadInto(ivProfile, 85, 85,
+                    "/assets/images/sprites/class_" + c.getClassId() + "_idle.png",
+                    "/assets/images/sprites/class_" + c.getClassId() + ".png",
+                    "/assets/images/sprites/class_1_idle.png");
                 // Re-aplicar clip tras cargar imagen
                 aplicarClipCircular();
             }
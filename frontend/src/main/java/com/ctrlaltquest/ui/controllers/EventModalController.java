@@ -3,10 +3,10 @@ package com.ctrlaltquest.ui.controllers;
 import com.ctrlaltquest.models.EventType;
 import com.ctrlaltquest.services.EventContextualService;
 import com.ctrlaltquest.services.EventContextualService.ContextualEvent;
+import com.ctrlaltquest.ui.utils.FxQueue;
 import com.ctrlaltquest.ui.utils.Toast;
 
 import javafx.animation.*;
-import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
@@ -229,7 +229,7 @@ public class EventModalController {
         lblTypingFeedback.setText("");
         lblProgressLabel.setText("PALABRAS ESCRITAS");
         lblProgressValue.setText("0 / " + wordsToType.size());
-        Platform.runLater(() -> txtInput.requestFocus());
+        FxQueue.runLater(() -> txtInput.requestFocus());
     }
 
     // ─── Pasivo ───────────────────────────────────────────────────────────────
@@ -519,12 +519,12 @@ public class EventModalController {
     private void timeoutEvento() {
         limpiarTimers();
         EventContextualService.getInstance().completeEvent(userId, currentEvent.id, false);
-        Platform.runLater(() -> Toast.error("⏰ Tiempo agotado", "Sin recompensa."));
+        FxQueue.runLater(() -> Toast.error("⏰ Tiempo agotado", "Sin recompensa."));
         cerrarConAnimacion();
     }
 
     private void cerrarConAnimacion() {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             FadeTransition fade = new FadeTransition(Duration.millis(300), rootContainer);
             ScaleTransition scale = new ScaleTransition(Duration.millis(300), rootContainer);
             fade.setToValue(0.0);
@@ -570,7 +570,7 @@ public class EventModalController {
                 Image img = new Image(url.toExternalForm(), 200, 200, true, true, true);
                 img.progressProperty().addListener((obs, old, prog) -> {
                     if (prog.doubleValue() >= 1.0 && !img.isError()) {
-                        Platform.runLater(() -> imgEvent.setImage(img));
+                        FxQueue.runLater(() -> imgEvent.setImage(img));
                     }
                 });
             }
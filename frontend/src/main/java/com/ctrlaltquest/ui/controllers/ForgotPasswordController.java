@@ -5,6 +5,7 @@ import java.net.URL;
 import java.util.regex.Pattern;
 
 import com.ctrlaltquest.dao.AuthDAO;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.AuditService;
 import com.ctrlaltquest.services.EmailService;
 import com.ctrlaltquest.ui.utils.SoundManager;
@@ -142,7 +143,7 @@ public class ForgotPasswordController {
             showAlert("Error Arcano", "No pudimos contactar con el oráculo: " + error.getMessage());
         });
 
-        new Thread(recoverTask).start();
+        AppExecutors.io().execute(recoverTask);
     }
 
     private void abrirVentanaReset(String email) {
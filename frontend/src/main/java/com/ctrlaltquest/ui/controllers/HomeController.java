@@ -4,23 +4,34 @@ import java.io.IOException;
 import java.net.URL;
 import java.time.LocalTime;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.ctrlaltquest.dao.AchievementsDAO;
 import com.ctrlaltquest.dao.ActivityDAO;
 import com.ctrlaltquest.dao.CharacterDAO;
 import com.ctrlaltquest.dao.MissionsDAO;
 import com.ctrlaltquest.models.Character;
+import com.ctrlaltquest.services.AchievementEngine;
 import com.ctrlaltquest.services.ActivityMonitorService;
+import com.ctrlaltquest.services.ActivityWriteBehindService;
+import com.ctrlaltquest.services.AppExecutors;
+import com.ctrlaltquest.services.DailyUsageTracker;
+import com.ctrlaltquest.services.DashboardSnapshot;
 import com.ctrlaltquest.services.EventContextualListener;
 import com.ctrlaltquest.services.EventContextualService;
+import com.ctrlaltquest.services.ForegroundWindowSampler;
+import com.ctrlaltquest.services.ProgressionCurve;
 import com.ctrlaltquest.services.SessionManager;
+import com.ctrlaltquest.services.TitleClassifier;
 import com.ctrlaltquest.services.XPChangeListener;
 import com.ctrlaltquest.services.XPSyncService;
+import com.ctrlaltquest.ui.utils.FxQueue;
+import com.ctrlaltquest.ui.utils.ImageCache;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
+import com.ctrlaltquest.ui.utils.ViewLifecycleManager;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
@@ -35,7 +46,6 @@ import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Tooltip;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.GaussianBlur;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
@@ -91,16 +101,22 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
     private MediaPlayer videoPlayer;
     private Character   currentCharacter;
-    private int         dbSessionId = -1;
+    private volatile int dbSessionId = -1;
 
     private final ActivityMonitorService monitorService = ActivityMonitorService.getInstance();
     private boolean isMonitoring = true;
-    private Thread  monitorThread;
+    private Runnable stopFocusPanel;   // baja del muestreador de foco (panel de actividad)
 
-    private final Map<String, Node>   viewCache       = new HashMap<>();
-    private final Map<String, Object> controllerCache = new HashMap<>();
+    // Vistas del Hub: caché con precarga, desalojo por memoria y onShow/onHide
+    private final ViewLifecycleManager viewManager =
+        new ViewLifecycleManager("/fxml/views/", Set.of("dashboard_view"));
+    private static final List<String> PREWARM_VIEWS = Arrays.asList(System.getProperty(
+        "ctrlaltquest.views.prewarm", "activity_view,missions_view,character_panel,achievements_view").split(","));
     private String currentViewName = "";
 
+    // Espera máxima a la sesión de actividad que abre el registro del login en segundo plano
+    private static final long SESSION_WAIT_MS = Long.getLong("ctrlaltquest.session.attachWaitMs", 10_000L);
+
     // Easter eggs
     private int  avatarClickCount   = 0;
     private long lastAvatarClickTime = 0;
@@ -133,7 +149,7 @@ public class HomeController implements XPChangeListener, EventContextualListener
         toastContainer.setStyle("-fx-background-color: transparent;");
         toastContainer.setMouseTransparent(true);
         Toast.initialize(toastContainer);
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             try {
                 StackPane root = (StackPane) mainLayout.getScene().getRoot();
                 if (root != null && !root.getChildren().contains(toastContainer)) {
@@ -147,8 +163,10 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
         try { SoundManager.getInstance().synchronizeMusic(); } catch (Exception e) {}
 
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             loadView("dashboard_view");
+            // Precargar las pestañas probables cuando el dashboard ya terminó de animarse
+            viewManager.prewarm(PREWARM_VIEWS, 1500);
             Toast.success("Bienvenido al Hub", "¡Controla tu aventura desde aquí!");
 
             if (mainLayout.getScene() != null) {
@@ -260,13 +278,13 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
     private void intentarDesbloquearLogro(int id, String title, String msg) {
         int userId = SessionManager.getInstance().getUserId();
-        new Thread(() -> {
+        AppExecutors.io().execute(() -> {
             boolean nuevo = AchievementsDAO.unlockAchievement(userId, id);
-            if (nuevo) Platform.runLater(() -> {
+            if (nuevo) FxQueue.runLater(() -> {
                 try { SoundManager.playSuccessSound(); } catch (Exception e) {}
                 Toast.gold("🏆 " + title, msg);
             });
-        }).start();
+        });
     }
 
     // ══ DATOS DEL JUGADOR ════════════════════════════════════════════════════
@@ -275,13 +293,14 @@ public class HomeController implements XPChangeListener, EventContextualListener
         if (character == null) return;
         this.currentCharacter = character;
 
-        new Thread(() -> {
+        AppExecutors.io().execute(() -> {
             try {
                 int userId = SessionManager.getInstance().getUserId();
-                this.dbSessionId = ActivityDAO.iniciarSesion(userId);
-
                 refreshCharacterData();
                 MissionsDAO.inicializarMisionesGlobalesParaUsuario(userId);
+                TitleClassifier.getInstance().reloadFromDatabase();
+                AchievementEngine.getInstance().refresh(userId);
+                DailyUsageTracker.getInstance().hydrate(userId);
                 XPSyncService.getInstance().addXPChangeListener(HomeController.this);
                 EventContextualService.getInstance().addEventListener(this);
                 EventContextualService.getInstance().startEventGenerator(userId);
@@ -290,13 +309,35 @@ public class HomeController implements XPChangeListener, EventContextualListener
                 if (now.getHour() == 3 && now.getMinute() == 33)
                     intentarDesbloquearLogro(902, "Viajero del Tiempo", "Entraste a las 3:33 AM... 👻");
 
+                // La sesión solo hace falta para monitorizar: se espera aquí, con Home ya cargado
+                this.dbSessionId = abrirSesionDeActividad(userId);
                 monitorService.startMonitoring(userId);
             } catch (Exception e) {
                 System.err.println("❌ Error en initPlayerData: " + e.getMessage());
             }
-        }).start();
+        });
 
-        Platform.runLater(this::actualizarUI);
+        FxQueue.runLater(this::actualizarUI);
+    }
+
+    /**
+     * Reutiliza la sesión de actividad que abre el registro del login (AuthDAO) en segundo
+     * plano; solo si no llega a tiempo (o falló) se abre una aquí y se adjunta al SessionManager,
+     * con lo que la del login, si llega después, se descarta.
+     */
+    private int abrirSesionDeActividad(int userId) throws InterruptedException {
+        SessionManager session = SessionManager.getInstance();
+        int sessionId = session.awaitSessionId(SESSION_WAIT_MS);
+        if (sessionId != -1) {
+            ActivityDAO.actualizarRacha(userId);
+            return sessionId;
+        }
+        sessionId = ActivityDAO.iniciarSesion(userId);
+        if (sessionId != -1 && !session.attachSession(userId, session.getDeviceId(), sessionId)
+                && session.getUserId() == userId) {
+            session.setCurrentSessionId(sessionId);   // el registro del login ya se dio por fallido
+        }
+        return sessionId;
     }
 
     public void actualizarUI() {
@@ -309,7 +350,7 @@ public class HomeController implements XPChangeListener, EventContextualListener
             cargarAvatarSmall(currentCharacter.getClassId());
 
             int xpActual    = currentCharacter.getCurrentXp();
-            int xpRequerido = currentCharacter.getLevel() * 1000;
+            int xpRequerido = ProgressionCurve.getInstance().xpRequired(currentCharacter.getLevel());
             xpBar.setProgress((double) xpActual / xpRequerido);
             lblXPText.setText(xpActual + " / " + xpRequerido + " XP");
 
@@ -325,7 +366,7 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
     public void refreshCharacterData() {
         if (currentCharacter == null) return;
-        new Thread(() -> {
+        AppExecutors.io().execute(() -> {
             try {
                 int userId = SessionManager.getInstance().getUserId();
                 Map<Integer, Character> chars = CharacterDAO.getCharactersByUser(userId);
@@ -333,22 +374,19 @@ public class HomeController implements XPChangeListener, EventContextualListener
                     Character refreshed = chars.get(currentCharacter.getSlotIndex());
                     if (refreshed != null) {
                         this.currentCharacter = refreshed;
-                        Platform.runLater(this::actualizarUI);
+                        FxQueue.runLater(this::actualizarUI);
                     }
                 }
             } catch (Exception ignored) {}
-        }).start();
+        });
     }
 
     private void cargarAvatarSmall(int classId) {
         try {
-            String path = "/assets/images/sprites/base/class_" + classId + ".png";
-            URL url = getClass().getResource(path);
-            if (url == null) url = getClass().getResource("/assets/images/sprites/class_" + classId + "_idle.png");
-            if (url != null) {
-                imgAvatarSmall.setImage(new Image(url.toExternalForm()));
-                aplicarClipCircular(imgAvatarSmall, 25);
-            }
+            ImageCache.getInstance().loadInto(imgAvatarSmall, 50, 50,
+                "/assets/images/sprites/base/class_" + classId + ".png",
+                "/assets/images/sprites/class_" + classId + "_idle.png");
+            aplicarClipCircular(imgAvatarSmall, 25);
         } catch (Exception ignored) {}
     }
 
@@ -366,22 +404,12 @@ public class HomeController implements XPChangeListener, EventContextualListener
     private void loadView(String viewName) {
         if (viewName.equals(currentViewName)) return;
         try {
-            Node nextView   = viewCache.get(viewName);
-            Object controller = controllerCache.get(viewName);
-
-            if (nextView == null) {
-                String path = "/fxml/views/" + viewName + ".fxml";
-                URL url = getClass().getResource(path);
-                if (url == null) return;
-                FXMLLoader loader = new FXMLLoader(url);
-                nextView    = loader.load();
-                controller  = loader.getController();
-                viewCache.put(viewName, nextView);
-                controllerCache.put(viewName, controller);
-            }
+            ViewLifecycleManager.CachedView cached = viewManager.get(viewName);
+            if (cached == null) return;
 
-            if (controller != null) injectCharacterData(controller);
-            animarCambioDeVista(nextView);
+            if (cached.controller != null) injectCharacterData(cached.controller);
+            animarCambioDeVista(cached.view);
+            viewManager.markShown(viewName);
             currentViewName = viewName;
         } catch (IOException e) { e.printStackTrace(); }
     }
@@ -466,26 +494,20 @@ public class HomeController implements XPChangeListener, EventContextualListener
     private void resumeTracking() {
         playClick();
         isMonitoring = true;
-        if (monitorThread == null || !monitorThread.isAlive()) iniciarMonitoreoActividad();
+        if (stopFocusPanel == null) iniciarMonitoreoActividad();
     }
 
     // ══ MONITOREO ════════════════════════════════════════════════════════════
 
     private void iniciarMonitoreoActividad() {
-        monitorThread = new Thread(() -> {
-            while (isMonitoring) {
-                try {
-                    String title      = monitorService.getActiveWindowTitle();
-                    boolean productive = monitorService.isProductive(title);
-                    EventContextualService.getInstance().updateCurrentActivity(title);
-                    Platform.runLater(() -> actualizarPanelActividad(title, productive));
-                    Thread.sleep(2000);
-                } catch (InterruptedException e) { break; }
-                catch (Exception ignored) {}
+        // El panel solo cambia cuando cambia la ventana: FocusChanged del muestreador compartido
+        stopFocusPanel = ForegroundWindowSampler.getInstance().subscribe(new ForegroundWindowSampler.FocusListener() {
+            @Override
+            public void onFocusChanged(ForegroundWindowSampler.FocusChanged event) {
+                if (!isMonitoring) return;
+                FxQueue.runLater(() -> actualizarPanelActividad(event.title, event.category.productive));
             }
         });
-        monitorThread.setDaemon(true);
-        monitorThread.start();
     }
 
     private void actualizarPanelActividad(String currentTitle, boolean isProductive) {
@@ -528,7 +550,7 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
     public void setVideoPlaying(boolean shouldPlay) {
         if (videoPlayer == null) return;
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             if (shouldPlay) videoPlayer.play(); else videoPlayer.pause();
         });
     }
@@ -544,14 +566,18 @@ public class HomeController implements XPChangeListener, EventContextualListener
             ft.setToValue(1.0); ft.play();
         }
         isMonitoring = false;
+        if (stopFocusPanel != null) { stopFocusPanel.run(); stopFocusPanel = null; }
         monitorService.stopMonitoring();
-        new Thread(() -> {
+        AppExecutors.io().execute(() -> {
             try {
+                // Vaciar los ticks pendientes antes de cerrar la sesión en BD
+                XPSyncService.getInstance().drain(2000);
+                ActivityWriteBehindService.getInstance().drain(5000);
                 if (dbSessionId != -1) ActivityDAO.cerrarSesion(dbSessionId);
                 Thread.sleep(800);
-                Platform.runLater(this::volverALogin);
+                FxQueue.runLater(this::volverALogin);
             } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-        }).start();
+        });
     }
 
     private void volverALogin() {
@@ -575,10 +601,14 @@ public class HomeController implements XPChangeListener, EventContextualListener
     private void cleanup() {
         try {
             if (videoPlayer != null) { videoPlayer.stop(); videoPlayer.dispose(); videoPlayer = null; }
-            viewCache.clear(); controllerCache.clear();
+            viewManager.dispose();
             XPSyncService.getInstance().removeXPChangeListener(this);
             EventContextualService.getInstance().removeEventListener(this);
             EventContextualService.getInstance().stopEventGenerator(SessionManager.getInstance().getUserId());
+            AchievementEngine.getInstance().forgetUser(SessionManager.getInstance().getUserId());
+            MissionsDAO.olvidarUsuario(SessionManager.getInstance().getUserId());
+            DailyUsageTracker.getInstance().forgetUser(SessionManager.getInstance().getUserId());
+            DashboardSnapshot.getInstance().forgetUser(SessionManager.getInstance().getUserId());
             SessionManager.getInstance().logout();
         } catch (Exception ignored) {}
     }
@@ -588,7 +618,7 @@ public class HomeController implements XPChangeListener, EventContextualListener
     @Override
     public void onXPChanged(int userId, XPSyncService.XPChangeEvent event) {
         if (currentCharacter == null || SessionManager.getInstance().getUserId() != userId) return;
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             try {
                 XPSyncService.UserXPData data = XPSyncService.getInstance().getUserXPData(userId);
                 if (data == null) return;
@@ -606,8 +636,13 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
     @Override
     public void onLevelUp(int userId, int newLevel) {
+        onLevelsGained(userId, newLevel - 1, newLevel);
+    }
+
+    @Override
+    public void onLevelsGained(int userId, int oldLevel, int newLevel) {
         if (currentCharacter == null || SessionManager.getInstance().getUserId() != userId) return;
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             try {
                 lblLevel.setText(String.valueOf(newLevel));
                 currentCharacter.setLevel(newLevel);
@@ -622,7 +657,10 @@ public class HomeController implements XPChangeListener, EventContextualListener
                 scale.play(); fade.play();
 
                 try { SoundManager.playLevelUpSound(); } catch (Exception e) {}
-                Toast.success("🎉 ¡SUBIDA DE NIVEL!", "¡Alcanzaste el NIVEL " + newLevel + "! 🎊");
+                int niveles = newLevel - oldLevel;
+                Toast.success("🎉 ¡SUBIDA DE NIVEL!", niveles > 1
+                    ? "¡+" + niveles + " niveles! Ahora eres NIVEL " + newLevel + " 🎊"
+                    : "¡Alcanzaste el NIVEL " + newLevel + "! 🎊");
             } catch (Exception ignored) {}
         });
     }
@@ -640,7 +678,7 @@ public class HomeController implements XPChangeListener, EventContextualListener
      */
     @Override
     public void onEventStarted(int userId, EventContextualService.ContextualEvent event) {
-        Platform.runLater(() -> abrirEventoModal(userId, event));
+        FxQueue.runLater(() -> abrirEventoModal(userId, event));
     }
 
     /**
@@ -703,14 +741,14 @@ public class HomeController implements XPChangeListener, EventContextualListener
 
     @Override
     public void onEventCriticalPhase(int userId, EventContextualService.ContextualEvent event) {
-        Platform.runLater(() ->
+        FxQueue.runLater(() ->
             Toast.warning("⚠️ FASE CRÍTICA", "¡El jefe se está enfureciendo!"));
     }
 
     @Override
     public void onEventCompleted(int userId, EventContextualService.ContextualEvent event,
                                  CompletionStatus status, int xpReward, int coinReward) {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             if (status == CompletionStatus.VICTORY) {
                 refreshCharacterData();
                 // El Toast de victoria ya lo lanza EventModalController
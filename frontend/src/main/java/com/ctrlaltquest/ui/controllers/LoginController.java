@@ -9,6 +9,7 @@ import com.ctrlaltquest.dao.AuthDAO;
 import com.ctrlaltquest.dao.AuthDAO.LoginResult;
 import com.ctrlaltquest.dao.CharacterDAO;
 import com.ctrlaltquest.models.Character;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.AuditService;
 import com.ctrlaltquest.services.LoginAttemptService;
 import com.ctrlaltquest.services.SessionManager;
@@ -142,7 +143,7 @@ public class LoginController {
             Toast.error("Error de Conexión", "No se pudo establecer contacto con la base de datos.");
         });
 
-        new Thread(loginTask).start();
+        AppExecutors.io().execute(loginTask);
     }
 
     /**
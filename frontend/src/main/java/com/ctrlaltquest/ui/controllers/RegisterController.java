@@ -5,6 +5,7 @@ import java.net.URL;
 import java.util.regex.Pattern;
 
 import com.ctrlaltquest.dao.AuthDAO;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.AuditService;
 import com.ctrlaltquest.services.EmailService;
 import com.ctrlaltquest.ui.utils.SoundManager;
@@ -323,7 +324,7 @@ public class RegisterController {
             AuditService.log(null, "REGISTRO_FALLIDO", "Error: " + error.getMessage());
         });
 
-        new Thread(registerTask).start();
+        AppExecutors.io().execute(registerTask);
     }
 
     private void abrirVentanaVerificacion(String email) {
@@ -5,12 +5,13 @@ import java.net.URL;
 import java.sql.SQLException;
 
 import com.ctrlaltquest.dao.AuthDAO;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.AuditService;
+import com.ctrlaltquest.ui.utils.FxQueue;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
 
 import javafx.animation.FadeTransition;
-import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -126,20 +127,20 @@ public class ResetPasswordController {
         btnReset.setDisable(true);
         SoundManager.playClickSound();
 
-        new Thread(() -> {
+        AppExecutors.io().execute(() -> {
             try {
                 if (authDAO.verifyResetCode(userEmail, code)) {
                     if (authDAO.resetPassword(userEmail, newPass)) {
                         AuditService.log(null, "PASSWORD_RESET_SUCCESS", "Usuario: " + userEmail);
                         
-                        Platform.runLater(() -> {
+                        FxQueue.runLater(() -> {
                             loadingLayer.setVisible(false);
                             showToast("¡Éxito!", "Tu nueva llave ha sido forjada correctamente.", Toast.ToastType.SUCCESS);
                             regresarAlLoginGlobal();
                         });
                     }
                 } else {
-                    Platform.runLater(() -> {
+                    FxQueue.runLater(() -> {
                         loadingLayer.setVisible(false);
                         btnReset.setDisable(false);
                         SoundManager.playErrorSound();
@@ -147,13 +148,13 @@ public class ResetPasswordController {
                     });
                 }
             } catch (SQLException e) {
-                Platform.runLater(() -> {
+                FxQueue.runLater(() -> {
                     loadingLayer.setVisible(false);
                     btnReset.setDisable(false);
                     showToast("Error de BD", "El servidor no responde: " + e.getMessage(), Toast.ToastType.ERROR);
                 });
             }
-        }).start();
+        });
     }
 
     @FXML
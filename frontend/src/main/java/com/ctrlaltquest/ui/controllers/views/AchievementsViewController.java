@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.ctrlaltquest.dao.AchievementsDAO;
 import com.ctrlaltquest.models.Achievement;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.ui.utils.Toast;
 
 import javafx.animation.FadeTransition;
@@ -100,7 +101,7 @@ public class AchievementsViewController {
             }
         });
 
-        new Thread(task).start();
+        AppExecutors.io().execute(task);
     }
 
     private HBox crearFilaLogro(Achievement a) {
@@ -2,14 +2,20 @@ package com.ctrlaltquest.ui.controllers.views;
 
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import com.ctrlaltquest.dao.MissionsDAO;
 import com.ctrlaltquest.dao.UserDAO;
 import com.ctrlaltquest.models.ActivityLog;
 import com.ctrlaltquest.services.ActivityMonitorService;
+import com.ctrlaltquest.services.ForegroundWindowSampler;
+import com.ctrlaltquest.services.XPSyncService;
+import com.ctrlaltquest.ui.utils.FxQueue;
 import com.ctrlaltquest.ui.controllers.HomeController; // Import necesario
 import com.ctrlaltquest.ui.utils.Toast;
+import com.ctrlaltquest.ui.utils.ViewLifecycleManager;
 
 import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
@@ -42,7 +48,7 @@ import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 
-public class ActivityViewController {
+public class ActivityViewController implements ViewLifecycleManager.ViewLifecycle {
 
     @FXML private ToggleButton btnToggleMonitor;
     @FXML private Label lblMonitorStatus;
@@ -78,12 +84,14 @@ public class ActivityViewController {
     @FXML private Rectangle bar7;
     @FXML private Rectangle bar8;
 
-    private final ActivityMonitorService monitorService = new ActivityMonitorService();
+    private final ActivityMonitorService monitorService = ActivityMonitorService.getInstance();
     private ObservableList<ActivityLog> logs = FXCollections.observableArrayList();
     private Animation barsAnimation;
+    // Barras y línea de escaneo (bucles infinitos): se pausan mientras la vista no se ve
+    private final List<Animation> animacionesDecorativas = new ArrayList<>();
     
     private boolean isTracking = false;
-    private Thread trackingThread;
+    private Runnable stopFocusTicks;   // baja del muestreador de foco compartido
     
     // Variables de sesión
     private long sessionSeconds = 0;
@@ -173,6 +181,7 @@ public class ActivityViewController {
             scan.setAutoReverse(true);
             scan.setCycleCount(Animation.INDEFINITE);
             scan.play();
+            animacionesDecorativas.add(scan);
         }
         
         // ✅ ANIMATE VISUAL BARS
@@ -201,9 +210,33 @@ public class ActivityViewController {
             animation.setCycleCount(Animation.INDEFINITE);
             animation.setAutoReverse(true);
             animation.play();
+            animacionesDecorativas.add(animation);
         }
     }
 
+    // ── Ciclo de vida en la caché de vistas ─────────────────────────────────
+    // El rastreo (XP y misiones) sigue aunque la vista esté oculta; solo se para lo decorativo.
+
+    @Override
+    public void onShow() {
+        animacionesDecorativas.forEach(Animation::play);
+        if (isTracking && radarAnimation != null) radarAnimation.play();
+    }
+
+    @Override
+    public void onHide() {
+        animacionesDecorativas.forEach(Animation::pause);
+        if (radarAnimation != null) radarAnimation.pause();
+    }
+
+    @Override
+    public void onEvict() {
+        // Sin esto la suscripción al muestreador mantendría vivo el controlador desalojado
+        stopTracking();
+        animacionesDecorativas.forEach(Animation::stop);
+        animacionesDecorativas.clear();
+    }
+
     @FXML
     private void handleToggleMonitor() {
         if (btnToggleMonitor.isSelected()) {
@@ -225,7 +258,8 @@ public class ActivityViewController {
         
         // ✅ GUARDAR EN BD MANUALMENTE
         if (productive) {
-            UserDAO.otorgarRecompensas(currentUserId, 5, 1); // 5 XP, 1 Moneda
+            XPSyncService.getInstance().awardXPFromActivity(currentUserId, 5, "manual_capture"); // 5 XP
+            UserDAO.otorgarMonedas(currentUserId, 1, "Captura Manual"); // 1 Moneda
             MissionsDAO.actualizarProgreso(currentUserId, "time_productivity", 60); // Asumimos 1 min
             
             // ✅ AVISAR AL HOME QUE ACTUALICE LA BARRA SUPERIOR
@@ -252,69 +286,61 @@ public class ActivityViewController {
         statusIndicator.setEffect(new Glow(1.0));
         radarAnimation.play();
 
-        trackingThread = new Thread(this::trackingLoop);
-        trackingThread.setDaemon(true);
-        trackingThread.start();
+        // Un FocusTick por segundo del muestreador compartido (sin sondeo propio)
+        if (stopFocusTicks != null) stopFocusTicks.run();
+        stopFocusTicks = ForegroundWindowSampler.getInstance().subscribe(new ForegroundWindowSampler.FocusListener() {
+            @Override
+            public void onFocusTick(ForegroundWindowSampler.FocusTick tick) {
+                trackingTick(tick);
+            }
+        });
     }
 
-    private void trackingLoop() {
-        while (isTracking) {
-            try {
-                String title = monitorService.getActiveWindowTitle();
-                boolean productive = monitorService.isProductive(title);
-                String timeNow = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+    private void trackingTick(ForegroundWindowSampler.FocusTick tick) {
+        if (!isTracking) return;
+        try {
+            String title = tick.title;
+            boolean productive = tick.category.productive;
+            String timeNow = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
 
-                // ✅ 1. ACTUALIZAR BASE DE DATOS (XP y Misiones)
-                // Hacemos esto fuera del Platform.runLater para no bloquear la UI
-                if (productive) {
-                    // Cada ciclo es de 1 segundo aprox.
-                    // Acumulamos: Damos XP cada 5 segundos para no saturar BD
-                    if (sessionSeconds % 5 == 0) {
-                        // 2 XP cada 5 segs
-                        UserDAO.otorgarRecompensas(currentUserId, 2, 0); 
-                        // 5 segundos de progreso en misiones de productividad
-                        MissionsDAO.actualizarProgreso(currentUserId, "time_productivity", 5);
-                        
-                        // Actualizar variable local visual
-                        sessionXP += 2;
-                        
-                        // ✅ AVISAR AL HOME QUE ACTUALICE LA BARRA SUPERIOR
-                        if (homeController != null) {
-                            homeController.refreshCharacterData();
-                        }
-                    }
-                }
+            // La XP y las misiones las otorga ActivityMonitorService con este mismo flujo
+            // (1 XP por segundo productivo); aquí solo se refleja en pantalla.
+            if (productive) sessionXP += 1;
 
-                // ✅ 2. ACTUALIZAR UI
-                Platform.runLater(() -> {
-                    updateUI(title, productive);
-                    updateSignal();
-                    
-                    if (!title.equals(lastApp)) {
-                        logs.add(0, new ActivityLog(timeNow, title, productive ? "PRODUCTIVO" : "OCIO", "Detectado"));
-                        if (logs.size() > 100) logs.remove(logs.size() - 1);
-                        lastApp = title;
-                    }
-                    
-                    sessionSeconds++;
-                    long hh = sessionSeconds / 3600;
-                    long mm = (sessionSeconds % 3600) / 60;
-                    long ss = sessionSeconds % 60;
-                    lblSessionTime.setText(String.format("%02d:%02d:%02d", hh, mm, ss));
-                    
-                    if (productive && sessionSeconds % 5 == 0) {
-                        lblSessionXP.setText("+" + sessionXP + " XP");
-                        flashLabel(lblSessionXP);
-                    }
-                });
-
-                Thread.sleep(1000);
-            } catch (InterruptedException e) { break; }
+            // ✅ 2. ACTUALIZAR UI
+            FxQueue.runLater(() -> {
+                updateUI(title, productive);
+                updateSignal();
+                
+                if (!title.equals(lastApp)) {
+                    logs.add(0, new ActivityLog(timeNow, title, productive ? "PRODUCTIVO" : "OCIO", "Detectado"));
+                    if (logs.size() > 100) logs.remove(logs.size() - 1);
+                    lastApp = title;
+                }
+                
+                sessionSeconds++;
+                long hh = sessionSeconds / 3600;
+                long mm = (sessionSeconds % 3600) / 60;
+                long ss = sessionSeconds % 60;
+                lblSessionTime.setText(String.format("%02d:%02d:%02d", hh, mm, ss));
+                
+                if (productive && sessionSeconds % 5 == 0) {
+                    lblSessionXP.setText("+" + sessionXP + " XP");
+                    flashLabel(lblSessionXP);
+                }
+            });
+        } catch (Exception e) {
+            // Una excepción no debe cancelar la tarea periódica
+            System.err.println("⚠️ [ActivityView] Error en el tick de rastreo: " + e.getMessage());
         }
     }
 
     private void stopTracking() {
         isTracking = false;
+        if (stopFocusTicks != null) {
+            stopFocusTicks.run();
+            stopFocusTicks = null;
+        }
         stopTrackingUI();
         if(radarAnimation != null) radarAnimation.stop();
         if(radarPulse != null) radarPulse.setOpacity(0);
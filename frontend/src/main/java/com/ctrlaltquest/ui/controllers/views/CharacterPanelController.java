@@ -1,11 +1,11 @@
 package com.ctrlaltquest.ui.controllers.views;
 
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.ctrlaltquest.models.Character;
 import com.ctrlaltquest.models.Item;
+import com.ctrlaltquest.ui.utils.ImageCache;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
 
@@ -20,7 +20,6 @@ import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Tooltip;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.Glow;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.StackPane;
@@ -122,9 +121,7 @@ public class CharacterPanelController {
 
     private void cargarAvatar(int classId) {
         try {
-            String path = "/assets/images/sprites/class_" + classId + "_idle.png";
-            URL url = getClass().getResource(path);
-            if (url != null) imgAvatar.setImage(new Image(url.toExternalForm()));
+            ImageCache.getInstance().loadInto(imgAvatar, 200, 350, "/assets/images/sprites/class_" + classId + "_idle.png");
         } catch (Exception e) {
             System.err.println("No avatar found: " + e.getMessage());
         }
@@ -3,6 +3,7 @@ package com.ctrlaltquest.ui.controllers.views;
 import java.util.List;
 
 import com.ctrlaltquest.dao.DashboardDAO;
+import com.ctrlaltquest.ui.utils.FxQueue;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
@@ -50,7 +51,7 @@ public class ChartExpandedModalController {
     }
 
     private void cargarGraficoExpandido(List<DashboardDAO.AppUsage> usageData) {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             if (chartExpanded == null) return;
 
             long total = usageData.stream().mapToLong(u -> u.seconds).sum();
@@ -129,7 +130,7 @@ public class ChartExpandedModalController {
             // Se hace en un segundo Platform.runLater porque JavaFX crea los
             // nodos de leyenda/labels DESPUÉS de procesar setData(), y no
             // estarán disponibles en el mismo frame de render.
-            Platform.runLater(() -> {
+            FxQueue.runLater(() -> {
                 // Etiquetas flotantes sobre cada rebanada (nombre + %)
                 chartExpanded.lookupAll(".chart-pie-label").forEach(n ->
                     n.setStyle("-fx-fill: #f0f0f0; -fx-font-size: 12px; -fx-font-weight: bold;")
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import com.ctrlaltquest.dao.DashboardDAO;
+import com.ctrlaltquest.ui.utils.FxQueue;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
@@ -72,18 +73,18 @@ public class ListExpandedModalController {
 
         // ── Estilo oscuro del ComboBox vía lookupAll ──────────────────────
         // Se aplica en un Platform.runLater para que el skin ya esté creado
-        Platform.runLater(() -> estilizarComboBox());
+        FxQueue.runLater(() -> estilizarComboBox());
 
         searchField.textProperty().addListener((obs, oldVal, newVal) -> filtrarYOrdenar());
         sortCombo.valueProperty().addListener((obs, oldVal, newVal) -> {
             filtrarYOrdenar();
             // Re-aplicar estilos al cambiar valor (el skin se recrea)
-            Platform.runLater(() -> estilizarComboBox());
+            FxQueue.runLater(() -> estilizarComboBox());
         });
 
         // Estilo al abrir/cerrar el desplegable
         sortCombo.showingProperty().addListener((obs, wasShowing, isShowing) ->
-            Platform.runLater(() -> estilizarComboBox())
+            FxQueue.runLater(() -> estilizarComboBox())
         );
     }
 
@@ -139,7 +140,7 @@ public class ListExpandedModalController {
     }
 
     private void cargarListaExpandida(List<DashboardDAO.AppUsage> usageData) {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             mostrarLista(usageData);
             actualizarEstadisticas(usageData);
         });
@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.ctrlaltquest.dao.MissionsDAO;
 import com.ctrlaltquest.models.Mission;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
 
@@ -120,7 +121,7 @@ public class MissionsViewController {
             Toast.error("Error", "No se pudieron cargar las misiones.");
         });
 
-        new Thread(task).start();
+        AppExecutors.io().execute(task);
     }
 
     private void limpiarContenedores() {
@@ -254,7 +255,7 @@ public class MissionsViewController {
                     Toast.success("Misión Completada", "Has ganado " + m.getXpReward() + " XP y " + m.getCoinReward() + " monedas.");
                 });
                 
-                new Thread(claimTask).start();
+                AppExecutors.io().execute(claimTask);
             });
         } else {
             btnAction.setText("EN PROGRESO");
@@ -1,13 +1,15 @@
 package com.ctrlaltquest.ui.controllers.views;
 
 import java.io.File;
-import java.net.URL;
 
 import com.ctrlaltquest.dao.CharacterDAO;
 import com.ctrlaltquest.dao.MissionsDAO;
 import com.ctrlaltquest.dao.UserDAO;
 import com.ctrlaltquest.models.Character;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.SessionManager;
+import com.ctrlaltquest.ui.utils.FxQueue;
+import com.ctrlaltquest.ui.utils.ImageCache;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
 
@@ -15,7 +17,6 @@ import javafx.animation.FadeTransition;
 import javafx.animation.RotateTransition;
 import javafx.animation.ScaleTransition;
 import javafx.animation.TranslateTransition;
-import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
@@ -27,7 +28,6 @@ import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
 import javafx.scene.effect.Glow;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
@@ -141,15 +141,13 @@ public class ProfileViewController {
             lblJoinDate.setText("ESTADO: OPERATIVO");
         });
         
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        AppExecutors.io().execute(task);
     }
 
     public void setPlayerData(Character c) {
         this.characterData = c;
         if (c != null) {
-            Platform.runLater(() -> {
+            FxQueue.runLater(() -> {
                 lblUsernameHeader.setText(c.getName().toUpperCase());
                 txtUsername.setText(c.getName());
                 cargarAvatar(c.getClassId());
@@ -161,20 +159,10 @@ public class ProfileViewController {
         try {
             // Nota: Aquí se debería leer una ruta personalizada si existe
             // Para mantener compatibilidad con tu sistema de "clases", rotamos imágenes base:
-            String path = "/assets/images/sprites/class_" + classId + "_idle.png";
-            URL url = getClass().getResource(path);
-            
-            if (url == null) {
-                path = "/assets/images/sprites/base/class_" + classId + ".png";
-                url = getClass().getResource(path);
-            }
-            if (url == null) {
-                url = getClass().getResource("/assets/images/sprites/class_1_idle.png");
-            }
-            
-            if (url != null) {
-                imgAvatar.setImage(new Image(url.toExternalForm()));
-            }
+            ImageCache.getInstance().loadInto(imgAvatar, 110, 110,
+                "/assets/images/sprites/class_" + classId + "_idle.png",
+                "/assets/images/sprites/base/class_" + classId + ".png",
+                "/assets/images/sprites/class_1_idle.png");
         } catch (Exception e) {
             System.err.println("⚠️ Error visualizando avatar: " + e.getMessage());
         }
@@ -182,16 +170,11 @@ public class ProfileViewController {
 
     // Método para cargar thumbnails
     private void cargarThumbnails() {
-        thumb1.setImage(new Image(getClass().getResource("/assets/images/sprites/class_1_idle.png").toExternalForm()));
-        thumb2.setImage(new Image(getClass().getResource("/assets/images/sprites/class_2_idle.png").toExternalForm()));
-        thumb3.setImage(new Image(getClass().getResource("/assets/images/sprites/class_3_idle.png").toExternalForm()));
-        thumb4.setImage(new Image(getClass().getResource("/assets/images/sprites/class_4_idle.png").toExternalForm()));
-        thumb5.setImage(new Image(getClass().getResource("/assets/images/sprites/class_5_idle.png").toExternalForm()));
-        thumb6.setImage(new Image(getClass().getResource("/assets/images/sprites/class_6_idle.png").toExternalForm()));
-        thumb7.setImage(new Image(getClass().getResource("/assets/images/sprites/class_7_idle.png").toExternalForm()));
-        thumb8.setImage(new Image(getClass().getResource("/assets/images/sprites/class_8_idle.png").toExternalForm()));
-        thumb9.setImage(new Image(getClass().getResource("/assets/images/sprites/class_9_idle.png").toExternalForm()));
-        thumb10.setImage(new Image(getClass().getResource("/assets/images/sprites/class_10_idle.png").toExternalForm()));
+        // Decodificados a 30 px en segundo plano (antes eran diez sprites completos en el hilo de JavaFX)
+        ImageView[] thumbs = {thumb1, thumb2, thumb3, thumb4, thumb5, thumb6, thumb7, thumb8, thumb9, thumb10};
+        for (int i = 0; i < thumbs.length; i++) {
+            ImageCache.getInstance().loadInto(thumbs[i], 30, 30, "/assets/images/sprites/class_" + (i + 1) + "_idle.png");
+        }
 
         // Añadir hover y click a cada thumbnail
         agregarThumbHover(thumb1, 1);
@@ -245,7 +228,7 @@ public class ProfileViewController {
             if (updateTask.getValue()) Toast.success("IMAGEN ACTUALIZADA", "Seleccionaste la Variante " + classId);
             else Toast.error("ERROR", "No se guardó el cambio.");
         });
-        new Thread(updateTask).start();
+        AppExecutors.io().execute(updateTask);
     }
 
     @FXML
@@ -289,9 +272,7 @@ public class ProfileViewController {
             }
         });
 
-        Thread t = new Thread(updateTask);
-        t.setDaemon(true);
-        t.start();
+        AppExecutors.io().execute(updateTask);
     }
 
     @FXML
@@ -324,9 +305,7 @@ public class ProfileViewController {
             }
         });
         
-        Thread t = new Thread(saveTask);
-        t.setDaemon(true);
-        t.start();
+        AppExecutors.io().execute(saveTask);
     }
 
     @FXML
@@ -353,9 +332,7 @@ public class ProfileViewController {
                 Toast.error("ERROR", "No se pudo actualizar la contraseña.");
             }
         });
-        Thread th = new Thread(t);
-        th.setDaemon(true);
-        th.start();
+        AppExecutors.io().execute(t);
     }
 
     @FXML
@@ -375,9 +352,7 @@ public class ProfileViewController {
                 if(t.getValue()) Toast.success("EXPORTADO", "Archivo CSV generado con éxito en tu equipo.");
                 else Toast.error("ERROR", "Fallo al intentar exportar el archivo.");
             });
-            Thread th = new Thread(t);
-            th.setDaemon(true);
-            th.start();
+            AppExecutors.io().execute(t);
         }
     }
 
@@ -413,7 +388,7 @@ public class ProfileViewController {
     }
     
     private void mostrarAlerta(javafx.scene.control.Alert.AlertType type, String title, String content) {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             switch (type) {
                 case INFORMATION -> Toast.info(title, content);
                 case ERROR -> Toast.error(title, content);
@@ -1,19 +1,18 @@
 package com.ctrlaltquest.ui.controllers.views;
 
 import java.util.List;
-import java.util.Map;
 
-import com.ctrlaltquest.dao.CharacterDAO;
 import com.ctrlaltquest.dao.DashboardDAO;
 import com.ctrlaltquest.models.Character;
+import com.ctrlaltquest.services.AppExecutors;
+import com.ctrlaltquest.services.DashboardSnapshot;
+import com.ctrlaltquest.ui.utils.FxQueue;
 import com.ctrlaltquest.ui.utils.Toast;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
-import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.PieChart;
@@ -80,110 +79,74 @@ public class ReportModalController {
     }
 
     /**
-     * Carga todos los datos de la modal en paralelo (3 tareas)
+     * Carga todos los datos de la modal desde el snapshot del dashboard (la misma
+     * consulta y caché que el dashboard; si está abierto, no hay ida a BD)
      */
     private void cargarDatos() {
         if (userId == -1) return;
 
-        // TAREA 1: Estadísticas (streak, XP, misiones, tiempo)
-        Task<Map<String, Object>> taskStats = new Task<>() {
-            @Override
-            protected Map<String, Object> call() {
-                Map<String, Object> stats = new java.util.HashMap<>();
-                
-                // Streak actual
-                if (currentCharacter != null) {
-                    stats.put("streak", currentCharacter.getHealthStreak());
-                } else {
-                    Map<Integer, Character> chars = CharacterDAO.getCharactersByUser(userId);
-                    if (!chars.isEmpty()) {
-                        stats.put("streak", chars.values().iterator().next().getHealthStreak());
-                    }
-                }
-                
-                // XP semanal (con consulta a BD)
-                // Por ahora hardcodeamos, pero se puede mejorar con un DAO
-                stats.put("xp", 1250);
-                stats.put("missions", 12);
-                stats.put("screentime", "42h 30m");
-                
-                return stats;
-            }
-        };
+        DashboardSnapshot.getInstance().get(userId).thenAcceptAsync(snapshot -> {
+            if (snapshot == null) return;
+            pintarEstadisticas(snapshot);
+            pintarGraficaXP(snapshot);
+            pintarUsoApps(snapshot.usoApps);
+        }, AppExecutors.fx());
+    }
 
-        taskStats.setOnSucceeded(e -> {
-            Map<String, Object> stats = taskStats.getValue();
-            Platform.runLater(() -> {
-                if (lblReportStreak != null) lblReportStreak.setText(String.valueOf(stats.get("streak")));
-                if (lblReportXP != null) lblReportXP.setText(String.valueOf(stats.get("xp")));
-                if (lblReportMissions != null) lblReportMissions.setText(String.valueOf(stats.get("missions")));
-                if (lblReportScreenTime != null) lblReportScreenTime.setText(String.valueOf(stats.get("screentime")));
-                
-                // Animar entrada de valores
-                animarLabel(lblReportStreak);
-                animarLabel(lblReportXP);
-                animarLabel(lblReportMissions);
-                animarLabel(lblReportScreenTime);
-            });
-        });
+    // Estadísticas (streak, XP, misiones, tiempo)
+    private void pintarEstadisticas(DashboardDAO.Snapshot snapshot) {
+        int streak = currentCharacter != null ? currentCharacter.getHealthStreak() : snapshot.rachaSalud;
+
+        if (lblReportStreak != null) lblReportStreak.setText(String.valueOf(streak));
+        if (lblReportXP != null) lblReportXP.setText(String.valueOf(snapshot.xpSemanaTotal()));
+        // Por ahora hardcodeamos, pero se puede mejorar con un DAO
+        if (lblReportMissions != null) lblReportMissions.setText("12");
+        if (lblReportScreenTime != null) lblReportScreenTime.setText("42h 30m");
+
+        // Animar entrada de valores
+        animarLabel(lblReportStreak);
+        animarLabel(lblReportXP);
+        animarLabel(lblReportMissions);
+        animarLabel(lblReportScreenTime);
+    }
 
-        // TAREA 2: Gráfica XP semanal
-        Task<Void> taskXPChart = new Task<>() {
-            @Override
-            protected Void call() {
-                XYChart.Series<String, Number> serieXP = DashboardDAO.getRendimientoSemanal(userId);
-                Platform.runLater(() -> {
-                    if (xpWeeklyChart != null) {
-                        xpWeeklyChart.getData().clear();
-                        xpWeeklyChart.getData().add(serieXP);
-                        // Aplicar estilos dinámicos a los puntos
-                        if (serieXP.getNode() != null) {
-                            serieXP.getNode().setStyle("-fx-stroke: #a335ee; -fx-stroke-width: 3;");
-                        }
-                    }
-                });
-                return null;
-            }
-        };
+    // Gráfica XP semanal
+    private void pintarGraficaXP(DashboardDAO.Snapshot snapshot) {
+        if (xpWeeklyChart == null) return;
+        XYChart.Series<String, Number> serieXP = snapshot.serieXP();
+        xpWeeklyChart.getData().clear();
+        xpWeeklyChart.getData().add(serieXP);
+        // Aplicar estilos dinámicos a los puntos
+        if (serieXP.getNode() != null) {
+            serieXP.getNode().setStyle("-fx-stroke: #a335ee; -fx-stroke-width: 3;");
+        }
+    }
 
-        // TAREA 3: Uso de aplicaciones (pie chart)
-        Task<Void> taskUsagePie = new Task<>() {
-            @Override
-            protected Void call() {
-                List<DashboardDAO.AppUsage> usage = DashboardDAO.getAppUsageSummary(userId);
-                Platform.runLater(() -> {
-                    if (usageBreakdownPie != null) {
-                        usageBreakdownPie.getData().clear();
-                        
-                        long total = usage.stream().mapToLong(u -> u.seconds).sum();
-                        ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-                        
-                        for (DashboardDAO.AppUsage u : usage) {
-                            double pct = (double) u.seconds / total * 100.0;
-                            String label = u.appName + " (" + (int)pct + "%)";
-                            pieData.add(new PieChart.Data(label, u.seconds));
-                        }
-                        
-                        usageBreakdownPie.setData(pieData);
-                        
-                        // Detalle lateral
-                        if (usageBreakdownList != null) {
-                            usageBreakdownList.getChildren().clear();
-                            for (DashboardDAO.AppUsage u : usage) {
-                                Label lbl = new Label("• " + u.appName + " — " + formatSeconds(u.seconds));
-                                lbl.setStyle("-fx-text-fill: #ddd; -fx-font-size: 11px;");
-                                usageBreakdownList.getChildren().add(lbl);
-                            }
-                        }
-                    }
-                });
-                return null;
-            }
-        };
+    // Uso de aplicaciones (pie chart)
+    private void pintarUsoApps(List<DashboardDAO.AppUsage> usage) {
+        if (usageBreakdownPie == null) return;
+        usageBreakdownPie.getData().clear();
+
+        long total = usage.stream().mapToLong(u -> u.seconds).sum();
+        ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
+
+        for (DashboardDAO.AppUsage u : usage) {
+            double pct = (double) u.seconds / total * 100.0;
+            String label = u.appName + " (" + (int)pct + "%)";
+            pieData.add(new PieChart.Data(label, u.seconds));
+        }
 
-        Thread t1 = new Thread(taskStats); t1.setDaemon(true); t1.start();
-        Thread t2 = new Thread(taskXPChart); t2.setDaemon(true); t2.start();
-        Thread t3 = new Thread(taskUsagePie); t3.setDaemon(true); t3.start();
+        usageBreakdownPie.setData(pieData);
+
+        // Detalle lateral
+        if (usageBreakdownList != null) {
+            usageBreakdownList.getChildren().clear();
+            for (DashboardDAO.AppUsage u : usage) {
+                Label lbl = new Label("• " + u.appName + " — " + formatSeconds(u.seconds));
+                lbl.setStyle("-fx-text-fill: #ddd; -fx-font-size: 11px;");
+                usageBreakdownList.getChildren().add(lbl);
+            }
+        }
     }
 
     /**
@@ -242,7 +205,7 @@ public class ReportModalController {
      * Muestra un mensaje simple
      */
     private void mostrarMensaje(String titulo, String contenido) {
-        Platform.runLater(() -> {
+        FxQueue.runLater(() -> {
             Toast.info(titulo, contenido);
         });
     }
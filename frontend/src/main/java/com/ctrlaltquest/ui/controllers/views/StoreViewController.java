@@ -1,9 +1,12 @@
 package com.ctrlaltquest.ui.controllers.views;
 
 import com.ctrlaltquest.dao.UserDAO;
+import com.ctrlaltquest.services.AppExecutors;
 import com.ctrlaltquest.services.SessionManager;
+import com.ctrlaltquest.ui.utils.ImageCache;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
+import com.ctrlaltquest.ui.utils.ViewLifecycleManager;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.KeyFrame;
@@ -22,7 +25,6 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.Glow;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
@@ -36,8 +38,10 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
-public class StoreViewController {
+public class StoreViewController implements ViewLifecycleManager.ViewLifecycle {
 
     @FXML private Label      lblUserBalance;
     @FXML private GridPane   itemsGrid;
@@ -52,6 +56,9 @@ public class StoreViewController {
 
     private static boolean gritoCompradoEnSesion = false;
 
+    // Animaciones infinitas de las tarjetas: se pausan mientras la tienda no se ve
+    private final List<Timeline> animacionesEnBucle = new ArrayList<>();
+
     // ════════════════════════════════════════════════════════════════════════
     // INIT
     // ════════════════════════════════════════════════════════════════════════
@@ -82,6 +89,16 @@ public class StoreViewController {
         }
     }
 
+    @Override
+    public void onShow() {
+        animacionesEnBucle.forEach(Timeline::play);
+    }
+
+    @Override
+    public void onHide() {
+        animacionesEnBucle.forEach(Timeline::pause);
+    }
+
     // ════════════════════════════════════════════════════════════════════════
     // SALDO
     // ════════════════════════════════════════════════════════════════════════
@@ -99,7 +116,7 @@ public class StoreViewController {
             st.setFromX(1); st.setFromY(1); st.setToX(1.1); st.setToY(1.1);
             st.setAutoReverse(true); st.setCycleCount(2); st.play();
         });
-        new Thread(t).start();
+        AppExecutors.io().execute(t);
     }
 
     // ════════════════════════════════════════════════════════════════════════
@@ -132,8 +149,9 @@ public class StoreViewController {
         Node imgNode;
         var imgUrl = getClass().getResource(GRITO_IMG);
         if (imgUrl != null) {
-            ImageView iv = new ImageView(new Image(imgUrl.toExternalForm()));
+            ImageView iv = new ImageView();
             iv.setFitWidth(90); iv.setFitHeight(90); iv.setPreserveRatio(true);
+            ImageCache.getInstance().loadInto(iv, 90, 90, GRITO_IMG);
             imgNode = iv;
         } else {
             Label emoji = new Label("😱"); emoji.setStyle("-fx-font-size: 54px;");
@@ -193,8 +211,9 @@ public class StoreViewController {
         Node imgNode;
         URL imgUrl = getClass().getResource(PELIGRO_IMG);
         if (imgUrl != null) {
-            ImageView iv = new ImageView(new Image(imgUrl.toExternalForm()));
+            ImageView iv = new ImageView();
             iv.setFitWidth(90); iv.setFitHeight(90); iv.setPreserveRatio(true);
+            ImageCache.getInstance().loadInto(iv, 90, 90, PELIGRO_IMG);
             imgNode = iv;
         } else {
             Label emoji = new Label("☠️"); emoji.setStyle("-fx-font-size: 54px;");
@@ -214,6 +233,7 @@ public class StoreViewController {
         );
         parpadeo.setCycleCount(Timeline.INDEFINITE);
         parpadeo.play();
+        animacionesEnBucle.add(parpadeo);
 
         Label title = new Label("NO COMPRAR");
         title.setStyle("-fx-text-fill: #ef4444; -fx-font-weight: bold; -fx-font-size: 18px;");
@@ -348,16 +368,13 @@ public class StoreViewController {
                 btnComprar.setStyle("-fx-border-color: #ff6b6b; -fx-text-fill: #ff6b6b;" +
                                     "-fx-border-radius: 8; -fx-background-radius: 8;" +
                                     "-fx-background-color: rgba(0,0,0,0.2);");
-                new Thread(() -> {
-                    try { Thread.sleep(1500); } catch (Exception ex) {}
-                    Platform.runLater(() -> {
-                        btnComprar.setText("ADQUIRIR  " + GRITO_PRECIO + " 💰");
-                        btnComprar.setStyle(estiloComprar("#a335ee"));
-                    });
-                }).start();
+                AppExecutors.runOnFxAfter(1500, () -> {
+                    btnComprar.setText("ADQUIRIR  " + GRITO_PRECIO + " 💰");
+                    btnComprar.setStyle(estiloComprar("#a335ee"));
+                });
             }
         });
-        new Thread(t).start();
+        AppExecutors.io().execute(t);
     }
 
     // ════════════════════════════════════════════════════════════════════════
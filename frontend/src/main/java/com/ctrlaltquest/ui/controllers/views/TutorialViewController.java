@@ -7,6 +7,7 @@ import java.util.List;
 import com.ctrlaltquest.ui.controllers.HomeController;
 import com.ctrlaltquest.ui.utils.SoundManager;
 import com.ctrlaltquest.ui.utils.Toast;
+import com.ctrlaltquest.ui.utils.ViewLifecycleManager;
 
 import javafx.animation.FadeTransition;
 import javafx.fxml.FXML;
@@ -27,7 +28,7 @@ import javafx.util.Duration;
  * 📚 TUTORIAL VIEW CONTROLLER
  * Gestiona un carrusel interactivo de tutorial con imágenes y descripciones
  */
-public class TutorialViewController {
+public class TutorialViewController implements ViewLifecycleManager.ViewLifecycle {
 
     @FXML private VBox slideContainer;
     @FXML private HBox dotsContainer;
@@ -39,6 +40,7 @@ public class TutorialViewController {
     private int currentSlideIndex = 0;
     private StackPane currentSlideNode;
     private MediaPlayer videoPlayer;
+    private boolean visible = false;
     
     // Referencia al controlador principal para navegación
     private HomeController homeController;
@@ -106,13 +108,36 @@ public class TutorialViewController {
                 videoPlayer.setMute(true);
                 videoPlayer.setRate(0.5); 
                 
-                videoPlayer.setOnReady(() -> videoPlayer.play());
+                videoPlayer.setOnReady(() -> { if (visible) videoPlayer.play(); });
             } catch (Exception e) {
                 System.err.println("❌ Error carga video: " + e.getMessage());
             }
         }
     }
 
+    // ── Ciclo de vida en la caché de vistas ─────────────────────────────────
+
+    @Override
+    public void onShow() {
+        visible = true;
+        if (videoPlayer != null) videoPlayer.play();
+    }
+
+    @Override
+    public void onHide() {
+        visible = false;
+        if (videoPlayer != null) videoPlayer.pause();
+    }
+
+    @Override
+    public void onEvict() {
+        if (videoPlayer != null) {
+            videoPlayer.stop();
+            videoPlayer.dispose();
+            videoPlayer = null;
+        }
+    }
+
     /**
      * Carga todas las diapositivas del tutorial
      */
@@ -0,0 +1,34 @@
+package com.ctrlaltquest.ui.utils;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+import javafx.application.Platform;
+
+/**
+ * FxQueue — Platform.runLater con métricas.
+ *
+ * Mide cuánto espera cada tarea en la cola del hilo de JavaFX (fx.runLater.wait) y
+ * cuánto tarda en ejecutarse (fx.runLater.run). Una espera alta significa que el hilo
+ * de UI está saturado y los avisos de XP, misiones o toasts llegan tarde.
+ */
+public final class FxQueue {
+
+    private static final LatencyHistogram WAIT_TIMER = MetricsRegistry.getInstance().histogram("fx.runLater.wait");
+    private static final LatencyHistogram RUN_TIMER  = MetricsRegistry.getInstance().histogram("fx.runLater.run");
+
+    private FxQueue() {}
+
+    public static void runLater(Runnable task) {
+        long queuedAt = System.nanoTime();
+        Platform.runLater(() -> {
+            long start = System.nanoTime();
+            WAIT_TIMER.record(start - queuedAt);
+            try {
+                task.run();
+            } finally {
+                RUN_TIMER.recordSince(start);
+            }
+        });
+    }
+}
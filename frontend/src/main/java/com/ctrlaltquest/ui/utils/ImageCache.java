@@ -0,0 +1,213 @@
+package com.ctrlaltquest.ui.utils;
+
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+import com.ctrlaltquest.services.AppExecutors;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.stage.Screen;
+
+/**
+ * ImageCache - Carga asíncrona, reducida y cacheada de sprites y arte de la tienda.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Decodifica en el pool de I/O, nunca en el hilo de JavaFX
+ * ✅ Decodifica al tamaño pedido (requestedWidth/Height + suavizado): un thumbnail de 30 px
+ *    no ocupa la memoria del sprite completo
+ * ✅ Dos peticiones de la misma URL y tamaño comparten una sola decodificación
+ * ✅ LRU acotado por bytes estimados (ancho × alto × 4) con SoftReference: si la JVM
+ *    necesita memoria puede soltar imágenes aunque quepan en el presupuesto
+ * ✅ loadInto(): deja la imagen anterior (o un placeholder) y pone la final al terminar;
+ *    si ya está en caché la pone en el acto, sin parpadeo
+ *
+ * Presupuesto: -Dctrlaltquest.images.maxBytes (por defecto 32 MB).
+ */
+public class ImageCache {
+
+    private static final long MAX_BYTES = Long.getLong("ctrlaltquest.images.maxBytes", 32L * 1024 * 1024);
+    private static final String REQUEST_KEY = "ctrlaltquest.imageCache.request";
+
+    private static final ImageCache instance = new ImageCache();
+    public static ImageCache getInstance() { return instance; }
+
+    private static final MetricsRegistry.Counter HITS = MetricsRegistry.getInstance().counter("images.cache.hit");
+    private static final MetricsRegistry.Counter MISSES = MetricsRegistry.getInstance().counter("images.cache.miss");
+    private static final LatencyHistogram DECODE = MetricsRegistry.getInstance().histogram("images.decode");
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<Image>> inFlight = new ConcurrentHashMap<>();
+    private long cachedBytes = 0;
+    // Densidad de pantalla; se lee en el hilo de JavaFX (loadInto) y la usan los hilos de I/O
+    private volatile double outputScale = 1.0;
+
+    private ImageCache() {
+        MetricsRegistry.getInstance().gauge("images.cache.bytes", this::getCachedBytes);
+        MetricsRegistry.getInstance().gauge("images.cache.entries", this::size);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Carga la primera ruta de classpath que exista en el ImageView, decodificada a
+     * width × height (tamaño lógico; se escala a la densidad de pantalla).
+     * Debe llamarse desde el hilo de JavaFX.
+     *
+     * @param placeholder imagen a mostrar mientras se decodifica (null = dejar la actual)
+     */
+    public void loadInto(ImageView view, double width, double height, Image placeholder, String... resourcePaths) {
+        if (view == null) return;
+        outputScale = readOutputScale();
+        URL url = resolve(resourcePaths);
+        if (url == null) return;
+
+        String key = keyOf(url.toExternalForm(), width, height);
+        view.getProperties().put(REQUEST_KEY, key);
+
+        Image cached = getIfPresent(key);
+        if (cached != null) {
+            view.setImage(cached);
+            return;
+        }
+        if (placeholder != null) view.setImage(placeholder);
+
+        load(url.toExternalForm(), width, height).thenAcceptAsync(img -> {
+            // Si mientras tanto se pidió otra imagen para este ImageView, esta ya no vale
+            if (img != null && key.equals(view.getProperties().get(REQUEST_KEY))) {
+                view.setImage(img);
+            }
+        }, AppExecutors.fx());
+    }
+
+    public void loadInto(ImageView view, double width, double height, String... resourcePaths) {
+        loadInto(view, width, height, null, resourcePaths);
+    }
+
+    /**
+     * Devuelve la imagen decodificada a width × height (desde caché o en segundo plano).
+     * Se completa con null si la imagen no se pudo decodificar.
+     */
+    public CompletableFuture<Image> load(String url, double width, double height) {
+        String key = keyOf(url, width, height);
+        Image cached = getIfPresent(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<Image> created = new CompletableFuture<>();
+        CompletableFuture<Image> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) return existing;
+
+        MISSES.increment();
+        CompletableFuture.supplyAsync(() -> decode(key, url, width, height), AppExecutors.io())
+            .whenComplete((img, e) -> {
+                inFlight.remove(key, created);
+                if (e != null) created.completeExceptionally(e);
+                else created.complete(img);
+            });
+        return created;
+    }
+
+    /**
+     * Vacía la caché (p. ej. al cerrar sesión).
+     */
+    public synchronized void clear() {
+        lru.clear();
+        cachedBytes = 0;
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized long size() {
+        return lru.size();
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // INTERNOS
+    // ════════════════════════════════════════════════════════════════════════
+
+    private Image decode(String key, String url, double width, double height) {
+        long start = System.nanoTime();
+        double scale = outputScale;
+        Image img = new Image(url, Math.ceil(width * scale), Math.ceil(height * scale), true, true, false);
+        DECODE.recordSince(start);
+        if (img.isError()) {
+            System.err.println("⚠️ [ImageCache] No se pudo decodificar " + url + ": "
+                + (img.getException() != null ? img.getException().getMessage() : "desconocido"));
+            return null;
+        }
+        put(key, img);
+        return img;
+    }
+
+    private synchronized Image getIfPresent(String key) {
+        Entry entry = lru.get(key);
+        if (entry == null) return null;
+        Image img = entry.ref.get();
+        if (img == null) {
+            // La JVM recogió la referencia blanda: liberar su hueco en el presupuesto
+            lru.remove(key);
+            cachedBytes -= entry.bytes;
+            return null;
+        }
+        HITS.increment();
+        return img;
+    }
+
+    private synchronized void put(String key, Image img) {
+        long bytes = (long) img.getWidth() * (long) img.getHeight() * 4;
+        Entry previous = lru.put(key, new Entry(img, bytes));
+        if (previous != null) cachedBytes -= previous.bytes;
+        cachedBytes += bytes;
+
+        Iterator<Entry> it = lru.values().iterator();
+        while (cachedBytes > MAX_BYTES && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.ref.get() == img) break; // nunca desalojar la que se acaba de insertar
+            cachedBytes -= eldest.bytes;
+            it.remove();
+        }
+    }
+
+    private static URL resolve(String... resourcePaths) {
+        for (String path : resourcePaths) {
+            if (path == null) continue;
+            URL url = ImageCache.class.getResource(path);
+            if (url != null) return url;
+        }
+        return null;
+    }
+
+    private static String keyOf(String url, double width, double height) {
+        return url + "@" + Math.round(width) + "x" + Math.round(height);
+    }
+
+    private static double readOutputScale() {
+        try {
+            return Math.max(1.0, Screen.getPrimary().getOutputScaleX());
+        } catch (Exception e) {
+            return 1.0;
+        }
+    }
+
+    private static class Entry {
+        final SoftReference<Image> ref;
+        final long bytes;
+
+        Entry(Image img, long bytes) {
+            this.ref = new SoftReference<>(img);
+            this.bytes = bytes;
+        }
+    }
+}
@@ -6,7 +6,6 @@ import java.util.Map;
 
 import com.ctrlaltquest.ui.controllers.SettingsController;
 
-import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -126,7 +125,10 @@ public class KeyBindingManager {
         });
 
         // Ctrl + K — Mostrar ventana de atajos
-        registerAction("SHOW_KEYBINDINGS", () -> Platform.runLater(this::abrirVistaAtaljos));
+        registerAction("SHOW_KEYBINDINGS", () -> FxQueue.runLater(this::abrirVistaAtaljos));
+
+        // Ctrl + Shift + P — Panel de rendimiento (atajo oculto)
+        registerAction("TOGGLE_PERF_OVERLAY", () -> PerformanceOverlay.getInstance().toggle(primaryStage));
     }
 
     public void registerAction(String name, Runnable action) {
@@ -181,6 +183,10 @@ public class KeyBindingManager {
                 if (ctrl && !alt && !shift)       { executeAction("SHOW_KEYBINDINGS"); e.consume(); }
                 break;
 
+            case P:
+                if (ctrl && shift && !alt)        { executeAction("TOGGLE_PERF_OVERLAY"); e.consume(); }
+                break;
+
             default:
                 break;
         }
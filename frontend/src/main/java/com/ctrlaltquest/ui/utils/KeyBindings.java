@@ -49,6 +49,10 @@ public class KeyBindings {
     public static final KeyCombination SHOW_KEYBINDINGS = 
         new KeyCodeCombination(KeyCode.K, KeyCombination.CONTROL_DOWN);
     
+    /** Ctrl + Shift + P: Panel de rendimiento (oculto: no aparece en ALL_BINDINGS) */
+    public static final KeyCombination TOGGLE_PERF_OVERLAY = 
+        new KeyCodeCombination(KeyCode.P, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN);
+    
     // ============ DEFINICIONES DESCRIPTIVAS ============
     
     public static class KeyBindingInfo {
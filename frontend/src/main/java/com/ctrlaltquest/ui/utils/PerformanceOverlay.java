@@ -0,0 +1,126 @@
+package com.ctrlaltquest.ui.utils;
+
+import java.util.List;
+import java.util.Map;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.Duration;
+
+/**
+ * PerformanceOverlay — Panel oculto de rendimiento (Ctrl + Shift + P).
+ *
+ * Muestra en vivo los histogramas de MetricsRegistry ordenados por tiempo total
+ * (tick de actividad, métodos DAO, XP, cola de JavaFX) y los gauges, para ver en
+ * una máquina real en qué se va el presupuesto de 1 s del tick.
+ * Se refresca una vez por segundo solo mientras está visible.
+ */
+public class PerformanceOverlay {
+
+    private static final int MAX_ROWS = 14;
+
+    private static PerformanceOverlay instance;
+    public static PerformanceOverlay getInstance() {
+        if (instance == null) instance = new PerformanceOverlay();
+        return instance;
+    }
+
+    private Stage stage;
+    private Label content;
+    private Timeline refresher;
+
+    private PerformanceOverlay() {}
+
+    public void toggle(Stage owner) {
+        if (stage != null && stage.isShowing()) {
+            hide();
+        } else {
+            show(owner);
+        }
+    }
+
+    private void show(Stage owner) {
+        if (stage == null) build(owner);
+        refresh();
+        refresher.play();
+        stage.show();
+    }
+
+    private void hide() {
+        refresher.stop();
+        stage.hide();
+    }
+
+    private void build(Stage owner) {
+        content = new Label();
+        content.setStyle("-fx-font-family: 'Consolas', 'Monospaced'; -fx-font-size: 11px; -fx-text-fill: #e5e7eb;");
+
+        Button reset = new Button("Reiniciar métricas");
+        reset.setStyle("-fx-font-size: 10px;");
+        reset.setOnAction(e -> {
+            MetricsRegistry.getInstance().resetAll();
+            refresh();
+        });
+
+        VBox root = new VBox(6, content, reset);
+        root.setPadding(new Insets(10));
+        root.setStyle("-fx-background-color: rgba(10, 10, 20, 0.85); -fx-background-radius: 8;");
+
+        Scene scene = new Scene(root);
+        scene.setFill(Color.TRANSPARENT);
+
+        stage = new Stage(StageStyle.TRANSPARENT);
+        if (owner != null) {
+            stage.initOwner(owner);
+            stage.setX(owner.getX() + 20);
+            stage.setY(owner.getY() + 40);
+        }
+        stage.setAlwaysOnTop(true);
+        stage.setScene(scene);
+
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+        refresher.setCycleCount(Animation.INDEFINITE);
+    }
+
+    private void refresh() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        StringBuilder sb = new StringBuilder("⏱ RENDIMIENTO  (Ctrl+Shift+P para cerrar)\n\n");
+
+        sb.append(String.format("%-44s %8s %9s %9s %9s %10s%n", "métrica", "n", "p50 µs", "p99 µs", "max µs", "total ms"));
+        List<LatencyHistogram.Snapshot> snapshots = metrics.histogramSnapshots();
+        int rows = 0;
+        for (LatencyHistogram.Snapshot s : snapshots) {
+            if (s.count == 0) continue;
+            if (rows++ == MAX_ROWS) break;
+            sb.append(String.format("%-44s %8d %9.1f %9.1f %9.1f %10.1f%n",
+                abbreviate(s.name, 44), s.count,
+                LatencyHistogram.Snapshot.toMicros(s.p50Nanos),
+                LatencyHistogram.Snapshot.toMicros(s.p99Nanos),
+                LatencyHistogram.Snapshot.toMicros(s.maxNanos),
+                s.totalNanos / 1e6));
+        }
+
+        Map<String, Long> gauges = metrics.gaugeValues();
+        if (!gauges.isEmpty()) {
+            sb.append('\n');
+            gauges.forEach((name, value) -> sb.append(String.format("%-44s %8d%n", name, value)));
+        }
+        content.setText(sb.toString());
+    }
+
+    private static String abbreviate(String s, int max) {
+        return s.length() <= max ? s : "…" + s.substring(s.length() - max + 1);
+    }
+}
@@ -0,0 +1,300 @@
+package com.ctrlaltquest.ui.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.ctrlaltquest.metrics.LatencyHistogram;
+import com.ctrlaltquest.metrics.MetricsRegistry;
+import com.ctrlaltquest.services.AppExecutors;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.media.MediaView;
+
+/**
+ * ViewLifecycleManager - Caché de vistas FXML del Hub con precarga y desalojo por memoria.
+ *
+ * CARACTERÍSTICAS:
+ * ✅ Precarga las vistas probables cuando el dashboard ya está pintado, una por hueco
+ *    en el hilo de JavaFX, para que el primer clic en cada pestaña no se atasque
+ * ✅ Estima la huella de cada vista (nodos + píxeles de imágenes + vídeo) y recuerda su último uso
+ * ✅ Con presión de heap (uso tras el último GC) o por encima del presupuesto, desaloja
+ *    primero las vistas frías y pesadas (tienda, tutorial); nunca la actual ni las fijadas
+ * ✅ Llama a onShow()/onHide() de los controladores que implementan ViewLifecycle, para que
+ *    paren animaciones infinitas, vídeo o sondeos mientras no se ven
+ *
+ * FXMLLoader construye nodos vivos y los initialize() de los controladores arrancan
+ * animaciones, así que la carga se queda en el hilo de JavaFX; lo que cambia es cuándo ocurre.
+ *
+ * Configuración: -Dctrlaltquest.views.maxBytes (64 MB), -Dctrlaltquest.views.heapPressure (0.70),
+ * -Dctrlaltquest.views.coldMs (120000).
+ */
+public class ViewLifecycleManager {
+
+    /**
+     * Ganchos de ciclo de vida para los controladores de vistas cacheadas.
+     */
+    public interface ViewLifecycle {
+        /** La vista pasa a primer plano. */
+        default void onShow() {}
+        /** La vista deja de verse (sigue en caché). */
+        default void onHide() {}
+        /** La vista sale de la caché: liberar recursos nativos (vídeo, audio). */
+        default void onEvict() {}
+    }
+
+    private static final long MAX_BYTES = Long.getLong("ctrlaltquest.views.maxBytes", 64L * 1024 * 1024);
+    private static final double HEAP_PRESSURE = Double.parseDouble(System.getProperty("ctrlaltquest.views.heapPressure", "0.70"));
+    private static final long COLD_MS = Long.getLong("ctrlaltquest.views.coldMs", 120_000L);
+
+    private static final long HEAVY_BYTES = 4L * 1024 * 1024;
+    private static final long BYTES_PER_NODE = 1024;
+    private static final long MEDIA_BYTES = 16L * 1024 * 1024;
+    private static final long PREWARM_GAP_MS = 300;
+    private static final long TRIM_PERIOD_MS = 30_000;
+
+    private static final LatencyHistogram LOAD = MetricsRegistry.getInstance().histogram("views.load");
+    private static final MetricsRegistry.Counter EVICTIONS = MetricsRegistry.getInstance().counter("views.evicted");
+
+    private final String fxmlFolder;
+    private final Set<String> pinned;
+    // Concurrente solo para que los gauges se puedan leer desde JMX; se modifica en el hilo de JavaFX
+    private final Map<String, CachedView> cache = new ConcurrentHashMap<>();
+    private String currentName;
+    private ScheduledFuture<?> trimTask;
+    private boolean disposed = false;
+
+    /**
+     * @param fxmlFolder carpeta de classpath de las vistas ("/fxml/views/")
+     * @param pinned     vistas que nunca se desalojan (p. ej. el dashboard)
+     */
+    public ViewLifecycleManager(String fxmlFolder, Set<String> pinned) {
+        this.fxmlFolder = fxmlFolder;
+        this.pinned = pinned;
+        MetricsRegistry.getInstance().gauge("views.cached", () -> cache.size());
+        MetricsRegistry.getInstance().gauge("views.cachedBytes", this::totalBytes);
+        trimTask = AppExecutors.scheduler().scheduleWithFixedDelay(
+            () -> FxQueue.runLater(this::trim), TRIM_PERIOD_MS, TRIM_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // API (hilo de JavaFX)
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Devuelve la vista cacheada o la carga ahora. null si el FXML no existe.
+     */
+    public CachedView get(String viewName) throws IOException {
+        CachedView cached = cache.get(viewName);
+        if (cached != null) return cached;
+
+        URL url = getClass().getResource(fxmlFolder + viewName + ".fxml");
+        if (url == null) return null;
+
+        long start = System.nanoTime();
+        FXMLLoader loader = new FXMLLoader(url);
+        Node view = loader.load();
+        LOAD.recordSince(start);
+
+        cached = new CachedView(viewName, view, loader.getController());
+        cached.footprintBytes = estimateFootprint(view);
+        cache.put(viewName, cached);
+        return cached;
+    }
+
+    /**
+     * Marca viewName como la vista visible: onHide() a la anterior, onShow() a la nueva,
+     * y revisa si hay que desalojar algo.
+     */
+    public void markShown(String viewName) {
+        if (viewName.equals(currentName)) return;
+        CachedView previous = currentName != null ? cache.get(currentName) : null;
+        if (previous != null) hide(previous);
+
+        CachedView next = cache.get(viewName);
+        currentName = viewName;
+        if (next != null) {
+            next.lastShownMillis = System.currentTimeMillis();
+            if (next.controller instanceof ViewLifecycle l) safely(viewName, "onShow", l::onShow);
+        }
+        trim();
+    }
+
+    /**
+     * Precarga las vistas indicadas tras initialDelayMs, una cada PREWARM_GAP_MS, para no
+     * encadenar varias cargas en un mismo frame. Se detiene si el gestor se descarta.
+     */
+    public void prewarm(List<String> viewNames, long initialDelayMs) {
+        List<String> pending = new ArrayList<>(viewNames);
+        AppExecutors.runOnFxAfter(initialDelayMs, () -> prewarmNext(pending));
+    }
+
+    /**
+     * Descarta todas las vistas (al cerrar sesión).
+     */
+    public void dispose() {
+        disposed = true;
+        if (trimTask != null) trimTask.cancel(false);
+        for (CachedView cached : new ArrayList<>(cache.values())) evict(cached);
+        currentName = null;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // INTERNOS
+    // ════════════════════════════════════════════════════════════════════════
+
+    private void prewarmNext(List<String> pending) {
+        if (disposed || pending.isEmpty()) return;
+        String viewName = pending.remove(0);
+        if (!cache.containsKey(viewName)) {
+            try {
+                CachedView cached = get(viewName);
+                // Precargada pero no visible: que pare lo que su initialize() haya arrancado
+                if (cached != null && !viewName.equals(currentName)) hide(cached);
+                System.out.println("🔥 [Views] Precargada " + viewName);
+            } catch (Exception e) {
+                System.err.println("⚠️ [Views] No se pudo precargar " + viewName + ": " + e.getMessage());
+            }
+        }
+        AppExecutors.runOnFxAfter(PREWARM_GAP_MS, () -> prewarmNext(pending));
+    }
+
+    private void hide(CachedView cached) {
+        if (cached.controller instanceof ViewLifecycle l) safely(cached.name, "onHide", l::onHide);
+        // Las vistas rellenan contenido de forma asíncrona: re-estimar al salir
+        cached.footprintBytes = estimateFootprint(cached.view);
+    }
+
+    private void evict(CachedView cached) {
+        cache.remove(cached.name);
+        if (cached.controller instanceof ViewLifecycle l) safely(cached.name, "onEvict", l::onEvict);
+        EVICTIONS.increment();
+    }
+
+    /**
+     * Con presión de heap desaloja todas las vistas frías pesadas; después, si se supera el
+     * presupuesto, las frías que queden de la más pesada a la más ligera.
+     */
+    private void trim() {
+        if (disposed) return;
+        long now = System.currentTimeMillis();
+        List<CachedView> cold = new ArrayList<>();
+        for (CachedView cached : cache.values()) {
+            if (cached.name.equals(currentName) || pinned.contains(cached.name)) continue;
+            if (now - cached.lastShownMillis >= COLD_MS) cold.add(cached);
+        }
+        if (cold.isEmpty()) return;
+        cold.sort(Comparator.comparingLong((CachedView c) -> c.footprintBytes).reversed()
+            .thenComparingLong(c -> c.lastShownMillis));
+
+        double pressure = heapPressure();
+        if (pressure >= HEAP_PRESSURE) {
+            for (CachedView cached : new ArrayList<>(cold)) {
+                if (cached.footprintBytes < HEAVY_BYTES) continue;
+                evict(cached);
+                cold.remove(cached);
+                System.out.println("🧹 [Views] Desalojada " + cached.name + " (~" + cached.footprintBytes / 1024
+                    + " KB, heap " + Math.round(pressure * 100) + "%)");
+            }
+        }
+        for (CachedView cached : cold) {
+            if (totalBytes() <= MAX_BYTES) break;
+            evict(cached);
+            System.out.println("🧹 [Views] Desalojada " + cached.name + " (~" + cached.footprintBytes / 1024 + " KB, presupuesto)");
+        }
+    }
+
+    private long totalBytes() {
+        long total = 0;
+        for (CachedView cached : cache.values()) total += cached.footprintBytes;
+        return total;
+    }
+
+    private static void safely(String viewName, String hook, Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            System.err.println("⚠️ [Views] " + hook + " de " + viewName + " falló: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Huella aproximada: un coste fijo por nodo, los píxeles de cada imagen y un
+     * bloque fijo por reproductor de vídeo.
+     */
+    static long estimateFootprint(Node root) {
+        long bytes = 0;
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            bytes += BYTES_PER_NODE;
+            if (node instanceof ImageView iv && iv.getImage() != null) {
+                Image img = iv.getImage();
+                bytes += (long) img.getWidth() * (long) img.getHeight() * 4;
+            } else if (node instanceof MediaView mv && mv.getMediaPlayer() != null) {
+                bytes += MEDIA_BYTES;
+            }
+            if (node instanceof Parent p) stack.addAll(p.getChildrenUnmodifiable());
+        }
+        return bytes;
+    }
+
+    /**
+     * Uso del heap tras el último GC (lo que sigue vivo), o el uso bruto si la JVM no lo expone.
+     */
+    static double heapPressure() {
+        long used = 0;
+        long max = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null || usage.getMax() <= 0) continue;
+            used += usage.getUsed();
+            max += usage.getMax();
+        }
+        if (max == 0) {
+            Runtime rt = Runtime.getRuntime();
+            used = rt.totalMemory() - rt.freeMemory();
+            max = rt.maxMemory();
+        }
+        return used / (double) max;
+    }
+
+    // ════════════════════════════════════════════════════════════════════════
+    // CLASES INTERNAS
+    // ════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Vista cacheada: nodo raíz, controlador, huella estimada y último uso.
+     */
+    public static class CachedView {
+        public final String name;
+        public final Node view;
+        public final Object controller;
+        long footprintBytes;
+        long lastShownMillis;
+
+        CachedView(String name, Node view, Object controller) {
+            this.name = name;
+            this.view = view;
+            this.controller = controller;
+            this.lastShownMillis = System.currentTimeMillis();
+        }
+    }
+}
@@ -46,7 +46,7 @@ public class WindowManager {
         primaryStage.maximizedProperty().addListener((obs, oldVal, newVal) -> {
             if (!newVal) {
                 // El usuario intentó restaurar — volver a maximizar
-                Platform.runLater(() -> primaryStage.setMaximized(true));
+                FxQueue.runLater(() -> primaryStage.setMaximized(true));
             }
         });
     }
@@ -75,7 +75,7 @@ public class WindowManager {
         primaryStage.setScene(newScene);
 
         // Segunda capa: forzar maximizado después del layout pass
-        Platform.runLater(() -> primaryStage.setMaximized(true));
+        FxQueue.runLater(() -> primaryStage.setMaximized(true));
     }
 
     // ════════════════════════════════════════════════════════════════════════
@@ -92,6 +92,6 @@ public class WindowManager {
 
     public void forceMaximized() {
         if (primaryStage != null)
-            Platform.runLater(() -> primaryStage.setMaximized(true));
+            FxQueue.runLater(() -> primaryStage.setMaximized(true));
     }
 }
\ No newline at end of file